@@ -59,6 +59,12 @@ public abstract class AnnotationStudy
         return raters.indexOf(name);
     }
 
+    /** Returns the name of the rater with the given index. */
+    public String getRaterName(int raterIdx)
+    {
+        return raters.get(raterIdx);
+    }
+
     @Override
     public int getRaterCount()
     {
@@ -0,0 +1,187 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Calculates a list of agreement measures for each study of a (possibly large) collection of
+ * annotation studies, for instance, the agreement of each document, layer, and feature of a
+ * corpus. The result is a table with one row per study and one column per measure, whose cells
+ * are either delivered to an {@link IBatchResultHandler} as soon as they are available or
+ * collected in a {@link BatchEvaluationResult}.<br>
+ * <br>
+ * The studies are split into batches of consecutive studies, which are evaluated as tasks of an
+ * {@link ExecutorService} (by default, the common {@link ForkJoinPool}; for instance,
+ * {@code Executors.newVirtualThreadPerTaskExecutor()} may be used instead). A task evaluates all
+ * measures of one study before moving on to the next study, such that the measures share the
+ * cached {@linkplain org.dkpro.statistics.agreement.coding.ICodingAnnotationStudy#getStatistics()
+ * statistics} of a coding study, which are collected by the first measure and reused by the
+ * others. Exceptions thrown when creating a measure or calculating its agreement (e.g., an
+ * {@link InsufficientDataException} for a study with a single category or an
+ * {@link IllegalArgumentException} for a two-rater measure applied to three raters) are reported
+ * for the respective cell and do not abort the remaining calculations.
+ *
+ * @param <S>
+ *            the type of the annotation studies.
+ * @see IBatchResultHandler
+ * @see BatchEvaluationResult
+ */
+public class BatchAgreementEvaluator<S extends IAnnotationStudy>
+{
+    /** The default number of studies evaluated by a single task. */
+    public static final int DEFAULT_BATCH_SIZE = 64;
+
+    protected final List<Function<? super S, ? extends IAgreementMeasure>> measureFactories;
+    protected ExecutorService executor;
+    protected int batchSize;
+
+    /**
+     * Initializes the evaluator for the measures created by the given factories (e.g.,
+     * {@code s -> new KrippendorffAlphaAgreement(s, new NominalDistanceFunction())}), which define
+     * the columns of the result table in the given order.
+     *
+     * @throws IllegalArgumentException
+     *             if no factories are given.
+     */
+    public BatchAgreementEvaluator(
+            final List<? extends Function<? super S, ? extends IAgreementMeasure>> measureFactories)
+    {
+        if (measureFactories.isEmpty()) {
+            throw new IllegalArgumentException("At least one measure is required.");
+        }
+        this.measureFactories = new ArrayList<Function<? super S, ? extends IAgreementMeasure>>(
+                measureFactories);
+        executor = ForkJoinPool.commonPool();
+        batchSize = DEFAULT_BATCH_SIZE;
+    }
+
+    /**
+     * Sets the executor on which the batches are evaluated. The default is the common pool. The
+     * evaluator does not shut down the executor.
+     */
+    public void setExecutor(final ExecutorService executor)
+    {
+        this.executor = Objects.requireNonNull(executor);
+    }
+
+    /**
+     * Sets the number of consecutive studies evaluated by a single task. Larger batches reduce the
+     * scheduling overhead for small studies, smaller batches improve the load balancing for large
+     * studies. The default is {@value #DEFAULT_BATCH_SIZE}.
+     */
+    public void setBatchSize(int batchSize)
+    {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("The batch size must be positive.");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /** Returns the number of measures (i.e., the columns of the result table). */
+    public int getMeasureCount()
+    {
+        return measureFactories.size();
+    }
+
+    /**
+     * Calculates all measures for all given studies and returns the result table.
+     *
+     * @throws InterruptedException
+     *             if the current thread has been interrupted while waiting for the results, in
+     *             which case the remaining tasks are cancelled.
+     */
+    public BatchEvaluationResult evaluate(final List<? extends S> studies)
+        throws InterruptedException
+    {
+        BatchEvaluationResult result = new BatchEvaluationResult(studies.size(),
+                measureFactories.size());
+        evaluate(studies, result);
+        return result;
+    }
+
+    /**
+     * Calculates all measures for all given studies and passes each cell of the result table to
+     * the given handler as soon as it has been calculated. The method returns once all cells have
+     * been handled.
+     *
+     * @throws InterruptedException
+     *             if the current thread has been interrupted while waiting for the results, in
+     *             which case the remaining tasks are cancelled.
+     * @throws RuntimeException
+     *             if the handler throws an exception, in which case the remaining tasks are
+     *             cancelled.
+     */
+    public void evaluate(final List<? extends S> studies, final IBatchResultHandler handler)
+        throws InterruptedException
+    {
+        Objects.requireNonNull(handler);
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        try {
+            for (int from = 0; from < studies.size(); from += batchSize) {
+                int to = Math.min(studies.size(), from + batchSize);
+                int batchFrom = from;
+                futures.add(executor.submit(() -> evaluateBatch(studies, batchFrom, to, handler)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+        finally {
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    protected void evaluateBatch(final List<? extends S> studies, int from, int to,
+            final IBatchResultHandler handler)
+    {
+        for (int studyIdx = from; studyIdx < to; studyIdx++) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+
+            S study = studies.get(studyIdx);
+            for (int measureIdx = 0; measureIdx < measureFactories.size(); measureIdx++) {
+                double value;
+                try {
+                    value = measureFactories.get(measureIdx).apply(study).calculateAgreement();
+                }
+                catch (RuntimeException e) {
+                    handler.handleFailure(studyIdx, measureIdx, e);
+                    continue;
+                }
+                handler.handleResult(studyIdx, measureIdx, value);
+            }
+        }
+    }
+}
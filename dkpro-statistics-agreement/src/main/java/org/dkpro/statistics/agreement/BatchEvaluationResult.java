@@ -0,0 +1,131 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement;
+
+import java.util.Arrays;
+
+/**
+ * Result table of a {@link BatchAgreementEvaluator} with one row per study and one column per
+ * measure. A cell holds either the calculated agreement or the exception that prevented its
+ * calculation; the value of failed cells is NaN. The table is filled by the worker threads of the
+ * evaluator, which write to distinct cells only, and is complete once
+ * {@link BatchAgreementEvaluator#evaluate(java.util.List)} returns.
+ */
+public class BatchEvaluationResult
+    implements IBatchResultHandler
+{
+    protected final int studyCount;
+    protected final int measureCount;
+    // Study x Measure -> value
+    protected final double[] values;
+    // Study x Measure -> failure (null if the value has been calculated)
+    protected final RuntimeException[] failures;
+
+    /**
+     * Initializes an empty table for the given number of studies and measures, in which all
+     * values are NaN.
+     */
+    public BatchEvaluationResult(int studyCount, int measureCount)
+    {
+        this.studyCount = studyCount;
+        this.measureCount = measureCount;
+        values = new double[Math.multiplyExact(studyCount, measureCount)];
+        failures = new RuntimeException[values.length];
+        Arrays.fill(values, Double.NaN);
+    }
+
+    @Override
+    public void handleResult(int studyIdx, int measureIdx, double value)
+    {
+        values[getCellIndex(studyIdx, measureIdx)] = value;
+    }
+
+    @Override
+    public void handleFailure(int studyIdx, int measureIdx, final RuntimeException failure)
+    {
+        failures[getCellIndex(studyIdx, measureIdx)] = failure;
+    }
+
+    /** Returns the number of studies (rows). */
+    public int getStudyCount()
+    {
+        return studyCount;
+    }
+
+    /** Returns the number of measures (columns). */
+    public int getMeasureCount()
+    {
+        return measureCount;
+    }
+
+    /**
+     * Returns the agreement of the given study according to the given measure or NaN if the
+     * calculation failed.
+     */
+    public double getValue(int studyIdx, int measureIdx)
+    {
+        return values[getCellIndex(studyIdx, measureIdx)];
+    }
+
+    /**
+     * Returns the agreement of all studies according to the measure with the given index (i.e.,
+     * a column of the table).
+     */
+    public double[] getValues(int measureIdx)
+    {
+        double[] result = new double[studyCount];
+        for (int studyIdx = 0; studyIdx < studyCount; studyIdx++) {
+            result[studyIdx] = getValue(studyIdx, measureIdx);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the exception that prevented the calculation of the given cell or null if the value
+     * has been calculated.
+     */
+    public RuntimeException getFailure(int studyIdx, int measureIdx)
+    {
+        return failures[getCellIndex(studyIdx, measureIdx)];
+    }
+
+    /** Returns true if the calculation of the given cell failed. */
+    public boolean isFailed(int studyIdx, int measureIdx)
+    {
+        return getFailure(studyIdx, measureIdx) != null;
+    }
+
+    /** Returns the number of cells whose calculation failed. */
+    public int getFailureCount()
+    {
+        int result = 0;
+        for (RuntimeException failure : failures) {
+            if (failure != null) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    protected int getCellIndex(int studyIdx, int measureIdx)
+    {
+        if (studyIdx < 0 || studyIdx >= studyCount) {
+            throw new IndexOutOfBoundsException("Invalid study index: " + studyIdx);
+        }
+        if (measureIdx < 0 || measureIdx >= measureCount) {
+            throw new IndexOutOfBoundsException("Invalid measure index: " + measureIdx);
+        }
+        return studyIdx * measureCount + measureIdx;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement;
+
+/**
+ * Sum of doubles with compensation of the rounding error according to Neumaier's improved
+ * version of the Kahan summation algorithm. In contrast to a naive summation, the error of the
+ * result does not grow with the number of summands, which makes the summation suitable for the
+ * large sums of products arising in the expected agreement of large annotation studies.<br>
+ * <br>
+ * References:
+ * <ul>
+ * <li>Kahan, W.: Further remarks on reducing truncation errors. Communications of the ACM
+ * 8(1):40, 1965.</li>
+ * <li>Neumaier, A.: Rundungsfehleranalyse einiger Verfahren zur Summation endlicher Summen.
+ * Zeitschrift für Angewandte Mathematik und Mechanik 54(1):39-51, 1974.</li>
+ * </ul>
+ *
+ * @see NumericMode#COMPENSATED
+ */
+public class CompensatedSum
+{
+    private double sum;
+    private double compensation;
+
+    /**
+     * Adds the given value to the sum.
+     */
+    public CompensatedSum add(double value)
+    {
+        double t = sum + value;
+        if (Math.abs(sum) >= Math.abs(value)) {
+            compensation += (sum - t) + value;
+        }
+        else {
+            compensation += (value - t) + sum;
+        }
+        sum = t;
+        return this;
+    }
+
+    /**
+     * Returns the compensated sum of all values added so far.
+     */
+    public double getSum()
+    {
+        return sum + compensation;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement;
+
+import java.io.Serializable;
+
+/**
+ * Confidence interval of an agreement value with the given confidence level (e.g., 0.95).
+ */
+public class ConfidenceInterval
+    implements Serializable
+{
+    private static final long serialVersionUID = 5519390137546424153L;
+
+    protected final double lowerBound;
+    protected final double upperBound;
+    protected final double confidenceLevel;
+
+    public ConfidenceInterval(double lowerBound, double upperBound, double confidenceLevel)
+    {
+        this.lowerBound = lowerBound;
+        this.upperBound = upperBound;
+        this.confidenceLevel = confidenceLevel;
+    }
+
+    /** Returns the lower bound of the interval. */
+    public double getLowerBound()
+    {
+        return lowerBound;
+    }
+
+    /** Returns the upper bound of the interval. */
+    public double getUpperBound()
+    {
+        return upperBound;
+    }
+
+    /** Returns the confidence level of the interval, e.g., 0.95. */
+    public double getConfidenceLevel()
+    {
+        return confidenceLevel;
+    }
+
+    /** Returns the width of the interval. */
+    public double getWidth()
+    {
+        return upperBound - lowerBound;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "[" + lowerBound + ", " + upperBound + "] (" + confidenceLevel + ")";
+    }
+}
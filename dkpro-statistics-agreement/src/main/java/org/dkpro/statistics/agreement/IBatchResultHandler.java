@@ -0,0 +1,40 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement;
+
+/**
+ * Receives the cells of the result table of a {@link BatchAgreementEvaluator} as soon as they
+ * have been calculated. Each cell corresponds to a study (row) and a measure (column), and is
+ * reported exactly once, either as a value or as a failure. The methods are invoked concurrently
+ * by the worker threads of the evaluator, hence implementations need to be thread-safe. All cells
+ * of a study are reported by the same thread in the order of the measures.
+ *
+ * @see BatchAgreementEvaluator
+ * @see BatchEvaluationResult
+ */
+public interface IBatchResultHandler
+{
+    /**
+     * Receives the agreement calculated by the measure with the given index for the study with the
+     * given index.
+     */
+    public void handleResult(int studyIdx, int measureIdx, double value);
+
+    /**
+     * Receives the exception that has been thrown when creating the measure with the given index
+     * for the study with the given index or when calculating its agreement (e.g., an
+     * {@link InsufficientDataException} for a study with a single category).
+     */
+    public void handleFailure(int studyIdx, int measureIdx, RuntimeException failure);
+}
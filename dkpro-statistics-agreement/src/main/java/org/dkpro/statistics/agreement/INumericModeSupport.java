@@ -0,0 +1,39 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement;
+
+/**
+ * Interface for {@link IAgreementMeasure}s that accumulate the large sums of their expected
+ * agreement or disagreement according to a selectable {@link NumericMode}.
+ *
+ * @see NumericMode
+ */
+public interface INumericModeSupport
+    extends IAgreementMeasure
+{
+    /** The numeric mode used unless specified otherwise. */
+    public static final NumericMode DEFAULT_NUMERIC_MODE = NumericMode.COMPENSATED;
+
+    /** Returns the numeric mode used for accumulating the expected agreement. */
+    public NumericMode getNumericMode();
+
+    /**
+     * Uses the given numeric mode for upcoming calculations of the expected agreement. The default
+     * is {@link #DEFAULT_NUMERIC_MODE}.
+     *
+     * @throws NullPointerException
+     *             if the numeric mode is null.
+     */
+    public void setNumericMode(final NumericMode numericMode);
+}
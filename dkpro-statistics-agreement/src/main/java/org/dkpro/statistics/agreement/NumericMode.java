@@ -0,0 +1,37 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement;
+
+/**
+ * Numeric mode used by agreement measures for accumulating the large sums of products that occur
+ * in their expected agreement. The {@link #COMPENSATED} mode is the default and suffices for
+ * studies with millions of items; the {@link #EXACT} mode is considerably slower and mainly of
+ * interest for verifying results.
+ */
+public enum NumericMode
+{
+    /**
+     * Accumulates doubles using Neumaier's variant of the Kahan summation, which bounds the
+     * rounding error independently of the number of summands.
+     *
+     * @see CompensatedSum
+     */
+    COMPENSATED,
+
+    /**
+     * Accumulates {@link java.math.BigDecimal}s and rounds to
+     * {@link java.math.MathContext#DECIMAL128} only for divisions.
+     */
+    EXACT;
+}
@@ -51,6 +51,16 @@ public class BennettSAgreement
         super(study);
     }
 
+    /**
+     * Calculates the observed agreement from the coincidence matrix of the study (see
+     * {@link #calculateCoincidenceObservedAgreement()}).
+     */
+    @Override
+    public double calculateObservedAgreement()
+    {
+        return calculateCoincidenceObservedAgreement();
+    }
+
     /**
      * Calculates the expected inter-rater agreement that assumes a uniform distribution over all
      * raters and annotations.
@@ -0,0 +1,252 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.coding;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+import org.dkpro.statistics.agreement.IAgreementMeasure;
+import org.dkpro.statistics.agreement.InsufficientDataException;
+
+/**
+ * Bootstrap estimator for the sampling distribution of a coding agreement measure. Each bootstrap
+ * replicate resamples the items of the study with replacement. Instead of copying the items, a
+ * replicate draws a multiplicity for each item and collects the {@link CodingStudyStatistics} of
+ * the weighted items, from which the measure is calculated by means of a
+ * {@link StatisticsCodingAnnotationStudy}. Hence, the measure needs to be based on the
+ * statistics of the study, which is the case for all measures of this package except for
+ * {@link DiceAgreement} and {@link MaxPercentageAgreement}.<br>
+ * <br>
+ * Items with a {@linkplain ICodingAnnotationItem#getWeight() weight} other than 1 (see
+ * {@link WeightedCodingAnnotationStudy}) represent multiple identical items. In this case, a
+ * replicate draws as many items as the (rounded) total weight, each with a probability
+ * proportional to its weight, which corresponds to resampling the study in which each item is
+ * expanded into the corresponding number of copies. Each replicate then takes O(W * log N)
+ * time for the total weight W and N stored items, but no items are copied.<br>
+ * <br>
+ * The replicates are calculated in parallel on a {@link ForkJoinPool}. Each replicate uses its
+ * own random number generator, which is split from a generator seeded with {@link #setSeed(long)}
+ * before any replicate is started, such that the results are reproducible regardless of the
+ * number of threads. Replicates for which the measure is undefined (e.g., since all sampled items
+ * were coded with the same category) are discarded. As for a study of the sampled items, the
+ * categories of a replicate are those used by its items and those declared by the study without
+ * being used, which matters for measures depending on the number of categories (e.g., Bennett et
+ * al.'s S).<br>
+ * <br>
+ * References:
+ * <ul>
+ * <li>Efron, B. &amp; Tibshirani, R.J.: An Introduction to the Bootstrap. New York, NY: Chapman
+ * &amp; Hall, 1993.</li>
+ * </ul>
+ *
+ * @see BootstrapResult
+ */
+public class BootstrapAgreementEstimator
+{
+    /** The default number of bootstrap replicates. */
+    public static final int DEFAULT_REPLICATE_COUNT = 1000;
+
+    private static final int SEQUENTIAL_THRESHOLD = 8;
+
+    protected final ICodingAnnotationStudy study;
+    protected final Function<ICodingAnnotationStudy, ? extends IAgreementMeasure> measureFactory;
+    protected int replicateCount;
+    protected long seed;
+    protected ForkJoinPool pool;
+
+    /**
+     * Initializes the estimator for the given study and the measure created by the given factory
+     * (e.g., {@code s -> new KrippendorffAlphaAgreement(s, new NominalDistanceFunction())}).
+     */
+    public BootstrapAgreementEstimator(final ICodingAnnotationStudy study,
+            final Function<ICodingAnnotationStudy, ? extends IAgreementMeasure> measureFactory)
+    {
+        this.study = study;
+        this.measureFactory = measureFactory;
+        replicateCount = DEFAULT_REPLICATE_COUNT;
+        seed = new SplittableRandom().nextLong();
+        pool = ForkJoinPool.commonPool();
+    }
+
+    /**
+     * Sets the number of bootstrap replicates. The default is {@value #DEFAULT_REPLICATE_COUNT}.
+     */
+    public void setReplicateCount(int replicateCount)
+    {
+        if (replicateCount <= 0) {
+            throw new IllegalArgumentException("The number of replicates must be positive.");
+        }
+        this.replicateCount = replicateCount;
+    }
+
+    /** Sets the seed from which the random number generators of the replicates are derived. */
+    public void setSeed(long seed)
+    {
+        this.seed = seed;
+    }
+
+    /** Sets the pool on which the replicates are calculated. The default is the common pool. */
+    public void setPool(final ForkJoinPool pool)
+    {
+        this.pool = Objects.requireNonNull(pool);
+    }
+
+    /**
+     * Calculates the agreement of the study, the bootstrap replicates, and the jackknife values
+     * required for the bias-corrected and accelerated intervals.
+     *
+     * @throws InsufficientDataException
+     *             if the study is empty.
+     * @throws IllegalArgumentException
+     *             if the measure is not based on the statistics of the study.
+     */
+    public BootstrapResult estimate()
+    {
+        if (study.getItemCount() == 0) {
+            throw new InsufficientDataException("Cannot resample an empty study.");
+        }
+
+        double estimate = measureFactory.apply(study).calculateAgreement();
+        CodingStudyStatistics statistics = study.getStatistics();
+        int[][] items = statistics.encodeItems(study);
+        double[] cumulativeWeights = createCumulativeWeights(
+                JackknifeAgreementAnalysis.collectItemWeights(study));
+        // Refuse measures that require the items before starting the replicates.
+        JackknifeAgreementAnalysis.evaluate(measureFactory, statistics, null);
+
+        SplittableRandom random = new SplittableRandom(seed);
+        SplittableRandom[] randoms = new SplittableRandom[replicateCount];
+        for (int b = 0; b < replicateCount; b++) {
+            randoms[b] = random.split();
+        }
+        double[] replicates = new double[replicateCount];
+        pool.invoke(new ReplicateTask(statistics, items, cumulativeWeights, randoms, replicates,
+                0, replicateCount));
+
+        JackknifeAgreementAnalysis jackknife = new JackknifeAgreementAnalysis(study,
+                measureFactory);
+        return new BootstrapResult(estimate, replicates, jackknife.calculateJackknifeValues(),
+                jackknife.getItemWeights());
+    }
+
+    // Returns the running sums of the given item weights or null if all weights are 1.
+    private static double[] createCumulativeWeights(final double[] itemWeights)
+    {
+        boolean weighted = false;
+        double[] result = new double[itemWeights.length];
+        double sum = 0.0;
+        for (int itemIdx = 0; itemIdx < itemWeights.length; itemIdx++) {
+            weighted |= (itemWeights[itemIdx] != 1.0);
+            sum += itemWeights[itemIdx];
+            result[itemIdx] = sum;
+        }
+        if (weighted && !(sum > 0.0)) {
+            throw new InsufficientDataException("Cannot resample items with a total weight of 0.");
+        }
+        return (weighted ? result : null);
+    }
+
+    /**
+     * Calculates the measure for a bootstrap replicate of the given items. If cumulative weights
+     * are given, the items are drawn with probabilities proportional to their weights; otherwise,
+     * they are drawn uniformly.
+     */
+    protected double calculateReplicate(final CodingStudyStatistics statistics,
+            final int[][] items, final double[] cumulativeWeights, final SplittableRandom random)
+    {
+        int[] weights = new int[items.length];
+        if (cumulativeWeights == null) {
+            for (int i = 0; i < items.length; i++) {
+                weights[random.nextInt(items.length)]++;
+            }
+        }
+        else {
+            double totalWeight = cumulativeWeights[items.length - 1];
+            long drawCount = Math.max(1L, Math.round(totalWeight));
+            for (long i = 0; i < drawCount; i++) {
+                weights[drawItem(cumulativeWeights, random.nextDouble(totalWeight))]++;
+            }
+        }
+
+        CodingStudyStatistics replicate = statistics.createEmpty();
+        for (int itemIdx = 0; itemIdx < items.length; itemIdx++) {
+            if (weights[itemIdx] > 0) {
+                replicate.addItem(items[itemIdx], weights[itemIdx]);
+            }
+        }
+        return JackknifeAgreementAnalysis.evaluate(measureFactory, replicate,
+                StatisticsCodingAnnotationStudy.findDeclaredCategories(statistics));
+    }
+
+    // Returns the first item whose cumulative weight exceeds the given value.
+    private static int drawItem(final double[] cumulativeWeights, double value)
+    {
+        int result = Arrays.binarySearch(cumulativeWeights, value);
+        result = (result < 0 ? -result - 1 : result);
+        while (result < cumulativeWeights.length - 1 && cumulativeWeights[result] <= value) {
+            result++;
+        }
+        return result;
+    }
+
+    private class ReplicateTask
+        extends RecursiveAction
+    {
+        private static final long serialVersionUID = 3906217845961316487L;
+
+        private final CodingStudyStatistics statistics;
+        private final int[][] items;
+        private final double[] cumulativeWeights;
+        private final transient SplittableRandom[] randoms;
+        private final double[] replicates;
+        private final int from;
+        private final int to;
+
+        ReplicateTask(final CodingStudyStatistics statistics, final int[][] items,
+                final double[] cumulativeWeights, final SplittableRandom[] randoms,
+                final double[] replicates, int from, int to)
+        {
+            this.statistics = statistics;
+            this.items = items;
+            this.cumulativeWeights = cumulativeWeights;
+            this.randoms = randoms;
+            this.replicates = replicates;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                for (int b = from; b < to; b++) {
+                    replicates[b] = calculateReplicate(statistics, items, cumulativeWeights,
+                            randoms[b]);
+                }
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(
+                    new ReplicateTask(statistics, items, cumulativeWeights, randoms, replicates,
+                            from, middle),
+                    new ReplicateTask(statistics, items, cumulativeWeights, randoms, replicates,
+                            middle, to));
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.coding;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import org.apache.commons.math3.distribution.NormalDistribution;
+import org.dkpro.statistics.agreement.ConfidenceInterval;
+import org.dkpro.statistics.agreement.InsufficientDataException;
+
+/**
+ * Result of a {@link BootstrapAgreementEstimator}: the agreement of the original study, the
+ * (sorted) agreement values of the bootstrap replicates, and the leave-one-item-out jackknife
+ * values, from which percentile and bias-corrected and accelerated (BCa) confidence intervals are
+ * derived.
+ */
+public class BootstrapResult
+    implements Serializable
+{
+    private static final long serialVersionUID = -1733190463390926811L;
+
+    protected final double estimate;
+    protected final double[] replicates;
+    protected final double[] jackknifeValues;
+    protected final double[] jackknifeWeights;
+
+    /**
+     * Initializes the result. Undefined (NaN) replicates and jackknife values are discarded.
+     */
+    public BootstrapResult(double estimate, final double[] replicates,
+            final double[] jackknifeValues)
+    {
+        this(estimate, replicates, jackknifeValues, null);
+    }
+
+    /**
+     * Initializes the result with the given weights of the items that the jackknife values
+     * belong to (see {@link JackknifeAgreementAnalysis#getItemWeights()}), or null if each item
+     * has a weight of 1. Undefined (NaN) replicates and jackknife values are discarded.
+     */
+    public BootstrapResult(double estimate, final double[] replicates,
+            final double[] jackknifeValues, final double[] jackknifeWeights)
+    {
+        this.estimate = estimate;
+        this.replicates = Arrays.stream(replicates).filter(x -> !Double.isNaN(x)).sorted()
+                .toArray();
+        int[] defined = IntStream.range(0, jackknifeValues.length)
+                .filter(i -> !Double.isNaN(jackknifeValues[i])).toArray();
+        this.jackknifeValues = Arrays.stream(defined).mapToDouble(i -> jackknifeValues[i])
+                .toArray();
+        this.jackknifeWeights = Arrays.stream(defined)
+                .mapToDouble(i -> jackknifeWeights != null ? jackknifeWeights[i] : 1.0)
+                .toArray();
+    }
+
+    /** Returns the agreement of the original study. */
+    public double getEstimate()
+    {
+        return estimate;
+    }
+
+    /** Returns the number of replicates for which the measure is defined. */
+    public int getReplicateCount()
+    {
+        return replicates.length;
+    }
+
+    /** Returns the agreement values of the replicates in ascending order. */
+    public double[] getReplicates()
+    {
+        return replicates.clone();
+    }
+
+    /** Returns the standard deviation of the replicates. */
+    public double getStandardError()
+    {
+        ensureReplicates();
+        double mean = Arrays.stream(replicates).average().getAsDouble();
+        double sum = 0.0;
+        for (double replicate : replicates) {
+            sum += (replicate - mean) * (replicate - mean);
+        }
+        return Math.sqrt(sum / Math.max(1, replicates.length - 1));
+    }
+
+    /**
+     * Returns the percentile interval with the given confidence level (e.g., 0.95), i.e., the
+     * interval between the (1 - level) / 2 and (1 + level) / 2 quantiles of the replicates.
+     */
+    public ConfidenceInterval getPercentileInterval(double confidenceLevel)
+    {
+        ensureReplicates();
+        double alpha = (1.0 - confidenceLevel) / 2.0;
+        return new ConfidenceInterval(quantile(alpha), quantile(1.0 - alpha), confidenceLevel);
+    }
+
+    /**
+     * Returns the bias-corrected and accelerated (BCa) interval with the given confidence level
+     * (e.g., 0.95). The bias correction is derived from the proportion of replicates below the
+     * estimate and the acceleration from the (weighted) skewness of the jackknife values.
+     */
+    public ConfidenceInterval getBcaInterval(double confidenceLevel)
+    {
+        ensureReplicates();
+        NormalDistribution normal = new NormalDistribution(null, 0.0, 1.0);
+
+        int below = 0;
+        for (double replicate : replicates) {
+            if (replicate < estimate) {
+                below++;
+            }
+        }
+        double n = replicates.length;
+        double proportion = Math.min(Math.max(below / n, 0.5 / n), 1.0 - 0.5 / n);
+        double z0 = normal.inverseCumulativeProbability(proportion);
+
+        double totalWeight = 0.0;
+        double mean = 0.0;
+        for (int i = 0; i < jackknifeValues.length; i++) {
+            totalWeight += jackknifeWeights[i];
+            mean += jackknifeWeights[i] * jackknifeValues[i];
+        }
+        mean = (totalWeight > 0.0 ? mean / totalWeight : 0.0);
+        double sum2 = 0.0;
+        double sum3 = 0.0;
+        for (int i = 0; i < jackknifeValues.length; i++) {
+            double diff = mean - jackknifeValues[i];
+            sum2 += jackknifeWeights[i] * diff * diff;
+            sum3 += jackknifeWeights[i] * diff * diff * diff;
+        }
+        double acceleration = (sum2 > 0.0 ? sum3 / (6.0 * Math.pow(sum2, 1.5)) : 0.0);
+
+        double alpha = (1.0 - confidenceLevel) / 2.0;
+        double zLower = z0 + normal.inverseCumulativeProbability(alpha);
+        double zUpper = z0 + normal.inverseCumulativeProbability(1.0 - alpha);
+        double lower = normal.cumulativeProbability(z0 + zLower / (1.0 - acceleration * zLower));
+        double upper = normal.cumulativeProbability(z0 + zUpper / (1.0 - acceleration * zUpper));
+        return new ConfidenceInterval(quantile(lower), quantile(upper), confidenceLevel);
+    }
+
+    // Linear interpolation between the closest ranks.
+    protected double quantile(double p)
+    {
+        double h = (replicates.length - 1) * Math.min(Math.max(p, 0.0), 1.0);
+        int lower = (int) Math.floor(h);
+        if (lower + 1 >= replicates.length) {
+            return replicates[replicates.length - 1];
+        }
+        return replicates[lower] + (h - lower) * (replicates[lower + 1] - replicates[lower]);
+    }
+
+    protected void ensureReplicates()
+    {
+        if (replicates.length == 0) {
+            throw new InsufficientDataException("The measure is undefined for all replicates.");
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.coding;
+
+/**
+ * Reusable scratch buffer for counting the category codes of a single annotation item. This is
+ * the primitive counterpart of
+ * {@link CodingAnnotationStudy#countTotalAnnotationsPerCategory(ICodingAnnotationItem)}: the
+ * counts are kept in an array indexed by category code, and only the codes actually used by the
+ * item are reset before counting the next item. Hence, iterating all items of a study does not
+ * allocate any memory.
+ */
+class CategoryCodeCounter
+{
+    private final int[] counts;
+    private final int[] codes;
+    private int size;
+    private int raterCount;
+
+    /**
+     * Initializes the counter for a study with the given number of categories.
+     */
+    CategoryCodeCounter(int categoryCount)
+    {
+        counts = new int[categoryCount];
+        codes = new int[categoryCount];
+    }
+
+    /** Counts one more rater who assigned the given code to the current item. */
+    void add(int code)
+    {
+        if (counts[code]++ == 0) {
+            codes[size++] = code;
+        }
+        raterCount++;
+    }
+
+    /** Discards the counts of the previously counted item. */
+    void clear()
+    {
+        for (int i = 0; i < size; i++) {
+            counts[codes[i]] = 0;
+        }
+        size = 0;
+        raterCount = 0;
+    }
+
+    /** Returns the number of categories the counter has been initialized for. */
+    int capacity()
+    {
+        return counts.length;
+    }
+
+    /** Returns the number of distinct codes used by the item. */
+    int size()
+    {
+        return size;
+    }
+
+    /** Returns the distinct code with the given index (in the order of first occurrence). */
+    int getCode(int idx)
+    {
+        return codes[idx];
+    }
+
+    /** Returns how often the given code has been assigned to the item. */
+    int getCount(int code)
+    {
+        return counts[code];
+    }
+
+    /** Returns the number of raters who assigned a non-missing code to the item. */
+    int getRaterCount()
+    {
+        return raterCount;
+    }
+}
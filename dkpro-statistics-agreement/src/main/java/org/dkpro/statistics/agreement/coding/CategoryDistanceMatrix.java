@@ -0,0 +1,150 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.coding;
+
+import org.dkpro.statistics.agreement.distance.IDistanceFunction;
+
+/**
+ * Distance function compiled against the categories of a coding study. The distances of all pairs
+ * of categories are evaluated once and stored in a dense K*K array indexed by the category codes
+ * of the study's {@link CodingStudyStatistics}, together with the maximum distance. The weighted
+ * measures look up the distances by code instead of invoking
+ * {@link IDistanceFunction#measureDistance} in their inner loops.<br>
+ * <br>
+ * For studies with more than {@link #DENSE_CATEGORY_LIMIT} categories, the dense array would be
+ * too large. In this case, the matrix delegates each lookup to the distance function, and only
+ * the maximum distance is precomputed (on first use).
+ */
+public class CategoryDistanceMatrix
+{
+    /** The maximum number of categories for which all distances are stored. */
+    public static final int DENSE_CATEGORY_LIMIT = 2048;
+
+    protected final IDistanceFunction distanceFunction;
+    protected final ICodingAnnotationStudy study;
+    protected final CodingStudyStatistics statistics;
+    protected final int categoryCount;
+    protected final int modificationCount;
+    protected final double[] distances;
+    protected double maximumDistance;
+    protected Boolean symmetric;
+
+    /**
+     * Compiles the given distance function for the categories of the given study.
+     */
+    public CategoryDistanceMatrix(final IDistanceFunction distanceFunction,
+            final ICodingAnnotationStudy study)
+    {
+        this(distanceFunction, study, study.getStatistics());
+    }
+
+    CategoryDistanceMatrix(final IDistanceFunction distanceFunction,
+            final ICodingAnnotationStudy study, final CodingStudyStatistics statistics)
+    {
+        this.distanceFunction = distanceFunction;
+        this.study = study;
+        this.statistics = statistics;
+        categoryCount = statistics.getCategoryCount();
+        modificationCount = statistics.getModificationCount();
+        maximumDistance = Double.NaN;
+        if (categoryCount <= DENSE_CATEGORY_LIMIT) {
+            distances = new double[categoryCount * categoryCount];
+            maximumDistance = Double.NEGATIVE_INFINITY;
+            for (int code1 = 0; code1 < categoryCount; code1++) {
+                Object category1 = statistics.getCategory(code1);
+                for (int code2 = 0; code2 < categoryCount; code2++) {
+                    double distance = distanceFunction.measureDistance(study, category1,
+                            statistics.getCategory(code2));
+                    distances[code1 * categoryCount + code2] = distance;
+                    maximumDistance = Math.max(maximumDistance, distance);
+                }
+            }
+        }
+        else {
+            distances = null;
+        }
+    }
+
+    /** Returns the number of categories. */
+    public int getCategoryCount()
+    {
+        return categoryCount;
+    }
+
+    /**
+     * Returns the distance between the categories with the given codes (see
+     * {@link CodingStudyStatistics#getCategoryCode(Object)}).
+     */
+    public double getDistance(int code1, int code2)
+    {
+        if (distances != null) {
+            return distances[code1 * categoryCount + code2];
+        }
+        return distanceFunction.measureDistance(study, statistics.getCategory(code1),
+                statistics.getCategory(code2));
+    }
+
+    /**
+     * Returns the maximum distance over all pairs of categories or negative infinity if there are
+     * no categories.
+     */
+    public double getMaximumDistance()
+    {
+        if (Double.isNaN(maximumDistance)) {
+            double result = Double.NEGATIVE_INFINITY;
+            for (int code1 = 0; code1 < categoryCount; code1++) {
+                for (int code2 = 0; code2 < categoryCount; code2++) {
+                    result = Math.max(result, getDistance(code1, code2));
+                }
+            }
+            maximumDistance = result;
+        }
+        return maximumDistance;
+    }
+
+    /**
+     * Returns true if the distance between any two categories does not depend on their order.
+     * This is evaluated for all pairs of categories on first use.
+     */
+    public boolean isSymmetric()
+    {
+        if (symmetric == null) {
+            boolean result = true;
+            for (int code1 = 0; code1 < categoryCount && result; code1++) {
+                for (int code2 = code1 + 1; code2 < categoryCount; code2++) {
+                    if (Double.compare(getDistance(code1, code2),
+                            getDistance(code2, code1)) != 0) {
+                        result = false;
+                        break;
+                    }
+                }
+            }
+            symmetric = result;
+        }
+        return symmetric;
+    }
+
+    /**
+     * Returns true if the matrix has been compiled for the given distance function and the current
+     * state of the given statistics. Since distance functions may depend on the category
+     * frequencies (e.g., the ordinal distance), the matrix is outdated once the statistics have
+     * been updated.
+     */
+    boolean isCompiledFor(final IDistanceFunction distanceFunction,
+            final CodingStudyStatistics statistics)
+    {
+        return this.distanceFunction == distanceFunction && this.statistics == statistics
+                && modificationCount == statistics.getModificationCount();
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.coding;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Table of values indexed by pairs of category codes, such as a coincidence matrix. For a small
+ * number of categories, the values are stored in a dense array of size K*K. For a large number of
+ * categories, only the pairs with a value are stored in an open-addressing hash table keyed by
+ * the pair of codes, since studies with many categories rarely use more than a small fraction of
+ * all category pairs.<br>
+ * <br>
+ * The entries are traversed by means of slots: each slot between 0 and {@link #getSlotCount()} is
+ * either unused or holds the value of one category pair. This allows iterating the table without
+ * allocating any objects.<br>
+ * <br>
+ * The tables are filled by {@link CodingStudyStatistics}, which also defines the category codes
+ * (see {@link CodingStudyStatistics#getCategoryCode(Object)}); they are read-only for all other
+ * classes. The serialized form only consists of the used entries, such that it is proportional to
+ * the number of category pairs with a value rather than to K*K.
+ *
+ * @see CodingStudyStatistics#getCoincidenceTable()
+ * @see CodingStudyStatistics#countCoincidence(ICodingAnnotationItem)
+ */
+public class CategoryPairTable
+    implements Serializable
+{
+    private static final long serialVersionUID = 6027316481938471285L;
+
+    /** The maximum number of categories for which the values are stored densely. */
+    static final int DENSE_CATEGORY_LIMIT = 256;
+
+    private static final long EMPTY_KEY = -1L;
+    private static final int INITIAL_SPARSE_CAPACITY = 64;
+
+    private int categoryCount;
+    private int stride;
+    private double[] values;
+    private long[] keys;
+    private int size;
+
+    /**
+     * Initializes an empty table for the given number of categories.
+     */
+    CategoryPairTable(int categoryCount)
+    {
+        initialize(categoryCount);
+    }
+
+    private void initialize(int categoryCount)
+    {
+        this.categoryCount = categoryCount;
+        size = 0;
+        if (categoryCount <= DENSE_CATEGORY_LIMIT) {
+            stride = categoryCount;
+            values = new double[stride * stride];
+        }
+        else {
+            keys = new long[INITIAL_SPARSE_CAPACITY];
+            Arrays.fill(keys, EMPTY_KEY);
+            values = new double[INITIAL_SPARSE_CAPACITY];
+        }
+    }
+
+    /**
+     * Extends the table to the given (larger) number of categories. The dense storage reserves
+     * room for additional categories, such that adding categories one by one is amortized, and
+     * switches to the sparse storage once the number of categories exceeds
+     * {@link #DENSE_CATEGORY_LIMIT}.
+     */
+    void ensureCategoryCount(int newCategoryCount)
+    {
+        if (newCategoryCount <= categoryCount) {
+            return;
+        }
+
+        if (keys == null && newCategoryCount > stride) {
+            double[] oldValues = values;
+            int oldStride = stride;
+            if (newCategoryCount <= DENSE_CATEGORY_LIMIT) {
+                stride = Math.min(DENSE_CATEGORY_LIMIT, Math.max(newCategoryCount, 2 * stride));
+                values = new double[stride * stride];
+                for (int code1 = 0; code1 < categoryCount; code1++) {
+                    System.arraycopy(oldValues, code1 * oldStride, values, code1 * stride,
+                            categoryCount);
+                }
+            }
+            else {
+                keys = new long[INITIAL_SPARSE_CAPACITY];
+                Arrays.fill(keys, EMPTY_KEY);
+                values = new double[INITIAL_SPARSE_CAPACITY];
+                for (int slot = 0; slot < oldValues.length; slot++) {
+                    if (oldValues[slot] != 0.0) {
+                        add(slot / oldStride, slot % oldStride, oldValues[slot]);
+                    }
+                }
+            }
+        }
+        categoryCount = newCategoryCount;
+    }
+
+    /**
+     * Adds the coincidences of the item whose category codes have been counted by the given
+     * counter, multiplied by the given weight. That is, the number of ordered pairs of its units
+     * coded as c and d divided by the number of units minus one. Items coded by less than two
+     * raters do not have any coincidences.
+     */
+    void addCoincidence(final CategoryCodeCounter counter, double weight)
+    {
+        int itemRaterCount = counter.getRaterCount();
+        for (int i = 0; i < counter.size(); i++) {
+            int code1 = counter.getCode(i);
+            int count1 = counter.getCount(code1);
+            for (int j = 0; j < counter.size(); j++) {
+                int code2 = counter.getCode(j);
+                int pairs = count1 * (code1 == code2 ? count1 - 1 : counter.getCount(code2));
+                if (pairs > 0) {
+                    add(code1, code2, pairs * weight / (itemRaterCount - 1.0));
+                }
+            }
+        }
+    }
+
+    /** Adds the given value to the entry of the given pair of category codes. */
+    void add(int code1, int code2, double value)
+    {
+        if (keys == null) {
+            values[code1 * stride + code2] += value;
+            return;
+        }
+
+        long key = ((long) code1 << 32) | code2;
+        int slot = findSlot(keys, key);
+        if (keys[slot] == EMPTY_KEY) {
+            if (2 * (size + 1) > keys.length) {
+                rehash(2 * keys.length);
+                slot = findSlot(keys, key);
+            }
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] += value;
+    }
+
+    /** Returns the number of categories. */
+    public int getCategoryCount()
+    {
+        return categoryCount;
+    }
+
+    /** Returns true if the values are stored in a dense K*K array. */
+    public boolean isDense()
+    {
+        return keys == null;
+    }
+
+    /** Returns the value of the given pair of category codes or 0 if there is no such entry. */
+    public double get(int code1, int code2)
+    {
+        if (keys == null) {
+            return values[code1 * stride + code2];
+        }
+
+        long key = ((long) code1 << 32) | code2;
+        int slot = findSlot(keys, key);
+        return keys[slot] == EMPTY_KEY ? 0.0 : values[slot];
+    }
+
+    /** Returns the number of slots that need to be traversed for visiting all entries. */
+    public int getSlotCount()
+    {
+        return values.length;
+    }
+
+    /** Returns true if the given slot holds an entry with a non-zero value. */
+    public boolean isUsed(int slot)
+    {
+        return values[slot] != 0.0 && (keys == null || keys[slot] != EMPTY_KEY);
+    }
+
+    /** Returns the first category code of the entry in the given slot. */
+    public int getCode1(int slot)
+    {
+        return keys == null ? slot / stride : (int) (keys[slot] >>> 32);
+    }
+
+    /** Returns the second category code of the entry in the given slot. */
+    public int getCode2(int slot)
+    {
+        return keys == null ? slot % stride : (int) keys[slot];
+    }
+
+    /** Returns the value of the entry in the given slot. */
+    public double getValue(int slot)
+    {
+        return values[slot];
+    }
+
+    private void rehash(int newCapacity)
+    {
+        long[] oldKeys = keys;
+        double[] oldValues = values;
+        keys = new long[newCapacity];
+        Arrays.fill(keys, EMPTY_KEY);
+        values = new double[newCapacity];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY_KEY) {
+                int slot = findSlot(keys, oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int findSlot(final long[] keys, long key)
+    {
+        int mask = keys.length - 1;
+        long hash = key * 0x9E3779B97F4A7C15L;
+        int slot = (int) (hash ^ (hash >>> 32)) & mask;
+        while (keys[slot] != EMPTY_KEY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void writeObject(final ObjectOutputStream out)
+        throws IOException
+    {
+        int usedCount = 0;
+        for (int slot = 0; slot < getSlotCount(); slot++) {
+            if (isUsed(slot)) {
+                usedCount++;
+            }
+        }
+
+        out.writeInt(categoryCount);
+        out.writeInt(usedCount);
+        for (int slot = 0; slot < getSlotCount(); slot++) {
+            if (isUsed(slot)) {
+                out.writeInt(getCode1(slot));
+                out.writeInt(getCode2(slot));
+                out.writeDouble(values[slot]);
+            }
+        }
+    }
+
+    private void readObject(final ObjectInputStream in)
+        throws IOException
+    {
+        initialize(in.readInt());
+        int usedCount = in.readInt();
+        for (int i = 0; i < usedCount; i++) {
+            add(in.readInt(), in.readInt(), in.readDouble());
+        }
+    }
+}
@@ -14,9 +14,12 @@
 package org.dkpro.statistics.agreement.coding;
 
 import java.util.Map;
+import java.util.Objects;
 
 import org.dkpro.statistics.agreement.AgreementMeasure;
+import org.dkpro.statistics.agreement.INumericModeSupport;
 import org.dkpro.statistics.agreement.InsufficientDataException;
+import org.dkpro.statistics.agreement.NumericMode;
 
 /**
  * Abstract base class of agreement measures for {@link ICodingAnnotationStudy}s.
@@ -25,9 +28,10 @@ import org.dkpro.statistics.agreement.InsufficientDataException;
  */
 public abstract class CodingAgreementMeasure
     extends AgreementMeasure
-    implements ICodingAgreementMeasure
+    implements ICodingAgreementMeasure, INumericModeSupport
 {
     protected ICodingAnnotationStudy study;
+    protected NumericMode numericMode;
 
     /**
      * Initializes the instance for the given annotation study. The study should never be null.
@@ -35,30 +39,113 @@ public abstract class CodingAgreementMeasure
     public CodingAgreementMeasure(final ICodingAnnotationStudy study)
     {
         this.study = study;
+        this.numericMode = DEFAULT_NUMERIC_MODE;
         ensureSupportedRaterCount(study);
         warnIfMissingValues(study);
     }
 
+    @Override
+    public NumericMode getNumericMode()
+    {
+        return numericMode;
+    }
+
+    @Override
+    public void setNumericMode(final NumericMode numericMode)
+    {
+        this.numericMode = Objects.requireNonNull(numericMode);
+    }
+
+    /**
+     * Calculates the observed agreement as the mean of the agreement of all items that have been
+     * coded by at least two raters (see {@link #calculateItemwiseObservedAgreement()}). Measures
+     * that use the default item agreement may override this method with
+     * {@link #calculateCoincidenceObservedAgreement()}, which does not iterate over the items.
+     *
+     * @throws InsufficientDataException
+     *             if the study has fewer than two categories.
+     */
     @Override
     public double calculateObservedAgreement()
     {
-        if (study.getCategoryCount() <= 1) {
-            throw new InsufficientDataException(
-                    "An annotation study needs at least two different categories; otherwise there is no decision for the raters to agree on.");
+        ensureSufficientCategories();
+        return calculateItemwiseObservedAgreement();
+    }
+
+    /**
+     * Calculates the observed agreement from the diagonal of the coincidence matrix of the
+     * {@linkplain ICodingAnnotationStudy#getStatistics() statistics} in O(K) time. This is
+     * equivalent to {@link #calculateItemwiseObservedAgreement()} for the default
+     * {@link #doCalculateItemAgreement(ICodingAnnotationItem)}, but does not require access to
+     * the items (e.g., for a {@link StatisticsCodingAnnotationStudy}). Item agreements redefined
+     * by a subclass are not taken into account.
+     *
+     * @throws InsufficientDataException
+     *             if the study has fewer than two categories.
+     */
+    protected double calculateCoincidenceObservedAgreement()
+    {
+        ensureSufficientCategories();
+
+        // The diagonal of the coincidence matrix sums n_ic * (n_ic - 1) / (r_i - 1) over all
+        // items coded by r_i > 1 raters, which is exactly the sum of the item agreements.
+        CodingStudyStatistics statistics = study.getStatistics();
+        double result = 0.0;
+        for (int code = 0; code < statistics.getCategoryCount(); code++) {
+            result += statistics.getCoincidence(code, code);
         }
+        return result / statistics.getPairableUnitCount();
+    }
 
+    /**
+     * Calculates the observed agreement as the mean of the agreement of all items that have been
+     * coded by at least two raters, using {@link #doCalculateItemAgreement(ICodingAnnotationItem)}
+     * for each item. Each item is counted according to its
+     * {@linkplain ICodingAnnotationItem#getWeight() weight}.
+     */
+    protected double calculateItemwiseObservedAgreement()
+    {
         double result = 0.0;
         double denominator = 0.0;
         for (ICodingAnnotationItem item : study.getItems()) {
             int raterCount = item.getRaterCount();
             if (raterCount > 1) {
-                result += doCalculateItemAgreement(item);
-                denominator += raterCount;
+                result += item.getWeight() * doCalculateItemAgreement(item);
+                denominator += item.getWeight() * raterCount;
             }
         }
         return result / denominator;
     }
 
+    /**
+     * Refuses studies with fewer than two categories: with only one category there is no decision
+     * for the raters to agree on.
+     *
+     * @throws InsufficientDataException
+     *             if the study has fewer than two categories.
+     */
+    protected void ensureSufficientCategories()
+    {
+        ensureSufficientCategories(study);
+    }
+
+    static void ensureSufficientCategories(final ICodingAnnotationStudy study)
+    {
+        if (study.getCategoryCount() <= 1) {
+            throw new InsufficientDataException(
+                    "An annotation study needs at least two different categories; otherwise there is no decision for the raters to agree on.");
+        }
+    }
+
+    /**
+     * Returns the agreement of the given item as the number of ordered pairs of its units that
+     * agree divided by the number of units minus one, which is the basis of
+     * {@link #calculateItemwiseObservedAgreement()}. Note that measures calculating the observed
+     * agreement by means of {@link #calculateCoincidenceObservedAgreement()} (e.g.,
+     * {@link PercentageAgreement} and the kappa-like measures of this package) do not invoke this
+     * method; subclasses of these measures that redefine the item agreement also need to override
+     * {@link #calculateObservedAgreement()} to use the item-wise calculation.
+     */
     protected double doCalculateItemAgreement(final ICodingAnnotationItem item)
     {
         Map<Object, Integer> annotationsPerCategory = CodingAnnotationStudy
@@ -72,7 +159,7 @@ public abstract class CodingAgreementMeasure
             return 0.0;
         }
         else {
-            return result / (double) (raterCount - 1.0);
+            return result / (raterCount - 1.0);
         }
     }
 
@@ -0,0 +1,171 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.coding;
+
+import java.io.Serializable;
+import java.util.Objects;
+import java.util.function.Function;
+
+import org.dkpro.statistics.agreement.IAgreementMeasure;
+
+/**
+ * Mergeable summary of a set of coding annotation items for computing the agreement of sharded
+ * or distributed annotation data. A sketch consists of the {@link CodingStudyStatistics} of its
+ * items, i.e., the category dictionary, the rater x category counts, the coincidence and
+ * co-occurrence tables, and the item counts. Its size is O(R * K + P) for R raters, K categories
+ * and P used category pairs, independently of the number of items.<br>
+ * <br>
+ * Each shard builds a sketch of its items, either item by item (see {@link #addItem(Object...)})
+ * or from an existing study. The sketches are serializable and can be combined in any order and
+ * grouping using {@link #merge(CodingAgreementSketch)}, which is associative and commutative up to
+ * floating point rounding. The agreement of the union of all items is finally calculated from the
+ * merged sketch by means of any coding measure that is based on the statistics (see
+ * {@link StatisticsCodingAnnotationStudy}). Categories are matched by equality, so they need to
+ * be serializable and have a consistent {@code equals} implementation across shards. Raters are
+ * identified by their index. Sketches are not thread-safe.<br>
+ * <br>
+ * A sketch built item by item only knows the categories used by its items. Measures that depend
+ * on the number of categories of the scale (i.e., Gwet's AC1 and AC2, Bennett et al.'s S, and
+ * Randolph's kappa) therefore require all shards to declare the same scale by means of
+ * {@link #addCategory(Object)}, including the categories that a shard does not use.<br>
+ * <br>
+ * Example:
+ *
+ * <pre>
+ * CodingAgreementSketch sketch = new CodingAgreementSketch(shard1Study);
+ * sketch.merge(new CodingAgreementSketch(shard2Study));
+ * double alpha = sketch.calculateAgreement(
+ *         study -&gt; new KrippendorffAlphaAgreement(study, new NominalDistanceFunction()));
+ * </pre>
+ */
+public class CodingAgreementSketch
+    implements Serializable
+{
+    private static final long serialVersionUID = 2286401351947508163L;
+
+    protected final CodingStudyStatistics statistics;
+
+    /**
+     * Initializes an empty sketch for the given number of raters.
+     */
+    public CodingAgreementSketch(int raterCount)
+    {
+        statistics = new CodingStudyStatistics(raterCount);
+    }
+
+    /**
+     * Initializes a sketch of all items of the given study. The sketch is independent of the
+     * study, i.e., subsequent changes of the study do not affect the sketch.
+     */
+    public CodingAgreementSketch(final ICodingAnnotationStudy study)
+    {
+        this(study.getRaterCount());
+        statistics.merge(study.getStatistics());
+    }
+
+    /**
+     * Adds an annotation item to the sketch. Use null to represent missing annotations.
+     *
+     * @throws IllegalArgumentException
+     *             if the number of annotations does not match the number of raters.
+     */
+    public void addItem(final Object... annotations)
+    {
+        int raterCount = statistics.getRaterCount();
+        if (annotations.length != raterCount) {
+            throw new IllegalArgumentException("Incorrect number of annotation units "
+                    + "(expected " + raterCount + ", given " + annotations.length + ").");
+        }
+
+        int[] codes = new int[raterCount];
+        for (int raterIdx = 0; raterIdx < raterCount; raterIdx++) {
+            codes[raterIdx] = annotations[raterIdx] == null ? IEncodedCodingAnnotationStudy.MISSING
+                    : statistics.addCategory(annotations[raterIdx]);
+        }
+        statistics.addItem(codes);
+    }
+
+    /**
+     * Adds the given category to the sketch. This method is only required if a category has not
+     * been used by any item of the sketch.
+     *
+     * @throws NullPointerException
+     *             if the specified category is null.
+     */
+    public void addCategory(final Object category)
+    {
+        statistics.addCategory(Objects.requireNonNull(category));
+    }
+
+    /**
+     * Adds the items of the given sketch to this sketch and returns this sketch. The given sketch
+     * remains unchanged. Merging takes O(K^2) time at most, independently of the number of items.
+     *
+     * @throws IllegalArgumentException
+     *             if the number of raters differs.
+     */
+    public CodingAgreementSketch merge(final CodingAgreementSketch other)
+    {
+        statistics.merge(other.statistics);
+        return this;
+    }
+
+    /** Returns the number of raters. */
+    public int getRaterCount()
+    {
+        return statistics.getRaterCount();
+    }
+
+    /** Returns the number of categories of the sketch, i.e., the used and declared ones. */
+    public int getCategoryCount()
+    {
+        return statistics.getCategoryCount();
+    }
+
+    /** Returns the number of items of the sketch. */
+    public double getItemCount()
+    {
+        return statistics.getItemCount();
+    }
+
+    /**
+     * Returns the statistics of the items of the sketch. The statistics reflect subsequent
+     * changes of the sketch.
+     */
+    public CodingStudyStatistics getStatistics()
+    {
+        return statistics;
+    }
+
+    /**
+     * Returns a study that represents the items of the sketch. The study can be passed to any
+     * coding measure that is based on the {@link CodingStudyStatistics}.
+     *
+     * @see StatisticsCodingAnnotationStudy
+     */
+    public ICodingAnnotationStudy toStudy()
+    {
+        return new StatisticsCodingAnnotationStudy(statistics);
+    }
+
+    /**
+     * Calculates the agreement of the items of the sketch using the measure created by the given
+     * factory (e.g., {@code FleissKappaAgreement::new}).
+     */
+    public double calculateAgreement(
+            final Function<ICodingAnnotationStudy, ? extends IAgreementMeasure> measureFactory)
+    {
+        return measureFactory.apply(toStudy()).calculateAgreement();
+    }
+}
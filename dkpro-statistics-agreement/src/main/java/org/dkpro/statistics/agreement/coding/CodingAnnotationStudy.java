@@ -48,6 +48,8 @@ public class CodingAnnotationStudy
 
     protected List<ICodingAnnotationItem> items;
 
+    private transient CodingStudyStatistics statistics;
+
     /**
      * Initializes and empty annotation study for a coding task. The basic setup of a coding study
      * is assigning categories to units with fixed boundaries.
@@ -184,6 +186,21 @@ public class CodingAnnotationStudy
         return false;
     }
 
+    /**
+     * Returns the sufficient statistics of this study. The statistics are cached and collected
+     * anew only if items, raters, or categories have been added since the last invocation.
+     */
+    @Override
+    public CodingStudyStatistics getStatistics()
+    {
+        CodingStudyStatistics result = statistics;
+        if (result == null || !result.isCurrent(this)) {
+            result = new CodingStudyStatistics(this);
+            statistics = result;
+        }
+        return result;
+    }
+
     @Override
     public CodingAnnotationStudy clone()
     {
@@ -257,60 +274,26 @@ public class CodingAnnotationStudy
     /**
      * Returns a two-dimensional map of categories and raters and the corresponding usage
      * frequencies in the given annotation study (i.e., how often a certain rater used a certain
-     * category for coding an annotation unit).
+     * category for coding an annotation unit). The counts are taken from the
+     * {@linkplain ICodingAnnotationStudy#getStatistics() statistics} of the study.
      */
     // Category x Rater -> #
     public static Map<Object, int[]> countAnnotationsPerCategory(final ICodingAnnotationStudy study)
     {
-        Map<Object, int[]> result = new HashMap<Object, int[]>();
-        for (ICodingAnnotationItem item : study.getItems()) {
-            for (IAnnotationUnit unit : item.getUnits()) {
-                Object category = unit.getCategory();
-                if (category == null) {
-                    continue;
-                }
-
-                int[] counts = result.get(category);
-                if (counts == null) {
-                    counts = new int[study.getRaterCount()];
-                }
-                counts[unit.getRaterIdx()]++;
-                result.put(category, counts);
-            }
-        }
-        return result;
+        return study.getStatistics().toAnnotationsPerCategory();
     }
 
     /**
      * Returns a map of categories and their usage frequencies (i.e., how often they are used in
-     * annotation units) within the given annotation study.
+     * annotation units) within the given annotation study. Only items coded by two or more raters
+     * are considered. The counts are taken from the
+     * {@linkplain ICodingAnnotationStudy#getStatistics() statistics} of the study.
      */
     // Category -> #
     public static Map<Object, Integer> countTotalAnnotationsPerCategory(
             final ICodingAnnotationStudy study)
     {
-        Map<Object, Integer> result = new HashMap<Object, Integer>();
-        for (ICodingAnnotationItem item : study.getItems()) {
-            if (item.getRaterCount() <= 1) {
-                continue;
-            }
-
-            for (IAnnotationUnit unit : item.getUnits()) {
-                Object category = unit.getCategory();
-                if (category == null) {
-                    continue;
-                }
-
-                Integer count = result.get(category);
-                if (count == null) {
-                    result.put(category, 1);
-                }
-                else {
-                    result.put(category, count + 1);
-                }
-            }
-        }
-        return result;
+        return study.getStatistics().toTotalAnnotationsPerCategory();
     }
 
     /**
@@ -323,7 +306,7 @@ public class CodingAnnotationStudy
     {
         Map<Object, Integer> result = new HashMap<Object, Integer>();
         for (IAnnotationUnit unit : item.getUnits()) {
-            Object category = unit.getCategory();
+            Object category = (unit == null ? null : unit.getCategory());
             if (category == null) {
                 continue;
             }
@@ -341,54 +324,58 @@ public class CodingAnnotationStudy
 
     /**
      * Returns a two dimensional map of category pairs and their co-occurrence frequencies for the
-     * given annotation study.
+     * given annotation study. The frequencies are taken from the
+     * {@linkplain ICodingAnnotationStudy#getStatistics() statistics} of the study.
      */
     // Category x Category -> #
     public static Map<Object, Map<Object, Double>> countCategoryCoincidence(
             final ICodingAnnotationStudy study)
     {
-        Map<Object, Map<Object, Double>> result = new HashMap<Object, Map<Object, Double>>();
-        for (ICodingAnnotationItem item : study.getItems()) {
-            Map<Object, Map<Object, Double>> itemMatrix = countCategoryCoincidence(item);
-
-            for (Entry<Object, Map<Object, Double>> itemCat : itemMatrix.entrySet()) {
-                Map<Object, Double> resultCat = result.get(itemCat.getKey());
-                if (resultCat == null) {
-                    resultCat = new HashMap<Object, Double>();
-                    result.put(itemCat.getKey(), resultCat);
-                }
-                for (Entry<Object, Double> itemEntry : itemCat.getValue().entrySet()) {
-                    Double resultEntry = resultCat.get(itemEntry.getKey());
-                    if (resultEntry == null) {
-                        resultEntry = 0.0;
-                    }
-                    resultCat.put(itemEntry.getKey(), resultEntry + itemEntry.getValue());
-                }
-            }
-        }
-        return result;
+        return study.getStatistics().toCategoryCoincidence();
     }
 
     /**
      * Returns a two dimensional map of category pairs and their co-occurrence frequencies for the
-     * given annotation item.
+     * given annotation item. The frequencies refer to a single occurrence of the item regardless
+     * of its {@linkplain ICodingAnnotationItem#getWeight() weight}. See
+     * {@link CodingStudyStatistics#countCoincidence(ICodingAnnotationItem)} for a primitive table
+     * indexed by category codes.
      */
     // Category x Category -> #
     public static Map<Object, Map<Object, Double>> countCategoryCoincidence(
             final ICodingAnnotationItem item)
     {
+        return countCategoryCoincidence(item, 1.0);
+    }
+
+    /**
+     * Returns a two dimensional map of category pairs and their co-occurrence frequencies for the
+     * given annotation item, which are multiplied by the given weight (e.g., the
+     * {@linkplain ICodingAnnotationItem#getWeight() weight} of the item). Summing the weighted
+     * frequencies of all items yields the coincidence matrix of a study.
+     */
+    // Category x Category -> #
+    public static Map<Object, Map<Object, Double>> countCategoryCoincidence(
+            final ICodingAnnotationItem item, double weight)
+    {
+        // Only iterate over the units of the raters who coded the item. Items that create their
+        // units on demand return new instances for each call, hence the units are collected once.
+        List<IAnnotationUnit> units = new ArrayList<IAnnotationUnit>(item.getRaterCount());
+        for (IAnnotationUnit unit : item.getUnits()) {
+            if (unit != null && unit.getCategory() != null) {
+                units.add(unit);
+            }
+        }
+
         Map<Object, Map<Object, Double>> result = new HashMap<Object, Map<Object, Double>>();
-        for (IAnnotationUnit unit1 : item.getUnits()) {
-            for (IAnnotationUnit unit2 : item.getUnits()) {
-                if (unit1 == unit2) {
+        for (int i = 0; i < units.size(); i++) {
+            Object category1 = units.get(i).getCategory();
+            for (int j = 0; j < units.size(); j++) {
+                if (i == j) {
                     continue;
                 }
 
-                Object category1 = unit1.getCategory();
-                Object category2 = unit2.getCategory();
-                if (category1 == null || category2 == null) {
-                    continue;
-                }
+                Object category2 = units.get(j).getCategory();
 
                 Map<Object, Double> cat1 = result.get(category1);
                 if (cat1 == null) {
@@ -409,11 +396,10 @@ public class CodingAnnotationStudy
         int raterCount = item.getRaterCount();
         for (Map<Object, Double> cat2 : result.values()) {
             for (Entry<Object, Double> entry : cat2.entrySet()) {
-                cat2.put(entry.getKey(), entry.getValue() / (raterCount - 1));
+                cat2.put(entry.getKey(), entry.getValue() * weight / (raterCount - 1));
             }
         }
 
         return result;
     }
-
 }
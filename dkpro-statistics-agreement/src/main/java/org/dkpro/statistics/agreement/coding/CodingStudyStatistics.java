@@ -0,0 +1,649 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.coding;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.dkpro.statistics.agreement.IAnnotationUnit;
+
+/**
+ * Sufficient statistics of an {@link ICodingAnnotationStudy} from which the coding measures of
+ * this package derive their observed and expected agreement. The statistics are collected in a
+ * single pass over the study and comprise
+ * <ul>
+ * <li>the category x rater marginals (how often a certain rater used a certain category),</li>
+ * <li>the sums of the per-item category counts n_ic and of their products n_ic * n_id,</li>
+ * <li>the coincidence matrix (Krippendorff, 1980) of all items coded by two or more raters,
+ * and</li>
+ * <li>the category counts grouped by the number of raters who coded an item.</li>
+ * </ul>
+ * The categories are identified by consecutive codes starting at 0 in the order returned by
+ * {@link ICodingAnnotationStudy#getCategories()}. Use
+ * {@link ICodingAnnotationStudy#getStatistics()} to obtain the statistics of a study, which allows
+ * the study to cache them, such that multiple measures calculated for the same study share a
+ * single scan of its items.<br>
+ * <br>
+ * All counts are represented as doubles. Unless a study maintains its statistics incrementally
+ * (see {@link IncrementalCodingAnnotationStudy}), the statistics are a snapshot: adding items,
+ * raters, or categories to the study does not change an existing instance.
+ *
+ * @see ICodingAnnotationStudy#getStatistics()
+ */
+public class CodingStudyStatistics
+    implements Serializable
+{
+    private static final long serialVersionUID = 2361950214771458843L;
+
+    @SuppressWarnings("serial") // Serializable if the categories are serializable
+    protected Object[] categories;
+    protected HashMap<Object, Integer> categoryCodes;
+    protected int categoryCount;
+    protected int raterCount;
+
+    protected int studyItemCount;
+    protected double itemCount;
+    protected double unitCount;
+    protected double pairableUnitCount;
+
+    // Code x Rater -> #
+    protected double[] raterAnnotationCounts;
+    // Code -> #
+    protected double[] annotationCounts;
+    // Code -> # (only items coded by two or more raters)
+    protected double[] pairableAnnotationCounts;
+    // Code -> sum of n_ic / (r_i - 1)
+    protected double[] scaledAnnotationCounts;
+    // Code x Item rater count -> #
+    protected double[] annotationCountsByItemRaterCount;
+    // Code x Code -> sum of n_ic * n_id
+    protected CategoryPairTable cooccurrence;
+    // Code x Code -> coincidence
+    protected CategoryPairTable coincidence;
+
+    private transient CategoryCodeCounter counter;
+    private transient int modificationCount;
+
+    /**
+     * Initializes empty statistics for the given number of raters, to which categories and items
+     * are added subsequently.
+     */
+    CodingStudyStatistics(int raterCount)
+    {
+        this.raterCount = raterCount;
+        categoryCodes = new HashMap<Object, Integer>();
+        initialize(0);
+    }
+
+    /**
+     * Collects the statistics of the given annotation study in a single pass over its items.
+     *
+     * @throws IllegalArgumentException
+     *             if an annotation unit uses a category that is not returned by
+     *             {@link ICodingAnnotationStudy#getCategories()}.
+     */
+    public CodingStudyStatistics(final ICodingAnnotationStudy study)
+    {
+        raterCount = study.getRaterCount();
+        studyItemCount = study.getItemCount();
+        categoryCodes = new HashMap<Object, Integer>();
+        initialize(study.getCategoryCount());
+        for (Object category : study.getCategories()) {
+            categoryCodes.put(category, categoryCount);
+            categories[categoryCount++] = category;
+        }
+
+        if (study instanceof SparseCodingAnnotationStudy) {
+            // Only visit the existing ratings rather than all raters of each item.
+            SparseCodingAnnotationStudy sparseStudy = (SparseCodingAnnotationStudy) study;
+            for (int itemIdx = 0; itemIdx < studyItemCount; itemIdx++) {
+                int from = sparseStudy.itemOffsets[itemIdx];
+                addRatings(sparseStudy.ratingRaters, sparseStudy.ratingCodes, from,
+                        sparseStudy.itemOffsets[itemIdx + 1] - from, 1.0);
+            }
+        }
+        else if (study instanceof IEncodedCodingAnnotationStudy) {
+            int[] codes = new int[raterCount];
+            IEncodedCodingAnnotationStudy encodedStudy = (IEncodedCodingAnnotationStudy) study;
+            for (int itemIdx = 0; itemIdx < studyItemCount; itemIdx++) {
+                for (int raterIdx = 0; raterIdx < raterCount; raterIdx++) {
+                    codes[raterIdx] = encodedStudy.getCode(itemIdx, raterIdx);
+                }
+                addItem(codes, 1.0);
+            }
+        }
+        else {
+            // Collect the (rater, code) pairs of the existing units only, such that the costs
+            // depend on the number of units rather than the number of raters.
+            int[] raterIndexes = new int[raterCount];
+            int[] codes = new int[raterCount];
+            for (ICodingAnnotationItem item : study.getItems()) {
+                int count = 0;
+                for (IAnnotationUnit unit : item.getUnits()) {
+                    if (unit == null || unit.getCategory() == null) {
+                        continue;
+                    }
+
+                    Integer code = categoryCodes.get(unit.getCategory());
+                    if (code == null) {
+                        throw new IllegalArgumentException("Category " + unit.getCategory()
+                                + " is not part of the annotation study.");
+                    }
+                    if (count == raterIndexes.length) {
+                        raterIndexes = Arrays.copyOf(raterIndexes, count * 2);
+                        codes = Arrays.copyOf(codes, count * 2);
+                    }
+                    raterIndexes[count] = unit.getRaterIdx();
+                    codes[count++] = code;
+                }
+                addRatings(raterIndexes, codes, 0, count, item.getWeight());
+            }
+        }
+    }
+
+    private void initialize(int categoryCapacity)
+    {
+        categories = new Object[categoryCapacity];
+        raterAnnotationCounts = new double[categoryCapacity * raterCount];
+        annotationCounts = new double[categoryCapacity];
+        pairableAnnotationCounts = new double[categoryCapacity];
+        scaledAnnotationCounts = new double[categoryCapacity];
+        annotationCountsByItemRaterCount = new double[categoryCapacity * (raterCount + 1)];
+        cooccurrence = new CategoryPairTable(categoryCapacity);
+        coincidence = new CategoryPairTable(categoryCapacity);
+    }
+
+    // -- Updates --
+
+    /**
+     * Adds the given category and returns its code. If the category is already known, its
+     * existing code is returned.
+     */
+    int addCategory(final Object category)
+    {
+        Integer code = categoryCodes.get(category);
+        if (code != null) {
+            return code;
+        }
+
+        if (categoryCount == categories.length) {
+            int capacity = Math.max(8, categoryCount + (categoryCount >> 1));
+            categories = Arrays.copyOf(categories, capacity);
+            raterAnnotationCounts = Arrays.copyOf(raterAnnotationCounts, capacity * raterCount);
+            annotationCounts = Arrays.copyOf(annotationCounts, capacity);
+            pairableAnnotationCounts = Arrays.copyOf(pairableAnnotationCounts, capacity);
+            scaledAnnotationCounts = Arrays.copyOf(scaledAnnotationCounts, capacity);
+            annotationCountsByItemRaterCount = Arrays.copyOf(annotationCountsByItemRaterCount,
+                    capacity * (raterCount + 1));
+        }
+        categories[categoryCount] = category;
+        categoryCodes.put(category, categoryCount);
+        categoryCount++;
+        modificationCount++;
+        cooccurrence.ensureCategoryCount(categoryCount);
+        coincidence.ensureCategoryCount(categoryCount);
+        return categoryCount - 1;
+    }
+
+    /**
+     * Adds a rater who did not code any of the items so far.
+     */
+    void addRater()
+    {
+        int capacity = categories.length;
+        double[] newRaterCounts = new double[capacity * (raterCount + 1)];
+        double[] newCountsByItemRaterCount = new double[capacity * (raterCount + 2)];
+        for (int code = 0; code < categoryCount; code++) {
+            System.arraycopy(raterAnnotationCounts, code * raterCount, newRaterCounts,
+                    code * (raterCount + 1), raterCount);
+            System.arraycopy(annotationCountsByItemRaterCount, code * (raterCount + 1),
+                    newCountsByItemRaterCount, code * (raterCount + 2), raterCount + 1);
+        }
+        raterAnnotationCounts = newRaterCounts;
+        annotationCountsByItemRaterCount = newCountsByItemRaterCount;
+        raterCount++;
+        modificationCount++;
+    }
+
+    /**
+     * Adds an item coded with the given category codes (one per rater, using
+     * {@link IEncodedCodingAnnotationStudy#MISSING} for missing values). The statistics are updated
+     * in O(R + u^2), where u is the number of distinct categories used for the item.
+     */
+    void addItem(final int[] codes)
+    {
+        addItem(codes, 1.0);
+    }
+
+    /**
+     * Removes an item coded with the given category codes that has previously been added. This is
+     * the inverse operation of {@link #addItem(int[])}.
+     */
+    void removeItem(final int[] codes)
+    {
+        addItem(codes, -1.0);
+    }
+
+    /**
+     * Adds the statistics of the given instance to this instance, which is equivalent to
+     * collecting the statistics of the union of both item sets. Categories are matched by
+     * equality, and categories that are not yet known are added. Merging takes O(K^2) time at
+     * most, independently of the number of items.
+     *
+     * @throws IllegalArgumentException
+     *             if the number of raters differs.
+     */
+    void merge(final CodingStudyStatistics other)
+    {
+        if (other.raterCount != raterCount) {
+            throw new IllegalArgumentException("Cannot merge statistics of " + other.raterCount
+                    + " raters into statistics of " + raterCount + " raters.");
+        }
+
+        int[] codeMap = new int[other.categoryCount];
+        for (int code = 0; code < other.categoryCount; code++) {
+            codeMap[code] = addCategory(other.categories[code]);
+        }
+
+        modificationCount++;
+        studyItemCount += other.studyItemCount;
+        itemCount += other.itemCount;
+        unitCount += other.unitCount;
+        pairableUnitCount += other.pairableUnitCount;
+        for (int code = 0; code < other.categoryCount; code++) {
+            int newCode = codeMap[code];
+            for (int raterIdx = 0; raterIdx < raterCount; raterIdx++) {
+                raterAnnotationCounts[newCode * raterCount
+                        + raterIdx] += other.raterAnnotationCounts[code * raterCount + raterIdx];
+            }
+            int offset = code * (raterCount + 1);
+            int newOffset = newCode * (raterCount + 1);
+            for (int r = 0; r <= raterCount; r++) {
+                annotationCountsByItemRaterCount[newOffset
+                        + r] += other.annotationCountsByItemRaterCount[offset + r];
+            }
+            annotationCounts[newCode] += other.annotationCounts[code];
+            pairableAnnotationCounts[newCode] += other.pairableAnnotationCounts[code];
+            scaledAnnotationCounts[newCode] += other.scaledAnnotationCounts[code];
+        }
+        mergeTable(cooccurrence, other.cooccurrence, codeMap);
+        mergeTable(coincidence, other.coincidence, codeMap);
+    }
+
+    private static void mergeTable(final CategoryPairTable table, final CategoryPairTable other,
+            final int[] codeMap)
+    {
+        for (int slot = 0; slot < other.getSlotCount(); slot++) {
+            if (other.isUsed(slot)) {
+                table.add(codeMap[other.getCode1(slot)], codeMap[other.getCode2(slot)],
+                        other.getValue(slot));
+            }
+        }
+    }
+
+    /**
+     * Adds an item coded with the given category codes with the given multiplicity, i.e., as if
+     * the item occurred weight times. A negative weight removes the item the given number of
+     * times.
+     */
+    void addItem(final int[] codes, double weight)
+    {
+        prepareCounter();
+        for (int raterIdx = 0; raterIdx < codes.length; raterIdx++) {
+            int code = codes[raterIdx];
+            if (code != IEncodedCodingAnnotationStudy.MISSING) {
+                counter.add(code);
+                raterAnnotationCounts[code * raterCount + raterIdx] += weight;
+            }
+        }
+        addCountedItem(weight);
+    }
+
+    /**
+     * Adds an item for which only the existing ratings are given, i.e., the raters
+     * raterIndexes[from .. from + count - 1] coded the item with the respective codes and all
+     * other raters did not code the item. The statistics are updated in O(r + u^2), where r is the
+     * number of ratings and u the number of distinct categories used for the item.
+     */
+    void addRatings(final int[] raterIndexes, final int[] codes, int from, int count,
+            double weight)
+    {
+        prepareCounter();
+        for (int i = from; i < from + count; i++) {
+            counter.add(codes[i]);
+            raterAnnotationCounts[codes[i] * raterCount + raterIndexes[i]] += weight;
+        }
+        addCountedItem(weight);
+    }
+
+    private void prepareCounter()
+    {
+        if (counter == null || counter.capacity() < categoryCount) {
+            counter = new CategoryCodeCounter(categories.length);
+        }
+
+        modificationCount++;
+        counter.clear();
+    }
+
+    // Updates the item-level statistics from the category counts of the current item.
+    private void addCountedItem(double weight)
+    {
+        int itemRaterCount = counter.getRaterCount();
+        itemCount += weight;
+        unitCount += itemRaterCount * weight;
+        if (itemRaterCount > 1) {
+            pairableUnitCount += itemRaterCount * weight;
+        }
+
+        for (int i = 0; i < counter.size(); i++) {
+            int code1 = counter.getCode(i);
+            int count1 = counter.getCount(code1);
+            annotationCounts[code1] += count1 * weight;
+            annotationCountsByItemRaterCount[code1 * (raterCount + 1) + itemRaterCount] += count1
+                    * weight;
+            if (itemRaterCount > 1) {
+                pairableAnnotationCounts[code1] += count1 * weight;
+                scaledAnnotationCounts[code1] += count1 * weight / (itemRaterCount - 1.0);
+            }
+
+            for (int j = 0; j < counter.size(); j++) {
+                int code2 = counter.getCode(j);
+                cooccurrence.add(code1, code2, count1 * counter.getCount(code2) * weight);
+            }
+        }
+        coincidence.addCoincidence(counter, weight);
+    }
+
+    /**
+     * Returns empty statistics for the same raters and categories (with the same codes).
+     */
+    CodingStudyStatistics createEmpty()
+    {
+        CodingStudyStatistics result = new CodingStudyStatistics(raterCount);
+        for (int code = 0; code < categoryCount; code++) {
+            result.addCategory(categories[code]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the category codes of all items of the given study (one array of codes per item
+     * indexed by rater) with respect to the codes of these statistics.
+     *
+     * @throws IllegalArgumentException
+     *             if an annotation unit uses a category that is not known.
+     */
+    int[][] encodeItems(final ICodingAnnotationStudy study)
+    {
+        int[][] result = new int[study.getItemCount()][];
+        int itemIdx = 0;
+        for (ICodingAnnotationItem item : study.getItems()) {
+            int[] codes = new int[raterCount];
+            Arrays.fill(codes, IEncodedCodingAnnotationStudy.MISSING);
+            for (IAnnotationUnit unit : item.getUnits()) {
+                if (unit != null && unit.getCategory() != null) {
+                    codes[unit.getRaterIdx()] = getCategoryCode(unit.getCategory());
+                    if (codes[unit.getRaterIdx()] == IEncodedCodingAnnotationStudy.MISSING) {
+                        throw new IllegalArgumentException("Category " + unit.getCategory()
+                                + " is not part of the annotation study.");
+                    }
+                }
+            }
+            result[itemIdx++] = codes;
+        }
+        return result;
+    }
+
+    // -- Categories and raters --
+
+    /** Returns the number of raters of the underlying study. */
+    public int getRaterCount()
+    {
+        return raterCount;
+    }
+
+    /** Returns the number of categories of the underlying study. */
+    public int getCategoryCount()
+    {
+        return categoryCount;
+    }
+
+    /** Returns the category with the given code. */
+    public Object getCategory(int code)
+    {
+        return categories[code];
+    }
+
+    /**
+     * Returns the code of the given category or {@link IEncodedCodingAnnotationStudy#MISSING} if
+     * the category is null or not part of the study.
+     */
+    public int getCategoryCode(final Object category)
+    {
+        Integer result = (category == null ? null : categoryCodes.get(category));
+        return (result == null ? IEncodedCodingAnnotationStudy.MISSING : result);
+    }
+
+    // -- Counts --
+
+    /** Returns the number of annotation items. */
+    public double getItemCount()
+    {
+        return itemCount;
+    }
+
+    /** Returns the number of annotation units (i.e., the non-missing annotations). */
+    public double getUnitCount()
+    {
+        return unitCount;
+    }
+
+    /**
+     * Returns the number of annotation units within items that have been coded by two or more
+     * raters, which is the number of pairable values n in Krippendorff's terminology.
+     */
+    public double getPairableUnitCount()
+    {
+        return pairableUnitCount;
+    }
+
+    /** Returns how often the given category has been used in total. */
+    public double getAnnotationCount(int code)
+    {
+        return annotationCounts[code];
+    }
+
+    /** Returns how often the rater with the given index used the given category. */
+    public double getAnnotationCount(int code, int raterIdx)
+    {
+        return raterAnnotationCounts[code * raterCount + raterIdx];
+    }
+
+    /**
+     * Returns how often the given category has been used within items that have been coded by two
+     * or more raters.
+     */
+    public double getPairableAnnotationCount(int code)
+    {
+        return pairableAnnotationCounts[code];
+    }
+
+    /**
+     * Returns how often the given category has been used within items that have been coded by
+     * exactly the given number of raters.
+     */
+    public double getAnnotationCountByItemRaterCount(int code, int itemRaterCount)
+    {
+        return annotationCountsByItemRaterCount[code * (raterCount + 1) + itemRaterCount];
+    }
+
+    /**
+     * Returns the sum of n_ic / (r_i - 1) over all items i that have been coded by r_i &gt; 1
+     * raters, where n_ic denotes how often the given category c has been used for item i.
+     */
+    public double getScaledAnnotationCount(int code)
+    {
+        return scaledAnnotationCounts[code];
+    }
+
+    /**
+     * Returns the sum of n_ic1 * n_ic2 over all items i, where n_ic denotes how often category c
+     * has been used for item i. For code1 == code2, this is the sum of the squared per-item counts
+     * of the category.
+     */
+    public double getCooccurrence(int code1, int code2)
+    {
+        return cooccurrence.get(code1, code2);
+    }
+
+    /**
+     * Returns the entry of Krippendorff's coincidence matrix for the given pair of categories,
+     * i.e., the number of pairable values c1-c2 with each item weighted by 1 / (r_i - 1).
+     */
+    public double getCoincidence(int code1, int code2)
+    {
+        return coincidence.get(code1, code2);
+    }
+
+    /**
+     * Returns the sums of n_ic * n_id over all items indexed by pairs of category codes. The table
+     * is part of the statistics and changes with them.
+     */
+    public CategoryPairTable getCooccurrenceTable()
+    {
+        return cooccurrence;
+    }
+
+    /**
+     * Returns the coincidence matrix of the study indexed by pairs of category codes (see
+     * {@link #getCoincidence(int, int)}). The table is part of the statistics and changes with
+     * them.
+     */
+    public CategoryPairTable getCoincidenceTable()
+    {
+        return coincidence;
+    }
+
+    /**
+     * Returns the coincidence matrix of the given item, which is indexed by the category codes of
+     * these statistics. The coincidences refer to a single occurrence of the item regardless of
+     * its {@linkplain ICodingAnnotationItem#getWeight() weight}.
+     *
+     * @throws IllegalArgumentException
+     *             if an annotation unit uses a category that is not known.
+     */
+    public CategoryPairTable countCoincidence(final ICodingAnnotationItem item)
+    {
+        CategoryCodeCounter itemCounter = new CategoryCodeCounter(categoryCount);
+        countCodes(item, itemCounter);
+        CategoryPairTable result = new CategoryPairTable(categoryCount);
+        result.addCoincidence(itemCounter, 1.0);
+        return result;
+    }
+
+    /**
+     * Counts the category codes of the units of the given item using the given counter, which is
+     * not cleared beforehand.
+     *
+     * @throws IllegalArgumentException
+     *             if an annotation unit uses a category that is not known.
+     */
+    void countCodes(final ICodingAnnotationItem item, final CategoryCodeCounter itemCounter)
+    {
+        for (IAnnotationUnit unit : item.getUnits()) {
+            if (unit == null || unit.getCategory() == null) {
+                continue;
+            }
+
+            Integer code = categoryCodes.get(unit.getCategory());
+            if (code == null) {
+                throw new IllegalArgumentException(
+                        "Category " + unit.getCategory() + " is not part of the annotation study.");
+            }
+            itemCounter.add(code);
+        }
+    }
+
+    /**
+     * Returns a counter that changes whenever the statistics are updated, which allows for
+     * detecting outdated values derived from the statistics (e.g., compiled distances).
+     */
+    public int getModificationCount()
+    {
+        return modificationCount;
+    }
+
+    /**
+     * Returns true if the statistics have been collected for the current state of the given
+     * append-only study, i.e., no items, raters, or categories have been added since.
+     */
+    boolean isCurrent(final ICodingAnnotationStudy study)
+    {
+        return study.getItemCount() == studyItemCount && study.getRaterCount() == raterCount
+                && study.getCategoryCount() == categoryCount;
+    }
+
+    // -- Conversion --
+
+    // Category x Rater -> #
+    Map<Object, int[]> toAnnotationsPerCategory()
+    {
+        Map<Object, int[]> result = new HashMap<Object, int[]>();
+        for (int code = 0; code < categoryCount; code++) {
+            if (annotationCounts[code] > 0.0) {
+                int[] counts = new int[raterCount];
+                for (int raterIdx = 0; raterIdx < raterCount; raterIdx++) {
+                    counts[raterIdx] = (int) getAnnotationCount(code, raterIdx);
+                }
+                result.put(categories[code], counts);
+            }
+        }
+        return result;
+    }
+
+    // Category -> #
+    Map<Object, Integer> toTotalAnnotationsPerCategory()
+    {
+        Map<Object, Integer> result = new HashMap<Object, Integer>();
+        for (int code = 0; code < categoryCount; code++) {
+            if (pairableAnnotationCounts[code] > 0.0) {
+                result.put(categories[code], (int) pairableAnnotationCounts[code]);
+            }
+        }
+        return result;
+    }
+
+    // Category x Category -> #
+    Map<Object, Map<Object, Double>> toCategoryCoincidence()
+    {
+        Map<Object, Map<Object, Double>> result = new HashMap<Object, Map<Object, Double>>();
+        for (int slot = 0; slot < coincidence.getSlotCount(); slot++) {
+            if (!coincidence.isUsed(slot)) {
+                continue;
+            }
+
+            Object category1 = categories[coincidence.getCode1(slot)];
+            Map<Object, Double> row = result.get(category1);
+            if (row == null) {
+                row = new HashMap<Object, Double>();
+                result.put(category1, row);
+            }
+            row.put(categories[coincidence.getCode2(slot)], coincidence.getValue(slot));
+        }
+        return result;
+    }
+}
@@ -15,11 +15,13 @@ package org.dkpro.statistics.agreement.coding;
 
 import java.math.BigDecimal;
 import java.math.MathContext;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
-import org.dkpro.statistics.agreement.IAnnotationUnit;
+import org.dkpro.statistics.agreement.CompensatedSum;
 import org.dkpro.statistics.agreement.ICategorySpecificAgreement;
 import org.dkpro.statistics.agreement.IChanceCorrectedAgreement;
+import org.dkpro.statistics.agreement.NumericMode;
 
 /**
  * Implementation of Cohen's kappa (1960) for calculating a chance-corrected inter-rater agreement
@@ -48,9 +50,20 @@ public class CohenKappaAgreement
         super(study);
     }
 
+    /**
+     * Calculates the observed agreement from the coincidence matrix of the study (see
+     * {@link #calculateCoincidenceObservedAgreement()}).
+     */
+    @Override
+    public double calculateObservedAgreement()
+    {
+        return calculateCoincidenceObservedAgreement();
+    }
+
     /**
      * Calculates the expected inter-rater agreement that assumes a different probability
-     * distribution for all raters.
+     * distribution for all raters. The sum of the products of the raters' category marginals is
+     * accumulated according to the {@linkplain #getNumericMode() numeric mode} of the measure.
      * 
      * @throws NullPointerException
      *             if the annotation study is null.
@@ -60,43 +73,61 @@ public class CohenKappaAgreement
     @Override
     public double calculateExpectedAgreement()
     {
-        Map<Object, int[]> annotationsPerCategory = CodingAnnotationStudy
-                .countAnnotationsPerCategory(study);
+        CodingStudyStatistics statistics = study.getStatistics();
+        if (numericMode == NumericMode.EXACT) {
+            return calculateExactExpectedAgreement(statistics);
+        }
+
+        CompensatedSum result = new CompensatedSum();
+        for (int code = 0; code < statistics.getCategoryCount(); code++) {
+            if (statistics.getAnnotationCount(code) > 0.0) {
+                double prod = 1.0;
+                for (int rater = 0; rater < study.getRaterCount(); rater++) {
+                    prod *= statistics.getAnnotationCount(code, rater);
+                }
+                result.add(prod);
+            }
+        }
+        double N = statistics.getItemCount();
+        return result.getSum() / (N * N);
+    }
 
+    private double calculateExactExpectedAgreement(final CodingStudyStatistics statistics)
+    {
         BigDecimal result = BigDecimal.ZERO;
-        for (Object category : study.getCategories()) {
-            int[] annotations = annotationsPerCategory.get(category);
-            if (annotations != null) {
+        for (int code = 0; code < statistics.getCategoryCount(); code++) {
+            if (statistics.getAnnotationCount(code) > 0.0) {
                 BigDecimal prod = BigDecimal.ONE;
                 for (int rater = 0; rater < study.getRaterCount(); rater++) {
-                    prod = prod.multiply(new BigDecimal(annotations[rater]));
+                    prod = prod.multiply(
+                            new BigDecimal(statistics.getAnnotationCount(code, rater)));
                 }
                 result = result.add(prod);
             }
         }
-        result = result.divide(new BigDecimal(study.getItemCount()).pow(2), MathContext.DECIMAL128);
+        result = result.divide(new BigDecimal(statistics.getItemCount()).pow(2),
+                MathContext.DECIMAL128);
         return result.doubleValue();
     }
 
     protected double calculateMaximumObservedAgreement()
     {
-        Map<Object, int[]> annotationsPerCategory = CodingAnnotationStudy
-                .countAnnotationsPerCategory(study);
+        CodingStudyStatistics statistics = study.getStatistics();
 
         BigDecimal result = BigDecimal.ZERO;
-        for (Object category : study.getCategories()) {
-            int[] annotations = annotationsPerCategory.get(category);
-            int min = -1;
+        for (int code = 0; code < statistics.getCategoryCount(); code++) {
+            double min = -1;
             for (int rater = 0; rater < study.getRaterCount(); rater++) {
-                if (annotations[rater] < min || min < 0) {
-                    min = annotations[rater];
+                double annotations = statistics.getAnnotationCount(code, rater);
+                if (annotations < min || min < 0) {
+                    min = annotations;
                 }
             }
             if (min > 0) {
                 result = result.add(new BigDecimal(min));
             }
         }
-        result = result.divide(new BigDecimal(study.getItemCount()), MathContext.DECIMAL128);
+        result = result.divide(new BigDecimal(statistics.getItemCount()), MathContext.DECIMAL128);
         return result.doubleValue();
     }
 
@@ -142,24 +173,43 @@ public class CohenKappaAgreement
         // P_j = (sum( n_ij^2 ) - N n p_j) / (N n (n-1) p_j )
         // p_j = 1/Nn sum n_ij
 
-        int N = study.getItemCount();
-        int n = study.getRaterCount();
-        int sum_nij = 0;
-        int sum_nij_2 = 0;
-        for (ICodingAnnotationItem item : study.getItems()) {
-            int nij = 0;
-            for (IAnnotationUnit unit : item.getUnits()) {
-                if (unit.getCategory().equals(category)) {
-                    nij++;
-                }
-            }
-            sum_nij += nij;
-            sum_nij_2 += (nij * nij);
+        double sum_nij = 0;
+        double sum_nij_2 = 0;
+        CodingStudyStatistics statistics = study.getStatistics();
+        int code = statistics.getCategoryCode(category);
+        if (code != IEncodedCodingAnnotationStudy.MISSING) {
+            sum_nij = statistics.getAnnotationCount(code);
+            sum_nij_2 = statistics.getCooccurrence(code, code);
         }
+        return calculateCategoryAgreement(sum_nij, sum_nij_2);
+    }
 
-        double pj = 1 / (double) (N * n) * sum_nij;
-        double Pj = (sum_nij_2 - N * n * pj) / (double) (N * n * (n - 1) * pj);
-        double kappaj = (Pj - pj) / (double) (1 - pj);
+    /**
+     * Calculates the category-specific agreement of all categories of the study at once. The
+     * per-category sums of n_ij and n_ij^2 are collected in a single pass over the study (see
+     * {@link ICodingAnnotationStudy#getStatistics()}).
+     *
+     * @return a map of each category and its agreement, in the order of the category codes.
+     */
+    public Map<Object, Double> calculateCategoryAgreements()
+    {
+        CodingStudyStatistics statistics = study.getStatistics();
+        Map<Object, Double> result = new LinkedHashMap<Object, Double>();
+        for (int code = 0; code < statistics.getCategoryCount(); code++) {
+            result.put(statistics.getCategory(code),
+                    calculateCategoryAgreement(statistics.getAnnotationCount(code),
+                            statistics.getCooccurrence(code, code)));
+        }
+        return result;
+    }
+
+    private double calculateCategoryAgreement(double sum_nij, double sum_nij_2)
+    {
+        double N = study.getStatistics().getItemCount();
+        int n = study.getRaterCount();
+        double pj = 1 / (N * n) * sum_nij;
+        double Pj = (sum_nij_2 - N * n * pj) / (N * n * (n - 1) * pj);
+        double kappaj = (Pj - pj) / (1 - pj);
         return kappaj;
     }
 
@@ -0,0 +1,544 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.coding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+import org.dkpro.statistics.agreement.AnnotationStudy;
+import org.dkpro.statistics.agreement.AnnotationUnit;
+import org.dkpro.statistics.agreement.IAnnotationUnit;
+
+/**
+ * Memory-efficient implementation of the {@link ICodingAnnotationStudy} interface for large coding
+ * studies. Instead of representing each rating as a separate {@link IAnnotationUnit} object, the
+ * study maintains a dictionary of categories and stores the category codes in one primitive
+ * column per rater (i.e., a rater-major code matrix). As long as the study has no more than
+ * {@link Short#MAX_VALUE} + 1 categories, the columns are {@code short} arrays; they are widened
+ * to {@code int} arrays once the dictionary grows beyond that. Missing values are represented by
+ * the sentinel code {@link IEncodedCodingAnnotationStudy#MISSING}.<br>
+ * <br>
+ * The items and units returned by {@link #getItem(int)} and {@link #getItems()} are lightweight
+ * views that are created on demand. The agreement measures of this package do not rely on them,
+ * but work directly on the category codes.
+ *
+ * @see IEncodedCodingAnnotationStudy
+ * @see CodingAnnotationStudy
+ */
+public class ColumnarCodingAnnotationStudy
+    extends AnnotationStudy
+    implements IEncodedCodingAnnotationStudy
+{
+    private static final long serialVersionUID = 4708311370961284512L;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    protected ArrayList<Object> categoryDictionary;
+    protected HashMap<Object, Integer> categoryCodes;
+    protected ArrayList<short[]> shortColumns;
+    protected ArrayList<int[]> intColumns;
+    protected int itemCount;
+    protected int capacity;
+    protected int unitCount;
+    protected int missingCount;
+
+    private transient CodingStudyStatistics statistics;
+
+    /**
+     * Initializes an empty columnar annotation study for a coding task.
+     */
+    protected ColumnarCodingAnnotationStudy()
+    {
+        super();
+        categoryDictionary = new ArrayList<Object>();
+        categoryCodes = new HashMap<Object, Integer>();
+        shortColumns = new ArrayList<short[]>();
+        capacity = INITIAL_CAPACITY;
+    }
+
+    /**
+     * Initializes an empty columnar annotation study for a coding task with the given number of
+     * raters.
+     */
+    public ColumnarCodingAnnotationStudy(int raterCount)
+    {
+        this();
+        for (int raterIdx = 0; raterIdx < raterCount; raterIdx++) {
+            addRater(Integer.toString(raterIdx));
+        }
+    }
+
+    /**
+     * Initializes a columnar copy of the given coding study. The categories of the given study
+     * receive their codes in the order returned by {@link ICodingAnnotationStudy#getCategories()}.
+     * Items with a {@linkplain ICodingAnnotationItem#getWeight() weight} other than 1 (see
+     * {@link WeightedCodingAnnotationStudy}) are expanded into the corresponding number of
+     * identical items.
+     *
+     * @throws IllegalArgumentException
+     *             if the weight of an item is negative or not an integer.
+     */
+    public ColumnarCodingAnnotationStudy(final ICodingAnnotationStudy study)
+    {
+        this(study.getRaterCount());
+        for (Object category : study.getCategories()) {
+            addCategory(category);
+        }
+        ensureCapacity(study.getItemCount());
+        int[] codes = new int[getRaterCount()];
+        for (ICodingAnnotationItem item : study.getItems()) {
+            double weight = item.getWeight();
+            if (weight < 0.0 || weight != Math.rint(weight) || weight > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Cannot copy an item with weight " + weight
+                        + " into a columnar study, which requires non-negative integer weights.");
+            }
+
+            Arrays.fill(codes, MISSING);
+            for (IAnnotationUnit unit : item.getUnits()) {
+                if (unit != null) {
+                    codes[unit.getRaterIdx()] = encodeCategory(unit.getCategory());
+                }
+            }
+            ensureCapacity(itemCount + (int) weight);
+            for (int i = 0; i < (int) weight; i++) {
+                addItemAsCodes(codes);
+            }
+        }
+    }
+
+    /**
+     * Adds a rater with the given name. If the study already contains items, the new rater is
+     * assumed to have not coded any of them (i.e., missing values are added).
+     */
+    @Override
+    public int addRater(final String name)
+    {
+        if (intColumns != null) {
+            int[] column = new int[capacity];
+            Arrays.fill(column, MISSING);
+            intColumns.add(column);
+        }
+        else {
+            short[] column = new short[capacity];
+            Arrays.fill(column, (short) MISSING);
+            shortColumns.add(column);
+        }
+        missingCount += itemCount;
+        return super.addRater(name);
+    }
+
+    /**
+     * Adds the given category to the dictionary of the study. This method is only required if a
+     * category has not been used by any rater within the annotation study.
+     *
+     * @throws NullPointerException
+     *             if the specified category is null.
+     */
+    @Override
+    public void addCategory(final Object category)
+    {
+        encodeCategory(Objects.requireNonNull(category));
+    }
+
+    /**
+     * Returns the code of the given category. If the category is not yet part of the dictionary, it
+     * is added and receives the next free code. A null category is encoded as
+     * {@link IEncodedCodingAnnotationStudy#MISSING}.
+     */
+    public int encodeCategory(final Object category)
+    {
+        if (category == null) {
+            return MISSING;
+        }
+
+        Integer code = categoryCodes.get(category);
+        if (code == null) {
+            code = categoryDictionary.size();
+            if (code > Short.MAX_VALUE && intColumns == null) {
+                widenColumns();
+            }
+            categoryDictionary.add(category);
+            categoryCodes.put(category, code);
+            categories.add(category);
+        }
+        return code;
+    }
+
+    /**
+     * Creates a new annotation item which has been coded with the given annotation categories.
+     * Note that the order of the categories must correspond to the raters' indexes. Use null to
+     * represent missing annotations. The method is a shorthand for
+     * {@link #addItemAsArray(Object[])}.
+     *
+     * @throws IllegalArgumentException
+     *             if the number of annotations does not match the number of raters.
+     */
+    public ICodingAnnotationItem addItem(final Object... annotations)
+    {
+        return addItemAsArray(annotations);
+    }
+
+    /**
+     * Creates a new annotation item which has been coded with the given annotation categories.
+     * Note that the order of the categories must correspond to the raters' indexes. Use null to
+     * represent missing annotations.
+     *
+     * @throws IllegalArgumentException
+     *             if the number of annotations does not match the number of raters.
+     */
+    public ICodingAnnotationItem addItemAsArray(final Object[] annotations)
+    {
+        ensureAnnotationCount(annotations.length);
+        int[] codes = new int[annotations.length];
+        for (int raterIdx = 0; raterIdx < annotations.length; raterIdx++) {
+            codes[raterIdx] = encodeCategory(annotations[raterIdx]);
+        }
+        return getItem(addItemAsCodes(codes));
+    }
+
+    /**
+     * Creates a new annotation item from the given category codes and returns the index of the new
+     * item. Note that the order of the codes must correspond to the raters' indexes. Use
+     * {@link IEncodedCodingAnnotationStudy#MISSING} to represent missing annotations. This is the
+     * most efficient way of populating the study, since the categories need not be looked up.
+     *
+     * @throws IllegalArgumentException
+     *             if the number of codes does not match the number of raters or if one of the codes
+     *             is not defined by the category dictionary.
+     */
+    public int addItemAsCodes(final int... codes)
+    {
+        ensureAnnotationCount(codes.length);
+        for (int code : codes) {
+            checkCode(code);
+        }
+
+        ensureCapacity(itemCount + 1);
+        int itemIdx = itemCount++;
+        for (int raterIdx = 0; raterIdx < codes.length; raterIdx++) {
+            setCode(itemIdx, raterIdx, codes[raterIdx]);
+        }
+        return itemIdx;
+    }
+
+    /**
+     * Shorthand for invoking {@link #addItem(Object...)} with the same parameters multiple times.
+     * This method is useful for modeling annotation data based on a contingency table.
+     */
+    public void addMultipleItems(int times, final Object... values)
+    {
+        ensureAnnotationCount(values.length);
+        int[] codes = new int[values.length];
+        for (int raterIdx = 0; raterIdx < values.length; raterIdx++) {
+            codes[raterIdx] = encodeCategory(values[raterIdx]);
+        }
+        ensureCapacity(itemCount + times);
+        for (int i = 0; i < times; i++) {
+            addItemAsCodes(codes);
+        }
+    }
+
+    /**
+     * Replaces the category code of the given rater for the given item. Use
+     * {@link IEncodedCodingAnnotationStudy#MISSING} to remove the annotation (i.e., to represent a
+     * missing value). Together with {@link #addRater(String)} and {@link #addItemAsCodes(int...)},
+     * this allows populating the study from ratings that arrive in arbitrary order.
+     *
+     * @throws IndexOutOfBoundsException
+     *             if the item or rater index is out of range.
+     * @throws IllegalArgumentException
+     *             if the code is not defined by the category dictionary.
+     */
+    public void setAnnotationCode(int itemIdx, int raterIdx, int code)
+    {
+        checkCode(code);
+        int previousCode = getCode(itemIdx, raterIdx);
+        if (previousCode == code) {
+            return;
+        }
+
+        clearCode(itemIdx, raterIdx, previousCode);
+        setCode(itemIdx, raterIdx, code);
+        statistics = null;
+    }
+
+    protected void checkCode(int code)
+    {
+        if (code < MISSING || code >= categoryDictionary.size()) {
+            throw new IllegalArgumentException("Undefined category code: " + code);
+        }
+    }
+
+    protected void ensureAnnotationCount(int annotationCount)
+    {
+        if (annotationCount != raters.size()) {
+            throw new IllegalArgumentException("Incorrect number of annotation units "
+                    + "(expected " + raters.size() + ", given " + annotationCount + "). "
+                    + "For array params, use #addItemsAsArray instead of #addItem.");
+        }
+    }
+
+    protected void setCode(int itemIdx, int raterIdx, int code)
+    {
+        if (code == MISSING) {
+            missingCount++;
+        }
+        else {
+            unitCount++;
+        }
+        storeCode(itemIdx, raterIdx, code);
+    }
+
+    /** Reverts the counting of the given code by {@link #setCode(int, int, int)}. */
+    protected void clearCode(int itemIdx, int raterIdx, int code)
+    {
+        if (code == MISSING) {
+            missingCount--;
+        }
+        else {
+            unitCount--;
+        }
+        storeCode(itemIdx, raterIdx, MISSING);
+    }
+
+    /**
+     * Stores the given code in the column of the given rater without updating the unit and
+     * missing value counts.
+     */
+    protected void storeCode(int itemIdx, int raterIdx, int code)
+    {
+        if (intColumns != null) {
+            intColumns.get(raterIdx)[itemIdx] = code;
+        }
+        else {
+            shortColumns.get(raterIdx)[itemIdx] = (short) code;
+        }
+    }
+
+    /**
+     * Makes sure that the columns can hold at least the given number of items without being
+     * resized. Invoking this method before adding a large number of items avoids repeated
+     * reallocation.
+     */
+    public void ensureCapacity(int minCapacity)
+    {
+        if (minCapacity <= capacity) {
+            return;
+        }
+
+        int newCapacity = Math.max(minCapacity, capacity + (capacity >> 1));
+        resize(newCapacity);
+    }
+
+    /**
+     * Trims the capacity of the columns to the current number of items. An application can use
+     * this operation to minimize the storage of the study once all items have been added.
+     */
+    public void trimToSize()
+    {
+        if (itemCount < capacity) {
+            resize(itemCount);
+        }
+    }
+
+    private void resize(int newCapacity)
+    {
+        if (intColumns != null) {
+            for (int r = 0; r < intColumns.size(); r++) {
+                int[] column = Arrays.copyOf(intColumns.get(r), newCapacity);
+                Arrays.fill(column, capacity < newCapacity ? capacity : newCapacity, newCapacity,
+                        MISSING);
+                intColumns.set(r, column);
+            }
+        }
+        else {
+            for (int r = 0; r < shortColumns.size(); r++) {
+                short[] column = Arrays.copyOf(shortColumns.get(r), newCapacity);
+                Arrays.fill(column, capacity < newCapacity ? capacity : newCapacity, newCapacity,
+                        (short) MISSING);
+                shortColumns.set(r, column);
+            }
+        }
+        capacity = newCapacity;
+    }
+
+    private void widenColumns()
+    {
+        intColumns = new ArrayList<int[]>(shortColumns.size());
+        for (short[] shortColumn : shortColumns) {
+            int[] column = new int[capacity];
+            for (int i = 0; i < capacity; i++) {
+                column[i] = shortColumn[i];
+            }
+            intColumns.add(column);
+        }
+        shortColumns = null;
+    }
+
+    @Override
+    public Object getCategory(int code)
+    {
+        return categoryDictionary.get(code);
+    }
+
+    @Override
+    public int getCategoryCode(final Object category)
+    {
+        if (category == null) {
+            return MISSING;
+        }
+
+        Integer code = categoryCodes.get(category);
+        return (code == null ? MISSING : code);
+    }
+
+    @Override
+    public int getCode(int itemIdx, int raterIdx)
+    {
+        Objects.checkIndex(itemIdx, itemCount);
+        if (intColumns != null) {
+            return intColumns.get(raterIdx)[itemIdx];
+        }
+        else {
+            return shortColumns.get(raterIdx)[itemIdx];
+        }
+    }
+
+    @Override
+    public ICodingAnnotationItem getItem(int index)
+    {
+        Objects.checkIndex(index, itemCount);
+        return new ColumnarAnnotationItem(this, index);
+    }
+
+    @Override
+    public Iterable<ICodingAnnotationItem> getItems()
+    {
+        return () -> new Iterator<ICodingAnnotationItem>()
+        {
+            private int itemIdx = 0;
+
+            @Override
+            public boolean hasNext()
+            {
+                return itemIdx < itemCount;
+            }
+
+            @Override
+            public ICodingAnnotationItem next()
+            {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return new ColumnarAnnotationItem(ColumnarCodingAnnotationStudy.this, itemIdx++);
+            }
+        };
+    }
+
+    @Override
+    public int getItemCount()
+    {
+        return itemCount;
+    }
+
+    @Override
+    public int getUnitCount()
+    {
+        return unitCount;
+    }
+
+    @Override
+    public boolean hasMissingValues()
+    {
+        return missingCount > 0;
+    }
+
+    /**
+     * Returns the sufficient statistics of this study. The statistics are cached and collected
+     * anew only if items, raters, or categories have been added since the last invocation.
+     */
+    @Override
+    public CodingStudyStatistics getStatistics()
+    {
+        CodingStudyStatistics result = statistics;
+        if (result == null || !result.isCurrent(this)) {
+            result = new CodingStudyStatistics(this);
+            statistics = result;
+        }
+        return result;
+    }
+
+    /**
+     * Lightweight view of a single item of a {@link ColumnarCodingAnnotationStudy}. The annotation
+     * units are created on demand from the category codes.
+     */
+    protected static class ColumnarAnnotationItem
+        implements ICodingAnnotationItem
+    {
+        private static final long serialVersionUID = -2245164958313358437L;
+
+        protected final ColumnarCodingAnnotationStudy study;
+        protected final int itemIdx;
+
+        protected ColumnarAnnotationItem(final ColumnarCodingAnnotationStudy study, int itemIdx)
+        {
+            this.study = study;
+            this.itemIdx = itemIdx;
+        }
+
+        @Override
+        public IAnnotationUnit getUnit(int raterIdx)
+        {
+            int code = study.getCode(itemIdx, raterIdx);
+            return new AnnotationUnit(raterIdx, code == MISSING ? null : study.getCategory(code));
+        }
+
+        @Override
+        public Iterable<IAnnotationUnit> getUnits()
+        {
+            List<IAnnotationUnit> result = new ArrayList<IAnnotationUnit>(study.getRaterCount());
+            for (int raterIdx = 0; raterIdx < study.getRaterCount(); raterIdx++) {
+                result.add(getUnit(raterIdx));
+            }
+            return result;
+        }
+
+        @Override
+        public int getRaterCount()
+        {
+            int result = 0;
+            for (int raterIdx = 0; raterIdx < study.getRaterCount(); raterIdx++) {
+                if (study.getCode(itemIdx, raterIdx) != MISSING) {
+                    result++;
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public String toString()
+        {
+            StringBuilder result = new StringBuilder();
+            for (IAnnotationUnit unit : getUnits()) {
+                result.append(result.length() == 0 ? "" : ", ").append(unit.toString());
+            }
+            return result.toString();
+        }
+    }
+}
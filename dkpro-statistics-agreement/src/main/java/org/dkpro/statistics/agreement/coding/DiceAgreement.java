@@ -14,6 +14,8 @@
 package org.dkpro.statistics.agreement.coding;
 
 import org.dkpro.statistics.agreement.IAnnotationUnit;
+import org.dkpro.statistics.agreement.distance.BitSetAnnotation;
+import org.dkpro.statistics.agreement.distance.LabelDictionary;
 import org.dkpro.statistics.agreement.distance.SetAnnotation;
 
 /**
@@ -54,6 +56,40 @@ public class DiceAgreement
      */
     @Override
     public double doCalculateItemAgreement(final ICodingAnnotationItem item)
+    {
+        // Intersect bit set annotations sharing a dictionary word by word.
+        LabelDictionary dictionary = null;
+        int wordCount = 0;
+        int numberOfCategories = 0;
+        for (IAnnotationUnit annotationUnit : item.getUnits()) {
+            SetAnnotation raterSetAnnotation = (SetAnnotation) (annotationUnit.getCategory());
+            if (!(raterSetAnnotation instanceof BitSetAnnotation) || (dictionary != null
+                    && ((BitSetAnnotation) raterSetAnnotation).getDictionary() != dictionary)) {
+                return doCalculateSetItemAgreement(item);
+            }
+            BitSetAnnotation bitSetAnnotation = (BitSetAnnotation) raterSetAnnotation;
+            wordCount = (dictionary == null ? bitSetAnnotation.getWordCount()
+                    : Math.min(wordCount, bitSetAnnotation.getWordCount()));
+            dictionary = bitSetAnnotation.getDictionary();
+            numberOfCategories += bitSetAnnotation.size();
+        }
+
+        int commonElements = 0;
+        for (int i = 0; i < wordCount; i++) {
+            long word = -1L;
+            for (IAnnotationUnit annotationUnit : item.getUnits()) {
+                word &= ((BitSetAnnotation) annotationUnit.getCategory()).getWord(i);
+            }
+            commonElements += Long.bitCount(word);
+        }
+        if (commonElements == 0) {
+            return 0.0;
+        }
+        return item.getRaterCount() * item.getRaterCount() * commonElements
+                / (double) numberOfCategories;
+    }
+
+    private static double doCalculateSetItemAgreement(final ICodingAnnotationItem item)
     {
         SetAnnotation setAnnotation = null;
         int numberOfCategories = 0;
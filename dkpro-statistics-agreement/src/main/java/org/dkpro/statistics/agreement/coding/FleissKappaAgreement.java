@@ -15,14 +15,16 @@ package org.dkpro.statistics.agreement.coding;
 
 import java.math.BigDecimal;
 import java.math.MathContext;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Map.Entry;
 
-import org.dkpro.statistics.agreement.IAnnotationUnit;
+import org.dkpro.statistics.agreement.CompensatedSum;
 import org.dkpro.statistics.agreement.ICategorySpecificAgreement;
 import org.dkpro.statistics.agreement.IChanceCorrectedAgreement;
 import org.dkpro.statistics.agreement.IMultiRaterAgreement;
+import org.dkpro.statistics.agreement.IRaterSpecificAgreement;
+import org.dkpro.statistics.agreement.InsufficientDataException;
+import org.dkpro.statistics.agreement.NumericMode;
 
 /**
  * Generalization of Scott's (1955) pi-measure for calculating a chance-corrected inter-rater
@@ -46,8 +48,11 @@ import org.dkpro.statistics.agreement.IMultiRaterAgreement;
  */
 public class FleissKappaAgreement
     extends CodingAgreementMeasure
-    implements IChanceCorrectedAgreement, ICategorySpecificAgreement, IMultiRaterAgreement
+    implements IChanceCorrectedAgreement, ICategorySpecificAgreement, IMultiRaterAgreement,
+    IRaterSpecificAgreement
 {
+    private final RaterAgreementCalculator raterAgreement = new RaterAgreementCalculator(
+            this::calculateRaterAgreement);
 
     /**
      * Initializes the instance for the given annotation study. The study may never be null.
@@ -57,9 +62,20 @@ public class FleissKappaAgreement
         super(study);
     }
 
+    /**
+     * Calculates the observed agreement from the coincidence matrix of the study (see
+     * {@link #calculateCoincidenceObservedAgreement()}).
+     */
+    @Override
+    public double calculateObservedAgreement()
+    {
+        return calculateCoincidenceObservedAgreement();
+    }
+
     /**
      * Calculates the expected inter-rater agreement that assumes the same distribution for all
-     * raters and annotations.
+     * raters and annotations. The squared category proportions are accumulated according to the
+     * {@linkplain #getNumericMode() numeric mode} of the measure.
      * 
      * @throws NullPointerException
      *             if the annotation study is null.
@@ -69,26 +85,42 @@ public class FleissKappaAgreement
     @Override
     public double calculateExpectedAgreement()
     {
-        Map<Object, BigDecimal> categoryProbability = new HashMap<Object, BigDecimal>();
-        for (ICodingAnnotationItem item : study.getItems()) {
-            Map<Object, Integer> annotationsPerCategory = CodingAnnotationStudy
-                    .countTotalAnnotationsPerCategory(item);
-            for (Entry<Object, Integer> counts : annotationsPerCategory.entrySet()) {
-                BigDecimal p = new BigDecimal(counts.getValue())
-                        .divide(new BigDecimal(item.getRaterCount()), MathContext.DECIMAL128);
-                BigDecimal value = categoryProbability.get(counts.getKey());
-                if (value != null) {
-                    p = p.add(value);
-                }
-                categoryProbability.put(counts.getKey(), p);
+        // The proportions n_ic / r_i are summed up per number of raters r_i who coded an item,
+        // such that the division needs to be computed once per rater count rather than per item.
+        CodingStudyStatistics statistics = study.getStatistics();
+        if (numericMode == NumericMode.EXACT) {
+            return calculateExactExpectedAgreement(statistics);
+        }
+
+        CompensatedSum result = new CompensatedSum();
+        for (int code = 0; code < statistics.getCategoryCount(); code++) {
+            CompensatedSum p = new CompensatedSum();
+            for (int raterCount = 1; raterCount <= study.getRaterCount(); raterCount++) {
+                p.add(statistics.getAnnotationCountByItemRaterCount(code, raterCount)
+                        / raterCount);
             }
+            result.add(p.getSum() * p.getSum());
         }
+        double N = statistics.getItemCount();
+        return result.getSum() / (N * N);
+    }
 
+    private double calculateExactExpectedAgreement(final CodingStudyStatistics statistics)
+    {
         BigDecimal result = BigDecimal.ZERO;
-        for (BigDecimal p : categoryProbability.values()) {
+        for (int code = 0; code < statistics.getCategoryCount(); code++) {
+            BigDecimal p = BigDecimal.ZERO;
+            for (int raterCount = 1; raterCount <= study.getRaterCount(); raterCount++) {
+                double count = statistics.getAnnotationCountByItemRaterCount(code, raterCount);
+                if (count > 0.0) {
+                    p = p.add(new BigDecimal(count).divide(new BigDecimal(raterCount),
+                            MathContext.DECIMAL128));
+                }
+            }
             result = result.add(p.pow(2));
         }
-        result = result.divide(new BigDecimal(study.getItemCount()).pow(2), MathContext.DECIMAL128);
+        result = result.divide(new BigDecimal(statistics.getItemCount()).pow(2),
+                MathContext.DECIMAL128);
         return result.doubleValue();
     }
 
@@ -129,25 +161,102 @@ public class FleissKappaAgreement
         // P_j = (sum( n_ij^2 ) - N n p_j) / (N n (n-1) p_j )
         // p_j = 1/Nn sum n_ij
 
-        int N = study.getItemCount();
-        int n = study.getRaterCount();
-        int sum_nij = 0;
-        int sum_nij_2 = 0;
-        for (ICodingAnnotationItem item : study.getItems()) {
-            int nij = 0;
-            for (IAnnotationUnit annotation : item.getUnits()) {
-                if (annotation.getCategory().equals(category)) {
-                    nij++;
-                }
-            }
-            sum_nij += nij;
-            sum_nij_2 += (nij * nij);
+        double sum_nij = 0;
+        double sum_nij_2 = 0;
+        CodingStudyStatistics statistics = study.getStatistics();
+        int code = statistics.getCategoryCode(category);
+        if (code != IEncodedCodingAnnotationStudy.MISSING) {
+            sum_nij = statistics.getAnnotationCount(code);
+            sum_nij_2 = statistics.getCooccurrence(code, code);
+        }
+        return calculateCategoryAgreement(sum_nij, sum_nij_2);
+    }
+
+    /**
+     * Calculates the category-specific agreement of all categories of the study at once. The
+     * per-category sums of n_ij and n_ij^2 are collected in a single pass over the study (see
+     * {@link ICodingAnnotationStudy#getStatistics()}).
+     *
+     * @return a map of each category and its agreement, in the order of the category codes.
+     */
+    public Map<Object, Double> calculateCategoryAgreements()
+    {
+        CodingStudyStatistics statistics = study.getStatistics();
+        Map<Object, Double> result = new LinkedHashMap<Object, Double>();
+        for (int code = 0; code < statistics.getCategoryCount(); code++) {
+            result.put(statistics.getCategory(code),
+                    calculateCategoryAgreement(statistics.getAnnotationCount(code),
+                            statistics.getCooccurrence(code, code)));
         }
+        return result;
+    }
 
-        double pj = 1 / (double) (N * n) * sum_nij;
-        double Pj = (sum_nij_2 - N * n * pj) / (double) (N * n * (n - 1) * pj);
-        double kappaj = (Pj - pj) / (double) (1 - pj);
+    private double calculateCategoryAgreement(double sum_nij, double sum_nij_2)
+    {
+        double N = study.getStatistics().getItemCount();
+        int n = study.getRaterCount();
+        double pj = 1 / (N * n) * sum_nij;
+        double Pj = (sum_nij_2 - N * n * pj) / (N * n * (n - 1) * pj);
+        double kappaj = (Pj - pj) / (1 - pj);
         return kappaj;
     }
 
+    /**
+     * Calculates the agreement of the study without the rater with the given index, i.e., the
+     * kappa of all other raters, whose observed and expected agreement are derived from the
+     * statistics of the complete study by subtracting the rater's annotations. A value above the
+     * agreement of the complete study indicates that the rater lowers the agreement. The items
+     * remain part of the study (see {@link CodingAnnotationStudy#extractRaters(int...)}). The
+     * value is NaN if the other raters did not code any item together or only used a single
+     * category.
+     *
+     * @throws IllegalArgumentException
+     *             if the rater index is invalid.
+     * @throws InsufficientDataException
+     *             if the study contains less than two categories.
+     */
+    @Override
+    public double calculateRaterAgreement(final int raterIdx)
+    {
+        ensureSufficientCategories();
+        return raterAgreement.calculateRaterAgreement(study, null, raterIdx);
+    }
+
+    /**
+     * Calculates the agreement of the study without each of its raters (see
+     * {@link #calculateRaterAgreement(int)}) in a single pass over the study.
+     *
+     * @return the agreement without each rater, indexed by the rater index.
+     * @throws InsufficientDataException
+     *             if the study contains less than two categories.
+     */
+    public double[] calculateRaterAgreements()
+    {
+        ensureSufficientCategories();
+        return raterAgreement.calculateRaterAgreements(study, null);
+    }
+
+    private double calculateRaterAgreement(final LeaveOneRaterOutStatistics statistics,
+            int raterIdx)
+    {
+        double A_O = statistics.getAgreementSum(raterIdx)
+                / statistics.getPairableUnitCount(raterIdx);
+
+        double A_E = 0.0;
+        for (double p : statistics.getProportionSums(raterIdx)) {
+            A_E += p * p;
+        }
+        double N = statistics.getItemCount();
+        A_E /= N * N;
+
+        if (A_E == 0.0) {
+            return A_O;
+        }
+        else if (A_O == 1.0 && A_E == 1.0) {
+            return Double.NaN;
+        }
+        else {
+            return (A_O - A_E) / (1.0 - A_E);
+        }
+    }
 }
@@ -15,7 +15,6 @@ package org.dkpro.statistics.agreement.coding;
 
 import java.math.BigDecimal;
 import java.math.MathContext;
-import java.util.Map;
 
 import org.dkpro.statistics.agreement.IChanceCorrectedAgreement;
 import org.dkpro.statistics.agreement.InsufficientDataException;
@@ -58,6 +57,16 @@ public class GwetAC1Agreement
         super(study);
     }
 
+    /**
+     * Calculates the observed agreement from the coincidence matrix of the study (see
+     * {@link #calculateCoincidenceObservedAgreement()}).
+     */
+    @Override
+    public double calculateObservedAgreement()
+    {
+        return calculateCoincidenceObservedAgreement();
+    }
+
     /**
      * Calculates the expected inter-rater agreement using Gwet's estimator
      * {@code 1/(q-1) * sum_k pi_k * (1 - pi_k)}, which assumes the same distribution for all raters
@@ -78,18 +87,16 @@ public class GwetAC1Agreement
                     "An annotation study needs at least two different categories; otherwise there is no decision for the raters to agree on.");
         }
 
-        Map<Object, Integer> annotationsPerCategory = CodingAnnotationStudy
-                .countTotalAnnotationsPerCategory(study);
-
+        CodingStudyStatistics statistics = study.getStatistics();
         BigDecimal total = BigDecimal.ZERO;
-        for (Integer catCount : annotationsPerCategory.values()) {
-            total = total.add(new BigDecimal(catCount));
+        for (int code = 0; code < statistics.getCategoryCount(); code++) {
+            total = total.add(new BigDecimal(statistics.getPairableAnnotationCount(code)));
         }
 
         BigDecimal result = BigDecimal.ZERO;
-        for (Object category : study.getCategories()) {
-            Integer catCount = annotationsPerCategory.get(category);
-            if (catCount != null) {
+        for (int code = 0; code < statistics.getCategoryCount(); code++) {
+            double catCount = statistics.getPairableAnnotationCount(code);
+            if (catCount > 0.0) {
                 BigDecimal pi = new BigDecimal(catCount).divide(total, MathContext.DECIMAL128);
                 result = result.add(pi.multiply(BigDecimal.ONE.subtract(pi)));
             }
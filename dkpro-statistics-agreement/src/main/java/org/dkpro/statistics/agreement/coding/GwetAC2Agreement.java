@@ -13,9 +13,6 @@
  */
 package org.dkpro.statistics.agreement.coding;
 
-import java.util.Map;
-import java.util.Map.Entry;
-
 import org.dkpro.statistics.agreement.IChanceCorrectedDisagreement;
 import org.dkpro.statistics.agreement.IMultiRaterAgreement;
 import org.dkpro.statistics.agreement.InsufficientDataException;
@@ -91,29 +88,27 @@ public class GwetAC2Agreement
         // carries the full complement of raters, which inflates the observed agreement whenever
         // values are missing. This keeps the "AC2 with a nominal distance reduces to AC1" invariant
         // intact for arbitrary per-item rater counts, and leaves complete studies unchanged.
+        //
+        // Per item, the disagreement sum_kl n_ik * n_il * d(k,l) / (r_i - 1) equals the
+        // coincidences weighted by their distance plus n_ik * d(k,k) / (r_i - 1) for the diagonal,
+        // since the coincidence matrix counts n_ik * (n_ik - 1) rather than n_ik^2 pairs k-k.
+        CategoryDistanceMatrix distances = getDistanceMatrix();
+        CodingStudyStatistics statistics = study.getStatistics();
+        CategoryPairTable coincidence = statistics.getCoincidenceTable();
         double result = 0.0;
-        double denominator = 0.0;
-        for (ICodingAnnotationItem item : study.getItems()) {
-            int raterCount = item.getRaterCount();
-            if (raterCount <= 1) {
-                continue;
+        for (int slot = 0; slot < coincidence.getSlotCount(); slot++) {
+            if (coincidence.isUsed(slot)) {
+                result += coincidence.getValue(slot) * distances
+                        .getDistance(coincidence.getCode1(slot), coincidence.getCode2(slot));
             }
-
-            Map<Object, Integer> annotationsPerCategory = CodingAnnotationStudy
-                    .countTotalAnnotationsPerCategory(item);
-
-            double itemDisagreement = 0.0;
-            for (Entry<Object, Integer> category1 : annotationsPerCategory.entrySet()) {
-                for (Entry<Object, Integer> category2 : annotationsPerCategory.entrySet()) {
-                    double distance = distanceFunction.measureDistance(study, category1.getKey(),
-                            category2.getKey());
-                    itemDisagreement += category1.getValue() * category2.getValue() * distance;
-                }
+        }
+        for (int code = 0; code < statistics.getCategoryCount(); code++) {
+            double scaledCount = statistics.getScaledAnnotationCount(code);
+            if (scaledCount > 0.0) {
+                result += scaledCount * distances.getDistance(code, code);
             }
-
-            result += itemDisagreement / (raterCount - 1.0);
-            denominator += raterCount;
         }
+        double denominator = statistics.getPairableUnitCount();
 
         // Every item was skipped (empty study, or no item annotated by two or more raters), so the
         // denominator collapsed to zero. Refuse rather than returning a silent NaN/Infinity,
@@ -153,16 +148,7 @@ public class GwetAC2Agreement
      */
     protected double calculateMaximumDistance()
     {
-        double maxDistance = 1.0;
-        for (Object category1 : study.getCategories()) {
-            for (Object category2 : study.getCategories()) {
-                double distance = distanceFunction.measureDistance(study, category1, category2);
-                if (distance > maxDistance) {
-                    maxDistance = distance;
-                }
-            }
-        }
-        return maxDistance;
+        return Math.max(1.0, getDistanceMatrix().getMaximumDistance());
     }
 
     /**
@@ -183,31 +169,28 @@ public class GwetAC2Agreement
         ensureDistanceFunction();
         ensureSufficientCategories();
 
-        Map<Object, Integer> annotationsPerCategory = CodingAnnotationStudy
-                .countTotalAnnotationsPerCategory(study);
+        CodingStudyStatistics statistics = study.getStatistics();
 
         double total = 0.0;
-        for (Integer catCount : annotationsPerCategory.values()) {
-            if (catCount != null) {
-                total += catCount;
-            }
+        for (int code = 0; code < statistics.getCategoryCount(); code++) {
+            total += statistics.getPairableAnnotationCount(code);
         }
 
         double maxDistance = calculateMaximumDistance();
 
         // T_w = sum over the weight matrix.
+        CategoryDistanceMatrix distances = getDistanceMatrix();
         double weightSum = 0.0;
-        for (Object category1 : study.getCategories()) {
-            for (Object category2 : study.getCategories()) {
-                double distance = distanceFunction.measureDistance(study, category1, category2);
-                weightSum += 1.0 - (distance / maxDistance);
+        for (int code1 = 0; code1 < distances.getCategoryCount(); code1++) {
+            for (int code2 = 0; code2 < distances.getCategoryCount(); code2++) {
+                weightSum += 1.0 - (distances.getDistance(code1, code2) / maxDistance);
             }
         }
 
         double piSum = 0.0;
-        for (Object category : study.getCategories()) {
-            Integer catCount = annotationsPerCategory.get(category);
-            if (catCount != null) {
+        for (int code = 0; code < statistics.getCategoryCount(); code++) {
+            double catCount = statistics.getPairableAnnotationCount(code);
+            if (catCount > 0.0) {
                 double pi = catCount / total;
                 piSum += pi * (1.0 - pi);
             }
@@ -15,9 +15,10 @@ package org.dkpro.statistics.agreement.coding;
 
 import java.math.BigDecimal;
 import java.math.MathContext;
-import java.util.Map;
 
+import org.dkpro.statistics.agreement.CompensatedSum;
 import org.dkpro.statistics.agreement.IMultiRaterAgreement;
+import org.dkpro.statistics.agreement.NumericMode;
 
 /**
  * <ul>
@@ -44,9 +45,21 @@ public class HubertKappaAgreement
         super(study);
     }
 
+    /**
+     * Calculates the observed agreement from the coincidence matrix of the study (see
+     * {@link #calculateCoincidenceObservedAgreement()}).
+     */
+    @Override
+    public double calculateObservedAgreement()
+    {
+        return calculateCoincidenceObservedAgreement();
+    }
+
     /**
      * Calculates the expected inter-rater agreement that assumes the same distribution for all
-     * raters and annotations.
+     * raters and annotations. The sum of the products of the raters' category marginals is
+     * obtained from the squared totals and the squared marginals in O(R * K) and accumulated
+     * according to the {@linkplain #getNumericMode() numeric mode} of the measure.
      * 
      * @throws NullPointerException
      *             if the annotation study is null.
@@ -56,23 +69,41 @@ public class HubertKappaAgreement
     @Override
     public double calculateExpectedAgreement()
     {
-        Map<Object, int[]> annotationsPerCategory = CodingAnnotationStudy
-                .countAnnotationsPerCategory(study);
+        CodingStudyStatistics statistics = study.getStatistics();
+        if (numericMode == NumericMode.EXACT) {
+            return calculateExactExpectedAgreement(statistics);
+        }
+
+        // sum_{m < n} a_cm * a_cn = (A_c^2 - sum_m a_cm^2) / 2, where a_cm denotes how often
+        // rater m used category c and A_c the total count of category c.
+        CompensatedSum result = new CompensatedSum();
+        for (int code = 0; code < statistics.getCategoryCount(); code++) {
+            double total = statistics.getAnnotationCount(code);
+            result.add(total * total);
+            for (int m = 0; m < study.getRaterCount(); m++) {
+                double count = statistics.getAnnotationCount(code, m);
+                result.add(-count * count);
+            }
+        }
+        double R = study.getRaterCount();
+        double N = statistics.getItemCount();
+        return result.getSum() / (R * (R - 1.0) * N * N);
+    }
+
+    private double calculateExactExpectedAgreement(final CodingStudyStatistics statistics)
+    {
         BigDecimal result = BigDecimal.ZERO;
-        for (Object category : study.getCategories()) {
-            int[] annotationCounts = annotationsPerCategory.get(category);
+        for (int code = 0; code < statistics.getCategoryCount(); code++) {
+            result = result.add(new BigDecimal(statistics.getAnnotationCount(code)).pow(2));
             for (int m = 0; m < study.getRaterCount(); m++) {
-                for (int n = m + 1; n < study.getRaterCount(); n++) {
-                    result = result.add(new BigDecimal(annotationCounts[m])
-                            .multiply(new BigDecimal(annotationCounts[n])));
-                }
+                result = result
+                        .subtract(new BigDecimal(statistics.getAnnotationCount(code, m)).pow(2));
             }
         }
-        result = result.multiply(new BigDecimal(2));
         result = result.divide(
                 new BigDecimal(study.getRaterCount())
                         .multiply(new BigDecimal(study.getRaterCount() - 1))
-                        .multiply(new BigDecimal(study.getItemCount()).pow(2)),
+                        .multiply(new BigDecimal(statistics.getItemCount()).pow(2)),
                 MathContext.DECIMAL128);
         return result.doubleValue();
     }
@@ -49,4 +49,14 @@ public interface ICodingAnnotationItem
      * Returns the number of raters who annotated this item with a non-null category.
      */
     public int getRaterCount();
+
+    /**
+     * Returns the multiplicity of this item, i.e., the number of identical items it represents.
+     * The weight is 1 unless the study stores each distinct rating pattern only once (see
+     * {@link WeightedCodingAnnotationStudy}).
+     */
+    public default double getWeight()
+    {
+        return 1.0;
+    }
 }
@@ -68,4 +68,18 @@ public interface ICodingAnnotationStudy
     @Override
     public int getUnitCount();
 
+    // -- Statistics --
+
+    /**
+     * Returns the sufficient statistics (category marginals, coincidence matrix, etc.) of this
+     * study from which the coding measures derive their results. Implementations are encouraged to
+     * cache the statistics until the study is modified, such that multiple measures calculated for
+     * the same study share a single scan of the items. The default implementation collects the
+     * statistics anew on every invocation.
+     */
+    public default CodingStudyStatistics getStatistics()
+    {
+        return new CodingStudyStatistics(this);
+    }
+
 }
@@ -0,0 +1,54 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.coding;
+
+/**
+ * Extension of the {@link ICodingAnnotationStudy} interface for studies that represent their
+ * categories by integer codes. Each category of the study is assigned a consecutive code starting
+ * at 0 in the order in which {@link #getCategories()} returns the categories, and each annotation
+ * unit can be accessed by its code rather than as an
+ * {@link org.dkpro.statistics.agreement.IAnnotationUnit} object. The
+ * {@linkplain CodingStudyStatistics statistics} used by the agreement measures of this package are
+ * collected directly from the codes, which avoids the hashing of category objects and the
+ * allocation of annotation units for every single rating.
+ *
+ * @see ColumnarCodingAnnotationStudy
+ * @see ICodingAnnotationStudy
+ */
+public interface IEncodedCodingAnnotationStudy
+    extends ICodingAnnotationStudy
+{
+    /** The code representing a missing value (i.e., an item not coded by a certain rater). */
+    public static final int MISSING = -1;
+
+    /**
+     * Returns the category with the given code.
+     *
+     * @throws IndexOutOfBoundsException
+     *             if the code is negative or not smaller than the number of categories.
+     */
+    public Object getCategory(int code);
+
+    /**
+     * Returns the code of the given category or {@link #MISSING} if the category is null or not
+     * part of the study.
+     */
+    public int getCategoryCode(final Object category);
+
+    /**
+     * Returns the code of the category that the rater with the given index assigned to the item
+     * with the given index, or {@link #MISSING} if the rater did not code the item.
+     */
+    public int getCode(int itemIdx, int raterIdx);
+}
@@ -0,0 +1,159 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.coding;
+
+/**
+ * Columnar annotation study for coding tasks that keeps its {@link CodingStudyStatistics}
+ * up-to-date while the study is being changed. Besides adding items, raters, and categories, the
+ * study allows for changing single annotations ({@link #setAnnotation(int, int, Object)}) and
+ * for retracting items ({@link #removeItem(int)}). Each of these operations updates the running
+ * marginals and the coincidence matrix in O(R + u^2), where R is the number of raters and u is
+ * the number of distinct categories used for the affected item (hence, at most O(R + K) for
+ * two-rater studies). The agreement measures read the running statistics returned by
+ * {@link #getStatistics()}, such that recomputing an agreement value after a change only costs
+ * O(K^2) instead of a pass over all items.<br>
+ * <br>
+ * Removing an item moves the last item of the study to the index of the removed item.
+ *
+ * @see ColumnarCodingAnnotationStudy
+ * @see CodingStudyStatistics
+ */
+public class IncrementalCodingAnnotationStudy
+    extends ColumnarCodingAnnotationStudy
+{
+    private static final long serialVersionUID = -2087915464316371259L;
+
+    protected CodingStudyStatistics runningStatistics;
+
+    /**
+     * Initializes an empty incremental annotation study for a coding task with the given number
+     * of raters.
+     */
+    public IncrementalCodingAnnotationStudy(int raterCount)
+    {
+        super(raterCount);
+        runningStatistics = new CodingStudyStatistics(this);
+    }
+
+    /**
+     * Initializes an incremental copy of the given coding study. The categories of the given
+     * study receive their codes in the order returned by
+     * {@link ICodingAnnotationStudy#getCategories()}. Weighted items are expanded into identical
+     * copies (see the copy constructor of {@link ColumnarCodingAnnotationStudy}).
+     */
+    public IncrementalCodingAnnotationStudy(final ICodingAnnotationStudy study)
+    {
+        super(study);
+        runningStatistics = new CodingStudyStatistics(this);
+    }
+
+    @Override
+    public int addRater(final String name)
+    {
+        int result = super.addRater(name);
+        if (runningStatistics != null) {
+            runningStatistics.addRater();
+        }
+        return result;
+    }
+
+    @Override
+    public int encodeCategory(final Object category)
+    {
+        int result = super.encodeCategory(category);
+        if (runningStatistics != null && result >= runningStatistics.getCategoryCount()) {
+            runningStatistics.addCategory(category);
+        }
+        return result;
+    }
+
+    @Override
+    public int addItemAsCodes(final int... codes)
+    {
+        int result = super.addItemAsCodes(codes);
+        if (runningStatistics != null) {
+            runningStatistics.addItem(codes);
+        }
+        return result;
+    }
+
+    /**
+     * Replaces the annotation of the given rater for the given item by the given category. Use
+     * null to remove the annotation (i.e., to represent a missing value).
+     *
+     * @throws IndexOutOfBoundsException
+     *             if the item or rater index is out of range.
+     */
+    public void setAnnotation(int itemIdx, int raterIdx, final Object category)
+    {
+        setAnnotationCode(itemIdx, raterIdx, encodeCategory(category));
+    }
+
+    @Override
+    public void setAnnotationCode(int itemIdx, int raterIdx, int code)
+    {
+        checkCode(code);
+        int[] codes = getCodes(itemIdx);
+        if (codes[raterIdx] == code) {
+            return;
+        }
+
+        runningStatistics.removeItem(codes);
+        super.setAnnotationCode(itemIdx, raterIdx, code);
+        codes[raterIdx] = code;
+        runningStatistics.addItem(codes);
+    }
+
+    /**
+     * Removes the item with the given index from the study. The last item of the study takes the
+     * index of the removed item.
+     *
+     * @throws IndexOutOfBoundsException
+     *             if the item index is out of range.
+     */
+    public void removeItem(int itemIdx)
+    {
+        int[] codes = getCodes(itemIdx);
+        runningStatistics.removeItem(codes);
+
+        int lastIdx = itemCount - 1;
+        for (int raterIdx = 0; raterIdx < codes.length; raterIdx++) {
+            clearCode(itemIdx, raterIdx, codes[raterIdx]);
+            if (itemIdx != lastIdx) {
+                int code = getCode(lastIdx, raterIdx);
+                storeCode(itemIdx, raterIdx, code);
+            }
+            storeCode(lastIdx, raterIdx, MISSING);
+        }
+        itemCount--;
+    }
+
+    /**
+     * Returns the running statistics of the study, which reflect all changes made so far.
+     */
+    @Override
+    public CodingStudyStatistics getStatistics()
+    {
+        return runningStatistics;
+    }
+
+    protected int[] getCodes(int itemIdx)
+    {
+        int[] result = new int[getRaterCount()];
+        for (int raterIdx = 0; raterIdx < result.length; raterIdx++) {
+            result[raterIdx] = getCode(itemIdx, raterIdx);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.coding;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import org.dkpro.statistics.agreement.IAgreementMeasure;
+import org.dkpro.statistics.agreement.InsufficientDataException;
+
+/**
+ * Leave-one-item-out (jackknife) analysis of a coding agreement measure, which determines the
+ * influence of each annotation item on the agreement and the jackknife estimate of the variance.
+ * Rather than recalculating the measure for N copies of the study, the contribution of an item is
+ * removed from the {@link CodingStudyStatistics} of the study, the measure is calculated from the
+ * remaining statistics by means of a {@link StatisticsCodingAnnotationStudy}, and the item is
+ * added back. Each step thus takes O(R + K^2) time. Since items with the same annotations have
+ * the same influence, the measure is calculated only once per distinct annotation pattern. The
+ * categories of the study without an item are those used by the remaining items and those
+ * declared by the study without being used, as for a study from which the item has been removed.
+ * This matters for measures depending on the number of categories (e.g., Bennett et al.'s S and
+ * Randolph's kappa). As for the {@link BootstrapAgreementEstimator}, the measure needs to be
+ * based on the statistics of the study.<br>
+ * <br>
+ * Items with a {@linkplain ICodingAnnotationItem#getWeight() weight} other than 1 (see
+ * {@link WeightedCodingAnnotationStudy}) represent multiple identical items. For such an item,
+ * one unit of its weight (or the entire item if its weight is less than 1) is left out, and the
+ * variance is based on the total weight of the items rather than their number. This yields the
+ * same values as the analysis of the study in which each item is expanded into the corresponding
+ * number of copies.<br>
+ * <br>
+ * References:
+ * <ul>
+ * <li>Efron, B. &amp; Tibshirani, R.J.: An Introduction to the Bootstrap. New York, NY: Chapman
+ * &amp; Hall, 1993.</li>
+ * </ul>
+ */
+public class JackknifeAgreementAnalysis
+{
+    protected final ICodingAnnotationStudy study;
+    protected final Function<ICodingAnnotationStudy, ? extends IAgreementMeasure> measureFactory;
+
+    private double agreement;
+    private double[] jackknifeValues;
+    private double[] itemWeights;
+
+    /**
+     * Initializes the analysis for the given study and the measure created by the given factory
+     * (e.g., {@code CohenKappaAgreement::new}).
+     */
+    public JackknifeAgreementAnalysis(final ICodingAnnotationStudy study,
+            final Function<ICodingAnnotationStudy, ? extends IAgreementMeasure> measureFactory)
+    {
+        this.study = study;
+        this.measureFactory = measureFactory;
+    }
+
+    /**
+     * Returns the agreement of the study without the respective item for each item of the study.
+     * For weighted items, this is the agreement without one unit of the item's weight. The value
+     * is NaN if the measure is undefined without the item.
+     *
+     * @throws IllegalArgumentException
+     *             if the measure is not based on the statistics of the study.
+     */
+    public double[] calculateJackknifeValues()
+    {
+        ensureJackknifeValues();
+        return jackknifeValues.clone();
+    }
+
+    /**
+     * Returns the influence of each item of the study, i.e., the agreement of the study minus the
+     * agreement of the study without the respective item. A positive influence indicates that the
+     * item increases the agreement.
+     */
+    public double[] calculateInfluence()
+    {
+        ensureJackknifeValues();
+        double[] result = new double[jackknifeValues.length];
+        for (int itemIdx = 0; itemIdx < result.length; itemIdx++) {
+            result[itemIdx] = agreement - jackknifeValues[itemIdx];
+        }
+        return result;
+    }
+
+    /**
+     * Returns the jackknife estimate of the variance of the measure, (N - 1) / N * sum_i w_i *
+     * (a_(i) - a_(.))^2, where a_(i) denotes the agreement without item i, w_i the weight of item
+     * i, N the total weight of the items, and a_(.) the weighted mean of the a_(i). Items without
+     * which the measure is undefined are disregarded.
+     *
+     * @throws InsufficientDataException
+     *             if the total weight of the items for which the value is defined is less than 2.
+     */
+    public double calculateJackknifeVariance()
+    {
+        ensureJackknifeValues();
+        double totalWeight = 0.0;
+        double mean = 0.0;
+        for (int itemIdx = 0; itemIdx < jackknifeValues.length; itemIdx++) {
+            if (!Double.isNaN(jackknifeValues[itemIdx])) {
+                totalWeight += itemWeights[itemIdx];
+                mean += itemWeights[itemIdx] * jackknifeValues[itemIdx];
+            }
+        }
+        if (totalWeight < 2.0) {
+            throw new InsufficientDataException("The jackknife requires at least two items.");
+        }
+
+        mean /= totalWeight;
+        double result = 0.0;
+        for (int itemIdx = 0; itemIdx < jackknifeValues.length; itemIdx++) {
+            double value = jackknifeValues[itemIdx];
+            if (!Double.isNaN(value)) {
+                result += itemWeights[itemIdx] * (value - mean) * (value - mean);
+            }
+        }
+        return result * (totalWeight - 1.0) / totalWeight;
+    }
+
+    /**
+     * Returns the weight of each item of the study (see {@link ICodingAnnotationItem#getWeight()}),
+     * which is 1 unless the study is a {@link WeightedCodingAnnotationStudy}.
+     */
+    public double[] getItemWeights()
+    {
+        ensureJackknifeValues();
+        return itemWeights.clone();
+    }
+
+    /**
+     * Returns the indexes of the k items with the largest absolute influence on the agreement in
+     * descending order of their absolute influence.
+     */
+    public int[] findMostInfluentialItems(int k)
+    {
+        double[] influence = calculateInfluence();
+        return IntStream.range(0, influence.length)
+                .filter(itemIdx -> !Double.isNaN(influence[itemIdx])).boxed()
+                .sorted(Comparator.comparingDouble(itemIdx -> -Math.abs(influence[itemIdx])))
+                .limit(k).mapToInt(Integer::intValue).toArray();
+    }
+
+    protected void ensureJackknifeValues()
+    {
+        if (jackknifeValues != null) {
+            return;
+        }
+
+        agreement = measureFactory.apply(study).calculateAgreement();
+        CodingStudyStatistics statistics = study.getStatistics();
+        int[][] items = statistics.encodeItems(study);
+        double[] weights = collectItemWeights(study);
+        boolean[] declaredCategories = StatisticsCodingAnnotationStudy
+                .findDeclaredCategories(statistics);
+        CodingStudyStatistics remainder = statistics.createEmpty();
+        remainder.merge(statistics);
+
+        // Items leaving out a full unit of weight are cached by their pattern.
+        Map<CodePattern, Double> cache = new HashMap<CodePattern, Double>();
+        double[] result = new double[items.length];
+        for (int itemIdx = 0; itemIdx < items.length; itemIdx++) {
+            double removedWeight = Math.min(1.0, weights[itemIdx]);
+            CodePattern pattern = (removedWeight == 1.0 ? new CodePattern(items[itemIdx]) : null);
+            Double value = (pattern != null ? cache.get(pattern) : null);
+            if (value == null) {
+                remainder.addItem(items[itemIdx], -removedWeight);
+                value = evaluate(measureFactory, remainder, declaredCategories);
+                remainder.addItem(items[itemIdx], removedWeight);
+                if (pattern != null) {
+                    cache.put(pattern, value);
+                }
+            }
+            result[itemIdx] = value;
+        }
+        itemWeights = weights;
+        jackknifeValues = result;
+    }
+
+    /**
+     * Returns the {@linkplain ICodingAnnotationItem#getWeight() weight} of each item of the given
+     * study.
+     *
+     * @throws IllegalArgumentException
+     *             if the weight of an item is negative or NaN.
+     */
+    static double[] collectItemWeights(final ICodingAnnotationStudy study)
+    {
+        double[] result = new double[study.getItemCount()];
+        int itemIdx = 0;
+        for (ICodingAnnotationItem item : study.getItems()) {
+            double weight = item.getWeight();
+            if (!(weight >= 0.0)) {
+                throw new IllegalArgumentException("Cannot resample an item with weight "
+                        + weight + ".");
+            }
+            result[itemIdx++] = weight;
+        }
+        return result;
+    }
+
+    /**
+     * Calculates the measure created by the given factory for the given statistics. Returns NaN
+     * if the measure is undefined for the statistics. If the statistics represent a subset of the
+     * items of a study, the declared categories of the study should be given (see
+     * {@link StatisticsCodingAnnotationStudy#findDeclaredCategories(CodingStudyStatistics)}),
+     * such that the categories unused by the subset are disregarded; otherwise, null.
+     *
+     * @throws IllegalArgumentException
+     *             if the measure requires the items of the study rather than its statistics
+     *             (e.g., {@link DiceAgreement} and {@link MaxPercentageAgreement}).
+     */
+    static double evaluate(
+            final Function<ICodingAnnotationStudy, ? extends IAgreementMeasure> measureFactory,
+            final CodingStudyStatistics statistics, final boolean[] declaredCategories)
+    {
+        try {
+            double result = measureFactory
+                    .apply(new StatisticsCodingAnnotationStudy(statistics, declaredCategories))
+                    .calculateAgreement();
+            return Double.isInfinite(result) ? Double.NaN : result;
+        }
+        catch (InsufficientDataException | ArithmeticException e) {
+            return Double.NaN;
+        }
+        catch (UnsupportedOperationException e) {
+            throw new IllegalArgumentException("The measure cannot be calculated from the "
+                    + "statistics of the study, since it requires the individual items.", e);
+        }
+    }
+
+    private static final class CodePattern
+    {
+        private final int[] codes;
+        private final int hashCode;
+
+        CodePattern(final int[] codes)
+        {
+            this.codes = codes;
+            hashCode = Arrays.hashCode(codes);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(final Object other)
+        {
+            return other instanceof CodePattern
+                    && Arrays.equals(codes, ((CodePattern) other).codes);
+        }
+    }
+}
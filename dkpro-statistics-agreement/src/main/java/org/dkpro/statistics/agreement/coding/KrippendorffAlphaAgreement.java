@@ -13,24 +13,28 @@
  */
 package org.dkpro.statistics.agreement.coding;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Map.Entry;
 
-import org.dkpro.statistics.agreement.IAnnotationUnit;
 import org.dkpro.statistics.agreement.ICategorySpecificAgreement;
 import org.dkpro.statistics.agreement.IChanceCorrectedDisagreement;
 import org.dkpro.statistics.agreement.IMissingValueSupport;
 import org.dkpro.statistics.agreement.IMultiRaterAgreement;
+import org.dkpro.statistics.agreement.IRaterSpecificAgreement;
 import org.dkpro.statistics.agreement.InsufficientDataException;
 import org.dkpro.statistics.agreement.distance.IDistanceFunction;
+import org.dkpro.statistics.agreement.distance.IntervalDistanceFunction;
+import org.dkpro.statistics.agreement.distance.NominalDistanceFunction;
 
 /**
  * Implementation of Krippendorff's (1980) alpha-measure for calculating a chance-corrected
  * inter-rater agreement for multiple raters with arbitrary distance/weighting functions. The basic
  * idea is to divide the estimated variance of within the items by the estimated total variance.
  * Before an inter-rater agreement can be calculated, an {@link IDistanceFunction} instance needs to
- * be assigned.<br>
+ * be assigned. For the {@link NominalDistanceFunction} and the {@link IntervalDistanceFunction}
+ * (with integer or double categories), the observed and expected disagreement are calculated in
+ * closed form from the marginals and coincidences of the study, which avoids evaluating the
+ * distance function for all K^2 pairs of categories.<br>
  * <br>
  * References:
  * <ul>
@@ -47,9 +51,12 @@ import org.dkpro.statistics.agreement.distance.IDistanceFunction;
 public class KrippendorffAlphaAgreement
     extends WeightedAgreement
     implements IChanceCorrectedDisagreement, ICategorySpecificAgreement,
-    ICodingItemSpecificAgreement, IMissingValueSupport, IMultiRaterAgreement
+    ICodingItemSpecificAgreement, IMissingValueSupport, IMultiRaterAgreement,
+    IRaterSpecificAgreement
 {
-    protected Map<Object, Map<Object, Double>> coincidenceMatrix;
+    private final RaterAgreementCalculator raterAgreement = new RaterAgreementCalculator(
+            this::calculateRaterAgreement);
+    private CategoryCodeCounter itemCounter;
 
     /**
      * Initializes the instance for the given annotation study. The study should never be null.
@@ -65,17 +72,42 @@ public class KrippendorffAlphaAgreement
     public double calculateObservedDisagreement()
     {
         ensureDistanceFunction();
-        if (coincidenceMatrix == null) {
-            coincidenceMatrix = CodingAnnotationStudy.countCategoryCoincidence(study);
+        CodingStudyStatistics statistics = study.getStatistics();
+        if (distanceFunction.getClass() == NominalDistanceFunction.class) {
+            // The disagreeing pairable values are those off the diagonal of the coincidences.
+            double agreement = 0.0;
+            for (int code = 0; code < statistics.getCategoryCount(); code++) {
+                agreement += statistics.getCoincidence(code, code);
+            }
+            double n = statistics.getPairableUnitCount();
+            return (n - agreement) / n;
+        }
+
+        CategoryPairTable coincidence = statistics.getCoincidenceTable();
+        double[] values = getIntervalValues(statistics);
+        if (values != null) {
+            double n = 0.0;
+            double result = 0.0;
+            for (int slot = 0; slot < coincidence.getSlotCount(); slot++) {
+                if (coincidence.isUsed(slot)) {
+                    double diff = values[coincidence.getCode1(slot)]
+                            - values[coincidence.getCode2(slot)];
+                    result += coincidence.getValue(slot) * diff * diff;
+                    n += coincidence.getValue(slot);
+                }
+            }
+            return result / n;
         }
 
+        CategoryDistanceMatrix distances = getDistanceMatrix();
+
         double n = 0.0;
         double result = 0.0;
-        for (Entry<Object, Map<Object, Double>> cat1 : coincidenceMatrix.entrySet()) {
-            for (Entry<Object, Double> cat2 : cat1.getValue().entrySet()) {
-                result += cat2.getValue()
-                        * distanceFunction.measureDistance(study, cat1.getKey(), cat2.getKey());
-                n += cat2.getValue();
+        for (int slot = 0; slot < coincidence.getSlotCount(); slot++) {
+            if (coincidence.isUsed(slot)) {
+                result += coincidence.getValue(slot) * distances
+                        .getDistance(coincidence.getCode1(slot), coincidence.getCode2(slot));
+                n += coincidence.getValue(slot);
             }
         }
         result /= n;
@@ -95,54 +127,112 @@ public class KrippendorffAlphaAgreement
     public double calculateExpectedDisagreement()
     {
         ensureDistanceFunction();
-        if (coincidenceMatrix == null) {
-            coincidenceMatrix = CodingAnnotationStudy.countCategoryCoincidence(study);
-        }
+        ensureSufficientCategories();
+        CodingStudyStatistics statistics = study.getStatistics();
 
-        if (study.getCategoryCount() <= 1) {
-            throw new InsufficientDataException(
-                    "An annotation study needs at least two different categories; otherwise there is no decision for the raters to agree on.");
+        // The marginals of the coincidence matrix are the category counts within all items that
+        // have been coded by two or more raters.
+        double n = statistics.getPairableUnitCount();
+        if (distanceFunction.getClass() == NominalDistanceFunction.class) {
+            // sum_{c != d} n_c * n_d = n^2 - sum_c n_c^2
+            double sumSquares = 0.0;
+            for (int code = 0; code < statistics.getCategoryCount(); code++) {
+                double n_c = statistics.getPairableAnnotationCount(code);
+                sumSquares += n_c * n_c;
+            }
+            return (n * n - sumSquares) / (n * (n - 1.0));
         }
 
-        double n = 0.0;
-        Map<Object, Double> marginals = new HashMap<Object, Double>();
-        for (Entry<Object, Map<Object, Double>> cat1 : coincidenceMatrix.entrySet()) {
-            double n_c = 0.0;
-            for (Entry<Object, Double> cat2 : cat1.getValue().entrySet()) {
-                n_c += cat2.getValue();
+        double[] values = getIntervalValues(statistics);
+        if (values != null) {
+            // sum_{c, d} n_c * n_d * (x_c - x_d)^2 = 2 * n * sum_c n_c * (x_c - mean)^2, where
+            // the values are centered to avoid cancellation.
+            double mean = 0.0;
+            for (int code = 0; code < values.length; code++) {
+                mean += statistics.getPairableAnnotationCount(code) * values[code];
+            }
+            mean /= n;
+            double sumSquares = 0.0;
+            for (int code = 0; code < values.length; code++) {
+                double diff = values[code] - mean;
+                sumSquares += statistics.getPairableAnnotationCount(code) * diff * diff;
             }
-            marginals.put(cat1.getKey(), n_c);
-            n += n_c;
+            return 2.0 * sumSquares / (n - 1.0);
         }
 
+        CategoryDistanceMatrix distances = getDistanceMatrix();
         double result = 0.0;
-        for (Entry<Object, Double> cat1 : marginals.entrySet()) {
-            for (Entry<Object, Double> cat2 : marginals.entrySet()) {
-                result += cat1.getValue() * cat2.getValue()
-                        * distanceFunction.measureDistance(study, cat1.getKey(), cat2.getKey());
+        for (int code1 = 0; code1 < statistics.getCategoryCount(); code1++) {
+            double n_c1 = statistics.getPairableAnnotationCount(code1);
+            if (n_c1 == 0.0) {
+                continue;
+            }
+
+            for (int code2 = 0; code2 < statistics.getCategoryCount(); code2++) {
+                double n_c2 = statistics.getPairableAnnotationCount(code2);
+                if (n_c2 > 0.0) {
+                    result += n_c1 * n_c2 * distances.getDistance(code1, code2);
+                }
             }
         }
         result /= n * (n - 1.0);
         return result;
     }
 
+    // Returns the numerical values of the categories (indexed by code) if the distance function is
+    // the interval distance and all categories are integers or all categories are doubles, in
+    // which case the distance is the squared difference of the values; null otherwise.
+    private double[] getIntervalValues(final CodingStudyStatistics statistics)
+    {
+        if (distanceFunction.getClass() != IntervalDistanceFunction.class
+                || statistics.getCategoryCount() == 0) {
+            return null;
+        }
+
+        Class<?> type = (statistics.getCategory(0) == null ? null
+                : statistics.getCategory(0).getClass());
+        if (type != Integer.class && type != Double.class) {
+            return null;
+        }
+
+        double[] result = new double[statistics.getCategoryCount()];
+        for (int code = 0; code < result.length; code++) {
+            Object category = statistics.getCategory(code);
+            if (category == null || category.getClass() != type) {
+                return null;
+            }
+            result[code] = ((Number) category).doubleValue();
+        }
+        return result;
+    }
+
     @Override
     public double calculateItemAgreement(final ICodingAnnotationItem item)
     {
-        ensureDistanceFunction();
-        Map<Object, Map<Object, Double>> itemMatrix = CodingAnnotationStudy
-                .countCategoryCoincidence(item);
+        // The coincidences of the item are n_c * (n_d - [c = d]) / (r - 1), whose sum is r. The
+        // category codes are counted with a reusable counter, such that no per-item maps are
+        // allocated.
+        CategoryDistanceMatrix distances = getDistanceMatrix();
+        CodingStudyStatistics statistics = study.getStatistics();
+        if (itemCounter == null || itemCounter.capacity() < statistics.getCategoryCount()) {
+            itemCounter = new CategoryCodeCounter(statistics.getCategoryCount());
+        }
+        itemCounter.clear();
+        statistics.countCodes(item, itemCounter);
 
-        double n = 0.0;
         double D_O = 0.0;
-        for (Entry<Object, Map<Object, Double>> cat1 : itemMatrix.entrySet()) {
-            for (Entry<Object, Double> cat2 : cat1.getValue().entrySet()) {
-                D_O += cat2.getValue()
-                        * distanceFunction.measureDistance(study, cat1.getKey(), cat2.getKey());
-                n += cat2.getValue();
+        for (int i = 0; i < itemCounter.size(); i++) {
+            int code1 = itemCounter.getCode(i);
+            double count1 = itemCounter.getCount(code1);
+            for (int j = 0; j < itemCounter.size(); j++) {
+                int code2 = itemCounter.getCode(j);
+                double pairs = count1
+                        * (code1 == code2 ? count1 - 1.0 : itemCounter.getCount(code2));
+                D_O += pairs * distances.getDistance(code1, code2);
             }
         }
-        D_O /= n;
+        double r = itemCounter.getRaterCount();
+        D_O /= r * (r - 1.0);
 
         double D_E = calculateExpectedDisagreement();
         if (D_E == 0.0) {
@@ -157,47 +247,134 @@ public class KrippendorffAlphaAgreement
     public double calculateCategoryAgreement(final Object category)
     {
         ensureDistanceFunction();
+        CodingStudyStatistics statistics = study.getStatistics();
+        int code = statistics.getCategoryCode(category);
+        double sumKeep = 0.0;
+        double sumKeepSquared = 0.0;
+        if (code != IEncodedCodingAnnotationStudy.MISSING) {
+            sumKeep = statistics.getAnnotationCount(code);
+            sumKeepSquared = statistics.getCooccurrence(code, code);
+        }
+        return calculateCategoryAgreement(category, sumKeep, sumKeepSquared);
+    }
+
+    /**
+     * Calculates the category-specific agreement of all categories of the study at once. The
+     * per-category sums of n_i and n_i^2 are collected in a single pass over the study (see
+     * {@link ICodingAnnotationStudy#getStatistics()}).
+     *
+     * @return a map of each category and its agreement, in the order of the category codes.
+     */
+    public Map<Object, Double> calculateCategoryAgreements()
+    {
+        ensureDistanceFunction();
+        CodingStudyStatistics statistics = study.getStatistics();
+        Map<Object, Double> result = new LinkedHashMap<Object, Double>();
+        for (int code = 0; code < statistics.getCategoryCount(); code++) {
+            Object category = statistics.getCategory(code);
+            result.put(category, calculateCategoryAgreement(category,
+                    statistics.getAnnotationCount(code), statistics.getCooccurrence(code, code)));
+        }
+        return result;
+    }
 
+    private double calculateCategoryAgreement(final Object category, double sumKeep,
+            double sumKeepSquared)
+    {
         final Object NULL_CATEGORY = new Object();
-        double observedDisagreement = 0.0;
-        int nKeepCategorySum = 0;
-        int nNullCategorySum = 0;
-        for (ICodingAnnotationItem item : study.getItems()) {
-            int nKeepCategory = 0;
-            int nNullCategory = 0;
-            for (IAnnotationUnit annotation : item.getUnits()) {
-                if (category.equals(annotation.getCategory())) {
-                    nKeepCategory++;
-                }
-                else {
-                    nNullCategory++;
+        double keepKeepDistance = distanceFunction.measureDistance(study, category, category);
+        double keepNullDistance = distanceFunction.measureDistance(study, category, NULL_CATEGORY);
+        double nullKeepDistance = distanceFunction.measureDistance(study, NULL_CATEGORY, category);
+        double nullNullDistance = distanceFunction.measureDistance(study, NULL_CATEGORY,
+                NULL_CATEGORY);
+
+        // With n_i denoting how often item i has been coded as the given category and R - n_i how
+        // often it has been coded otherwise (including missing values), both the observed and the
+        // expected disagreement only depend on the sums of n_i and n_i^2 over all items.
+        double N = study.getStatistics().getItemCount();
+        double R = study.getRaterCount();
+        double sumKeepNull = R * sumKeep - sumKeepSquared;
+        double sumNullSquared = N * R * R - 2.0 * R * sumKeep + sumKeepSquared;
+        double observedDisagreement = sumKeepSquared * keepKeepDistance
+                + sumKeepNull * keepNullDistance + sumKeepNull * nullKeepDistance
+                + sumNullSquared * nullNullDistance;
+        double nKeepCategorySum = sumKeep;
+        double nNullCategorySum = N * R - sumKeep;
+        observedDisagreement /= N * R * (R - 1.0);
+
+        double expectedDisagreement = nKeepCategorySum * nKeepCategorySum * keepKeepDistance
+                + nKeepCategorySum * nNullCategorySum * keepNullDistance
+                + nNullCategorySum * nKeepCategorySum * nullKeepDistance
+                + nNullCategorySum * nNullCategorySum * nullNullDistance;
+        expectedDisagreement /= N * R * (N * R - 1.0);
+
+        return 1.0 - (observedDisagreement / expectedDisagreement);
+    }
+
+    /**
+     * Calculates the agreement of the study without the rater with the given index, i.e., the
+     * alpha of all other raters, whose coincidences and marginals are derived from the statistics
+     * of the complete study by subtracting the rater's pairable values. A value above the agreement
+     * of the complete study indicates that the rater lowers the agreement. The items remain part
+     * of the study (see {@link CodingAnnotationStudy#extractRaters(int...)}), and the distances
+     * are those of the complete study, which matters for distance functions that depend on the
+     * study (e.g., ordinal distances). The value is NaN if the other raters did not code any item
+     * together.
+     *
+     * @throws IllegalArgumentException
+     *             if the rater index is invalid.
+     * @throws InsufficientDataException
+     *             if the study contains less than two categories.
+     */
+    @Override
+    public double calculateRaterAgreement(final int raterIdx)
+    {
+        ensureDistanceFunction();
+        ensureSufficientCategories();
+        return raterAgreement.calculateRaterAgreement(study, getDistanceMatrix(), raterIdx);
+    }
+
+    /**
+     * Calculates the agreement of the study without each of its raters (see
+     * {@link #calculateRaterAgreement(int)}) in a single pass over the study.
+     *
+     * @return the agreement without each rater, indexed by the rater index.
+     * @throws InsufficientDataException
+     *             if the study contains less than two categories.
+     */
+    public double[] calculateRaterAgreements()
+    {
+        ensureDistanceFunction();
+        ensureSufficientCategories();
+        return raterAgreement.calculateRaterAgreements(study, getDistanceMatrix());
+    }
+
+    private double calculateRaterAgreement(final LeaveOneRaterOutStatistics statistics,
+            int raterIdx)
+    {
+        CategoryDistanceMatrix distances = getDistanceMatrix();
+        double n = statistics.getPairableUnitCount(raterIdx);
+        double D_O = statistics.getDistanceSum(raterIdx) / n;
+
+        double[] n_c = statistics.getPairableAnnotationCounts(raterIdx);
+        double D_E = 0.0;
+        for (int code1 = 0; code1 < n_c.length; code1++) {
+            if (n_c[code1] == 0.0) {
+                continue;
+            }
+
+            for (int code2 = 0; code2 < n_c.length; code2++) {
+                if (n_c[code2] > 0.0) {
+                    D_E += n_c[code1] * n_c[code2] * distances.getDistance(code1, code2);
                 }
             }
-            observedDisagreement += nKeepCategory * nKeepCategory
-                    * distanceFunction.measureDistance(study, category, category)
-                    + nKeepCategory * nNullCategory
-                            * distanceFunction.measureDistance(study, category, NULL_CATEGORY)
-                    + nNullCategory * nKeepCategory
-                            * distanceFunction.measureDistance(study, NULL_CATEGORY, category)
-                    + nNullCategory * nNullCategory
-                            * distanceFunction.measureDistance(study, NULL_CATEGORY, NULL_CATEGORY);
-            nKeepCategorySum += nKeepCategory;
-            nNullCategorySum += nNullCategory;
-        }
-        observedDisagreement /= (double) study.getItemCount() * study.getRaterCount()
-                * (study.getRaterCount() - 1);
-
-        double expectedDisagreement = nKeepCategorySum * nKeepCategorySum
-                * distanceFunction.measureDistance(study, category, category)
-                + nKeepCategorySum * nNullCategorySum
-                        * distanceFunction.measureDistance(study, category, NULL_CATEGORY)
-                + nNullCategorySum * nKeepCategorySum
-                        * distanceFunction.measureDistance(study, NULL_CATEGORY, category)
-                + nNullCategorySum * nNullCategorySum
-                        * distanceFunction.measureDistance(study, NULL_CATEGORY, NULL_CATEGORY);
-        expectedDisagreement /= (double) study.getItemCount() * study.getRaterCount()
-                * (study.getItemCount() * study.getRaterCount() - 1);
+        }
+        D_E /= n * (n - 1.0);
 
-        return 1.0 - (observedDisagreement / expectedDisagreement);
+        if (D_O == D_E) {
+            // Full agreement of the other raters (see DisagreementMeasure#calculateAgreement()).
+            return (D_O == 0.0 ? 1.0 : 0.0);
+        }
+        return 1.0 - (D_O / D_E);
     }
 }
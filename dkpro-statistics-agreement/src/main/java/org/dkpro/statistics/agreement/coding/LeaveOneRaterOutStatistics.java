@@ -0,0 +1,312 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.coding;
+
+import java.util.Arrays;
+
+import org.dkpro.statistics.agreement.IAnnotationUnit;
+
+/**
+ * The parts of the {@link CodingStudyStatistics} required by the rater-specific agreement of the
+ * coding measures, collected for each rater as if the rater had been removed from the study. The
+ * statistics of all raters are obtained in a single pass over the items: for each annotation unit,
+ * the contribution of its item is updated for the item without the unit, and the difference is
+ * subtracted from the statistics of the unit's rater. The pass takes O(N * R * u) time, where u is
+ * the number of distinct categories used for an item, plus O(u^2) per item if distances are
+ * given. Memory is O(R * K).<br>
+ * <br>
+ * The items that have been coded by the removed rater remain part of the study (as with
+ * {@link CodingAnnotationStudy#extractRaters(int...)}), so the number of items does not change.
+ */
+class LeaveOneRaterOutStatistics
+{
+    protected final CodingStudyStatistics statistics;
+    protected final CategoryDistanceMatrix distances;
+    protected final int modificationCount;
+    protected final int raterCount;
+    protected final int categoryCount;
+
+    // Rater -> removed #
+    protected final double[] pairableUnitCounts;
+    // Rater -> removed sum of n_ic * (n_ic - 1) / (r_i - 1)
+    protected final double[] agreementSums;
+    // Rater -> removed sum of the coincidences weighted by the distances of their categories
+    protected final double[] distanceSums;
+    // Rater x Code -> removed #
+    protected final double[] pairableAnnotationCounts;
+    // Rater x Code -> removed sum of n_ic / r_i
+    protected final double[] proportionSums;
+
+    // Totals of the complete study
+    protected double agreementSum;
+    protected double distanceSum;
+    protected final double[] totalProportionSums;
+
+    // Scratch arrays for the current item
+    private final int[] itemCounts;
+    private final int[] itemCodes;
+    private final double[] itemDistanceSums;
+    private int itemCodeCount;
+
+    /**
+     * Collects the statistics for each rater of the given study. The distances are only required
+     * for {@link #getDistanceSum(int)}; they may be null otherwise.
+     */
+    LeaveOneRaterOutStatistics(final ICodingAnnotationStudy study,
+            final CategoryDistanceMatrix distances)
+    {
+        statistics = study.getStatistics();
+        this.distances = distances;
+        modificationCount = statistics.getModificationCount();
+        raterCount = statistics.getRaterCount();
+        categoryCount = statistics.getCategoryCount();
+        pairableUnitCounts = new double[raterCount];
+        agreementSums = new double[raterCount];
+        distanceSums = (distances != null ? new double[raterCount] : null);
+        pairableAnnotationCounts = new double[raterCount * categoryCount];
+        proportionSums = new double[raterCount * categoryCount];
+        totalProportionSums = new double[categoryCount];
+        itemCounts = new int[categoryCount];
+        itemCodes = new int[categoryCount];
+        itemDistanceSums = new double[categoryCount];
+        collectTotals();
+
+        int[] raters = new int[raterCount];
+        int[] codes = new int[raterCount];
+        if (study instanceof SparseCodingAnnotationStudy) {
+            SparseCodingAnnotationStudy sparseStudy = (SparseCodingAnnotationStudy) study;
+            for (int itemIdx = 0; itemIdx < sparseStudy.getItemCount(); itemIdx++) {
+                int from = sparseStudy.itemOffsets[itemIdx];
+                int size = sparseStudy.itemOffsets[itemIdx + 1] - from;
+                System.arraycopy(sparseStudy.ratingRaters, from, raters, 0, size);
+                System.arraycopy(sparseStudy.ratingCodes, from, codes, 0, size);
+                addItem(raters, codes, size, 1.0);
+            }
+        }
+        else if (study instanceof IEncodedCodingAnnotationStudy) {
+            IEncodedCodingAnnotationStudy encodedStudy = (IEncodedCodingAnnotationStudy) study;
+            for (int itemIdx = 0; itemIdx < study.getItemCount(); itemIdx++) {
+                int size = 0;
+                for (int raterIdx = 0; raterIdx < raterCount; raterIdx++) {
+                    int code = encodedStudy.getCode(itemIdx, raterIdx);
+                    if (code != IEncodedCodingAnnotationStudy.MISSING) {
+                        raters[size] = raterIdx;
+                        codes[size++] = code;
+                    }
+                }
+                addItem(raters, codes, size, 1.0);
+            }
+        }
+        else {
+            for (ICodingAnnotationItem item : study.getItems()) {
+                int size = 0;
+                for (IAnnotationUnit unit : item.getUnits()) {
+                    if (unit != null && unit.getCategory() != null) {
+                        raters[size] = unit.getRaterIdx();
+                        codes[size++] = statistics.getCategoryCode(unit.getCategory());
+                    }
+                }
+                addItem(raters, codes, size, item.getWeight());
+            }
+        }
+    }
+
+    private void collectTotals()
+    {
+        for (int code = 0; code < categoryCount; code++) {
+            agreementSum += statistics.getCoincidence(code, code);
+            for (int itemRaterCount = 1; itemRaterCount <= raterCount; itemRaterCount++) {
+                totalProportionSums[code] += statistics
+                        .getAnnotationCountByItemRaterCount(code, itemRaterCount)
+                        / itemRaterCount;
+            }
+        }
+        if (distances != null) {
+            CategoryPairTable coincidence = statistics.getCoincidenceTable();
+            for (int slot = 0; slot < coincidence.getSlotCount(); slot++) {
+                if (coincidence.isUsed(slot)) {
+                    distanceSum += coincidence.getValue(slot) * distances
+                            .getDistance(coincidence.getCode1(slot), coincidence.getCode2(slot));
+                }
+            }
+        }
+    }
+
+    // Subtracts the difference between the item with and without each of its units from the
+    // statistics of the unit's rater.
+    private void addItem(final int[] raters, final int[] codes, int size, double weight)
+    {
+        if (size == 0) {
+            return;
+        }
+
+        itemCodeCount = 0;
+        for (int i = 0; i < size; i++) {
+            if (itemCounts[codes[i]]++ == 0) {
+                itemCodes[itemCodeCount++] = codes[i];
+            }
+        }
+
+        // Sum n_c * (n_c - 1) and the distance sum n^T D n - sum n_c * d(c, c) of the item as well
+        // as (D n)_a + (D^T n)_a for each category a, which is the change of the distance sum if
+        // a unit coded as a is removed (apart from 2 * d(a, a)).
+        double agreement = 0.0;
+        double distance = 0.0;
+        for (int i = 0; i < itemCodeCount; i++) {
+            int code1 = itemCodes[i];
+            double count1 = itemCounts[code1];
+            agreement += count1 * (count1 - 1.0);
+            if (distances != null) {
+                double sum = 0.0;
+                for (int j = 0; j < itemCodeCount; j++) {
+                    int code2 = itemCodes[j];
+                    double count2 = itemCounts[code2];
+                    distance += count1 * count2 * distances.getDistance(code1, code2);
+                    sum += count2 * (distances.getDistance(code1, code2)
+                            + distances.getDistance(code2, code1));
+                }
+                distance -= count1 * distances.getDistance(code1, code1);
+                itemDistanceSums[code1] = sum;
+            }
+        }
+
+        for (int i = 0; i < size; i++) {
+            int raterIdx = raters[i];
+            int code = codes[i];
+            double count = itemCounts[code];
+
+            // Pairable units and coincidences, which vanish for items coded by a single rater.
+            if (size > 1) {
+                pairableUnitCounts[raterIdx] += weight * (size > 2 ? 1.0 : 2.0);
+                double after = (size > 2
+                        ? (agreement - 2.0 * (count - 1.0)) / (size - 2.0) : 0.0);
+                agreementSums[raterIdx] += weight * (agreement / (size - 1.0) - after);
+                if (distances != null) {
+                    after = (size > 2 ? (distance - itemDistanceSums[code]
+                            + 2.0 * distances.getDistance(code, code)) / (size - 2.0) : 0.0);
+                    distanceSums[raterIdx] += weight * (distance / (size - 1.0) - after);
+                }
+                int offset = raterIdx * categoryCount;
+                if (size > 2) {
+                    pairableAnnotationCounts[offset + code] += weight;
+                }
+                else {
+                    for (int j = 0; j < itemCodeCount; j++) {
+                        pairableAnnotationCounts[offset + itemCodes[j]] += weight
+                                * itemCounts[itemCodes[j]];
+                    }
+                }
+            }
+
+            // Proportions n_ic / r_i of all categories of the item.
+            int offset = raterIdx * categoryCount;
+            for (int j = 0; j < itemCodeCount; j++) {
+                int otherCode = itemCodes[j];
+                double otherCount = itemCounts[otherCode];
+                double after = (size > 1
+                        ? (otherCount - (otherCode == code ? 1.0 : 0.0)) / (size - 1.0) : 0.0);
+                proportionSums[offset + otherCode] += weight * (otherCount / size - after);
+            }
+        }
+
+        for (int i = 0; i < itemCodeCount; i++) {
+            itemCounts[itemCodes[i]] = 0;
+        }
+    }
+
+    /**
+     * Returns true if the statistics have been collected for the current state of the given
+     * statistics and distances.
+     */
+    boolean isCurrent(final CodingStudyStatistics statistics,
+            final CategoryDistanceMatrix distances)
+    {
+        return this.statistics == statistics && this.distances == distances
+                && modificationCount == statistics.getModificationCount();
+    }
+
+    /** Returns the number of raters. */
+    int getRaterCount()
+    {
+        return raterCount;
+    }
+
+    /**
+     * Throws an {@link IllegalArgumentException} if the given index does not denote a rater of the
+     * study.
+     */
+    void checkRaterIndex(int raterIdx)
+    {
+        if (raterIdx < 0 || raterIdx >= raterCount) {
+            throw new IllegalArgumentException("Invalid rater index: " + raterIdx);
+        }
+    }
+
+    /** Returns the number of items, which does not depend on the removed rater. */
+    double getItemCount()
+    {
+        return statistics.getItemCount();
+    }
+
+    /** Returns the number of pairable units without the given rater. */
+    double getPairableUnitCount(int raterIdx)
+    {
+        return statistics.getPairableUnitCount() - pairableUnitCounts[raterIdx];
+    }
+
+    /**
+     * Returns the sum of the diagonal of the coincidence matrix without the given rater, i.e., the
+     * number of pairable values that agree.
+     */
+    double getAgreementSum(int raterIdx)
+    {
+        return agreementSum - agreementSums[raterIdx];
+    }
+
+    /**
+     * Returns the sum of the coincidences weighted by the distances of their categories without
+     * the given rater.
+     */
+    double getDistanceSum(int raterIdx)
+    {
+        return distanceSum - distanceSums[raterIdx];
+    }
+
+    /**
+     * Returns the category counts within the items that have been coded by two or more raters
+     * without the given rater (indexed by code).
+     */
+    double[] getPairableAnnotationCounts(int raterIdx)
+    {
+        double[] result = Arrays.copyOfRange(pairableAnnotationCounts,
+                raterIdx * categoryCount, (raterIdx + 1) * categoryCount);
+        for (int code = 0; code < categoryCount; code++) {
+            result[code] = statistics.getPairableAnnotationCount(code) - result[code];
+        }
+        return result;
+    }
+
+    /**
+     * Returns the sums of n_ic / r_i over all items i without the given rater (indexed by code).
+     */
+    double[] getProportionSums(int raterIdx)
+    {
+        double[] result = Arrays.copyOfRange(proportionSums, raterIdx * categoryCount,
+                (raterIdx + 1) * categoryCount);
+        for (int code = 0; code < categoryCount; code++) {
+            result[code] = totalProportionSums[code] - result[code];
+        }
+        return result;
+    }
+}
@@ -0,0 +1,348 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.coding;
+
+import java.util.Arrays;
+
+import org.dkpro.statistics.agreement.IAnnotationUnit;
+import org.dkpro.statistics.agreement.distance.IDistanceFunction;
+
+/**
+ * Agreement of all pairs of raters of a coding study, which is the basis for analyzing the
+ * agreement of individual raters (e.g., crowd workers) with each other. Instead of extracting a
+ * two-rater study for each pair of raters (cf.
+ * {@link CodingAnnotationStudy#extractRaters(int...)}), the pairwise statistics are collected in a
+ * single pass over the items: for each pair of raters, the number of items coded by both raters,
+ * the number of agreements, the category marginals of both raters within these items, and (if a
+ * distance function is given) the summed distance of the two raters' categories. The pairwise
+ * measures are then derived from these statistics in O(K) time (or O(K^2) time for weighted
+ * kappa) per pair. Weighted kappa is normalized like {@link WeightedKappaAgreement}, i.e., the
+ * observed disagreement by the largest distance among the categories co-occurring within an item
+ * and the expected disagreement by the largest distance among the categories used by the pair.<br>
+ * <br>
+ * The pairwise values consider only the items coded by both raters of a pair. This corresponds to
+ * calculating the respective two-rater measure for the study restricted to these items. Items are
+ * counted according to their {@linkplain ICodingAnnotationItem#getWeight() weight}. Values
+ * that are undefined (e.g., for pairs without common items or with a single category only) are
+ * represented as NaN. The diagonal of the matrices is 1.
+ *
+ * @see PercentageAgreement
+ * @see CohenKappaAgreement
+ * @see ScottPiAgreement
+ * @see WeightedKappaAgreement
+ */
+public class PairwiseAgreementMatrix
+{
+    protected final int raterCount;
+    protected final int categoryCount;
+    protected final CodingStudyStatistics statistics;
+    protected final CategoryDistanceMatrix distances;
+
+    // Pair -> #
+    protected final double[] itemCounts;
+    protected final double[] agreementCounts;
+    protected final double[] distanceSums;
+    protected final double[] maxDistances;
+    // Pair x Rater (first, second) x Code -> #
+    protected final double[] marginals;
+
+    /**
+     * Collects the pairwise statistics of the given study, which allows for calculating all
+     * pairwise measures except for weighted kappa.
+     */
+    public PairwiseAgreementMatrix(final ICodingAnnotationStudy study)
+    {
+        this(study, null);
+    }
+
+    /**
+     * Collects the pairwise statistics of the given study, including the summed distances
+     * required for weighted kappa according to the given distance function.
+     */
+    public PairwiseAgreementMatrix(final ICodingAnnotationStudy study,
+            final IDistanceFunction distanceFunction)
+    {
+        raterCount = study.getRaterCount();
+        statistics = study.getStatistics();
+        categoryCount = statistics.getCategoryCount();
+        int pairCount = raterCount * (raterCount - 1) / 2;
+        itemCounts = new double[pairCount];
+        agreementCounts = new double[pairCount];
+        marginals = new double[pairCount * 2 * categoryCount];
+
+        if (distanceFunction != null) {
+            distances = new CategoryDistanceMatrix(distanceFunction, study, statistics);
+            distanceSums = new double[pairCount];
+            maxDistances = new double[pairCount];
+            Arrays.fill(maxDistances, 1.0);
+        }
+        else {
+            distances = null;
+            distanceSums = null;
+            maxDistances = null;
+        }
+
+        int[] raters = new int[raterCount];
+        int[] codes = new int[raterCount];
+        if (study instanceof SparseCodingAnnotationStudy) {
+            SparseCodingAnnotationStudy sparseStudy = (SparseCodingAnnotationStudy) study;
+            for (int itemIdx = 0; itemIdx < sparseStudy.getItemCount(); itemIdx++) {
+                int from = sparseStudy.itemOffsets[itemIdx];
+                int size = sparseStudy.itemOffsets[itemIdx + 1] - from;
+                System.arraycopy(sparseStudy.ratingRaters, from, raters, 0, size);
+                System.arraycopy(sparseStudy.ratingCodes, from, codes, 0, size);
+                addItem(raters, codes, size, 1.0);
+            }
+        }
+        else if (study instanceof IEncodedCodingAnnotationStudy) {
+            IEncodedCodingAnnotationStudy encodedStudy = (IEncodedCodingAnnotationStudy) study;
+            for (int itemIdx = 0; itemIdx < study.getItemCount(); itemIdx++) {
+                int size = 0;
+                for (int raterIdx = 0; raterIdx < raterCount; raterIdx++) {
+                    int code = encodedStudy.getCode(itemIdx, raterIdx);
+                    if (code != IEncodedCodingAnnotationStudy.MISSING) {
+                        raters[size] = raterIdx;
+                        codes[size++] = code;
+                    }
+                }
+                addItem(raters, codes, size, 1.0);
+            }
+        }
+        else {
+            for (ICodingAnnotationItem item : study.getItems()) {
+                int size = 0;
+                for (IAnnotationUnit unit : item.getUnits()) {
+                    if (unit != null && unit.getCategory() != null) {
+                        raters[size] = unit.getRaterIdx();
+                        codes[size++] = statistics.getCategoryCode(unit.getCategory());
+                    }
+                }
+                addItem(raters, codes, size, item.getWeight());
+            }
+        }
+    }
+
+    // Counts all pairs of the given raters who coded the item with the given weight.
+    private void addItem(final int[] raters, final int[] codes, int size, double weight)
+    {
+        for (int i = 0; i < size; i++) {
+            for (int j = i + 1; j < size; j++) {
+                int first = (raters[i] < raters[j] ? i : j);
+                int second = (raters[i] < raters[j] ? j : i);
+                int pair = getPairIndex(raters[first], raters[second]);
+                itemCounts[pair] += weight;
+                if (codes[first] == codes[second]) {
+                    agreementCounts[pair] += weight;
+                }
+                marginals[(2 * pair) * categoryCount + codes[first]] += weight;
+                marginals[(2 * pair + 1) * categoryCount + codes[second]] += weight;
+                if (distanceSums != null) {
+                    addDistances(pair, codes[first], codes[second], weight);
+                }
+            }
+        }
+    }
+
+    // Adds the distances of all ordered pairs of the item's categories, as summed up by the
+    // co-occurrence table of WeightedKappaAgreement, divided by the number of ordered pairs of
+    // raters.
+    private void addDistances(int pair, int code1, int code2, double weight)
+    {
+        double distance12 = distances.getDistance(code1, code2);
+        double distance21 = distances.getDistance(code2, code1);
+        double distance11 = distances.getDistance(code1, code1);
+        double distance22 = distances.getDistance(code2, code2);
+        distanceSums[pair] += weight * (distance12 + distance21 + distance11 + distance22) / 2.0;
+        maxDistances[pair] = Math.max(maxDistances[pair], Math.max(Math.max(distance12,
+                distance21), Math.max(distance11, distance22)));
+    }
+
+    /** Returns the number of raters of the study. */
+    public int getRaterCount()
+    {
+        return raterCount;
+    }
+
+    /** Returns the (weighted) number of items coded by both given raters. */
+    public double getItemCount(int rater1, int rater2)
+    {
+        if (rater1 == rater2) {
+            throw new IllegalArgumentException("The raters of a pair must differ.");
+        }
+        return itemCounts[getPairIndex(Math.min(rater1, rater2), Math.max(rater1, rater2))];
+    }
+
+    /**
+     * Returns the matrix of the pairwise percentage of agreement. The value of a pair is NaN if
+     * its raters used a single category only, as there is no decision to agree on.
+     *
+     * @see PercentageAgreement
+     */
+    public double[][] calculatePercentageAgreement()
+    {
+        double[][] result = createMatrix();
+        for (int m = 0; m < raterCount; m++) {
+            for (int n = m + 1; n < raterCount; n++) {
+                int pair = getPairIndex(m, n);
+                result[m][n] = result[n][m] = (getUsedCategoryCount(pair) <= 1 ? Double.NaN
+                        : agreementCounts[pair] / itemCounts[pair]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the matrix of the pairwise Cohen's kappa values.
+     *
+     * @see CohenKappaAgreement
+     */
+    public double[][] calculateCohenKappa()
+    {
+        double[][] result = createMatrix();
+        for (int m = 0; m < raterCount; m++) {
+            for (int n = m + 1; n < raterCount; n++) {
+                int pair = getPairIndex(m, n);
+                double N = itemCounts[pair];
+                double expected = 0.0;
+                for (int code = 0; code < categoryCount; code++) {
+                    expected += getMarginal(pair, 0, code) * getMarginal(pair, 1, code);
+                }
+                result[m][n] = result[n][m] = chanceCorrect(agreementCounts[pair] / N,
+                        expected / (N * N));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the matrix of the pairwise Scott's pi values.
+     *
+     * @see ScottPiAgreement
+     */
+    public double[][] calculateScottPi()
+    {
+        double[][] result = createMatrix();
+        for (int m = 0; m < raterCount; m++) {
+            for (int n = m + 1; n < raterCount; n++) {
+                int pair = getPairIndex(m, n);
+                double N = itemCounts[pair];
+                double expected = 0.0;
+                for (int code = 0; code < categoryCount; code++) {
+                    double p = (getMarginal(pair, 0, code) + getMarginal(pair, 1, code)) / (2 * N);
+                    expected += p * p;
+                }
+                result[m][n] = result[n][m] = chanceCorrect(agreementCounts[pair] / N, expected);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the matrix of the pairwise weighted kappa values based on the distance function
+     * passed to the constructor.
+     *
+     * @throws IllegalStateException
+     *             if no distance function has been passed to the constructor.
+     * @see WeightedKappaAgreement
+     */
+    public double[][] calculateWeightedKappa()
+    {
+        if (distances == null) {
+            throw new IllegalStateException("No distance function has been specified.");
+        }
+
+        double[][] result = createMatrix();
+        for (int m = 0; m < raterCount; m++) {
+            for (int n = m + 1; n < raterCount; n++) {
+                int pair = getPairIndex(m, n);
+                double N = itemCounts[pair];
+                double expected = 0.0;
+                double maxDistance = 1.0;
+                for (int code1 = 0; code1 < categoryCount; code1++) {
+                    double marginal1 = getMarginal(pair, 0, code1);
+                    if (marginal1 == 0.0 && getMarginal(pair, 1, code1) == 0.0) {
+                        continue;
+                    }
+                    for (int code2 = 0; code2 < categoryCount; code2++) {
+                        if (getMarginal(pair, 0, code2) == 0.0
+                                && getMarginal(pair, 1, code2) == 0.0) {
+                            continue;
+                        }
+                        double distance = distances.getDistance(code1, code2);
+                        expected += marginal1 * getMarginal(pair, 1, code2) * distance;
+                        maxDistance = Math.max(maxDistance, distance);
+                    }
+                }
+
+                double observed = distanceSums[pair] / (maxDistances[pair] * N);
+                expected /= N * N * maxDistance;
+                if (N == 0) {
+                    result[m][n] = result[n][m] = Double.NaN;
+                }
+                else if (observed == expected) {
+                    result[m][n] = result[n][m] = (observed == 0.0 ? 1.0 : 0.0);
+                }
+                else {
+                    result[m][n] = result[n][m] = 1.0 - observed / expected;
+                }
+            }
+        }
+        return result;
+    }
+
+    // Mirrors AgreementMeasure#calculateAgreement, but yields NaN for undefined values.
+    protected static double chanceCorrect(double observed, double expected)
+    {
+        if (expected == 0.0) {
+            return observed;
+        }
+        else if (expected == 1.0) {
+            return Double.NaN;
+        }
+        else {
+            return (observed - expected) / (1.0 - expected);
+        }
+    }
+
+    protected int getUsedCategoryCount(int pair)
+    {
+        int result = 0;
+        for (int code = 0; code < categoryCount; code++) {
+            if (getMarginal(pair, 0, code) > 0.0 || getMarginal(pair, 1, code) > 0.0) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    protected double getMarginal(int pair, int pairMember, int code)
+    {
+        return marginals[(2 * pair + pairMember) * categoryCount + code];
+    }
+
+    protected int getPairIndex(int rater1, int rater2)
+    {
+        // Index of (rater1, rater2) with rater1 < rater2 in the upper triangle, row by row.
+        return rater1 * (2 * raterCount - rater1 - 1) / 2 + (rater2 - rater1 - 1);
+    }
+
+    protected double[][] createMatrix()
+    {
+        double[][] result = new double[raterCount][raterCount];
+        for (int raterIdx = 0; raterIdx < raterCount; raterIdx++) {
+            result[raterIdx][raterIdx] = 1.0;
+        }
+        return result;
+    }
+}
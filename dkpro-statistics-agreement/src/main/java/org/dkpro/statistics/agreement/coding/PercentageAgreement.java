@@ -13,10 +13,14 @@
  */
 package org.dkpro.statistics.agreement.coding;
 
-import org.dkpro.statistics.agreement.IAnnotationUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.dkpro.statistics.agreement.ICategorySpecificAgreement;
 import org.dkpro.statistics.agreement.IMissingValueSupport;
 import org.dkpro.statistics.agreement.IMultiRaterAgreement;
+import org.dkpro.statistics.agreement.IRaterSpecificAgreement;
+import org.dkpro.statistics.agreement.InsufficientDataException;
 
 /**
  * Implementation of a simple percentage of agreement measure for calculating the inter-rater
@@ -34,8 +38,10 @@ import org.dkpro.statistics.agreement.IMultiRaterAgreement;
 public class PercentageAgreement
     extends CodingAgreementMeasure
     implements ICodingItemSpecificAgreement, ICategorySpecificAgreement, IMissingValueSupport,
-    IMultiRaterAgreement
-/* , IRaterAgreement */ {
+    IMultiRaterAgreement, IRaterSpecificAgreement
+{
+    private final RaterAgreementCalculator raterAgreement = new RaterAgreementCalculator(
+            this::calculateRaterAgreement);
 
     /**
      * Initializes the instance for the given annotation study. The study should never be null.
@@ -45,6 +51,16 @@ public class PercentageAgreement
         super(study);
     }
 
+    /**
+     * Calculates the observed agreement from the coincidence matrix of the study (see
+     * {@link #calculateCoincidenceObservedAgreement()}).
+     */
+    @Override
+    public double calculateObservedAgreement()
+    {
+        return calculateCoincidenceObservedAgreement();
+    }
+
     /**
      * Calculates the inter-rater agreement for the given annotation item. This is the basic step
      * that is performed for each item of an annotation study, when calling
@@ -82,22 +98,83 @@ public class PercentageAgreement
     @Override
     public double calculateCategoryAgreement(final Object category)
     {
-        double result = 0;
-        for (ICodingAnnotationItem item : study.getItems()) {
-            int catCount = 0;
-            int otherCatCount = 0;
-            for (IAnnotationUnit annotation : item.getUnits()) {
-                if (category.equals(annotation.getCategory())) {
-                    catCount++;
-                }
-                else {
-                    otherCatCount++;
-                }
-            }
-            result += catCount * (catCount - 1) + otherCatCount * (otherCatCount - 1);
+        // Summing c_i * (c_i - 1) + (R - c_i) * (R - c_i - 1) over all items i, where c_i denotes
+        // how often item i has been coded as the given category, only requires the sums of c_i
+        // and c_i^2.
+        CodingStudyStatistics statistics = study.getStatistics();
+        int code = statistics.getCategoryCode(category);
+        double sumCatCount = 0.0;
+        double sumCatCountSquared = 0.0;
+        if (code != IEncodedCodingAnnotationStudy.MISSING) {
+            sumCatCount = statistics.getAnnotationCount(code);
+            sumCatCountSquared = statistics.getCooccurrence(code, code);
         }
-        return result / (double) (study.getItemCount() * study.getRaterCount()
-                * (study.getRaterCount() - 1));
+        return calculateCategoryAgreement(sumCatCount, sumCatCountSquared);
     }
 
+    /**
+     * Calculates the category-specific agreement of all categories of the study at once. The
+     * per-category sums of c_i and c_i^2 are collected in a single pass over the study (see
+     * {@link ICodingAnnotationStudy#getStatistics()}).
+     *
+     * @return a map of each category and its agreement, in the order of the category codes.
+     */
+    public Map<Object, Double> calculateCategoryAgreements()
+    {
+        CodingStudyStatistics statistics = study.getStatistics();
+        Map<Object, Double> result = new LinkedHashMap<Object, Double>();
+        for (int code = 0; code < statistics.getCategoryCount(); code++) {
+            result.put(statistics.getCategory(code),
+                    calculateCategoryAgreement(statistics.getAnnotationCount(code),
+                            statistics.getCooccurrence(code, code)));
+        }
+        return result;
+    }
+
+    private double calculateCategoryAgreement(double sumCatCount, double sumCatCountSquared)
+    {
+        double N = study.getStatistics().getItemCount();
+        double R = study.getRaterCount();
+        double result = 2.0 * sumCatCountSquared - 2.0 * R * sumCatCount + N * R * (R - 1.0);
+        return result / (N * R * (R - 1.0));
+    }
+
+    /**
+     * Calculates the agreement of the study without the rater with the given index, i.e., the
+     * percentage of agreement among all other raters. A value above the agreement of the complete
+     * study indicates that the rater lowers the agreement. The items remain part of the study (see
+     * {@link CodingAnnotationStudy#extractRaters(int...)}). The value is NaN if no item has been
+     * coded by two or more of the other raters.
+     *
+     * @throws IllegalArgumentException
+     *             if the rater index is invalid.
+     * @throws InsufficientDataException
+     *             if the study contains less than two categories.
+     */
+    @Override
+    public double calculateRaterAgreement(final int raterIdx)
+    {
+        ensureSufficientCategories();
+        return raterAgreement.calculateRaterAgreement(study, null, raterIdx);
+    }
+
+    /**
+     * Calculates the agreement of the study without each of its raters (see
+     * {@link #calculateRaterAgreement(int)}) in a single pass over the study.
+     *
+     * @return the agreement without each rater, indexed by the rater index.
+     * @throws InsufficientDataException
+     *             if the study contains less than two categories.
+     */
+    public double[] calculateRaterAgreements()
+    {
+        ensureSufficientCategories();
+        return raterAgreement.calculateRaterAgreements(study, null);
+    }
+
+    private double calculateRaterAgreement(final LeaveOneRaterOutStatistics statistics,
+            int raterIdx)
+    {
+        return statistics.getAgreementSum(raterIdx) / statistics.getPairableUnitCount(raterIdx);
+    }
 }
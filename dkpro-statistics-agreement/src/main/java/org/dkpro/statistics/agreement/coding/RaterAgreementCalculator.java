@@ -0,0 +1,78 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.coding;
+
+/**
+ * Calculates the rater-specific agreement of a coding measure, i.e., the agreement of the study
+ * without a given rater, from the {@link LeaveOneRaterOutStatistics} of the study. The statistics
+ * are collected in a single pass over the study, rather than recalculating the agreement of R
+ * studies with R - 1 raters, and are reused until the study or the distances change. The measure
+ * only provides the formula of its agreement in terms of the statistics.
+ */
+class RaterAgreementCalculator
+{
+    /** The agreement of a measure in terms of the statistics without the given rater. */
+    @FunctionalInterface
+    interface Formula
+    {
+        double calculate(LeaveOneRaterOutStatistics statistics, int raterIdx);
+    }
+
+    protected final Formula formula;
+    protected LeaveOneRaterOutStatistics statistics;
+
+    RaterAgreementCalculator(final Formula formula)
+    {
+        this.formula = formula;
+    }
+
+    /**
+     * Calculates the agreement of the given study without the rater with the given index. The
+     * distances are only required by formulas based on distances; they may be null otherwise.
+     *
+     * @throws IllegalArgumentException
+     *             if the rater index is invalid.
+     */
+    double calculateRaterAgreement(final ICodingAnnotationStudy study,
+            final CategoryDistanceMatrix distances, int raterIdx)
+    {
+        LeaveOneRaterOutStatistics current = getStatistics(study, distances);
+        current.checkRaterIndex(raterIdx);
+        return formula.calculate(current, raterIdx);
+    }
+
+    /**
+     * Calculates the agreement of the given study without each of its raters, indexed by the
+     * rater index.
+     */
+    double[] calculateRaterAgreements(final ICodingAnnotationStudy study,
+            final CategoryDistanceMatrix distances)
+    {
+        LeaveOneRaterOutStatistics current = getStatistics(study, distances);
+        double[] result = new double[current.getRaterCount()];
+        for (int raterIdx = 0; raterIdx < result.length; raterIdx++) {
+            result[raterIdx] = formula.calculate(current, raterIdx);
+        }
+        return result;
+    }
+
+    protected LeaveOneRaterOutStatistics getStatistics(final ICodingAnnotationStudy study,
+            final CategoryDistanceMatrix distances)
+    {
+        if (statistics == null || !statistics.isCurrent(study.getStatistics(), distances)) {
+            statistics = new LeaveOneRaterOutStatistics(study, distances);
+        }
+        return statistics;
+    }
+}
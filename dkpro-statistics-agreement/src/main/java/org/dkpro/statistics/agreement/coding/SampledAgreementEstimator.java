@@ -0,0 +1,403 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.coding;
+
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.Function;
+
+import org.dkpro.statistics.agreement.ConfidenceInterval;
+import org.dkpro.statistics.agreement.IAgreementMeasure;
+import org.dkpro.statistics.agreement.IAnnotationUnit;
+import org.dkpro.statistics.agreement.InsufficientDataException;
+
+/**
+ * Estimates a coding agreement measure from a random sample of the items of a (very large)
+ * study, whose size grows until the confidence interval of the estimate is narrower than a given
+ * tolerance. This is useful if an approximate agreement with a known error bound suffices, since
+ * only the sampled items are accessed: neither the items nor the
+ * {@linkplain ICodingAnnotationStudy#getStatistics() statistics} of the complete study are
+ * required.<br>
+ * <br>
+ * The items are drawn without replacement, either uniformly or stratified by a given assignment
+ * of the items to strata (see {@link #setStrata(int[])}) with proportional allocation, such that
+ * each stratum is represented by its share of the items. Starting with
+ * {@link #setInitialSampleSize(int) the initial sample size}, each round collects the
+ * {@link CodingStudyStatistics} of the sampled items, calculates the measure, and derives a
+ * percentile interval from bootstrap replicates of the sample (resampled within the strata, see
+ * {@link BootstrapResult#getPercentileInterval(double)}). The interval is narrowed by the finite
+ * population correction sqrt((N - n) / (N - 1)), such that it degenerates to the exact agreement
+ * once all N items have been sampled. If the interval is wider than the tolerance, the sample
+ * size is doubled for the next round, and only the additional items are drawn.<br>
+ * <br>
+ * As with the {@link BootstrapAgreementEstimator}, the measure needs to be based on the
+ * statistics of the study, which is the case for all measures of this package except for
+ * {@link DiceAgreement} and {@link MaxPercentageAgreement}. The sample is drawn from a random
+ * number generator seeded with {@link #setSeed(long)}, such that the results are reproducible.
+ *
+ * @see SampledAgreementResult
+ */
+public class SampledAgreementEstimator
+{
+    /** The default number of initially sampled items. */
+    public static final int DEFAULT_INITIAL_SAMPLE_SIZE = 1000;
+
+    /** The default number of bootstrap replicates per round. */
+    public static final int DEFAULT_REPLICATE_COUNT = 200;
+
+    /** The default confidence level of the interval. */
+    public static final double DEFAULT_CONFIDENCE_LEVEL = 0.95;
+
+    protected final ICodingAnnotationStudy study;
+    protected final Function<ICodingAnnotationStudy, ? extends IAgreementMeasure> measureFactory;
+    protected final double tolerance;
+    protected double confidenceLevel;
+    protected int initialSampleSize;
+    protected int maximumSampleSize;
+    protected int replicateCount;
+    protected int[] strata;
+    protected long seed;
+
+    /**
+     * Initializes the estimator for the given study and the measure created by the given factory
+     * (e.g., {@code s -> new KrippendorffAlphaAgreement(s, new NominalDistanceFunction())}). The
+     * sample grows until the width of the confidence interval does not exceed the given
+     * tolerance.
+     *
+     * @throws IllegalArgumentException
+     *             if the tolerance is not positive.
+     */
+    public SampledAgreementEstimator(final ICodingAnnotationStudy study,
+            final Function<ICodingAnnotationStudy, ? extends IAgreementMeasure> measureFactory,
+            double tolerance)
+    {
+        if (!(tolerance > 0.0)) {
+            throw new IllegalArgumentException("The tolerance must be positive.");
+        }
+        this.study = study;
+        this.measureFactory = measureFactory;
+        this.tolerance = tolerance;
+        confidenceLevel = DEFAULT_CONFIDENCE_LEVEL;
+        initialSampleSize = DEFAULT_INITIAL_SAMPLE_SIZE;
+        maximumSampleSize = Integer.MAX_VALUE;
+        replicateCount = DEFAULT_REPLICATE_COUNT;
+        seed = new SplittableRandom().nextLong();
+    }
+
+    /**
+     * Sets the confidence level of the interval. The default is
+     * {@value #DEFAULT_CONFIDENCE_LEVEL}.
+     */
+    public void setConfidenceLevel(double confidenceLevel)
+    {
+        if (!(confidenceLevel > 0.0 && confidenceLevel < 1.0)) {
+            throw new IllegalArgumentException("The confidence level must be between 0 and 1.");
+        }
+        this.confidenceLevel = confidenceLevel;
+    }
+
+    /**
+     * Sets the number of items sampled in the first round. The default is
+     * {@value #DEFAULT_INITIAL_SAMPLE_SIZE}.
+     */
+    public void setInitialSampleSize(int initialSampleSize)
+    {
+        if (initialSampleSize <= 0) {
+            throw new IllegalArgumentException("The initial sample size must be positive.");
+        }
+        this.initialSampleSize = initialSampleSize;
+    }
+
+    /**
+     * Sets the number of items after which the sample does not grow any further, even if the
+     * tolerance has not been reached (see {@link SampledAgreementResult#isConverged()}). By
+     * default, the sample may grow to the complete study.
+     */
+    public void setMaximumSampleSize(int maximumSampleSize)
+    {
+        if (maximumSampleSize <= 0) {
+            throw new IllegalArgumentException("The maximum sample size must be positive.");
+        }
+        this.maximumSampleSize = maximumSampleSize;
+    }
+
+    /**
+     * Sets the number of bootstrap replicates from which the interval is derived in each round.
+     * The default is {@value #DEFAULT_REPLICATE_COUNT}.
+     */
+    public void setReplicateCount(int replicateCount)
+    {
+        if (replicateCount <= 0) {
+            throw new IllegalArgumentException("The number of replicates must be positive.");
+        }
+        this.replicateCount = replicateCount;
+    }
+
+    /**
+     * Sets the stratum of each item (indexed by item), from which the items are sampled
+     * proportionally to the size of the strata. The strata are numbered consecutively starting
+     * at 0. Use null for uniform sampling, which is the default.
+     *
+     * @throws IllegalArgumentException
+     *             if the number of strata does not match the number of items or a stratum is
+     *             negative.
+     */
+    public void setStrata(final int[] strata)
+    {
+        if (strata != null) {
+            if (strata.length != study.getItemCount()) {
+                throw new IllegalArgumentException("Expected the strata of "
+                        + study.getItemCount() + " items, but got " + strata.length + ".");
+            }
+            for (int stratum : strata) {
+                if (stratum < 0) {
+                    throw new IllegalArgumentException("Invalid stratum: " + stratum);
+                }
+            }
+        }
+        this.strata = strata;
+    }
+
+    /** Sets the seed of the random number generator used for sampling and resampling. */
+    public void setSeed(long seed)
+    {
+        this.seed = seed;
+    }
+
+    /**
+     * Samples items until the confidence interval is narrower than the tolerance, all items have
+     * been sampled, or the maximum sample size has been reached.
+     *
+     * @throws InsufficientDataException
+     *             if the study is empty.
+     * @throws IllegalArgumentException
+     *             if the measure is not based on the statistics of the study.
+     */
+    public SampledAgreementResult estimate()
+    {
+        int itemCount = study.getItemCount();
+        if (itemCount == 0) {
+            throw new InsufficientDataException("Cannot sample an empty study.");
+        }
+
+        SplittableRandom random = new SplittableRandom(seed);
+        Sample sample = new Sample(random.split());
+        int limit = Math.min(itemCount, maximumSampleSize);
+        int targetSize = Math.min(initialSampleSize, limit);
+        while (true) {
+            sample.grow(targetSize);
+            double estimate = JackknifeAgreementAnalysis.evaluate(measureFactory,
+                    sample.statistics, null);
+            ConfidenceInterval interval = null;
+            if (!Double.isNaN(estimate)) {
+                if (sample.size == itemCount) {
+                    interval = new ConfidenceInterval(estimate, estimate, confidenceLevel);
+                }
+                else {
+                    interval = calculateInterval(sample, estimate, random.split());
+                }
+            }
+
+            if ((interval != null && interval.getWidth() <= tolerance) || sample.size >= limit) {
+                return new SampledAgreementResult(estimate, interval, sample.size, itemCount,
+                        tolerance);
+            }
+            targetSize = (int) Math.min(limit, 2L * sample.size);
+        }
+    }
+
+    protected ConfidenceInterval calculateInterval(final Sample sample, double estimate,
+            final SplittableRandom random)
+    {
+        // Group the sampled items by stratum for resampling within the strata.
+        int[] stratumSizes = new int[sample.stratumCount];
+        for (int i = 0; i < sample.size; i++) {
+            stratumSizes[sample.itemStrata[i]]++;
+        }
+        int[][] members = new int[sample.stratumCount][];
+        for (int stratum = 0; stratum < sample.stratumCount; stratum++) {
+            members[stratum] = new int[stratumSizes[stratum]];
+        }
+        Arrays.fill(stratumSizes, 0);
+        for (int i = 0; i < sample.size; i++) {
+            int stratum = sample.itemStrata[i];
+            members[stratum][stratumSizes[stratum]++] = i;
+        }
+
+        double[] replicates = new double[replicateCount];
+        int[] multiplicities = new int[sample.size];
+        for (int b = 0; b < replicateCount; b++) {
+            Arrays.fill(multiplicities, 0);
+            for (int[] stratumMembers : members) {
+                for (int i = 0; i < stratumMembers.length; i++) {
+                    multiplicities[stratumMembers[random.nextInt(stratumMembers.length)]]++;
+                }
+            }
+
+            CodingStudyStatistics replicate = sample.statistics.createEmpty();
+            for (int i = 0; i < sample.size; i++) {
+                if (multiplicities[i] > 0) {
+                    int from = sample.itemOffsets[i];
+                    replicate.addRatings(sample.ratingRaters, sample.ratingCodes, from,
+                            sample.itemOffsets[i + 1] - from,
+                            multiplicities[i] * sample.itemWeights[i]);
+                }
+            }
+            replicates[b] = JackknifeAgreementAnalysis.evaluate(measureFactory, replicate, null);
+        }
+
+        BootstrapResult result = new BootstrapResult(estimate, replicates, new double[0]);
+        if (result.getReplicateCount() == 0) {
+            return null;
+        }
+
+        ConfidenceInterval interval = result.getPercentileInterval(confidenceLevel);
+        double N = sample.itemCount;
+        double correction = Math.sqrt((N - sample.size) / (N - 1.0));
+        return new ConfidenceInterval(
+                estimate - (estimate - interval.getLowerBound()) * correction,
+                estimate + (interval.getUpperBound() - estimate) * correction, confidenceLevel);
+    }
+
+    // The sampled items (in the order they have been drawn) and their statistics.
+    protected class Sample
+    {
+        protected final SplittableRandom random;
+        protected final int itemCount;
+        protected final int stratumCount;
+        // Stratum -> offset into stratumItems (null for uniform sampling)
+        protected final int[] stratumOffsets;
+        protected final int[] stratumItems;
+        // Stratum -> # sampled items
+        protected final int[] sampledCounts;
+        // Stratum -> position -> item swapped into the position (sparse Fisher-Yates shuffle)
+        protected final List<Map<Integer, Integer>> swaps;
+        protected final CodingStudyStatistics statistics;
+
+        protected int size;
+        protected int[] itemOffsets;
+        protected int[] itemStrata;
+        protected double[] itemWeights;
+        protected int[] ratingRaters;
+        protected int[] ratingCodes;
+
+        Sample(final SplittableRandom random)
+        {
+            this.random = random;
+            itemCount = study.getItemCount();
+            if (strata == null) {
+                stratumCount = 1;
+                stratumOffsets = new int[] { 0, itemCount };
+                stratumItems = null;
+            }
+            else {
+                // Counting sort of the items by stratum.
+                int maxStratum = 0;
+                for (int stratum : strata) {
+                    maxStratum = Math.max(maxStratum, stratum);
+                }
+                stratumCount = maxStratum + 1;
+                stratumOffsets = new int[stratumCount + 1];
+                for (int stratum : strata) {
+                    stratumOffsets[stratum + 1]++;
+                }
+                for (int stratum = 0; stratum < stratumCount; stratum++) {
+                    stratumOffsets[stratum + 1] += stratumOffsets[stratum];
+                }
+                int[] next = Arrays.copyOf(stratumOffsets, stratumCount);
+                stratumItems = new int[itemCount];
+                for (int itemIdx = 0; itemIdx < itemCount; itemIdx++) {
+                    stratumItems[next[strata[itemIdx]]++] = itemIdx;
+                }
+            }
+            sampledCounts = new int[stratumCount];
+            swaps = new ArrayList<Map<Integer, Integer>>(stratumCount);
+            for (int stratum = 0; stratum < stratumCount; stratum++) {
+                swaps.add(new HashMap<Integer, Integer>());
+            }
+            // All categories of the study are registered in advance, such that measures depending
+            // on the number of categories yield the same scale for every sample.
+            statistics = new CodingStudyStatistics(study.getRaterCount());
+            for (Object category : study.getCategories()) {
+                statistics.addCategory(category);
+            }
+
+            itemOffsets = new int[17];
+            itemStrata = new int[16];
+            itemWeights = new double[16];
+            ratingRaters = new int[64];
+            ratingCodes = new int[64];
+        }
+
+        // Draws additional items until each stratum contains its share of the given size.
+        void grow(int targetSize)
+        {
+            for (int stratum = 0; stratum < stratumCount; stratum++) {
+                long stratumSize = stratumOffsets[stratum + 1] - stratumOffsets[stratum];
+                long target = Math.min(stratumSize,
+                        (targetSize * stratumSize + itemCount - 1) / itemCount);
+                while (sampledCounts[stratum] < target) {
+                    addItem(stratum, draw(stratum, (int) stratumSize));
+                }
+            }
+        }
+
+        private int draw(int stratum, int stratumSize)
+        {
+            Map<Integer, Integer> swap = swaps.get(stratum);
+            int position = sampledCounts[stratum]++;
+            int other = position + random.nextInt(stratumSize - position);
+            Integer chosen = swap.getOrDefault(other, other);
+            swap.put(other, swap.getOrDefault(position, position));
+            swap.remove(position);
+            return (stratumItems == null ? chosen
+                    : stratumItems[stratumOffsets[stratum] + chosen]);
+        }
+
+        private void addItem(int stratum, int itemIdx)
+        {
+            ICodingAnnotationItem item = study.getItem(itemIdx);
+            if (size + 1 == itemStrata.length) {
+                int capacity = 2 * itemStrata.length;
+                itemOffsets = Arrays.copyOf(itemOffsets, capacity + 1);
+                itemStrata = Arrays.copyOf(itemStrata, capacity);
+                itemWeights = Arrays.copyOf(itemWeights, capacity);
+            }
+
+            int from = itemOffsets[size];
+            int count = from;
+            for (IAnnotationUnit unit : item.getUnits()) {
+                if (unit == null || unit.getCategory() == null) {
+                    continue;
+                }
+
+                if (count == ratingRaters.length) {
+                    ratingRaters = Arrays.copyOf(ratingRaters, 2 * count);
+                    ratingCodes = Arrays.copyOf(ratingCodes, 2 * count);
+                }
+                ratingRaters[count] = unit.getRaterIdx();
+                ratingCodes[count++] = statistics.addCategory(unit.getCategory());
+            }
+            itemStrata[size] = stratum;
+            itemWeights[size] = item.getWeight();
+            itemOffsets[++size] = count;
+            statistics.addRatings(ratingRaters, ratingCodes, from, count - from,
+                    item.getWeight());
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.coding;
+
+import java.io.Serializable;
+
+import org.dkpro.statistics.agreement.ConfidenceInterval;
+
+/**
+ * Result of a {@link SampledAgreementEstimator}: the agreement of the final sample of items, its
+ * confidence interval, and the number of sampled items. The interval is null if the measure was
+ * undefined for the final sample.
+ */
+public class SampledAgreementResult
+    implements Serializable
+{
+    private static final long serialVersionUID = 3571846029318457702L;
+
+    protected final double estimate;
+    protected final ConfidenceInterval confidenceInterval;
+    protected final int sampleSize;
+    protected final int itemCount;
+    protected final double tolerance;
+
+    public SampledAgreementResult(double estimate, final ConfidenceInterval confidenceInterval,
+            int sampleSize, int itemCount, double tolerance)
+    {
+        this.estimate = estimate;
+        this.confidenceInterval = confidenceInterval;
+        this.sampleSize = sampleSize;
+        this.itemCount = itemCount;
+        this.tolerance = tolerance;
+    }
+
+    /** Returns the agreement of the sampled items or NaN if the measure is undefined. */
+    public double getEstimate()
+    {
+        return estimate;
+    }
+
+    /**
+     * Returns the confidence interval of the estimate or null if it could not be determined. The
+     * interval degenerates to the estimate if all items have been sampled.
+     */
+    public ConfidenceInterval getConfidenceInterval()
+    {
+        return confidenceInterval;
+    }
+
+    /** Returns the number of sampled items. */
+    public int getSampleSize()
+    {
+        return sampleSize;
+    }
+
+    /** Returns the number of items of the study. */
+    public int getItemCount()
+    {
+        return itemCount;
+    }
+
+    /** Returns true if all items of the study have been sampled, i.e., the estimate is exact. */
+    public boolean isExact()
+    {
+        return sampleSize == itemCount;
+    }
+
+    /**
+     * Returns true if the width of the confidence interval does not exceed the requested
+     * tolerance. This is only false if the maximum sample size has been reached before.
+     */
+    public boolean isConverged()
+    {
+        return confidenceInterval != null && confidenceInterval.getWidth() <= tolerance;
+    }
+
+    @Override
+    public String toString()
+    {
+        return estimate + " " + confidenceInterval + " (" + sampleSize + " of " + itemCount
+                + " items)";
+    }
+}
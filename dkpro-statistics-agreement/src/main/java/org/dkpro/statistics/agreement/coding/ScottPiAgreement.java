@@ -15,7 +15,6 @@ package org.dkpro.statistics.agreement.coding;
 
 import java.math.BigDecimal;
 import java.math.MathContext;
-import java.util.Map;
 
 import org.dkpro.statistics.agreement.IChanceCorrectedAgreement;
 
@@ -46,6 +45,16 @@ public class ScottPiAgreement
         super(study);
     }
 
+    /**
+     * Calculates the observed agreement from the coincidence matrix of the study (see
+     * {@link #calculateCoincidenceObservedAgreement()}).
+     */
+    @Override
+    public double calculateObservedAgreement()
+    {
+        return calculateCoincidenceObservedAgreement();
+    }
+
     /**
      * Calculates the expected inter-rater agreement that assumes the same distribution for all
      * raters and annotations.
@@ -58,18 +67,16 @@ public class ScottPiAgreement
     @Override
     public double calculateExpectedAgreement()
     {
-        Map<Object, Integer> annotationsPerCategory = CodingAnnotationStudy
-                .countTotalAnnotationsPerCategory(study);
-
+        CodingStudyStatistics statistics = study.getStatistics();
         BigDecimal result = BigDecimal.ZERO;
-        for (Object category : study.getCategories()) {
-            Integer catCount = annotationsPerCategory.get(category);
-            if (catCount != null) {
+        for (int code = 0; code < statistics.getCategoryCount(); code++) {
+            double catCount = statistics.getPairableAnnotationCount(code);
+            if (catCount > 0.0) {
                 result = result.add(new BigDecimal(catCount).pow(2));
             }
         }
         result = result.divide(
-                new BigDecimal(4).multiply(new BigDecimal(study.getItemCount()).pow(2)),
+                new BigDecimal(4).multiply(new BigDecimal(statistics.getItemCount()).pow(2)),
                 MathContext.DECIMAL128);
         return result.doubleValue();
     }
@@ -0,0 +1,461 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.coding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+import org.dkpro.statistics.agreement.AnnotationStudy;
+import org.dkpro.statistics.agreement.AnnotationUnit;
+import org.dkpro.statistics.agreement.IAnnotationUnit;
+
+/**
+ * Implementation of the {@link ICodingAnnotationStudy} interface for studies in which each item is
+ * coded by only a few out of many raters, as is typical for crowdsourcing designs. Instead of
+ * reserving a slot for each rater and item (as {@link CodingAnnotationStudy} and
+ * {@link ColumnarCodingAnnotationStudy} do), the study stores the ratings in compressed sparse row
+ * form: the (rater index, category code) pairs of all items are kept in two primitive arrays, and
+ * an offset array marks where the ratings of each item begin. Hence, the memory requirements are
+ * proportional to the number of actual ratings rather than the number of items times raters.
+ * The ratings of an item are sorted by rater index.<br>
+ * <br>
+ * The {@linkplain #getStatistics() statistics} used by the agreement measures are collected from
+ * the existing ratings only, and the number of units and the presence of missing values are
+ * maintained while adding items. The annotation units returned by
+ * {@link ICodingAnnotationItem#getUnits()} are created on demand and only cover the raters who
+ * coded the item.
+ *
+ * @see IEncodedCodingAnnotationStudy
+ * @see ColumnarCodingAnnotationStudy
+ */
+public class SparseCodingAnnotationStudy
+    extends AnnotationStudy
+    implements IEncodedCodingAnnotationStudy
+{
+    private static final long serialVersionUID = -1571427052983371689L;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    protected ArrayList<Object> categoryDictionary;
+    protected HashMap<Object, Integer> categoryCodes;
+    // Item -> index of its first rating (itemCount + 1 entries)
+    protected int[] itemOffsets;
+    // Rating -> rater index and category code
+    protected int[] ratingRaters;
+    protected int[] ratingCodes;
+    protected int itemCount;
+    protected int ratingCount;
+
+    private transient CodingStudyStatistics statistics;
+
+    /**
+     * Initializes an empty sparse annotation study for a coding task with the given number of
+     * raters.
+     */
+    public SparseCodingAnnotationStudy(int raterCount)
+    {
+        super();
+        for (int raterIdx = 0; raterIdx < raterCount; raterIdx++) {
+            addRater(Integer.toString(raterIdx));
+        }
+        categoryDictionary = new ArrayList<Object>();
+        categoryCodes = new HashMap<Object, Integer>();
+        itemOffsets = new int[INITIAL_CAPACITY + 1];
+        ratingRaters = new int[INITIAL_CAPACITY];
+        ratingCodes = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Initializes a sparse copy of the given coding study. The categories of the given study
+     * receive their codes in the order returned by {@link ICodingAnnotationStudy#getCategories()}.
+     */
+    public SparseCodingAnnotationStudy(final ICodingAnnotationStudy study)
+    {
+        this(study.getRaterCount());
+        for (Object category : study.getCategories()) {
+            addCategory(category);
+        }
+        int[] raterIndexes = new int[study.getRaterCount()];
+        int[] codes = new int[study.getRaterCount()];
+        for (ICodingAnnotationItem item : study.getItems()) {
+            int count = 0;
+            for (IAnnotationUnit unit : item.getUnits()) {
+                if (unit != null && unit.getCategory() != null) {
+                    raterIndexes[count] = unit.getRaterIdx();
+                    codes[count++] = encodeCategory(unit.getCategory());
+                }
+            }
+            addSparseItemAsCodes(Arrays.copyOf(raterIndexes, count),
+                    Arrays.copyOf(codes, count));
+        }
+    }
+
+    /**
+     * Adds the given category to the dictionary of the study. This method is only required if a
+     * category has not been used by any rater within the annotation study.
+     *
+     * @throws NullPointerException
+     *             if the specified category is null.
+     */
+    @Override
+    public void addCategory(final Object category)
+    {
+        encodeCategory(Objects.requireNonNull(category));
+    }
+
+    /**
+     * Returns the code of the given category. If the category is not yet part of the dictionary, it
+     * is added and receives the next free code. A null category is encoded as
+     * {@link IEncodedCodingAnnotationStudy#MISSING}.
+     */
+    public int encodeCategory(final Object category)
+    {
+        if (category == null) {
+            return MISSING;
+        }
+
+        Integer code = categoryCodes.get(category);
+        if (code == null) {
+            code = categoryDictionary.size();
+            categoryDictionary.add(category);
+            categoryCodes.put(category, code);
+            categories.add(category);
+        }
+        return code;
+    }
+
+    /**
+     * Creates a new annotation item which has been coded with the given annotation categories (one
+     * per rater). Use null to represent missing annotations, which do not take up any memory.
+     *
+     * @throws IllegalArgumentException
+     *             if the number of annotations does not match the number of raters.
+     */
+    public ICodingAnnotationItem addItem(final Object... annotations)
+    {
+        return addItemAsArray(annotations);
+    }
+
+    /**
+     * Creates a new annotation item which has been coded with the given annotation categories (one
+     * per rater). Use null to represent missing annotations, which do not take up any memory.
+     *
+     * @throws IllegalArgumentException
+     *             if the number of annotations does not match the number of raters.
+     */
+    public ICodingAnnotationItem addItemAsArray(final Object[] annotations)
+    {
+        if (annotations.length != raters.size()) {
+            throw new IllegalArgumentException("Incorrect number of annotation units "
+                    + "(expected " + raters.size() + ", given " + annotations.length + ").");
+        }
+
+        int count = 0;
+        for (Object annotation : annotations) {
+            if (annotation != null) {
+                count++;
+            }
+        }
+        int[] raterIndexes = new int[count];
+        int[] codes = new int[count];
+        count = 0;
+        for (int raterIdx = 0; raterIdx < annotations.length; raterIdx++) {
+            if (annotations[raterIdx] != null) {
+                raterIndexes[count] = raterIdx;
+                codes[count++] = encodeCategory(annotations[raterIdx]);
+            }
+        }
+        return getItem(addSparseItemAsCodes(raterIndexes, codes));
+    }
+
+    /**
+     * Creates a new annotation item which has been coded by the raters with the given indexes with
+     * the respective categories and returns the index of the new item. All other raters are
+     * assumed to have not coded the item.
+     *
+     * @throws IllegalArgumentException
+     *             if the arrays differ in length, if a rater index is out of range or occurs
+     *             twice, or if a category is null.
+     */
+    public int addSparseItem(final int[] raterIndexes, final Object[] categories)
+    {
+        if (raterIndexes.length != categories.length) {
+            throw new IllegalArgumentException("Expected " + raterIndexes.length
+                    + " categories, given " + categories.length + ".");
+        }
+
+        int[] codes = new int[categories.length];
+        for (int i = 0; i < categories.length; i++) {
+            if (categories[i] == null) {
+                throw new IllegalArgumentException("Missing values must be omitted.");
+            }
+            codes[i] = encodeCategory(categories[i]);
+        }
+        return addSparseItemAsCodes(raterIndexes, codes);
+    }
+
+    /**
+     * Creates a new annotation item which has been coded by the raters with the given indexes with
+     * the categories of the respective codes and returns the index of the new item. This is the
+     * most efficient way of populating the study, since the categories need not be looked up.
+     *
+     * @throws IllegalArgumentException
+     *             if the arrays differ in length, if a rater index is out of range or occurs
+     *             twice, or if a code is not defined by the category dictionary.
+     */
+    public int addSparseItemAsCodes(final int[] raterIndexes, final int[] codes)
+    {
+        int count = raterIndexes.length;
+        if (codes.length != count) {
+            throw new IllegalArgumentException("Expected " + count + " codes, given "
+                    + codes.length + ".");
+        }
+        for (int i = 0; i < count; i++) {
+            if (raterIndexes[i] < 0 || raterIndexes[i] >= raters.size()) {
+                throw new IllegalArgumentException("Invalid rater index: " + raterIndexes[i]);
+            }
+            if (codes[i] < 0 || codes[i] >= categoryDictionary.size()) {
+                throw new IllegalArgumentException("Undefined category code: " + codes[i]);
+            }
+        }
+
+        ensureCapacity(itemCount + 1, ratingCount + count);
+        int start = ratingCount;
+        for (int i = 0; i < count; i++) {
+            // Insertion sort by rater index, since items are coded by a few raters only.
+            int raterIdx = raterIndexes[i];
+            int pos = start + i;
+            while (pos > start && ratingRaters[pos - 1] > raterIdx) {
+                ratingRaters[pos] = ratingRaters[pos - 1];
+                ratingCodes[pos] = ratingCodes[pos - 1];
+                pos--;
+            }
+            if (pos > start && ratingRaters[pos - 1] == raterIdx) {
+                throw new IllegalArgumentException("Rater " + raterIdx + " occurs twice.");
+            }
+            ratingRaters[pos] = raterIdx;
+            ratingCodes[pos] = codes[i];
+        }
+        ratingCount += count;
+        itemOffsets[++itemCount] = ratingCount;
+        return itemCount - 1;
+    }
+
+    /**
+     * Makes sure that the study can hold at least the given number of items and ratings without
+     * being resized.
+     */
+    public void ensureCapacity(int minItemCapacity, int minRatingCapacity)
+    {
+        if (minItemCapacity + 1 > itemOffsets.length) {
+            itemOffsets = Arrays.copyOf(itemOffsets,
+                    Math.max(minItemCapacity + 1, itemOffsets.length + (itemOffsets.length >> 1)));
+        }
+        if (minRatingCapacity > ratingRaters.length) {
+            int capacity = Math.max(minRatingCapacity,
+                    ratingRaters.length + (ratingRaters.length >> 1));
+            ratingRaters = Arrays.copyOf(ratingRaters, capacity);
+            ratingCodes = Arrays.copyOf(ratingCodes, capacity);
+        }
+    }
+
+    /**
+     * Trims the capacity of the arrays to the current number of items and ratings.
+     */
+    public void trimToSize()
+    {
+        itemOffsets = Arrays.copyOf(itemOffsets, itemCount + 1);
+        ratingRaters = Arrays.copyOf(ratingRaters, ratingCount);
+        ratingCodes = Arrays.copyOf(ratingCodes, ratingCount);
+    }
+
+    /** Returns the number of raters who coded the item with the given index. */
+    public int getRatingCount(int itemIdx)
+    {
+        Objects.checkIndex(itemIdx, itemCount);
+        return itemOffsets[itemIdx + 1] - itemOffsets[itemIdx];
+    }
+
+    /**
+     * Returns the index of the rater of the given rating of an item. The ratings of an item are
+     * sorted by rater index.
+     */
+    public int getRatingRater(int itemIdx, int ratingIdx)
+    {
+        Objects.checkIndex(ratingIdx, getRatingCount(itemIdx));
+        return ratingRaters[itemOffsets[itemIdx] + ratingIdx];
+    }
+
+    /** Returns the category code of the given rating of an item. */
+    public int getRatingCode(int itemIdx, int ratingIdx)
+    {
+        Objects.checkIndex(ratingIdx, getRatingCount(itemIdx));
+        return ratingCodes[itemOffsets[itemIdx] + ratingIdx];
+    }
+
+    @Override
+    public Object getCategory(int code)
+    {
+        return categoryDictionary.get(code);
+    }
+
+    @Override
+    public int getCategoryCode(final Object category)
+    {
+        if (category == null) {
+            return MISSING;
+        }
+
+        Integer code = categoryCodes.get(category);
+        return (code == null ? MISSING : code);
+    }
+
+    /**
+     * Returns the code assigned by the given rater to the given item. The rating is located by
+     * binary search among the ratings of the item.
+     */
+    @Override
+    public int getCode(int itemIdx, int raterIdx)
+    {
+        Objects.checkIndex(itemIdx, itemCount);
+        int pos = Arrays.binarySearch(ratingRaters, itemOffsets[itemIdx],
+                itemOffsets[itemIdx + 1], raterIdx);
+        return (pos >= 0 ? ratingCodes[pos] : MISSING);
+    }
+
+    @Override
+    public ICodingAnnotationItem getItem(int index)
+    {
+        Objects.checkIndex(index, itemCount);
+        return new SparseAnnotationItem(this, index);
+    }
+
+    @Override
+    public Iterable<ICodingAnnotationItem> getItems()
+    {
+        return () -> new Iterator<ICodingAnnotationItem>()
+        {
+            private int itemIdx = 0;
+
+            @Override
+            public boolean hasNext()
+            {
+                return itemIdx < itemCount;
+            }
+
+            @Override
+            public ICodingAnnotationItem next()
+            {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return new SparseAnnotationItem(SparseCodingAnnotationStudy.this, itemIdx++);
+            }
+        };
+    }
+
+    @Override
+    public int getItemCount()
+    {
+        return itemCount;
+    }
+
+    @Override
+    public int getUnitCount()
+    {
+        return ratingCount;
+    }
+
+    @Override
+    public boolean hasMissingValues()
+    {
+        return ratingCount < (long) itemCount * raters.size();
+    }
+
+    /**
+     * Returns the sufficient statistics of this study, which are collected from the existing
+     * ratings only. The statistics are cached and collected anew only if items, raters, or
+     * categories have been added since the last invocation.
+     */
+    @Override
+    public CodingStudyStatistics getStatistics()
+    {
+        CodingStudyStatistics result = statistics;
+        if (result == null || !result.isCurrent(this)) {
+            result = new CodingStudyStatistics(this);
+            statistics = result;
+        }
+        return result;
+    }
+
+    /**
+     * Lightweight view of a single item of a {@link SparseCodingAnnotationStudy}. The annotation
+     * units are created on demand from the ratings of the item.
+     */
+    protected static class SparseAnnotationItem
+        implements ICodingAnnotationItem
+    {
+        private static final long serialVersionUID = 2914512693468337157L;
+
+        protected final SparseCodingAnnotationStudy study;
+        protected final int itemIdx;
+
+        protected SparseAnnotationItem(final SparseCodingAnnotationStudy study, int itemIdx)
+        {
+            this.study = study;
+            this.itemIdx = itemIdx;
+        }
+
+        @Override
+        public IAnnotationUnit getUnit(int raterIdx)
+        {
+            int code = study.getCode(itemIdx, raterIdx);
+            return new AnnotationUnit(raterIdx, code == MISSING ? null : study.getCategory(code));
+        }
+
+        /** Returns the units of the raters who coded the item (in the order of their index). */
+        @Override
+        public Iterable<IAnnotationUnit> getUnits()
+        {
+            int count = study.getRatingCount(itemIdx);
+            List<IAnnotationUnit> result = new ArrayList<IAnnotationUnit>(count);
+            for (int i = 0; i < count; i++) {
+                result.add(new AnnotationUnit(study.getRatingRater(itemIdx, i),
+                        study.getCategory(study.getRatingCode(itemIdx, i))));
+            }
+            return result;
+        }
+
+        @Override
+        public int getRaterCount()
+        {
+            return study.getRatingCount(itemIdx);
+        }
+
+        @Override
+        public String toString()
+        {
+            StringBuilder result = new StringBuilder();
+            for (IAnnotationUnit unit : getUnits()) {
+                result.append(result.length() == 0 ? "" : ", ").append(unit.toString());
+            }
+            return result.toString();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.coding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Read-only coding study that consists of nothing but the {@link CodingStudyStatistics} of some
+ * set of annotation items. The study allows for calculating the coding measures that are based on
+ * the sufficient statistics (i.e., all measures of this package except for the item-wise
+ * {@link CodingAgreementMeasure#calculateItemwiseObservedAgreement()}) without keeping the
+ * underlying items in memory, for instance for statistics that have been merged from multiple
+ * sources. The items themselves cannot be accessed. The raters are named by their index.
+ */
+public class StatisticsCodingAnnotationStudy
+    implements ICodingAnnotationStudy
+{
+    private static final long serialVersionUID = -6512974405732380934L;
+
+    protected CodingStudyStatistics statistics;
+    protected boolean[] declaredCategories;
+
+    /**
+     * Initializes a study that is represented by the given statistics.
+     */
+    public StatisticsCodingAnnotationStudy(final CodingStudyStatistics statistics)
+    {
+        this.statistics = statistics;
+    }
+
+    /**
+     * Initializes a study that is represented by the given statistics of a subset of the items of
+     * another study. The categories of the study are only those used by the items and those
+     * declared by the other study (indexed by their code; see
+     * {@link #findDeclaredCategories(CodingStudyStatistics)}), as for a study consisting of the
+     * subset of items.
+     */
+    StatisticsCodingAnnotationStudy(final CodingStudyStatistics statistics,
+            final boolean[] declaredCategories)
+    {
+        this.statistics = statistics;
+        this.declaredCategories = declaredCategories;
+    }
+
+    /**
+     * Returns the categories of the given statistics that have not been used by any annotation,
+     * indexed by their code. A category that has been both declared and used cannot be told apart
+     * from a category that has only been used.
+     */
+    static boolean[] findDeclaredCategories(final CodingStudyStatistics statistics)
+    {
+        boolean[] result = new boolean[statistics.getCategoryCount()];
+        for (int code = 0; code < result.length; code++) {
+            result[code] = !(statistics.getAnnotationCount(code) > 0.0);
+        }
+        return result;
+    }
+
+    protected boolean isCategory(int code)
+    {
+        return declaredCategories == null || declaredCategories[code]
+                || statistics.getAnnotationCount(code) > 0.0;
+    }
+
+    @Override
+    public int getRaterCount()
+    {
+        return statistics.getRaterCount();
+    }
+
+    @Override
+    public int findRater(final String name)
+    {
+        for (int raterIdx = 0; raterIdx < statistics.getRaterCount(); raterIdx++) {
+            if (Integer.toString(raterIdx).equals(name)) {
+                return raterIdx;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public Iterable<Object> getCategories()
+    {
+        if (declaredCategories == null) {
+            return Collections.unmodifiableList(Arrays.asList(statistics.categories)
+                    .subList(0, statistics.getCategoryCount()));
+        }
+
+        List<Object> result = new ArrayList<Object>();
+        for (int code = 0; code < statistics.getCategoryCount(); code++) {
+            if (isCategory(code)) {
+                result.add(statistics.getCategory(code));
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    @Override
+    public int getCategoryCount()
+    {
+        if (declaredCategories == null) {
+            return statistics.getCategoryCount();
+        }
+
+        int result = 0;
+        for (int code = 0; code < statistics.getCategoryCount(); code++) {
+            if (isCategory(code)) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean hasMissingValues()
+    {
+        return statistics.getUnitCount() < statistics.getItemCount() * statistics.getRaterCount();
+    }
+
+    /**
+     * Not supported, since the study does not retain its items.
+     *
+     * @throws UnsupportedOperationException
+     *             always.
+     */
+    @Override
+    public ICodingAnnotationItem getItem(int index)
+    {
+        throw new UnsupportedOperationException("The items of the study are not available.");
+    }
+
+    /**
+     * Not supported, since the study does not retain its items.
+     *
+     * @throws UnsupportedOperationException
+     *             always.
+     */
+    @Override
+    public Iterable<ICodingAnnotationItem> getItems()
+    {
+        throw new UnsupportedOperationException("The items of the study are not available.");
+    }
+
+    @Override
+    public int getItemCount()
+    {
+        return (int) Math.round(statistics.getItemCount());
+    }
+
+    @Override
+    public int getUnitCount()
+    {
+        return (int) Math.round(statistics.getUnitCount());
+    }
+
+    @Override
+    public CodingStudyStatistics getStatistics()
+    {
+        return statistics;
+    }
+}
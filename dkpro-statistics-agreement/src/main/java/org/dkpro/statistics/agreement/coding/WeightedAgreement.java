@@ -13,9 +13,14 @@
  */
 package org.dkpro.statistics.agreement.coding;
 
+import java.util.Objects;
+
 import org.dkpro.statistics.agreement.DisagreementMeasure;
 import org.dkpro.statistics.agreement.IAnnotationStudy;
+import org.dkpro.statistics.agreement.INumericModeSupport;
 import org.dkpro.statistics.agreement.IWeightedAgreement;
+import org.dkpro.statistics.agreement.InsufficientDataException;
+import org.dkpro.statistics.agreement.NumericMode;
 import org.dkpro.statistics.agreement.distance.IDistanceFunction;
 
 /**
@@ -29,10 +34,12 @@ import org.dkpro.statistics.agreement.distance.IDistanceFunction;
  */
 public abstract class WeightedAgreement
     extends DisagreementMeasure
-    implements IWeightedAgreement
+    implements IWeightedAgreement, INumericModeSupport
 {
     protected IDistanceFunction distanceFunction;
     protected ICodingAnnotationStudy study;
+    protected NumericMode numericMode;
+    private CategoryDistanceMatrix distanceMatrix;
 
     /**
      * Initializes the instance for the given annotation study. The study should never be null.
@@ -40,6 +47,7 @@ public abstract class WeightedAgreement
     public WeightedAgreement(final ICodingAnnotationStudy study)
     {
         this.study = study;
+        this.numericMode = DEFAULT_NUMERIC_MODE;
         ensureSupportedRaterCount(study);
         warnIfMissingValues(study);
     }
@@ -58,6 +66,22 @@ public abstract class WeightedAgreement
         this.distanceFunction = distanceFunction;
     }
 
+    /**
+     * Returns the distance function compiled for the categories of the study, which allows for
+     * looking up distances by category code (cf. {@link CodingStudyStatistics#getCategoryCode}).
+     * The matrix is compiled on first use and recompiled if the distance function or the
+     * statistics of the study have changed since.
+     */
+    protected CategoryDistanceMatrix getDistanceMatrix()
+    {
+        ensureDistanceFunction();
+        CodingStudyStatistics statistics = study.getStatistics();
+        if (distanceMatrix == null || !distanceMatrix.isCompiledFor(distanceFunction, statistics)) {
+            distanceMatrix = new CategoryDistanceMatrix(distanceFunction, study, statistics);
+        }
+        return distanceMatrix;
+    }
+
     protected void ensureDistanceFunction()
     {
         if (distanceFunction == null) {
@@ -66,6 +90,30 @@ public abstract class WeightedAgreement
         }
     }
 
+    /**
+     * Refuses studies with fewer than two categories: with only one category there is no decision
+     * for the raters to agree on.
+     *
+     * @throws InsufficientDataException
+     *             if the study has fewer than two categories.
+     */
+    protected void ensureSufficientCategories()
+    {
+        CodingAgreementMeasure.ensureSufficientCategories(study);
+    }
+
+    @Override
+    public NumericMode getNumericMode()
+    {
+        return numericMode;
+    }
+
+    @Override
+    public void setNumericMode(final NumericMode numericMode)
+    {
+        this.numericMode = Objects.requireNonNull(numericMode);
+    }
+
     @Override
     protected IAnnotationStudy getStudy()
     {
@@ -0,0 +1,291 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.coding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import org.dkpro.statistics.agreement.AnnotationStudy;
+import org.dkpro.statistics.agreement.AnnotationUnit;
+import org.dkpro.statistics.agreement.IAnnotationUnit;
+
+/**
+ * Implementation of the {@link ICodingAnnotationStudy} interface that stores each distinct rating
+ * pattern (i.e., the list of categories assigned by the raters) only once together with a weight
+ * indicating how many items share the pattern. Adding an item whose pattern is already known
+ * increases the weight of the existing item instead of creating a new one. The weight may also be
+ * real-valued, for instance to represent sampling weights. This is the natural representation of
+ * annotation data given as a contingency table: unlike
+ * {@link CodingAnnotationStudy#addMultipleItems(int, Object...)}, which adds the given number of
+ * copies, {@link #addMultipleItems(int, Object...)} takes constant time and memory.<br>
+ * <br>
+ * The items returned by {@link #getItem(int)} and {@link #getItems()} are the distinct patterns,
+ * whose {@link ICodingAnnotationItem#getWeight()} yields their multiplicity. Accordingly,
+ * {@link #getItemCount()} and {@link #getUnitCount()} count the patterns and their units, whereas
+ * {@link #getTotalWeight()} and the {@linkplain #getStatistics() statistics} of the study account
+ * for the weights. The coding measures of this package are based on these statistics, so their
+ * run time depends on the number of distinct patterns rather than the number of items. The
+ * {@link BootstrapAgreementEstimator} and the {@link JackknifeAgreementAnalysis} take the weights
+ * into account as well, i.e., they resample the items as if each pattern were stored as many
+ * times as its weight indicates.
+ *
+ * @see ICodingAnnotationItem#getWeight()
+ */
+public class WeightedCodingAnnotationStudy
+    extends AnnotationStudy
+    implements ICodingAnnotationStudy
+{
+    private static final long serialVersionUID = 6262087335417395011L;
+
+    protected ArrayList<WeightedAnnotationItem> items;
+    protected HashMap<List<Object>, WeightedAnnotationItem> patterns;
+    protected double totalWeight;
+
+    private transient CodingStudyStatistics statistics;
+
+    /**
+     * Initializes an empty weighted annotation study for a coding task with the given number of
+     * raters.
+     */
+    public WeightedCodingAnnotationStudy(int raterCount)
+    {
+        super();
+        for (int raterIdx = 0; raterIdx < raterCount; raterIdx++) {
+            addRater(Integer.toString(raterIdx));
+        }
+        items = new ArrayList<WeightedAnnotationItem>();
+        patterns = new HashMap<List<Object>, WeightedAnnotationItem>();
+    }
+
+    /**
+     * Initializes a weighted study with the items of the given coding study, whereby items with
+     * identical annotations are merged. The weights of the given items are retained.
+     */
+    public WeightedCodingAnnotationStudy(final ICodingAnnotationStudy study)
+    {
+        this(study.getRaterCount());
+        for (Object category : study.getCategories()) {
+            addCategory(category);
+        }
+        Object[] annotations = new Object[getRaterCount()];
+        for (ICodingAnnotationItem item : study.getItems()) {
+            Arrays.fill(annotations, null);
+            for (IAnnotationUnit unit : item.getUnits()) {
+                if (unit != null) {
+                    annotations[unit.getRaterIdx()] = unit.getCategory();
+                }
+            }
+            addWeightedItemAsArray(item.getWeight(), annotations);
+        }
+    }
+
+    /**
+     * Adds an item which has been coded with the given annotation categories (one per rater) with
+     * a weight of 1. Use null to represent missing annotations. If an item with the same
+     * annotations exists, its weight is increased by 1 and the existing item is returned.
+     *
+     * @throws IllegalArgumentException
+     *             if the number of annotations does not match the number of raters.
+     */
+    public ICodingAnnotationItem addItem(final Object... annotations)
+    {
+        return addWeightedItemAsArray(1.0, annotations);
+    }
+
+    /**
+     * Adds an item which has been coded with the given annotation categories (one per rater) with
+     * a weight of 1. This method is equivalent to {@link #addItem(Object...)}.
+     *
+     * @throws IllegalArgumentException
+     *             if the number of annotations does not match the number of raters.
+     */
+    public ICodingAnnotationItem addItemAsArray(final Object[] annotations)
+    {
+        return addWeightedItemAsArray(1.0, annotations);
+    }
+
+    /**
+     * Adds the given number of items which have been coded with the given annotation categories.
+     * In contrast to {@link CodingAnnotationStudy#addMultipleItems(int, Object...)}, the pattern
+     * is stored only once with the given weight. This method is useful for modeling annotation
+     * data based on a contingency table.
+     *
+     * @throws IllegalArgumentException
+     *             if the number of annotations does not match the number of raters or if the
+     *             number of items is not positive.
+     */
+    public void addMultipleItems(int times, final Object... values)
+    {
+        addWeightedItemAsArray(times, values);
+    }
+
+    /**
+     * Adds an item with the given weight which has been coded with the given annotation
+     * categories (one per rater). Use null to represent missing annotations. If an item with the
+     * same annotations exists, its weight is increased by the given weight and the existing item
+     * is returned.
+     *
+     * @throws IllegalArgumentException
+     *             if the number of annotations does not match the number of raters or if the
+     *             weight is not a positive number.
+     */
+    public ICodingAnnotationItem addWeightedItem(double weight, final Object... annotations)
+    {
+        return addWeightedItemAsArray(weight, annotations);
+    }
+
+    /**
+     * Adds an item with the given weight which has been coded with the given annotation
+     * categories (one per rater). This method is equivalent to
+     * {@link #addWeightedItem(double, Object...)}.
+     *
+     * @throws IllegalArgumentException
+     *             if the number of annotations does not match the number of raters or if the
+     *             weight is not a positive number.
+     */
+    public ICodingAnnotationItem addWeightedItemAsArray(double weight, final Object[] annotations)
+    {
+        if (annotations.length != raters.size()) {
+            throw new IllegalArgumentException("Incorrect number of annotation units "
+                    + "(expected " + raters.size() + ", given " + annotations.length + ").");
+        }
+        if (!(weight > 0.0) || Double.isInfinite(weight)) {
+            throw new IllegalArgumentException("The weight must be positive: " + weight);
+        }
+
+        List<Object> pattern = Collections.unmodifiableList(Arrays.asList(annotations.clone()));
+        WeightedAnnotationItem item = patterns.get(pattern);
+        if (item == null) {
+            item = new WeightedAnnotationItem(raters.size());
+            for (int raterIdx = 0; raterIdx < annotations.length; raterIdx++) {
+                item.addUnit(createUnit(raterIdx, annotations[raterIdx]));
+            }
+            items.add(item);
+            patterns.put(pattern, item);
+        }
+        item.weight += weight;
+        totalWeight += weight;
+        statistics = null;
+        return item;
+    }
+
+    protected IAnnotationUnit createUnit(int raterIdx, final Object category)
+    {
+        IAnnotationUnit result = new AnnotationUnit(raterIdx, category);
+        if (result.getCategory() != null) {
+            categories.add(result.getCategory());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the sum of the weights of all items, i.e., the number of items represented by the
+     * study.
+     */
+    public double getTotalWeight()
+    {
+        return totalWeight;
+    }
+
+    /** Returns the distinct rating pattern with the given index. */
+    @Override
+    public ICodingAnnotationItem getItem(int index)
+    {
+        return items.get(index);
+    }
+
+    /** Returns the distinct rating patterns in the order in which they have been added. */
+    @Override
+    public Iterable<ICodingAnnotationItem> getItems()
+    {
+        return Collections.unmodifiableList(items);
+    }
+
+    /** Returns the number of distinct rating patterns. */
+    @Override
+    public int getItemCount()
+    {
+        return items.size();
+    }
+
+    /** Returns the number of annotation units of the distinct rating patterns. */
+    @Override
+    public int getUnitCount()
+    {
+        int result = 0;
+        for (ICodingAnnotationItem item : items) {
+            result += item.getRaterCount();
+        }
+        return result;
+    }
+
+    @Override
+    public boolean hasMissingValues()
+    {
+        for (ICodingAnnotationItem item : items) {
+            if (item.getRaterCount() != raters.size()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the sufficient statistics of this study, in which each pattern is counted according
+     * to its weight. The statistics are cached and collected anew only if items, raters, or
+     * categories have been added since the last invocation.
+     */
+    @Override
+    public CodingStudyStatistics getStatistics()
+    {
+        CodingStudyStatistics result = statistics;
+        if (result == null || !result.isCurrent(this)) {
+            result = new CodingStudyStatistics(this);
+            statistics = result;
+        }
+        return result;
+    }
+
+    /**
+     * Annotation item of a {@link WeightedCodingAnnotationStudy} that represents all items with
+     * the same annotations.
+     */
+    protected static class WeightedAnnotationItem
+        extends CodingAnnotationItem
+    {
+        private static final long serialVersionUID = -3357017437962410383L;
+
+        protected double weight;
+
+        protected WeightedAnnotationItem(int unitCount)
+        {
+            super(unitCount);
+        }
+
+        @Override
+        public double getWeight()
+        {
+            return weight;
+        }
+
+        @Override
+        public String toString()
+        {
+            return weight + " x " + super.toString();
+        }
+    }
+}
@@ -15,12 +15,12 @@ package org.dkpro.statistics.agreement.coding;
 
 import java.math.BigDecimal;
 import java.math.MathContext;
-import java.util.Map;
-import java.util.Map.Entry;
 
+import org.dkpro.statistics.agreement.CompensatedSum;
 import org.dkpro.statistics.agreement.IChanceCorrectedDisagreement;
 import org.dkpro.statistics.agreement.IMissingValueSupport;
 import org.dkpro.statistics.agreement.IMultiRaterAgreement;
+import org.dkpro.statistics.agreement.NumericMode;
 import org.dkpro.statistics.agreement.distance.IDistanceFunction;
 
 /**
@@ -68,41 +68,38 @@ public class WeightedKappaAgreement
     @Override
     public double calculateObservedDisagreement()
     {
-        ensureDistanceFunction();
+        CategoryDistanceMatrix distances = getDistanceMatrix();
 
+        // Sum n_ic1 * n_ic2 * d(c1, c2) over all items i by means of the summed products of the
+        // per-item category counts.
+        CodingStudyStatistics statistics = study.getStatistics();
+        CategoryPairTable cooccurrence = statistics.getCooccurrenceTable();
         double result = 0.0;
         double maxDistance = 1.0;
-        for (ICodingAnnotationItem item : study.getItems()) {
-            Map<Object, Integer> annotationsPerCategory = CodingAnnotationStudy
-                    .countTotalAnnotationsPerCategory(item);
-
-            for (Entry<Object, Integer> category1 : annotationsPerCategory.entrySet()) {
-                for (Entry<Object, Integer> category2 : annotationsPerCategory.entrySet()) {
-                    if (category1.getValue() == null) {
-                        continue;
-                    }
-                    if (category2.getValue() == null) {
-                        continue;
-                    }
-
-                    double distance = distanceFunction.measureDistance(study, category1.getKey(),
-                            category2.getKey());
-                    result += category1.getValue() * category2.getValue() * distance;
-                    if (distance > maxDistance) {
-                        maxDistance = distance;
-                    }
+        for (int slot = 0; slot < cooccurrence.getSlotCount(); slot++) {
+            if (cooccurrence.isUsed(slot)) {
+                double distance = distances.getDistance(cooccurrence.getCode1(slot),
+                        cooccurrence.getCode2(slot));
+                result += cooccurrence.getValue(slot) * distance;
+                if (distance > maxDistance) {
+                    maxDistance = distance;
                 }
             }
         }
 
-        result /= (double) (maxDistance * study.getItemCount() * study.getRaterCount()
-                * (study.getRaterCount() - 1));
+        result /= maxDistance * statistics.getItemCount() * study.getRaterCount()
+                * (study.getRaterCount() - 1);
         return result;
     }
 
     /**
      * Calculates the expected inter-rater agreement using the defined distance function to infer
-     * the assumed probability distribution.
+     * the assumed probability distribution. The weighted products of the raters' category
+     * marginals are accumulated according to the {@linkplain #getNumericMode() numeric mode} of the
+     * measure. For symmetric distances, the sum over all pairs of raters is obtained from the
+     * category totals and the marginals of each rater (see
+     * {@link CategoryDistanceMatrix#isSymmetric()}), which takes O(K^2 + R * u^2) operations
+     * rather than O(K^2 * R^2), where u is the number of categories used by a rater.
      * 
      * @throws NullPointerException
      *             if the annotation study is null.
@@ -112,35 +109,122 @@ public class WeightedKappaAgreement
     @Override
     public double calculateExpectedDisagreement()
     {
-        ensureDistanceFunction();
+        CategoryDistanceMatrix distances = getDistanceMatrix();
+        CodingStudyStatistics statistics = study.getStatistics();
+        if (numericMode == NumericMode.EXACT) {
+            return calculateExactExpectedDisagreement(statistics, distances);
+        }
 
-        BigDecimal result = BigDecimal.ZERO;
-        Map<Object, int[]> annotationsPerCategory = CodingAnnotationStudy
-                .countAnnotationsPerCategory(study);
+        CompensatedSum result = new CompensatedSum();
+        double sum;
+        if (distances.isSymmetric()) {
+            // sum_{m < n} a_m * b_n = (sum_m a_m * sum_n b_n - sum_m a_m * b_m) / 2 for the
+            // marginals a and b of two categories, which are multiplied by symmetric distances.
+            for (int code1 = 0; code1 < statistics.getCategoryCount(); code1++) {
+                double total1 = statistics.getAnnotationCount(code1);
+                for (int code2 = 0; code2 < statistics.getCategoryCount(); code2++) {
+                    result.add(total1 * statistics.getAnnotationCount(code2)
+                            * distances.getDistance(code1, code2));
+                }
+            }
+            int[] codes = new int[statistics.getCategoryCount()];
+            for (int m = 0; m < study.getRaterCount(); m++) {
+                int size = collectRaterCodes(statistics, m, codes);
+                for (int i = 0; i < size; i++) {
+                    double count1 = statistics.getAnnotationCount(codes[i], m);
+                    for (int j = 0; j < size; j++) {
+                        result.add(-count1 * statistics.getAnnotationCount(codes[j], m)
+                                * distances.getDistance(codes[i], codes[j]));
+                    }
+                }
+            }
+            sum = result.getSum() / 2.0;
+        }
+        else {
+            for (int code1 = 0; code1 < statistics.getCategoryCount(); code1++) {
+                for (int code2 = 0; code2 < statistics.getCategoryCount(); code2++) {
+                    double distance = distances.getDistance(code1, code2);
+                    for (int m = 0; m < study.getRaterCount(); m++) {
+                        for (int n = m + 1; n < study.getRaterCount(); n++) {
+                            result.add(statistics.getAnnotationCount(code1, m)
+                                    * statistics.getAnnotationCount(code2, n) * distance);
+                        }
+                    }
+                }
+            }
+            sum = result.getSum();
+        }
 
-        double maxDistance = 1.0;
-        for (Object category1 : study.getCategories()) {
-            for (Object category2 : study.getCategories()) {
-                int[] annotationCounts1 = annotationsPerCategory.get(category1);
-                int[] annotationCounts2 = annotationsPerCategory.get(category2);
-                for (int m = 0; m < study.getRaterCount(); m++) {
-                    for (int n = m + 1; n < study.getRaterCount(); n++) {
-                        double distance = distanceFunction.measureDistance(study, category1,
-                                category2);
-                        result = result.add(new BigDecimal(annotationCounts1[m])
-                                .multiply(new BigDecimal(annotationCounts2[n])
-                                        .multiply(new BigDecimal(distance))));
-                        if (distance > maxDistance) {
-                            maxDistance = distance;
+        double maxDistance = Math.max(1.0, distances.getMaximumDistance());
+        double N = statistics.getItemCount();
+        return sum / (N * N * maxDistance);
+    }
+
+    private double calculateExactExpectedDisagreement(final CodingStudyStatistics statistics,
+            final CategoryDistanceMatrix distances)
+    {
+        BigDecimal result = BigDecimal.ZERO;
+        if (distances.isSymmetric()) {
+            for (int code1 = 0; code1 < statistics.getCategoryCount(); code1++) {
+                BigDecimal total1 = new BigDecimal(statistics.getAnnotationCount(code1));
+                for (int code2 = 0; code2 < statistics.getCategoryCount(); code2++) {
+                    result = result.add(total1
+                            .multiply(new BigDecimal(statistics.getAnnotationCount(code2)))
+                            .multiply(new BigDecimal(distances.getDistance(code1, code2))));
+                }
+            }
+            int[] codes = new int[statistics.getCategoryCount()];
+            for (int m = 0; m < study.getRaterCount(); m++) {
+                int size = collectRaterCodes(statistics, m, codes);
+                for (int i = 0; i < size; i++) {
+                    BigDecimal count1 = new BigDecimal(statistics.getAnnotationCount(codes[i], m));
+                    for (int j = 0; j < size; j++) {
+                        result = result.subtract(count1
+                                .multiply(new BigDecimal(
+                                        statistics.getAnnotationCount(codes[j], m)))
+                                .multiply(new BigDecimal(
+                                        distances.getDistance(codes[i], codes[j]))));
+                    }
+                }
+            }
+            result = result.divide(new BigDecimal(2));
+        }
+        else {
+            for (int code1 = 0; code1 < statistics.getCategoryCount(); code1++) {
+                for (int code2 = 0; code2 < statistics.getCategoryCount(); code2++) {
+                    BigDecimal distance = new BigDecimal(distances.getDistance(code1, code2));
+                    for (int m = 0; m < study.getRaterCount(); m++) {
+                        for (int n = m + 1; n < study.getRaterCount(); n++) {
+                            result = result.add(
+                                    new BigDecimal(statistics.getAnnotationCount(code1, m))
+                                            .multiply(new BigDecimal(
+                                                    statistics.getAnnotationCount(code2, n))
+                                                            .multiply(distance)));
                         }
                     }
                 }
             }
         }
 
+        double maxDistance = Math.max(1.0, distances.getMaximumDistance());
+
         result = result.divide(
-                new BigDecimal(study.getItemCount()).pow(2).multiply(new BigDecimal(maxDistance)),
+                new BigDecimal(statistics.getItemCount()).pow(2)
+                        .multiply(new BigDecimal(maxDistance)),
                 MathContext.DECIMAL128);
         return result.doubleValue();
     }
+
+    // Collects the codes of the categories used by the given rater and returns their number.
+    private static int collectRaterCodes(final CodingStudyStatistics statistics, int raterIdx,
+            final int[] codes)
+    {
+        int size = 0;
+        for (int code = 0; code < statistics.getCategoryCount(); code++) {
+            if (statistics.getAnnotationCount(code, raterIdx) != 0.0) {
+                codes[size++] = code;
+            }
+        }
+        return size;
+    }
 }
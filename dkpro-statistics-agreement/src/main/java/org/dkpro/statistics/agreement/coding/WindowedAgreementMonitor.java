@@ -0,0 +1,217 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.coding;
+
+import java.util.Arrays;
+
+import org.dkpro.statistics.agreement.distance.IDistanceFunction;
+
+/**
+ * Monitor for the inter-rater agreement of the most recent annotation items of a live annotation
+ * process, for instance, to detect rater drift. The monitor does not retain the items, but
+ * divides the item positions into buckets of a fixed width and keeps the
+ * {@link CodingStudyStatistics} of each bucket in a ring buffer. The window covers the latest
+ * bucket and the preceding buckets up to the configured bucket count; older buckets are evicted
+ * automatically as soon as newer items arrive or {@link #advanceTo(long)} is invoked.<br>
+ * <br>
+ * The position of an item may either be its sequence number (see {@link #addItem(Object...)}),
+ * which yields a window over (approximately) the last bucketCount * bucketWidth items, or an
+ * arbitrary monotonic key such as a timestamp in milliseconds (see
+ * {@link #addItemAt(long, Object...)}), which yields a time window. The two ways of adding items
+ * should not be mixed. Querying the window merges the statistics of the live buckets, which takes
+ * O(B * K^2) time for B buckets and K categories, independently of the number of items.<br>
+ * <br>
+ * All methods are synchronized, such that items can be added and agreement values be queried
+ * from different threads.
+ */
+public class WindowedAgreementMonitor
+{
+    protected final int raterCount;
+    protected final long bucketWidth;
+    protected final CodingStudyStatistics[] buckets;
+    protected final long[] bucketIds;
+    protected long latestBucketId;
+    protected long nextPosition;
+
+    /**
+     * Initializes an empty monitor for the given number of raters. The window consists of the
+     * given number of buckets, each of which covers the given range of item positions.
+     *
+     * @throws IllegalArgumentException
+     *             if the bucket count or bucket width is not positive.
+     */
+    public WindowedAgreementMonitor(int raterCount, int bucketCount, long bucketWidth)
+    {
+        if (bucketCount <= 0 || bucketWidth <= 0) {
+            throw new IllegalArgumentException("Bucket count and bucket width must be positive.");
+        }
+
+        this.raterCount = raterCount;
+        this.bucketWidth = bucketWidth;
+        buckets = new CodingStudyStatistics[bucketCount];
+        bucketIds = new long[bucketCount];
+        latestBucketId = Long.MIN_VALUE;
+    }
+
+    /**
+     * Adds an annotation item whose position is its sequence number, i.e., the number of items
+     * added to the monitor before. Use null to represent missing annotations.
+     *
+     * @throws IllegalArgumentException
+     *             if the number of annotations does not match the number of raters.
+     */
+    public synchronized void addItem(final Object... annotations)
+    {
+        addItemAt(nextPosition, annotations);
+    }
+
+    /**
+     * Adds an annotation item at the given position (e.g., a timestamp) and returns true, unless
+     * the position is older than the current window, in which case the item is discarded and
+     * false is returned. Use null to represent missing annotations.
+     *
+     * @throws IllegalArgumentException
+     *             if the number of annotations does not match the number of raters.
+     */
+    public synchronized boolean addItemAt(long position, final Object... annotations)
+    {
+        if (annotations.length != raterCount) {
+            throw new IllegalArgumentException("Incorrect number of annotation units "
+                    + "(expected " + raterCount + ", given " + annotations.length + ").");
+        }
+
+        nextPosition = Math.max(nextPosition, position + 1);
+        long bucketId = Math.floorDiv(position, bucketWidth);
+        advanceToBucket(bucketId);
+        if (isExpired(bucketId)) {
+            return false;
+        }
+
+        int slot = (int) Math.floorMod(bucketId, (long) buckets.length);
+        if (buckets[slot] == null || bucketIds[slot] != bucketId) {
+            buckets[slot] = new CodingStudyStatistics(raterCount);
+            bucketIds[slot] = bucketId;
+        }
+
+        CodingStudyStatistics bucket = buckets[slot];
+        int[] codes = new int[raterCount];
+        for (int raterIdx = 0; raterIdx < raterCount; raterIdx++) {
+            codes[raterIdx] = annotations[raterIdx] == null ? IEncodedCodingAnnotationStudy.MISSING
+                    : bucket.addCategory(annotations[raterIdx]);
+        }
+        bucket.addItem(codes);
+        return true;
+    }
+
+    /**
+     * Moves the window forward to the given position (e.g., the current time) and evicts the
+     * buckets that are no longer part of the window. Positions before the current window end are
+     * ignored.
+     */
+    public synchronized void advanceTo(long position)
+    {
+        advanceToBucket(Math.floorDiv(position, bucketWidth));
+    }
+
+    /**
+     * Returns the merged statistics of all items within the current window.
+     */
+    public synchronized CodingStudyStatistics getWindowStatistics()
+    {
+        CodingStudyStatistics result = new CodingStudyStatistics(raterCount);
+        for (int slot = 0; slot < buckets.length; slot++) {
+            if (buckets[slot] != null) {
+                result.merge(buckets[slot]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a study that represents the items within the current window. The study can be
+     * passed to any coding measure that is based on the {@link CodingStudyStatistics}.
+     *
+     * @see StatisticsCodingAnnotationStudy
+     */
+    public ICodingAnnotationStudy getWindowStudy()
+    {
+        return new StatisticsCodingAnnotationStudy(getWindowStatistics());
+    }
+
+    /** Returns the number of items within the current window. */
+    public synchronized int getWindowItemCount()
+    {
+        double result = 0.0;
+        for (int slot = 0; slot < buckets.length; slot++) {
+            if (buckets[slot] != null) {
+                result += buckets[slot].getItemCount();
+            }
+        }
+        return (int) result;
+    }
+
+    /**
+     * Calculates Krippendorff's alpha for the items within the current window using the given
+     * distance function.
+     */
+    public double calculateKrippendorffAlpha(final IDistanceFunction distanceFunction)
+    {
+        return new KrippendorffAlphaAgreement(getWindowStudy(), distanceFunction)
+                .calculateAgreement();
+    }
+
+    /**
+     * Calculates Fleiss' kappa (Scott's pi in the case of two raters) for the items within the
+     * current window.
+     */
+    public double calculateFleissKappa()
+    {
+        return new FleissKappaAgreement(getWindowStudy()).calculateAgreement();
+    }
+
+    /**
+     * Calculates the percentage of agreement for the items within the current window.
+     */
+    public double calculatePercentageAgreement()
+    {
+        return new PercentageAgreement(getWindowStudy()).calculateAgreement();
+    }
+
+    /** Removes all items from the monitor. */
+    public synchronized void clear()
+    {
+        Arrays.fill(buckets, null);
+        latestBucketId = Long.MIN_VALUE;
+        nextPosition = 0;
+    }
+
+    protected void advanceToBucket(long bucketId)
+    {
+        if (bucketId <= latestBucketId) {
+            return;
+        }
+
+        latestBucketId = bucketId;
+        for (int slot = 0; slot < buckets.length; slot++) {
+            if (buckets[slot] != null && isExpired(bucketIds[slot])) {
+                buckets[slot] = null;
+            }
+        }
+    }
+
+    protected boolean isExpired(long bucketId)
+    {
+        return bucketId <= latestBucketId - buckets.length;
+    }
+}
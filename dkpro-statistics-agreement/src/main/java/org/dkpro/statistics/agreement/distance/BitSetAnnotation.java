@@ -0,0 +1,353 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.distance;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+/**
+ * Compact variant of a {@link SetAnnotation} that represents its elements as a bit set over the
+ * ids of a {@link LabelDictionary}. Set annotations sharing a dictionary are intersected by a
+ * bitwise AND of their words and a population count, which allows the set-based distance functions
+ * ({@link SetAnnotationDistanceFunction}, {@link MASISetAnnotationDistanceFunction}) and the
+ * {@link org.dkpro.statistics.agreement.coding.DiceAgreement Dice} measure to compare them without
+ * allocating memory. Bit set annotations are equal to plain set annotations with the same elements
+ * and may be mixed with them within a study. Unless a dictionary is specified, the
+ * {@linkplain LabelDictionary#getDefault() default dictionary} is used, which is retained as long
+ * as any set annotation uses it.
+ *
+ * @see SetAnnotation
+ * @see LabelDictionary
+ */
+public class BitSetAnnotation
+    extends SetAnnotation
+{
+    private static final long serialVersionUID = -3043271532829446197L;
+    private static final long[] NO_WORDS = new long[0];
+
+    protected transient LabelDictionary dictionary;
+    protected transient long[] words;
+    protected transient int size;
+
+    /** Instantiates an empty set annotation. */
+    public BitSetAnnotation()
+    {
+        this(LabelDictionary.getDefault());
+    }
+
+    /** Instantiates an empty set annotation using the given dictionary. */
+    public BitSetAnnotation(final LabelDictionary dictionary)
+    {
+        super();
+        this.dictionary = dictionary;
+        words = NO_WORDS;
+    }
+
+    /** Instantiates a set annotation with the given values as set elements. */
+    public BitSetAnnotation(Object... values)
+    {
+        this(LabelDictionary.getDefault());
+        for (Object value : values) {
+            add(value);
+        }
+    }
+
+    /** Instantiates a set annotation with the given values as set elements. */
+    public BitSetAnnotation(Collection<? extends Object> c)
+    {
+        this(LabelDictionary.getDefault(), c);
+    }
+
+    /**
+     * Instantiates a set annotation with the given values as set elements using the given
+     * dictionary.
+     */
+    public BitSetAnnotation(final LabelDictionary dictionary, Collection<? extends Object> c)
+    {
+        this(dictionary);
+        for (Object value : c) {
+            add(value);
+        }
+    }
+
+    /** Returns the dictionary of the set elements. */
+    public LabelDictionary getDictionary()
+    {
+        return dictionary;
+    }
+
+    /** Returns the number of 64-bit words used for representing the set. */
+    public int getWordCount()
+    {
+        return words.length;
+    }
+
+    /**
+     * Returns the given 64-bit word of the bit set, in which bit i represents the label with id
+     * 64 * index + i. Words beyond {@link #getWordCount()} are zero.
+     */
+    public long getWord(int index)
+    {
+        return (index < words.length ? words[index] : 0L);
+    }
+
+    @Override
+    public boolean add(final Object value)
+    {
+        int id = dictionary.intern(value);
+        int index = id >>> 6;
+        if (index >= words.length) {
+            words = Arrays.copyOf(words, Math.max(index + 1, words.length * 2));
+        }
+        long bit = 1L << id;
+        if ((words[index] & bit) != 0) {
+            return false;
+        }
+        words[index] |= bit;
+        size++;
+        invalidateCanonicalKey();
+        return true;
+    }
+
+    @Override
+    public boolean remove(final Object value)
+    {
+        int id = dictionary.getId(value);
+        if (id < 0 || !get(id)) {
+            return false;
+        }
+        clear(id);
+        return true;
+    }
+
+    @Override
+    public boolean contains(final Object value)
+    {
+        int id = dictionary.getId(value);
+        return (id >= 0 && get(id));
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    @Override
+    public void clear()
+    {
+        Arrays.fill(words, 0L);
+        size = 0;
+        invalidateCanonicalKey();
+    }
+
+    @Override
+    public Iterator<Object> iterator()
+    {
+        return new Iterator<Object>()
+        {
+            private int next = nextId(0);
+            private int last = -1;
+
+            @Override
+            public boolean hasNext()
+            {
+                return next >= 0;
+            }
+
+            @Override
+            public Object next()
+            {
+                if (next < 0) {
+                    throw new NoSuchElementException();
+                }
+                last = next;
+                next = nextId(next + 1);
+                return dictionary.getLabel(last);
+            }
+
+            @Override
+            public void remove()
+            {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                BitSetAnnotation.this.clear(last);
+                last = -1;
+            }
+        };
+    }
+
+    @Override
+    public Spliterator<Object> spliterator()
+    {
+        return Spliterators.spliterator(this, Spliterator.DISTINCT);
+    }
+
+    @Override
+    public Object[] toArray()
+    {
+        Object[] result = new Object[size];
+        int i = 0;
+        for (Object value : this) {
+            result[i++] = value;
+        }
+        return result;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(T[] a)
+    {
+        T[] result = (a.length >= size ? a
+                : (T[]) Array.newInstance(a.getClass().getComponentType(), size));
+        int i = 0;
+        for (Object value : this) {
+            result[i++] = (T) value;
+        }
+        if (result.length > size) {
+            result[size] = null;
+        }
+        return result;
+    }
+
+    @Override
+    public int countCommonElements(final SetAnnotation that)
+    {
+        if (!isCompatible(that)) {
+            return super.countCommonElements(that);
+        }
+
+        long[] thatWords = ((BitSetAnnotation) that).words;
+        int result = 0;
+        for (int i = Math.min(words.length, thatWords.length) - 1; i >= 0; i--) {
+            result += Long.bitCount(words[i] & thatWords[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns true if the given set annotation is a bit set annotation using the same dictionary,
+     * such that both sets can be compared word by word.
+     */
+    public boolean isCompatible(final SetAnnotation that)
+    {
+        return that instanceof BitSetAnnotation
+                && ((BitSetAnnotation) that).dictionary == dictionary;
+    }
+
+    @Override
+    public boolean equals(final Object other)
+    {
+        if (other == this) {
+            return true;
+        }
+        if (!(other instanceof SetAnnotation) || !isCompatible((SetAnnotation) other)) {
+            return super.equals(other);
+        }
+
+        BitSetAnnotation that = (BitSetAnnotation) other;
+        if (size != that.size) {
+            return false;
+        }
+        for (int i = Math.min(words.length, that.words.length) - 1; i >= 0; i--) {
+            if (words[i] != that.words[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public BitSetAnnotation clone()
+    {
+        BitSetAnnotation result = (BitSetAnnotation) super.clone();
+        result.words = words.clone();
+        return result;
+    }
+
+    protected boolean get(int id)
+    {
+        int index = id >>> 6;
+        return index < words.length && (words[index] & (1L << id)) != 0;
+    }
+
+    protected void clear(int id)
+    {
+        words[id >>> 6] &= ~(1L << id);
+        size--;
+        invalidateCanonicalKey();
+    }
+
+    protected int nextId(int fromId)
+    {
+        int index = fromId >>> 6;
+        if (index >= words.length) {
+            return -1;
+        }
+        long word = words[index] & (-1L << fromId);
+        while (word == 0) {
+            if (++index == words.length) {
+                return -1;
+            }
+            word = words[index];
+        }
+        return index * 64 + Long.numberOfTrailingZeros(word);
+    }
+
+    // The elements are serialized as labels, which are interned into the default dictionary upon
+    // deserialization.
+    private Object writeReplace()
+    {
+        return new SerializedForm(toArray());
+    }
+
+    private void readObject(final ObjectInputStream in) throws InvalidObjectException
+    {
+        throw new InvalidObjectException("Use the serialized form.");
+    }
+
+    private static class SerializedForm
+        implements Serializable
+    {
+        private static final long serialVersionUID = 4476309826113960135L;
+
+        @SuppressWarnings("serial") // Serializable if the elements are serializable
+        private final Object[] values;
+
+        SerializedForm(final Object[] values)
+        {
+            this.values = values;
+        }
+
+        private Object readResolve()
+        {
+            return new BitSetAnnotation(values);
+        }
+    }
+}
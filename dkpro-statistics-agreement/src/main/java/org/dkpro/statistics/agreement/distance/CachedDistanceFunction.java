@@ -17,14 +17,27 @@ import java.util.Arrays;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
 
 import org.dkpro.statistics.agreement.IAnnotationStudy;
 
 /**
  * Wrapper class for arbitrary distance functions that caches the distance scores between two
- * categories in a hash table. This is useful, if the calculation of a distance value is
- * computationally complex, for instance, for set-valued categories as assumed by the
- * {@link SetAnnotationDistanceFunction}.<br>
+ * categories. This is useful, if the calculation of a distance value is computationally complex,
+ * for instance, for set-valued categories as assumed by the {@link SetAnnotationDistanceFunction}.
+ * <br>
+ * <br>
+ * By default, the distances are stored in a bounded, set-associative table. Each entry holds the
+ * pair of categories together with its hash code, and lookups compare the categories by means of
+ * {@code equals}, so that the memory consumption is bounded by the capacity regardless of the
+ * number of distinct categories. The table is divided into segments with
+ * separate locks, and lookups use optimistic reads, so that a single instance can be shared by
+ * multiple threads without becoming a point of contention. Lookups do not allocate memory. Once a
+ * set of the table is full, the least recently used entries are evicted according to the
+ * second-chance (clock) strategy. The number of cache hits and misses is recorded. Use
+ * {@link #UNBOUNDED} as capacity to obtain the previous behavior of a synchronized hash table
+ * that is keyed by lists of categories and never evicts entries.<br>
  * <br>
  * <b>Important:</b> the cache is keyed solely on the pair of categories; the annotation study is
  * <i>not</i> part of the key. A single instance must therefore not be reused across different
@@ -41,26 +54,247 @@ import org.dkpro.statistics.agreement.IAnnotationStudy;
 public class CachedDistanceFunction
     implements IDistanceFunction
 {
+    /** The default number of cached distances. */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    /** Capacity that selects an unbounded, synchronized hash table as cache. */
+    public static final int UNBOUNDED = -1;
+
+    protected static final int WAYS = 4;
+    protected static final int MAX_SEGMENT_COUNT = 16;
+
+    private static final Object NULL_CATEGORY = new Object();
+
     protected Map<List<Object>, Double> cache;
     protected IDistanceFunction wrappee;
+    protected final int capacity;
+    protected final Segment[] segments;
+    protected final LongAdder hitCount;
+    protected final LongAdder missCount;
 
-    /** Instantiates the wrapper for the given distance function. */
+    /**
+     * Instantiates the wrapper for the given distance function with a cache of
+     * {@link #DEFAULT_CAPACITY} distances.
+     */
     public CachedDistanceFunction(final IDistanceFunction wrappee)
+    {
+        this(wrappee, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Instantiates the wrapper for the given distance function with a cache of (at least) the
+     * given number of distances. The capacity is rounded up to the next power of two. Use
+     * {@link #UNBOUNDED} for an unbounded, synchronized hash table.
+     *
+     * @throws IllegalArgumentException
+     *             if the capacity is neither positive nor {@link #UNBOUNDED}.
+     */
+    public CachedDistanceFunction(final IDistanceFunction wrappee, int capacity)
     {
         this.wrappee = wrappee;
-        cache = new Hashtable<List<Object>, Double>();
+        hitCount = new LongAdder();
+        missCount = new LongAdder();
+        if (capacity == UNBOUNDED) {
+            cache = new Hashtable<List<Object>, Double>();
+            this.capacity = UNBOUNDED;
+            segments = null;
+            return;
+        }
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be positive: " + capacity);
+        }
+
+        int setCount = Math.max(1, Integer.highestOneBit((capacity + WAYS - 1) / WAYS));
+        if (setCount * WAYS < capacity) {
+            setCount <<= 1;
+        }
+        int segmentCount = Math.min(MAX_SEGMENT_COUNT, setCount);
+        this.capacity = setCount * WAYS;
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(setCount / segmentCount);
+        }
     }
 
     @Override
     public double measureDistance(final IAnnotationStudy study, final Object category1,
             final Object category2)
     {
-        List<Object> key = Arrays.asList(category1, category2);
-        Double result = cache.get(key);
-        if (result == null) {
+        if (cache != null) {
+            List<Object> key = Arrays.asList(category1, category2);
+            Double result = cache.get(key);
+            if (result == null) {
+                missCount.increment();
+                result = wrappee.measureDistance(study, category1, category2);
+                cache.put(key, result);
+            }
+            else {
+                hitCount.increment();
+            }
+            return result;
+        }
+
+        Object key1 = (category1 == null ? NULL_CATEGORY : category1);
+        Object key2 = (category2 == null ? NULL_CATEGORY : category2);
+        long hash = (((long) key1.hashCode() << 32) | (key2.hashCode() & 0xFFFFFFFFL))
+                * 0x9E3779B97F4A7C15L;
+        hash ^= hash >>> 29;
+        Segment segment = segments[(int) (hash >>> 40) & (segments.length - 1)];
+        return segment.measureDistance((int) hash, key1, key2, study, category1, category2);
+    }
+
+    /**
+     * Returns the maximum number of cached distances or {@link #UNBOUNDED}.
+     */
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    /** Returns the number of distances that have been served from the cache. */
+    public long getHitCount()
+    {
+        return hitCount.sum();
+    }
+
+    /** Returns the number of distances that have been obtained from the wrapped function. */
+    public long getMissCount()
+    {
+        return missCount.sum();
+    }
+
+    /**
+     * Removes all cached distances and the references to their categories and resets the hit and
+     * miss counts.
+     */
+    public void clear()
+    {
+        if (cache != null) {
+            cache.clear();
+        }
+        else {
+            for (Segment segment : segments) {
+                segment.clear();
+            }
+        }
+        hitCount.reset();
+        missCount.reset();
+    }
+
+    // Set-associative table with WAYS entries per set and a clock hand per set. Empty entries are
+    // marked by a null category.
+    protected class Segment
+    {
+        protected final StampedLock lock;
+        protected final int[] hashes;
+        protected final Object[] keys1;
+        protected final Object[] keys2;
+        protected final double[] values;
+        protected final boolean[] referenced;
+        protected final int[] hands;
+
+        protected Segment(int setCount)
+        {
+            lock = new StampedLock();
+            hashes = new int[setCount * WAYS];
+            keys1 = new Object[setCount * WAYS];
+            keys2 = new Object[setCount * WAYS];
+            values = new double[setCount * WAYS];
+            referenced = new boolean[setCount * WAYS];
+            hands = new int[setCount];
+        }
+
+        protected double measureDistance(int hash, final Object key1, final Object key2,
+                final IAnnotationStudy study, final Object category1, final Object category2)
+        {
+            int set = hash & (hands.length - 1);
+            long stamp = lock.tryOptimisticRead();
+            // An inconsistent read only compares the key to another valid category and is
+            // discarded if the validation fails.
+            int slot = find(hash, key1, key2, set);
+            double result = (slot >= 0 ? values[slot] : 0.0);
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    slot = find(hash, key1, key2, set);
+                    result = (slot >= 0 ? values[slot] : 0.0);
+                }
+                finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            if (slot >= 0) {
+                // A lost update of the reference bit only affects the choice of eviction.
+                referenced[slot] = true;
+                hitCount.increment();
+                return result;
+            }
+
+            missCount.increment();
             result = wrappee.measureDistance(study, category1, category2);
-            cache.put(key, result);
+            stamp = lock.writeLock();
+            try {
+                if (find(hash, key1, key2, set) < 0) {
+                    insert(hash, key1, key2, result, set);
+                }
+            }
+            finally {
+                lock.unlockWrite(stamp);
+            }
+            return result;
+        }
+
+        protected int find(int hash, final Object key1, final Object key2, int set)
+        {
+            int offset = set * WAYS;
+            for (int way = 0; way < WAYS; way++) {
+                int slot = offset + way;
+                Object slotKey1 = keys1[slot];
+                Object slotKey2 = keys2[slot];
+                if (hashes[slot] == hash && slotKey1 != null && slotKey2 != null
+                        && key1.equals(slotKey1) && key2.equals(slotKey2)) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        protected void insert(int hash, final Object key1, final Object key2, double value,
+                int set)
+        {
+            int offset = set * WAYS;
+            int way = 0;
+            while (way < WAYS && keys1[offset + way] != null) {
+                way++;
+            }
+            if (way == WAYS) {
+                // Give referenced entries a second chance before evicting them.
+                way = hands[set];
+                while (referenced[offset + way]) {
+                    referenced[offset + way] = false;
+                    way = (way + 1) & (WAYS - 1);
+                }
+                hands[set] = (way + 1) & (WAYS - 1);
+            }
+            hashes[offset + way] = hash;
+            keys1[offset + way] = key1;
+            keys2[offset + way] = key2;
+            values[offset + way] = value;
+            referenced[offset + way] = false;
+        }
+
+        protected void clear()
+        {
+            long stamp = lock.writeLock();
+            try {
+                Arrays.fill(keys1, null);
+                Arrays.fill(keys2, null);
+                Arrays.fill(referenced, false);
+                Arrays.fill(hands, 0);
+            }
+            finally {
+                lock.unlockWrite(stamp);
+            }
         }
-        return result;
     }
 }
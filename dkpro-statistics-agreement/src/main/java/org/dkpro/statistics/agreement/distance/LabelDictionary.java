@@ -0,0 +1,120 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.distance;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary of interned labels, which assigns consecutive integer ids (starting at 0) to the
+ * elements of set annotations. Labels are matched by {@code equals}, and null is a valid label.
+ * Ids are never reassigned, such that set annotations sharing a dictionary can be represented and
+ * compared as bit sets (see {@link BitSetAnnotation}). Looking up labels is thread-safe and does
+ * not block; interning new labels is synchronized.<br>
+ * <br>
+ * Since ids are never reassigned, a dictionary retains all of its labels for as long as it is
+ * reachable. The {@linkplain #getDefault() default dictionary} is therefore only referenced by
+ * the set annotations using it: once all of them have been garbage collected, the default
+ * dictionary and its labels are released, and a new default dictionary is created upon the next
+ * request. Applications that intern many distinct labels over a long time should nevertheless use
+ * a separate dictionary per study.
+ *
+ * @see BitSetAnnotation
+ */
+public class LabelDictionary
+{
+    private static final Object NULL_LABEL = new Object();
+
+    private static volatile WeakReference<LabelDictionary> defaultDictionary =
+            new WeakReference<LabelDictionary>(null);
+
+    protected final Map<Object, Integer> ids;
+    protected volatile Object[] labels;
+    protected int size;
+
+    /** Instantiates an empty dictionary. */
+    public LabelDictionary()
+    {
+        ids = new ConcurrentHashMap<Object, Integer>();
+        labels = new Object[16];
+    }
+
+    /**
+     * Returns the dictionary shared by all set annotations that do not specify one. The dictionary
+     * is only retained as long as it is referenced, e.g., by a set annotation.
+     */
+    public static LabelDictionary getDefault()
+    {
+        LabelDictionary result = defaultDictionary.get();
+        if (result != null) {
+            return result;
+        }
+
+        synchronized (LabelDictionary.class) {
+            result = defaultDictionary.get();
+            if (result == null) {
+                result = new LabelDictionary();
+                defaultDictionary = new WeakReference<LabelDictionary>(result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the id of the given label. Unknown labels are added to the dictionary.
+     */
+    public int intern(final Object label)
+    {
+        Object key = (label == null ? NULL_LABEL : label);
+        Integer result = ids.get(key);
+        if (result != null) {
+            return result;
+        }
+
+        synchronized (this) {
+            result = ids.get(key);
+            if (result == null) {
+                if (size == labels.length) {
+                    labels = Arrays.copyOf(labels, size + (size >> 1));
+                }
+                labels[size] = label;
+                result = size++;
+                // Publish the id only after the label has been stored.
+                ids.put(key, result);
+            }
+        }
+        return result;
+    }
+
+    /** Returns the id of the given label or -1 if the label is unknown. */
+    public int getId(final Object label)
+    {
+        Integer result = ids.get(label == null ? NULL_LABEL : label);
+        return (result == null ? -1 : result);
+    }
+
+    /** Returns the label with the given id. */
+    public Object getLabel(int id)
+    {
+        return labels[id];
+    }
+
+    /** Returns the number of labels. */
+    public int size()
+    {
+        return ids.size();
+    }
+}
@@ -50,14 +50,10 @@ public class MASISetAnnotationDistanceFunction
         SetAnnotation c1 = (SetAnnotation) category1;
         SetAnnotation c2 = (SetAnnotation) category2;
 
-        SetAnnotation delta = new SetAnnotation(c1);
-        delta.removeAll(c2);
-        boolean c1_subset_c2 = (delta.size() == 0);
-        int overlap = c1.size() - delta.size();
-        int union = c2.size() + delta.size();
-        delta = new SetAnnotation(c2);
-        delta.removeAll(c1);
-        boolean c2_subset_c1 = (delta.size() == 0);
+        int overlap = c1.countCommonElements(c2);
+        boolean c1_subset_c2 = (overlap == c1.size());
+        boolean c2_subset_c1 = (overlap == c2.size());
+        int union = c1.size() + c2.size() - overlap;
 
         double jaccard = (union == 0 ? 1.0 : (1.0 - overlap / (double) union));
         if (c1_subset_c2 && c2_subset_c1) {
@@ -13,11 +13,10 @@
  */
 package org.dkpro.statistics.agreement.distance;
 
-import java.util.Map;
 import java.util.Objects;
 
 import org.dkpro.statistics.agreement.IAnnotationStudy;
-import org.dkpro.statistics.agreement.coding.CodingAnnotationStudy;
+import org.dkpro.statistics.agreement.coding.CodingStudyStatistics;
 import org.dkpro.statistics.agreement.coding.ICodingAnnotationStudy;
 
 /**
@@ -48,6 +47,8 @@ public class OrdinalDistanceFunction
     implements IDistanceFunction
 {
 
+    private volatile OrdinalDistanceTable table;
+
     @Override
     public double measureDistance(final IAnnotationStudy study, final Object category1,
             final Object category2)
@@ -59,33 +60,25 @@ public class OrdinalDistanceFunction
 
             // TODO: Provide generic method for the annotation study w/ potential use for unitizing
             // tasks!
-            Map<Object, Integer> nk = CodingAnnotationStudy
-                    .countTotalAnnotationsPerCategory((ICodingAnnotationStudy) study);
-            Integer v;
-
-            double result = 0.0;
-            v = nk.get(category1);
-            if (v != null) {
-                result += ((double) v) / 2.0;
-            }
-            v = nk.get(category2);
-            if (v != null) {
-                result += ((double) v) / 2.0;
-            }
-
-            int cat1 = (Integer) category1;
-            int cat2 = (Integer) category2;
-            int minCat = (cat1 < cat2 ? cat1 : cat2);
-            int maxCat = (cat1 < cat2 ? cat2 : cat1);
-            for (int i = minCat + 1; i < maxCat; i++) {
-                v = nk.get(i);
-                if (v != null) {
-                    result += v;
-                }
-            }
-            return result * result;
+            return getTable((ICodingAnnotationStudy) study).measureDistance(category1, category2);
         }
 
         return (Objects.equals(category1, category2) ? 0.0 : 1.0);
     }
+
+    /**
+     * Returns the table of cumulative category frequencies for the given study. The table is
+     * built once and rebuilt automatically whenever the statistics of the study change, so that
+     * each distance is obtained in O(1) time rather than by counting all annotations of the study.
+     */
+    protected OrdinalDistanceTable getTable(final ICodingAnnotationStudy study)
+    {
+        CodingStudyStatistics statistics = study.getStatistics();
+        OrdinalDistanceTable result = table;
+        if (result == null || !result.isCurrent(statistics)) {
+            result = new OrdinalDistanceTable(statistics);
+            table = result;
+        }
+        return result;
+    }
 }
@@ -0,0 +1,154 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.distance;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import org.dkpro.statistics.agreement.coding.CodingStudyStatistics;
+import org.dkpro.statistics.agreement.coding.IEncodedCodingAnnotationStudy;
+
+/**
+ * Ordinal distances bound to the statistics of a coding study. The integer ranks used within the
+ * study are sorted once and their cumulative frequencies (counted within all items coded by two or
+ * more raters) are stored, such that the distance of a pair of ranks used within the study is
+ * obtained in O(1) time instead of summing up the frequencies of all ranks in between. Ranks that
+ * are not used within the study are located by binary search. The distances equal those of the
+ * {@link OrdinalDistanceFunction}, which uses this table internally.
+ *
+ * @see OrdinalDistanceFunction
+ */
+public class OrdinalDistanceTable
+{
+    protected final CodingStudyStatistics statistics;
+    protected final int modificationCount;
+
+    // Rank (sorted) -> value
+    protected final int[] values;
+    // Rank -> sum of the frequencies of all lower ranks
+    protected final double[] cumulativeCounts;
+    // Code -> rank (or -1 for non-integer and unused categories)
+    protected final int[] ranks;
+
+    /**
+     * Builds the cumulative frequencies of the integer categories of the given statistics.
+     */
+    public OrdinalDistanceTable(final CodingStudyStatistics statistics)
+    {
+        this.statistics = statistics;
+        modificationCount = statistics.getModificationCount();
+
+        int categoryCount = statistics.getCategoryCount();
+        long[] entries = new long[categoryCount];
+        int size = 0;
+        for (int code = 0; code < categoryCount; code++) {
+            if (statistics.getCategory(code) instanceof Integer
+                    && statistics.getPairableAnnotationCount(code) > 0.0) {
+                // Sort the codes by their value by packing both into a single long.
+                int value = (Integer) statistics.getCategory(code);
+                entries[size++] = ((long) value << 32) | code;
+            }
+        }
+        Arrays.sort(entries, 0, size);
+
+        values = new int[size];
+        cumulativeCounts = new double[size + 1];
+        ranks = new int[categoryCount];
+        Arrays.fill(ranks, -1);
+        for (int rank = 0; rank < size; rank++) {
+            int code = (int) entries[rank];
+            values[rank] = (int) (entries[rank] >> 32);
+            ranks[code] = rank;
+            cumulativeCounts[rank + 1] = cumulativeCounts[rank]
+                    + statistics.getPairableAnnotationCount(code);
+        }
+    }
+
+    /**
+     * Returns the ordinal distance between the given categories. Unless both categories are
+     * integers, the distance falls back to the nominal distance.
+     */
+    public double measureDistance(final Object category1, final Object category2)
+    {
+        if (!(category1 instanceof Integer && category2 instanceof Integer)) {
+            return (Objects.equals(category1, category2) ? 0.0 : 1.0);
+        }
+        if (category1.equals(category2)) {
+            return 0.0;
+        }
+
+        int value1 = (Integer) category1;
+        int value2 = (Integer) category2;
+        int rank1 = getRank(category1);
+        int rank2 = getRank(category2);
+        if (value1 > value2) {
+            int swap = rank1;
+            rank1 = rank2;
+            rank2 = swap;
+            swap = value1;
+            value1 = value2;
+            value2 = swap;
+        }
+
+        // Half of the frequencies of both ranks plus the frequencies of all ranks in between.
+        double result = 0.0;
+        int lowerEnd;
+        if (rank1 >= 0) {
+            result += getCount(rank1) / 2.0;
+            lowerEnd = rank1 + 1;
+        }
+        else {
+            lowerEnd = findInsertionPoint(value1);
+        }
+        int upperEnd;
+        if (rank2 >= 0) {
+            result += getCount(rank2) / 2.0;
+            upperEnd = rank2;
+        }
+        else {
+            upperEnd = findInsertionPoint(value2);
+        }
+        if (upperEnd > lowerEnd) {
+            result += cumulativeCounts[upperEnd] - cumulativeCounts[lowerEnd];
+        }
+        return result * result;
+    }
+
+    /**
+     * Returns true if the table has been built for the current state of the given statistics.
+     */
+    public boolean isCurrent(final CodingStudyStatistics statistics)
+    {
+        return this.statistics == statistics
+                && modificationCount == statistics.getModificationCount();
+    }
+
+    protected int getRank(final Object category)
+    {
+        int code = statistics.getCategoryCode(category);
+        return (code == IEncodedCodingAnnotationStudy.MISSING ? -1 : ranks[code]);
+    }
+
+    protected double getCount(int rank)
+    {
+        return cumulativeCounts[rank + 1] - cumulativeCounts[rank];
+    }
+
+    // Returns the number of used ranks smaller than the given (unused) value.
+    protected int findInsertionPoint(int value)
+    {
+        int result = Arrays.binarySearch(values, value);
+        return (result >= 0 ? result : -result - 1);
+    }
+}
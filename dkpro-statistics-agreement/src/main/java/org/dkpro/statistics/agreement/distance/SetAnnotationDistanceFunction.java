@@ -47,13 +47,9 @@ public class SetAnnotationDistanceFunction
         SetAnnotation c1 = (SetAnnotation) category1;
         SetAnnotation c2 = (SetAnnotation) category2;
 
-        SetAnnotation delta = new SetAnnotation(c1);
-        delta.removeAll(c2);
-        boolean c1_subset_c2 = (delta.size() == 0);
-        int overlap = c1.size() - delta.size();
-        delta = new SetAnnotation(c2);
-        delta.removeAll(c1);
-        boolean c2_subset_c1 = (delta.size() == 0);
+        int overlap = c1.countCommonElements(c2);
+        boolean c1_subset_c2 = (overlap == c1.size());
+        boolean c2_subset_c1 = (overlap == c2.size());
 
         if (c1_subset_c2 && c2_subset_c1) {
             return 0.0; // identical.
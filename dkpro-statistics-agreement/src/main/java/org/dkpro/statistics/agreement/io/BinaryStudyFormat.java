@@ -0,0 +1,245 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.dkpro.statistics.agreement.distance.SetAnnotation;
+
+/**
+ * Constants and value encodings of the compact binary file format for annotation studies. All
+ * numbers are stored in big-endian byte order. A file consists of
+ * <ul>
+ * <li>a header: the {@link #MAGIC} number (int), the format {@link #VERSION} (short), the kind of
+ * the stored data ({@link #KIND_CODING}, {@link #KIND_UNITIZING}, or {@link #KIND_ANNOTATION_SET};
+ * byte), and a reserved byte,</li>
+ * <li>the rater table: the number of raters (int) followed by the index (int) and the name (string)
+ * of each rater,</li>
+ * <li>the category dictionary: the number of categories (int) followed by the categories (values),
+ * whose position in the dictionary defines their code,</li>
+ * <li>the data section of the respective kind.</li>
+ * </ul>
+ * The data section of a coding study holds the number of items (int), the number of units (int), a
+ * flag indicating missing values (byte), and the width of the category codes in bytes (byte; 1, 2,
+ * or 4) followed by one column of codes per rater. The data section of a unitizing study holds the
+ * beginning and length of the continuum (long, long) and the number of units (int) followed by one
+ * column for each of the begins (long), lengths (long), rater indexes (int), and category codes
+ * (int) of the units. Columns start at a multiple of 8 bytes, such that they can be mapped into
+ * memory as they are. Missing values are represented by the code -1. The data section of an
+ * annotation set holds the number of units (int) followed by one record per unit consisting of a
+ * unit kind (byte), the position of the rater within the rater table (int), the type (string), the
+ * begin and end offsets (long, long), the number of features (int) and their names and values
+ * (string, string), and the text of text units (string).<br>
+ * <br>
+ * Strings are stored as the number of bytes of their UTF-8 encoding (int; -1 for null) followed by
+ * these bytes. Values are stored as a tag (byte) followed by the value: strings, numbers, and
+ * booleans are stored natively, {@link SetAnnotation set annotations} as the number of elements
+ * (int) followed by the elements (values), and any other serializable value using Java
+ * serialization. When reading, Java serialization is restricted by the {@link #SERIAL_FILTER},
+ * which only admits the classes of the packages {@code java.lang}, {@code java.math},
+ * {@code java.time}, {@code java.util}, and {@code org.dkpro.statistics.agreement} and limits the
+ * depth and size of the object graph. Files with categories of other classes are rejected.
+ *
+ * @see BinaryStudyWriter
+ * @see BinaryStudyReader
+ */
+public final class BinaryStudyFormat
+{
+    /** The magic number at the beginning of each file ("DKAS"). */
+    public static final int MAGIC = 0x444B4153;
+    /** The current version of the file format. */
+    public static final short VERSION = 1;
+
+    /** Kind of file storing an {@code ICodingAnnotationStudy}. */
+    public static final byte KIND_CODING = 1;
+    /** Kind of file storing an {@code IUnitizingAnnotationStudy}. */
+    public static final byte KIND_UNITIZING = 2;
+    /** Kind of file storing an {@code AnnotationSet}. */
+    public static final byte KIND_ANNOTATION_SET = 3;
+
+    /** The code representing a missing value or an uncategorized unit. */
+    public static final int MISSING = -1;
+
+    static final int HEADER_SIZE = 8;
+    static final int ALIGNMENT = 8;
+
+    static final byte UNIT_PLAIN = 0;
+    static final byte UNIT_TEXT = 1;
+
+    static final byte TAG_NULL = 0;
+    static final byte TAG_STRING = 1;
+    static final byte TAG_INTEGER = 2;
+    static final byte TAG_LONG = 3;
+    static final byte TAG_DOUBLE = 4;
+    static final byte TAG_BOOLEAN = 5;
+    static final byte TAG_SET_ANNOTATION = 6;
+    static final byte TAG_SERIALIZED = 7;
+
+    /** The filter restricting the deserialization of categories that are not stored natively. */
+    public static final ObjectInputFilter SERIAL_FILTER = ObjectInputFilter.Config.createFilter(
+            "maxdepth=20;maxrefs=10000;maxarray=100000;java.lang.*;java.math.*;java.time.*;"
+                    + "java.util.*;org.dkpro.statistics.agreement.**;!*");
+
+    private BinaryStudyFormat()
+    {
+        // No instances
+    }
+
+    /**
+     * Returns the smallest width of the category codes (in bytes) that is able to represent the
+     * given number of categories and the missing value.
+     */
+    static int getCodeWidth(int categoryCount)
+    {
+        if (categoryCount <= Byte.MAX_VALUE) {
+            return Byte.BYTES;
+        }
+        if (categoryCount <= Short.MAX_VALUE) {
+            return Short.BYTES;
+        }
+        return Integer.BYTES;
+    }
+
+    /** Returns the number of padding bytes required to align the given position. */
+    static int getPadding(long position)
+    {
+        return (int) ((ALIGNMENT - position % ALIGNMENT) % ALIGNMENT);
+    }
+
+    static void writeString(final DataOutputStream out, final String value) throws IOException
+    {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(final ByteBuffer in)
+    {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeValue(final DataOutputStream out, final Object value) throws IOException
+    {
+        if (value == null) {
+            out.writeByte(TAG_NULL);
+        }
+        else if (value instanceof String) {
+            out.writeByte(TAG_STRING);
+            writeString(out, (String) value);
+        }
+        else if (value instanceof Integer) {
+            out.writeByte(TAG_INTEGER);
+            out.writeInt((Integer) value);
+        }
+        else if (value instanceof Long) {
+            out.writeByte(TAG_LONG);
+            out.writeLong((Long) value);
+        }
+        else if (value instanceof Double) {
+            out.writeByte(TAG_DOUBLE);
+            out.writeDouble((Double) value);
+        }
+        else if (value instanceof Boolean) {
+            out.writeByte(TAG_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        }
+        else if (value instanceof SetAnnotation) {
+            SetAnnotation set = (SetAnnotation) value;
+            out.writeByte(TAG_SET_ANNOTATION);
+            out.writeInt(set.size());
+            for (Object element : set) {
+                writeValue(out, element);
+            }
+        }
+        else if (value instanceof Serializable) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream objectOut = new ObjectOutputStream(bytes)) {
+                objectOut.writeObject(value);
+            }
+            out.writeByte(TAG_SERIALIZED);
+            out.writeInt(bytes.size());
+            bytes.writeTo(out);
+        }
+        else {
+            throw new NotSerializableException(value.getClass().getName());
+        }
+    }
+
+    static Object readValue(final ByteBuffer in) throws IOException
+    {
+        byte tag = in.get();
+        switch (tag) {
+        case TAG_NULL:
+            return null;
+        case TAG_STRING:
+            return readString(in);
+        case TAG_INTEGER:
+            return in.getInt();
+        case TAG_LONG:
+            return in.getLong();
+        case TAG_DOUBLE:
+            return in.getDouble();
+        case TAG_BOOLEAN:
+            return in.get() != 0;
+        case TAG_SET_ANNOTATION: {
+            int size = in.getInt();
+            SetAnnotation result = new SetAnnotation();
+            for (int i = 0; i < size; i++) {
+                result.add(readValue(in));
+            }
+            return result;
+        }
+        case TAG_SERIALIZED: {
+            int length = in.getInt();
+            if (length < 0 || length > in.remaining()) {
+                throw new IOException("Invalid length of serialized category: " + length);
+            }
+            byte[] bytes = new byte[length];
+            in.get(bytes);
+            try (ObjectInputStream objectIn = new ObjectInputStream(
+                    new ByteArrayInputStream(bytes))) {
+                objectIn.setObjectInputFilter(SERIAL_FILTER);
+                return objectIn.readObject();
+            }
+            catch (ClassNotFoundException e) {
+                throw new IOException("Unable to deserialize category", e);
+            }
+        }
+        default:
+            throw new IOException("Unknown value tag: " + tag);
+        }
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.dkpro.statistics.agreement.aligning.AlignableAnnotationUnit;
+import org.dkpro.statistics.agreement.aligning.data.AlignableAnnotationTextUnit;
+import org.dkpro.statistics.agreement.aligning.data.AnnotationSet;
+import org.dkpro.statistics.agreement.aligning.data.Rater;
+
+/**
+ * Reads annotation studies from files in the compact binary format defined by
+ * {@link BinaryStudyFormat}. Coding and unitizing studies are not deserialized, but opened as
+ * read-only studies backed by memory-mapped columns of the file
+ * ({@link MappedCodingAnnotationStudy} and {@link MappedUnitizingAnnotationStudy}). The mapping
+ * remains valid after the file has been closed and is released once the study is garbage
+ * collected. Note that modifying the file while it is mapped results in undefined behavior.
+ * Annotation sets are read into memory, since they consist of individual unit objects.
+ *
+ * @see BinaryStudyFormat
+ * @see BinaryStudyWriter
+ */
+public final class BinaryStudyReader
+{
+    private BinaryStudyReader()
+    {
+        // No instances
+    }
+
+    /**
+     * Opens the coding study stored in the given file.
+     *
+     * @throws IOException
+     *             if the file cannot be read or does not contain a coding study.
+     */
+    public static MappedCodingAnnotationStudy openCodingStudy(final Path file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = mapHeader(channel, BinaryStudyFormat.KIND_CODING);
+            String[] raterNames = readRaters(header).names;
+            Object[] categories = readCategories(header);
+
+            int itemCount = header.getInt();
+            int unitCount = header.getInt();
+            boolean missingValues = header.get() != 0;
+            int codeWidth = header.get();
+            if (codeWidth != Byte.BYTES && codeWidth != Short.BYTES
+                    && codeWidth != Integer.BYTES) {
+                throw new IOException("Invalid code width: " + codeWidth);
+            }
+
+            long position = header.position();
+            long columnSize = (long) itemCount * codeWidth;
+            ByteBuffer[] columns = new ByteBuffer[raterNames.length];
+            for (int raterIdx = 0; raterIdx < columns.length; raterIdx++) {
+                position += BinaryStudyFormat.getPadding(position);
+                columns[raterIdx] = mapColumn(channel, position, columnSize);
+                position += columnSize;
+            }
+            return new MappedCodingAnnotationStudy(raterNames, categories, columns, codeWidth,
+                    itemCount, unitCount, missingValues);
+        }
+    }
+
+    /**
+     * Opens the unitizing study stored in the given file.
+     *
+     * @throws IOException
+     *             if the file cannot be read or does not contain a unitizing study.
+     */
+    public static MappedUnitizingAnnotationStudy openUnitizingStudy(final Path file)
+        throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = mapHeader(channel, BinaryStudyFormat.KIND_UNITIZING);
+            String[] raterNames = readRaters(header).names;
+            Object[] categories = readCategories(header);
+
+            long continuumBegin = header.getLong();
+            long continuumLength = header.getLong();
+            int unitCount = header.getInt();
+
+            long position = header.position();
+            position += BinaryStudyFormat.getPadding(position);
+            ByteBuffer begins = mapColumn(channel, position, (long) unitCount * Long.BYTES);
+            position += (long) unitCount * Long.BYTES;
+            ByteBuffer lengths = mapColumn(channel, position, (long) unitCount * Long.BYTES);
+            position += (long) unitCount * Long.BYTES;
+            ByteBuffer raterIndexes = mapColumn(channel, position,
+                    (long) unitCount * Integer.BYTES);
+            position += (long) unitCount * Integer.BYTES;
+            position += BinaryStudyFormat.getPadding(position);
+            ByteBuffer codes = mapColumn(channel, position, (long) unitCount * Integer.BYTES);
+            return new MappedUnitizingAnnotationStudy(raterNames, categories, continuumBegin,
+                    continuumLength, unitCount, begins, lengths, raterIndexes, codes);
+        }
+    }
+
+    /**
+     * Reads the annotation set stored in the given file.
+     *
+     * @throws IOException
+     *             if the file cannot be read or does not contain an annotation set.
+     */
+    public static AnnotationSet readAnnotationSet(final Path file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer in = mapHeader(channel, BinaryStudyFormat.KIND_ANNOTATION_SET);
+            RaterTable raterTable = readRaters(in);
+            Rater[] raters = new Rater[raterTable.names.length];
+            for (int i = 0; i < raters.length; i++) {
+                raters[i] = new Rater(raterTable.names[i], raterTable.indexes[i]);
+            }
+            readCategories(in);
+
+            int unitCount = in.getInt();
+            List<AlignableAnnotationUnit> units = new ArrayList<AlignableAnnotationUnit>(
+                    unitCount);
+            for (int i = 0; i < unitCount; i++) {
+                byte unitKind = in.get();
+                Rater rater = raters[in.getInt()];
+                String type = BinaryStudyFormat.readString(in);
+                long begin = in.getLong();
+                long end = in.getLong();
+                int featureCount = in.getInt();
+                Map<String, String> features = new HashMap<String, String>();
+                for (int j = 0; j < featureCount; j++) {
+                    features.put(BinaryStudyFormat.readString(in),
+                            BinaryStudyFormat.readString(in));
+                }
+                if (unitKind == BinaryStudyFormat.UNIT_TEXT) {
+                    units.add(new AlignableAnnotationTextUnit(rater, begin, end,
+                            BinaryStudyFormat.readString(in), features));
+                }
+                else {
+                    units.add(new AlignableAnnotationUnit(rater, type, begin, end, features));
+                }
+            }
+            return new AnnotationSet(units);
+        }
+    }
+
+    // Maps the beginning of the file (at most 2 GB), which holds the header, the rater table, the
+    // category dictionary, and the counts of the data section.
+    protected static ByteBuffer mapHeader(final FileChannel channel, byte expectedKind)
+        throws IOException
+    {
+        long size = Math.min(channel.size(), Integer.MAX_VALUE);
+        if (size < BinaryStudyFormat.HEADER_SIZE) {
+            throw new IOException("Not a binary annotation study file");
+        }
+
+        ByteBuffer result = channel.map(MapMode.READ_ONLY, 0, size);
+        if (result.getInt() != BinaryStudyFormat.MAGIC) {
+            throw new IOException("Not a binary annotation study file");
+        }
+        short version = result.getShort();
+        if (version != BinaryStudyFormat.VERSION) {
+            throw new IOException("Unsupported file format version: " + version);
+        }
+        byte kind = result.get();
+        if (kind != expectedKind) {
+            throw new IOException("Unexpected kind of file: " + kind + " (expected "
+                    + expectedKind + ")");
+        }
+        result.get();
+        return result;
+    }
+
+    protected static ByteBuffer mapColumn(final FileChannel channel, long position, long size)
+        throws IOException
+    {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Column exceeds the maximum size of a mapped buffer");
+        }
+        if (position + size > channel.size()) {
+            throw new IOException("Unexpected end of file");
+        }
+        return channel.map(MapMode.READ_ONLY, position, size);
+    }
+
+    protected static RaterTable readRaters(final ByteBuffer in)
+    {
+        int raterCount = in.getInt();
+        RaterTable result = new RaterTable(raterCount);
+        for (int i = 0; i < raterCount; i++) {
+            result.indexes[i] = in.getInt();
+            result.names[i] = BinaryStudyFormat.readString(in);
+        }
+        return result;
+    }
+
+    protected static Object[] readCategories(final ByteBuffer in) throws IOException
+    {
+        Object[] result = new Object[in.getInt()];
+        for (int code = 0; code < result.length; code++) {
+            result[code] = BinaryStudyFormat.readValue(in);
+        }
+        return result;
+    }
+
+    protected static class RaterTable
+    {
+        protected final int[] indexes;
+        protected final String[] names;
+
+        protected RaterTable(int raterCount)
+        {
+            indexes = new int[raterCount];
+            names = new String[raterCount];
+        }
+    }
+}
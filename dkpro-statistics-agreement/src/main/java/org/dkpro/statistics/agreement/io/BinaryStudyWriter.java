@@ -0,0 +1,295 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.io;
+
+import static org.dkpro.statistics.agreement.io.BinaryStudyFormat.MISSING;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.dkpro.statistics.agreement.AnnotationStudy;
+import org.dkpro.statistics.agreement.IAnnotationStudy;
+import org.dkpro.statistics.agreement.aligning.AlignableAnnotationUnit;
+import org.dkpro.statistics.agreement.aligning.data.AlignableAnnotationTextUnit;
+import org.dkpro.statistics.agreement.aligning.data.AnnotationSet;
+import org.dkpro.statistics.agreement.aligning.data.Rater;
+import org.dkpro.statistics.agreement.coding.ColumnarCodingAnnotationStudy;
+import org.dkpro.statistics.agreement.coding.ICodingAnnotationStudy;
+import org.dkpro.statistics.agreement.coding.IEncodedCodingAnnotationStudy;
+import org.dkpro.statistics.agreement.unitizing.IUnitizingAnnotationStudy;
+import org.dkpro.statistics.agreement.unitizing.IUnitizingAnnotationUnit;
+
+/**
+ * Writes annotation studies in the compact binary format defined by {@link BinaryStudyFormat}.
+ * Coding studies are stored as one column of category codes per rater, and unitizing studies as
+ * one column per unit attribute, such that the {@link BinaryStudyReader} can map the columns into
+ * memory instead of deserializing the individual units. Studies implementing the
+ * {@link IEncodedCodingAnnotationStudy} interface are written directly from their codes; any other
+ * coding study is encoded in memory first (see
+ * {@link ColumnarCodingAnnotationStudy#ColumnarCodingAnnotationStudy(ICodingAnnotationStudy)}),
+ * which expands weighted items into identical copies.
+ *
+ * @see BinaryStudyFormat
+ * @see BinaryStudyReader
+ */
+public final class BinaryStudyWriter
+{
+    private BinaryStudyWriter()
+    {
+        // No instances
+    }
+
+    /**
+     * Writes the given coding study to the specified file. An existing file is overwritten.
+     *
+     * @throws IllegalArgumentException
+     *             if the study contains an item whose weight is negative or not an integer.
+     */
+    public static void writeCodingStudy(final ICodingAnnotationStudy study, final Path file)
+        throws IOException
+    {
+        IEncodedCodingAnnotationStudy encoded = (study instanceof IEncodedCodingAnnotationStudy
+                ? (IEncodedCodingAnnotationStudy) study
+                : new ColumnarCodingAnnotationStudy(study));
+        try (BinaryOutput out = new BinaryOutput(file)) {
+            out.writeHeader(BinaryStudyFormat.KIND_CODING);
+            writeRaters(out, study);
+            List<Object> categories = new ArrayList<Object>();
+            for (Object category : encoded.getCategories()) {
+                categories.add(category);
+            }
+            writeCategories(out, categories);
+
+            int itemCount = encoded.getItemCount();
+            int raterCount = encoded.getRaterCount();
+            int codeWidth = BinaryStudyFormat.getCodeWidth(categories.size());
+            out.writeInt(itemCount);
+            out.writeInt(encoded.getUnitCount());
+            out.writeBoolean(encoded.hasMissingValues());
+            out.writeByte(codeWidth);
+            for (int raterIdx = 0; raterIdx < raterCount; raterIdx++) {
+                out.align();
+                for (int itemIdx = 0; itemIdx < itemCount; itemIdx++) {
+                    int code = encoded.getCode(itemIdx, raterIdx);
+                    if (codeWidth == Byte.BYTES) {
+                        out.writeByte(code);
+                    }
+                    else if (codeWidth == Short.BYTES) {
+                        out.writeShort(code);
+                    }
+                    else {
+                        out.writeInt(code);
+                    }
+                }
+            }
+            out.align();
+        }
+    }
+
+    /**
+     * Writes the given unitizing study to the specified file. The units are stored in the order
+     * returned by {@link IUnitizingAnnotationStudy#getUnits()}. An existing file is overwritten.
+     */
+    public static void writeUnitizingStudy(final IUnitizingAnnotationStudy study,
+            final Path file)
+        throws IOException
+    {
+        try (BinaryOutput out = new BinaryOutput(file)) {
+            out.writeHeader(BinaryStudyFormat.KIND_UNITIZING);
+            writeRaters(out, study);
+            // Units may use categories that have not been registered with the study.
+            List<Object> categories = new ArrayList<Object>();
+            Map<Object, Integer> codes = new HashMap<Object, Integer>();
+            for (Object category : study.getCategories()) {
+                encodeCategory(category, categories, codes);
+            }
+            for (IUnitizingAnnotationUnit unit : study.getUnits()) {
+                if (unit.getCategory() != null) {
+                    encodeCategory(unit.getCategory(), categories, codes);
+                }
+            }
+            writeCategories(out, categories);
+
+            out.writeLong(study.getContinuumBegin());
+            out.writeLong(study.getContinuumLength());
+            out.writeInt(study.getUnits().size());
+            out.align();
+            for (IUnitizingAnnotationUnit unit : study.getUnits()) {
+                out.writeLong(unit.getBegin());
+            }
+            for (IUnitizingAnnotationUnit unit : study.getUnits()) {
+                out.writeLong(unit.getLength());
+            }
+            for (IUnitizingAnnotationUnit unit : study.getUnits()) {
+                out.writeInt(unit.getRaterIdx());
+            }
+            out.align();
+            for (IUnitizingAnnotationUnit unit : study.getUnits()) {
+                Object category = unit.getCategory();
+                out.writeInt(category == null ? MISSING : codes.get(category));
+            }
+            out.align();
+        }
+    }
+
+    /**
+     * Writes the given annotation set to the specified file. An existing file is overwritten.
+     */
+    public static void writeAnnotationSet(final AnnotationSet annotationSet, final Path file)
+        throws IOException
+    {
+        try (BinaryOutput out = new BinaryOutput(file)) {
+            out.writeHeader(BinaryStudyFormat.KIND_ANNOTATION_SET);
+            Map<Rater, Integer> raterPositions = new HashMap<Rater, Integer>();
+            out.writeInt(annotationSet.getRaterCount());
+            for (Rater rater : annotationSet.getRaters()) {
+                raterPositions.put(rater, raterPositions.size());
+                out.writeInt(rater.getIndex());
+                out.writeString(rater.getName());
+            }
+            out.writeInt(0);
+
+            out.writeInt(annotationSet.getUnitCount());
+            for (AlignableAnnotationUnit unit : annotationSet.getUnits()) {
+                boolean isText = unit instanceof AlignableAnnotationTextUnit;
+                out.writeByte(isText ? BinaryStudyFormat.UNIT_TEXT : BinaryStudyFormat.UNIT_PLAIN);
+                out.writeInt(raterPositions.get(unit.getRater()));
+                out.writeString(unit.getType());
+                out.writeLong(unit.getBegin());
+                out.writeLong(unit.getEnd());
+                out.writeInt(unit.getFeatureNames().size());
+                for (String name : unit.getFeatureNames()) {
+                    out.writeString(name);
+                    out.writeString(unit.getFeatureValue(name));
+                }
+                if (isText) {
+                    out.writeString(((AlignableAnnotationTextUnit) unit).getText());
+                }
+            }
+        }
+    }
+
+    protected static void writeRaters(final BinaryOutput out, final IAnnotationStudy study)
+        throws IOException
+    {
+        int raterCount = study.getRaterCount();
+        out.writeInt(raterCount);
+        for (int raterIdx = 0; raterIdx < raterCount; raterIdx++) {
+            out.writeInt(raterIdx);
+            out.writeString(study instanceof AnnotationStudy
+                    ? ((AnnotationStudy) study).getRaterName(raterIdx)
+                    : Integer.toString(raterIdx));
+        }
+    }
+
+    protected static void writeCategories(final BinaryOutput out, final List<Object> categories)
+        throws IOException
+    {
+        out.writeInt(categories.size());
+        for (Object category : categories) {
+            out.writeValue(category);
+        }
+    }
+
+    private static void encodeCategory(final Object category, final List<Object> categories,
+            final Map<Object, Integer> codes)
+    {
+        if (!codes.containsKey(category)) {
+            codes.put(category, categories.size());
+            categories.add(category);
+        }
+    }
+
+    /**
+     * Buffered data output stream that keeps track of the number of bytes written, which is
+     * required for aligning the columns.
+     */
+    protected static class BinaryOutput
+        extends DataOutputStream
+    {
+        protected final CountingOutputStream counter;
+
+        protected BinaryOutput(final Path file) throws IOException
+        {
+            this(new CountingOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)));
+        }
+
+        private BinaryOutput(final CountingOutputStream counter)
+        {
+            super(counter);
+            this.counter = counter;
+        }
+
+        protected void writeHeader(byte kind) throws IOException
+        {
+            writeInt(BinaryStudyFormat.MAGIC);
+            writeShort(BinaryStudyFormat.VERSION);
+            writeByte(kind);
+            writeByte(0);
+        }
+
+        protected void writeString(final String value) throws IOException
+        {
+            BinaryStudyFormat.writeString(this, value);
+        }
+
+        protected void writeValue(final Object value) throws IOException
+        {
+            BinaryStudyFormat.writeValue(this, value);
+        }
+
+        /** Writes zero bytes until the position is a multiple of the column alignment. */
+        protected void align() throws IOException
+        {
+            for (int i = BinaryStudyFormat.getPadding(counter.count); i > 0; i--) {
+                write(0);
+            }
+        }
+    }
+
+    protected static class CountingOutputStream
+        extends FilterOutputStream
+    {
+        protected long count;
+
+        protected CountingOutputStream(final OutputStream out)
+        {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
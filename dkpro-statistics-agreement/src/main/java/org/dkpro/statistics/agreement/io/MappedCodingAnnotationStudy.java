@@ -0,0 +1,266 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.io;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+import org.dkpro.statistics.agreement.AnnotationStudy;
+import org.dkpro.statistics.agreement.AnnotationUnit;
+import org.dkpro.statistics.agreement.IAnnotationUnit;
+import org.dkpro.statistics.agreement.coding.CodingStudyStatistics;
+import org.dkpro.statistics.agreement.coding.ColumnarCodingAnnotationStudy;
+import org.dkpro.statistics.agreement.coding.ICodingAnnotationItem;
+import org.dkpro.statistics.agreement.coding.IEncodedCodingAnnotationStudy;
+
+/**
+ * Read-only coding study backed by the memory-mapped columns of a file in the
+ * {@link BinaryStudyFormat binary format}. Only the rater table and the category dictionary are
+ * deserialized when the study is opened; the category codes are read from the mapped columns on
+ * demand, such that opening a study takes constant time in the number of items and the operating
+ * system pages in only the parts of the file that are actually accessed. The agreement measures
+ * work directly on the codes (see {@link IEncodedCodingAnnotationStudy}), while the items returned
+ * by {@link #getItem(int)} and {@link #getItems()} are lightweight views. Serializing the study
+ * yields a {@link ColumnarCodingAnnotationStudy} copy of its data.
+ *
+ * @see BinaryStudyReader#openCodingStudy(java.nio.file.Path)
+ */
+public class MappedCodingAnnotationStudy
+    extends AnnotationStudy
+    implements IEncodedCodingAnnotationStudy
+{
+    private static final long serialVersionUID = -8419538337006283016L;
+
+    protected final transient Object[] categoryDictionary;
+    protected final transient Map<Object, Integer> categoryCodes;
+    protected final transient ByteBuffer[] columns;
+    protected final int codeWidth;
+    protected final int itemCount;
+    protected final int unitCount;
+    protected final boolean missingValues;
+
+    private transient volatile CodingStudyStatistics statistics;
+
+    protected MappedCodingAnnotationStudy(final String[] raterNames,
+            final Object[] categoryDictionary, final ByteBuffer[] columns, int codeWidth,
+            int itemCount, int unitCount, boolean missingValues)
+    {
+        super();
+        for (String raterName : raterNames) {
+            raters.add(raterName);
+        }
+        this.categoryDictionary = categoryDictionary;
+        categoryCodes = new HashMap<Object, Integer>();
+        for (int code = 0; code < categoryDictionary.length; code++) {
+            categoryCodes.put(categoryDictionary[code], code);
+            categories.add(categoryDictionary[code]);
+        }
+        this.columns = columns;
+        this.codeWidth = codeWidth;
+        this.itemCount = itemCount;
+        this.unitCount = unitCount;
+        this.missingValues = missingValues;
+    }
+
+    /**
+     * Not supported, since the study is read-only.
+     *
+     * @throws UnsupportedOperationException
+     *             always.
+     */
+    @Override
+    public int addRater(final String name)
+    {
+        throw new UnsupportedOperationException("The study is read-only");
+    }
+
+    /**
+     * Not supported, since the study is read-only.
+     *
+     * @throws UnsupportedOperationException
+     *             always.
+     */
+    @Override
+    public void addCategory(final Object category)
+    {
+        throw new UnsupportedOperationException("The study is read-only");
+    }
+
+    @Override
+    public Object getCategory(int code)
+    {
+        return categoryDictionary[code];
+    }
+
+    @Override
+    public int getCategoryCode(final Object category)
+    {
+        if (category == null) {
+            return MISSING;
+        }
+
+        Integer code = categoryCodes.get(category);
+        return (code == null ? MISSING : code);
+    }
+
+    @Override
+    public int getCode(int itemIdx, int raterIdx)
+    {
+        Objects.checkIndex(itemIdx, itemCount);
+        ByteBuffer column = columns[raterIdx];
+        if (codeWidth == Byte.BYTES) {
+            return column.get(itemIdx);
+        }
+        else if (codeWidth == Short.BYTES) {
+            return column.getShort(itemIdx << 1);
+        }
+        else {
+            return column.getInt(itemIdx << 2);
+        }
+    }
+
+    @Override
+    public ICodingAnnotationItem getItem(int index)
+    {
+        Objects.checkIndex(index, itemCount);
+        return new MappedAnnotationItem(this, index);
+    }
+
+    @Override
+    public Iterable<ICodingAnnotationItem> getItems()
+    {
+        return () -> new Iterator<ICodingAnnotationItem>()
+        {
+            private int itemIdx = 0;
+
+            @Override
+            public boolean hasNext()
+            {
+                return itemIdx < itemCount;
+            }
+
+            @Override
+            public ICodingAnnotationItem next()
+            {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return new MappedAnnotationItem(MappedCodingAnnotationStudy.this, itemIdx++);
+            }
+        };
+    }
+
+    @Override
+    public int getItemCount()
+    {
+        return itemCount;
+    }
+
+    @Override
+    public int getUnitCount()
+    {
+        return unitCount;
+    }
+
+    @Override
+    public boolean hasMissingValues()
+    {
+        return missingValues;
+    }
+
+    /**
+     * Returns the sufficient statistics of this study. Since the study cannot be modified, the
+     * statistics are collected only once.
+     */
+    @Override
+    public CodingStudyStatistics getStatistics()
+    {
+        CodingStudyStatistics result = statistics;
+        if (result == null) {
+            result = new CodingStudyStatistics(this);
+            statistics = result;
+        }
+        return result;
+    }
+
+    // Mapped buffers cannot be serialized; a columnar copy of the study is serialized instead.
+    private Object writeReplace()
+    {
+        return new ColumnarCodingAnnotationStudy(this);
+    }
+
+    /**
+     * Lightweight view of a single item of a {@link MappedCodingAnnotationStudy}. The annotation
+     * units are created on demand from the category codes.
+     */
+    protected static class MappedAnnotationItem
+        implements ICodingAnnotationItem
+    {
+        private static final long serialVersionUID = 5128833957418237042L;
+
+        protected final MappedCodingAnnotationStudy study;
+        protected final int itemIdx;
+
+        protected MappedAnnotationItem(final MappedCodingAnnotationStudy study, int itemIdx)
+        {
+            this.study = study;
+            this.itemIdx = itemIdx;
+        }
+
+        @Override
+        public IAnnotationUnit getUnit(int raterIdx)
+        {
+            int code = study.getCode(itemIdx, raterIdx);
+            return new AnnotationUnit(raterIdx, code == MISSING ? null : study.getCategory(code));
+        }
+
+        @Override
+        public Iterable<IAnnotationUnit> getUnits()
+        {
+            List<IAnnotationUnit> result = new ArrayList<IAnnotationUnit>(study.getRaterCount());
+            for (int raterIdx = 0; raterIdx < study.getRaterCount(); raterIdx++) {
+                result.add(getUnit(raterIdx));
+            }
+            return result;
+        }
+
+        @Override
+        public int getRaterCount()
+        {
+            int result = 0;
+            for (int raterIdx = 0; raterIdx < study.getRaterCount(); raterIdx++) {
+                if (study.getCode(itemIdx, raterIdx) != MISSING) {
+                    result++;
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public String toString()
+        {
+            StringBuilder result = new StringBuilder();
+            for (IAnnotationUnit unit : getUnits()) {
+                result.append(result.length() == 0 ? "" : ", ").append(unit.toString());
+            }
+            return result.toString();
+        }
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.io;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+import org.dkpro.statistics.agreement.AnnotationStudy;
+import org.dkpro.statistics.agreement.unitizing.IUnitizingAnnotationStudy;
+import org.dkpro.statistics.agreement.unitizing.IUnitizingAnnotationUnit;
+import org.dkpro.statistics.agreement.unitizing.UnitizingAnnotationStudy;
+
+/**
+ * Read-only unitizing study backed by the memory-mapped columns of a file in the
+ * {@link BinaryStudyFormat binary format}. Only the rater table and the category dictionary are
+ * deserialized when the study is opened. The collection returned by {@link #getUnits()} creates
+ * lightweight views of the units from the mapped columns while being iterated and returns them in
+ * the order in which they have been written (i.e., the order of the original study). Serializing
+ * the study yields a {@link UnitizingAnnotationStudy} copy of its data.
+ *
+ * @see BinaryStudyReader#openUnitizingStudy(java.nio.file.Path)
+ */
+public class MappedUnitizingAnnotationStudy
+    extends AnnotationStudy
+    implements IUnitizingAnnotationStudy
+{
+    private static final long serialVersionUID = 2750945069531916434L;
+
+    protected final transient Object[] categoryDictionary;
+    protected final transient ByteBuffer begins;
+    protected final transient ByteBuffer lengths;
+    protected final transient ByteBuffer raterIndexes;
+    protected final transient ByteBuffer codes;
+    protected final int unitCount;
+    protected final long continuumBegin;
+    protected final long continuumLength;
+
+    protected MappedUnitizingAnnotationStudy(final String[] raterNames,
+            final Object[] categoryDictionary, long continuumBegin, long continuumLength,
+            int unitCount, final ByteBuffer begins, final ByteBuffer lengths,
+            final ByteBuffer raterIndexes, final ByteBuffer codes)
+    {
+        super();
+        for (String raterName : raterNames) {
+            raters.add(raterName);
+        }
+        this.categoryDictionary = categoryDictionary;
+        for (Object category : categoryDictionary) {
+            categories.add(category);
+        }
+        this.continuumBegin = continuumBegin;
+        this.continuumLength = continuumLength;
+        this.unitCount = unitCount;
+        this.begins = begins;
+        this.lengths = lengths;
+        this.raterIndexes = raterIndexes;
+        this.codes = codes;
+    }
+
+    /**
+     * Not supported, since the study is read-only.
+     *
+     * @throws UnsupportedOperationException
+     *             always.
+     */
+    @Override
+    public int addRater(final String name)
+    {
+        throw new UnsupportedOperationException("The study is read-only");
+    }
+
+    /**
+     * Not supported, since the study is read-only.
+     *
+     * @throws UnsupportedOperationException
+     *             always.
+     */
+    @Override
+    public void addCategory(final Object category)
+    {
+        throw new UnsupportedOperationException("The study is read-only");
+    }
+
+    /** Returns a view of the unit with the given index. */
+    public IUnitizingAnnotationUnit getUnit(int index)
+    {
+        Objects.checkIndex(index, unitCount);
+        return new MappedUnit(this, index);
+    }
+
+    @Override
+    public Collection<IUnitizingAnnotationUnit> getUnits()
+    {
+        return new AbstractCollection<IUnitizingAnnotationUnit>()
+        {
+            @Override
+            public Iterator<IUnitizingAnnotationUnit> iterator()
+            {
+                return new Iterator<IUnitizingAnnotationUnit>()
+                {
+                    private int index = 0;
+
+                    @Override
+                    public boolean hasNext()
+                    {
+                        return index < unitCount;
+                    }
+
+                    @Override
+                    public IUnitizingAnnotationUnit next()
+                    {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        return new MappedUnit(MappedUnitizingAnnotationStudy.this, index++);
+                    }
+                };
+            }
+
+            @Override
+            public int size()
+            {
+                return unitCount;
+            }
+        };
+    }
+
+    @Override
+    public long getUnitCount(int raterIdx)
+    {
+        long result = 0;
+        for (int index = 0; index < unitCount; index++) {
+            if (raterIndexes.getInt(index << 2) == raterIdx) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public int getUnitCount()
+    {
+        return unitCount;
+    }
+
+    @Override
+    public long getContinuumBegin()
+    {
+        return continuumBegin;
+    }
+
+    @Override
+    public long getContinuumLength()
+    {
+        return continuumLength;
+    }
+
+    // Mapped buffers cannot be serialized; a copy of the study is serialized instead.
+    private Object writeReplace()
+    {
+        UnitizingAnnotationStudy result = new UnitizingAnnotationStudy(0, continuumBegin,
+                continuumLength);
+        for (String rater : raters) {
+            result.addRater(rater);
+        }
+        for (Object category : categories) {
+            result.addCategory(category);
+        }
+        for (IUnitizingAnnotationUnit unit : getUnits()) {
+            result.addUnit(unit.getBegin(), unit.getLength(), unit.getRaterIdx(),
+                    unit.getCategory());
+        }
+        return result;
+    }
+
+    /**
+     * Lightweight view of a single unit of a {@link MappedUnitizingAnnotationStudy}. Units are
+     * ordered by their begin, length, and rater index like the units of a
+     * {@link UnitizingAnnotationStudy}.
+     */
+    protected static class MappedUnit
+        implements IUnitizingAnnotationUnit
+    {
+        private static final long serialVersionUID = -5186290424893740652L;
+
+        protected final long begin;
+        protected final long length;
+        protected final int raterIdx;
+        @SuppressWarnings("serial") // Serializable if the categories are serializable
+        protected final Object category;
+
+        protected MappedUnit(final MappedUnitizingAnnotationStudy study, int index)
+        {
+            begin = study.begins.getLong(index << 3);
+            length = study.lengths.getLong(index << 3);
+            raterIdx = study.raterIndexes.getInt(index << 2);
+            int code = study.codes.getInt(index << 2);
+            category = (code == BinaryStudyFormat.MISSING ? null
+                    : study.categoryDictionary[code]);
+        }
+
+        @Override
+        public int getRaterIdx()
+        {
+            return raterIdx;
+        }
+
+        @Override
+        public Object getCategory()
+        {
+            return category;
+        }
+
+        @Override
+        public long getBegin()
+        {
+            return begin;
+        }
+
+        @Override
+        public long getLength()
+        {
+            return length;
+        }
+
+        @Override
+        public long getEnd()
+        {
+            return begin + length;
+        }
+
+        @Override
+        public int compareTo(final IUnitizingAnnotationUnit that)
+        {
+            if (this.equals(that)) {
+                return 0;
+            }
+
+            int result = Long.compare(begin, that.getBegin());
+            if (result == 0) {
+                result = Long.compare(length, that.getLength());
+            }
+            if (result == 0) {
+                result = Integer.compare(raterIdx, that.getRaterIdx());
+            }
+            if (result == 0) {
+                result = (this.hashCode() < that.hashCode() ? -1 : +1);
+            }
+            return result;
+        }
+
+        @Override
+        public String toString()
+        {
+            return raterIdx + "<" + category + ">" + ((begin >= 0) ? "@" + begin : "")
+                    + ((length > 0) ? "-" + length : "");
+        }
+    }
+}
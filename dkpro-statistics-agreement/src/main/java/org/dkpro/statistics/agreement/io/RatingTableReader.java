@@ -0,0 +1,566 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.io;
+
+import static org.dkpro.statistics.agreement.coding.IEncodedCodingAnnotationStudy.MISSING;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.Function;
+
+import org.dkpro.statistics.agreement.coding.ColumnarCodingAnnotationStudy;
+
+/**
+ * Streaming reader for large delimiter-separated rating files (e.g., TSV or CSV). The file is read
+ * through a fixed-size buffer and parsed at the byte level: rater names, item identifiers, and
+ * labels are interned into byte-keyed dictionaries on the fly, such that each distinct value is
+ * decoded and converted to a category only once, and the category codes are stored directly in a
+ * {@link ColumnarCodingAnnotationStudy} without boxing the individual ratings. Two layouts are
+ * supported:
+ * <ul>
+ * <li>{@link Layout#WIDE}: one line per item with one column per rater. Unless disabled, the first
+ * column contains an item identifier and the first line contains the rater names.</li>
+ * <li>{@link Layout#LONG}: one line per rating with the three columns item identifier, rater name,
+ * and label. Lines may occur in arbitrary order; items and raters are added in the order of their
+ * first occurrence. Unless disabled, the first line is a header and is skipped.</li>
+ * </ul>
+ * Empty fields and fields equal to the {@linkplain #setMissingValue(String) missing value token}
+ * represent missing ratings; in the long layout, missing ratings may also be omitted altogether.
+ * Fields may be enclosed in double quotes, in which case they may contain delimiters, line breaks,
+ * and doubled quotes. Labels are converted to categories by the
+ * {@linkplain #setLabelConverter(Function) label converter}; by default, they are used as strings.
+ * The item identifiers are not part of the resulting study, whose items are indexed in the order
+ * in which they occur in the file.
+ */
+public class RatingTableReader
+{
+    /** Layout of the rating file. */
+    public enum Layout
+    {
+        /** One line per item with one column per rater. */
+        WIDE,
+        /** One line per rating with the columns item, rater, and label. */
+        LONG
+    }
+
+    /** The default size of the read buffer in bytes. */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    private static final byte QUOTE = '"';
+
+    protected final Layout layout;
+    protected byte delimiter;
+    protected boolean header;
+    protected boolean itemColumn;
+    protected byte[] missingValue;
+    protected Function<String, Object> labelConverter;
+    protected int bufferSize;
+
+    /**
+     * Instantiates a reader for tab-separated files of the given layout with a header line and an
+     * item column.
+     */
+    public RatingTableReader(final Layout layout)
+    {
+        this.layout = layout;
+        delimiter = '\t';
+        header = true;
+        itemColumn = true;
+        missingValue = new byte[0];
+        labelConverter = label -> label;
+        bufferSize = DEFAULT_BUFFER_SIZE;
+    }
+
+    /**
+     * Sets the field delimiter (by default, a tab). Use ',' for CSV files.
+     *
+     * @throws IllegalArgumentException
+     *             if the delimiter is not an ASCII character or a line break or quote.
+     */
+    public void setDelimiter(char delimiter)
+    {
+        if (delimiter > 127 || delimiter == '\n' || delimiter == '\r' || delimiter == QUOTE) {
+            throw new IllegalArgumentException("Invalid delimiter: " + delimiter);
+        }
+        this.delimiter = (byte) delimiter;
+    }
+
+    /**
+     * Defines whether the first line of the file is a header. In the wide layout, the header
+     * provides the rater names; otherwise, the raters are named by their index.
+     */
+    public void setHeader(boolean header)
+    {
+        this.header = header;
+    }
+
+    /**
+     * Defines whether the first column of the wide layout contains item identifiers, which are
+     * skipped. Ignored for the long layout.
+     */
+    public void setItemColumn(boolean itemColumn)
+    {
+        this.itemColumn = itemColumn;
+    }
+
+    /**
+     * Sets a token (e.g., "NA") that represents a missing rating in addition to an empty field.
+     */
+    public void setMissingValue(final String missingValue)
+    {
+        this.missingValue = (missingValue == null ? new byte[0]
+                : missingValue.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sets the function converting a label into a category, for instance {@code Integer::valueOf}
+     * for ordinal or interval scales. The function is invoked once per distinct label.
+     */
+    public void setLabelConverter(final Function<String, Object> labelConverter)
+    {
+        this.labelConverter = labelConverter;
+    }
+
+    /** Sets the size of the read buffer in bytes. */
+    public void setBufferSize(int bufferSize)
+    {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+        }
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Reads the given file into a new study.
+     *
+     * @throws IOException
+     *             if the file cannot be read or is malformed.
+     */
+    public ColumnarCodingAnnotationStudy read(final Path file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return read(channel);
+        }
+    }
+
+    /**
+     * Reads the ratings from the given channel into a new study. The channel is not closed.
+     *
+     * @throws IOException
+     *             if the channel cannot be read or the data is malformed.
+     */
+    public ColumnarCodingAnnotationStudy read(final ReadableByteChannel channel)
+        throws IOException
+    {
+        ColumnarCodingAnnotationStudy result = new ColumnarCodingAnnotationStudy(0);
+        readInto(channel, result);
+        return result;
+    }
+
+    /**
+     * Adds the ratings read from the given channel to the given study. Raters are matched by name
+     * (or, without a header in the wide layout, by position) and added if necessary. The channel
+     * is not closed.
+     *
+     * @throws IOException
+     *             if the channel cannot be read or the data is malformed.
+     */
+    public void readInto(final ReadableByteChannel channel,
+            final ColumnarCodingAnnotationStudy study)
+        throws IOException
+    {
+        RowHandler handler = (layout == Layout.WIDE ? new WideRowHandler(study)
+                : new LongRowHandler(study));
+        Row row = new Row();
+        ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+        byte[] bytes = buffer.array();
+        boolean quoted = false;
+        boolean afterQuote = false;
+        int n;
+        while ((n = channel.read(buffer)) >= 0) {
+            for (int i = 0; i < n; i++) {
+                byte b = bytes[i];
+                if (quoted) {
+                    if (b == QUOTE) {
+                        quoted = false;
+                        afterQuote = true;
+                    }
+                    else {
+                        row.append(b);
+                    }
+                    continue;
+                }
+
+                if (afterQuote) {
+                    afterQuote = false;
+                    if (b == QUOTE) {
+                        // Doubled quote within a quoted field.
+                        row.append(b);
+                        quoted = true;
+                        continue;
+                    }
+                }
+                if (b == delimiter) {
+                    row.endField();
+                }
+                else if (b == '\n') {
+                    row.endField();
+                    handleRow(row, handler);
+                }
+                else if (b == QUOTE && row.isFieldEmpty()) {
+                    quoted = true;
+                }
+                else if (b != '\r') {
+                    row.append(b);
+                }
+            }
+            buffer.clear();
+        }
+        if (quoted) {
+            throw new IOException("Unterminated quoted field in line " + (row.lineNumber + 1));
+        }
+        if (row.length > 0 || row.fieldCount > 0) {
+            row.endField();
+            handleRow(row, handler);
+        }
+    }
+
+    protected void handleRow(final Row row, final RowHandler handler) throws IOException
+    {
+        row.lineNumber++;
+        if (row.lineNumber == 1) {
+            row.skipByteOrderMark();
+        }
+        // Skip blank lines.
+        if (row.fieldCount > 1 || row.getLength(0) > 0) {
+            if (row.lineNumber == 1 && header) {
+                handler.handleHeader(row);
+            }
+            else {
+                handler.handleRow(row);
+            }
+        }
+        row.clear();
+    }
+
+    protected boolean isMissing(final Row row, int field)
+    {
+        int length = row.getLength(field);
+        return length == 0 || (length == missingValue.length && Arrays.equals(row.data,
+                row.starts[field], row.ends[field], missingValue, 0, missingValue.length));
+    }
+
+    /** Callback for the parsed lines of the file. */
+    protected interface RowHandler
+    {
+        void handleHeader(Row row) throws IOException;
+
+        void handleRow(Row row) throws IOException;
+    }
+
+    protected class WideRowHandler
+        implements RowHandler
+    {
+        protected final ColumnarCodingAnnotationStudy study;
+        protected final ByteDictionary labels;
+        protected final int firstRaterField;
+        protected int[] raterIndexes;
+        protected int[] codes;
+
+        protected WideRowHandler(final ColumnarCodingAnnotationStudy study)
+        {
+            this.study = study;
+            labels = new ByteDictionary();
+            firstRaterField = (itemColumn ? 1 : 0);
+        }
+
+        @Override
+        public void handleHeader(final Row row)
+        {
+            raterIndexes = new int[row.fieldCount - firstRaterField];
+            for (int i = 0; i < raterIndexes.length; i++) {
+                String name = row.getString(firstRaterField + i);
+                int raterIdx = study.findRater(name);
+                raterIndexes[i] = (raterIdx >= 0 ? raterIdx : study.addRater(name));
+            }
+        }
+
+        @Override
+        public void handleRow(final Row row) throws IOException
+        {
+            if (raterIndexes == null) {
+                // No header: the raters are identified by their position.
+                raterIndexes = new int[row.fieldCount - firstRaterField];
+                for (int i = 0; i < raterIndexes.length; i++) {
+                    raterIndexes[i] = (i < study.getRaterCount() ? i
+                            : study.addRater(Integer.toString(i)));
+                }
+            }
+            if (row.fieldCount - firstRaterField != raterIndexes.length) {
+                throw new IOException("Expected " + (raterIndexes.length + firstRaterField)
+                        + " fields in line " + row.lineNumber + ", found " + row.fieldCount);
+            }
+            if (codes == null || codes.length != study.getRaterCount()) {
+                codes = new int[study.getRaterCount()];
+            }
+
+            Arrays.fill(codes, MISSING);
+            for (int i = 0; i < raterIndexes.length; i++) {
+                codes[raterIndexes[i]] = encodeLabel(study, labels, row, firstRaterField + i);
+            }
+            study.addItemAsCodes(codes);
+        }
+    }
+
+    protected class LongRowHandler
+        implements RowHandler
+    {
+        protected final ColumnarCodingAnnotationStudy study;
+        protected final ByteDictionary labels;
+        protected final ByteDictionary items;
+        protected final ByteDictionary raters;
+        protected int[] missingCodes;
+
+        protected LongRowHandler(final ColumnarCodingAnnotationStudy study)
+        {
+            this.study = study;
+            labels = new ByteDictionary();
+            items = new ByteDictionary();
+            raters = new ByteDictionary();
+        }
+
+        @Override
+        public void handleHeader(final Row row)
+        {
+            // Column names are not required.
+        }
+
+        @Override
+        public void handleRow(final Row row) throws IOException
+        {
+            if (row.fieldCount != 3) {
+                throw new IOException("Expected 3 fields in line " + row.lineNumber + ", found "
+                        + row.fieldCount);
+            }
+
+            int raterIdx = raters.get(row, 1);
+            if (raterIdx < 0) {
+                String name = row.getString(1);
+                raterIdx = study.findRater(name);
+                if (raterIdx < 0) {
+                    raterIdx = study.addRater(name);
+                }
+                raters.put(row, 1, raterIdx);
+            }
+
+            int itemIdx = items.get(row, 0);
+            if (itemIdx < 0) {
+                if (missingCodes == null || missingCodes.length != study.getRaterCount()) {
+                    missingCodes = new int[study.getRaterCount()];
+                    Arrays.fill(missingCodes, MISSING);
+                }
+                itemIdx = study.addItemAsCodes(missingCodes);
+                items.put(row, 0, itemIdx);
+            }
+
+            int code = encodeLabel(study, labels, row, 2);
+            if (code != MISSING) {
+                if (study.getCode(itemIdx, raterIdx) != MISSING) {
+                    throw new IOException("Duplicate rating of item " + row.getString(0)
+                            + " by rater " + row.getString(1) + " in line " + row.lineNumber);
+                }
+                study.setAnnotationCode(itemIdx, raterIdx, code);
+            }
+        }
+    }
+
+    protected int encodeLabel(final ColumnarCodingAnnotationStudy study,
+            final ByteDictionary labels, final Row row, int field)
+    {
+        int result = labels.get(row, field);
+        if (result == ByteDictionary.NOT_FOUND) {
+            result = (isMissing(row, field) ? MISSING
+                    : study.encodeCategory(labelConverter.apply(row.getString(field))));
+            labels.put(row, field, result);
+        }
+        return result;
+    }
+
+    /**
+     * The fields of the current line, which are stored as ranges of a reusable byte array.
+     */
+    protected static class Row
+    {
+        protected byte[] data = new byte[256];
+        protected int length;
+        protected int[] starts = new int[16];
+        protected int[] ends = new int[16];
+        protected int fieldCount;
+        protected long lineNumber;
+
+        protected void append(byte b)
+        {
+            if (length == data.length) {
+                data = Arrays.copyOf(data, length * 2);
+            }
+            data[length++] = b;
+        }
+
+        protected boolean isFieldEmpty()
+        {
+            return length == (fieldCount == 0 ? 0 : ends[fieldCount - 1]);
+        }
+
+        protected void endField()
+        {
+            if (fieldCount == starts.length) {
+                starts = Arrays.copyOf(starts, fieldCount * 2);
+                ends = Arrays.copyOf(ends, fieldCount * 2);
+            }
+            starts[fieldCount] = (fieldCount == 0 ? 0 : ends[fieldCount - 1]);
+            ends[fieldCount] = length;
+            fieldCount++;
+        }
+
+        protected int getLength(int field)
+        {
+            return ends[field] - starts[field];
+        }
+
+        protected String getString(int field)
+        {
+            return new String(data, starts[field], getLength(field), StandardCharsets.UTF_8);
+        }
+
+        protected void skipByteOrderMark()
+        {
+            if (fieldCount > 0 && getLength(0) >= 3 && data[0] == (byte) 0xEF
+                    && data[1] == (byte) 0xBB && data[2] == (byte) 0xBF) {
+                starts[0] = 3;
+            }
+        }
+
+        protected void clear()
+        {
+            length = 0;
+            fieldCount = 0;
+        }
+    }
+
+    /**
+     * Open-addressing hash table mapping byte sequences to non-negative integers. The keys are
+     * copied into a shared byte pool, such that looking up a known key does not allocate memory.
+     */
+    protected static class ByteDictionary
+    {
+        protected static final int NOT_FOUND = Integer.MIN_VALUE;
+
+        protected int[] slots;
+        protected int[] offsets;
+        protected int[] lengths;
+        protected int[] hashes;
+        protected int[] values;
+        protected byte[] pool;
+        protected int poolSize;
+        protected int size;
+
+        protected ByteDictionary()
+        {
+            slots = new int[64];
+            Arrays.fill(slots, -1);
+            offsets = new int[32];
+            lengths = new int[32];
+            hashes = new int[32];
+            values = new int[32];
+            pool = new byte[1024];
+        }
+
+        /** Returns the value of the given field or {@link #NOT_FOUND}. */
+        protected int get(final Row row, int field)
+        {
+            int start = row.starts[field];
+            int length = row.getLength(field);
+            int hash = hash(row.data, start, length);
+            int mask = slots.length - 1;
+            for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+                int entry = slots[slot];
+                if (entry < 0) {
+                    return NOT_FOUND;
+                }
+                if (hashes[entry] == hash && lengths[entry] == length
+                        && Arrays.equals(pool, offsets[entry], offsets[entry] + length, row.data,
+                                start, start + length)) {
+                    return values[entry];
+                }
+            }
+        }
+
+        /** Adds the given field, which must not be contained yet, with the given value. */
+        protected void put(final Row row, int field, int value)
+        {
+            int start = row.starts[field];
+            int length = row.getLength(field);
+            if (size == offsets.length) {
+                int capacity = size * 2;
+                offsets = Arrays.copyOf(offsets, capacity);
+                lengths = Arrays.copyOf(lengths, capacity);
+                hashes = Arrays.copyOf(hashes, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            if (poolSize + length > pool.length) {
+                pool = Arrays.copyOf(pool, Math.max(pool.length * 2, poolSize + length));
+            }
+            System.arraycopy(row.data, start, pool, poolSize, length);
+            offsets[size] = poolSize;
+            lengths[size] = length;
+            hashes[size] = hash(row.data, start, length);
+            values[size] = value;
+            poolSize += length;
+            insert(size++);
+            if (size * 2 > slots.length) {
+                slots = new int[slots.length * 2];
+                Arrays.fill(slots, -1);
+                for (int entry = 0; entry < size; entry++) {
+                    insert(entry);
+                }
+            }
+        }
+
+        private void insert(int entry)
+        {
+            int mask = slots.length - 1;
+            int slot = hashes[entry] & mask;
+            while (slots[slot] >= 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = entry;
+        }
+
+        private static int hash(final byte[] data, int start, int length)
+        {
+            int result = 1;
+            for (int i = start; i < start + length; i++) {
+                result = 31 * result + data[i];
+            }
+            // Spread the bits, since the lower ones select the slot.
+            return result ^ (result >>> 16);
+        }
+    }
+}
@@ -18,9 +18,9 @@
 package org.dkpro.statistics.agreement.visualization;
 
 import java.io.PrintStream;
-import java.util.Map;
 
-import org.dkpro.statistics.agreement.coding.CodingAnnotationStudy;
+import org.dkpro.statistics.agreement.coding.CategoryPairTable;
+import org.dkpro.statistics.agreement.coding.CodingStudyStatistics;
 import org.dkpro.statistics.agreement.coding.ICodingAnnotationItem;
 import org.dkpro.statistics.agreement.coding.ICodingAnnotationStudy;
 
@@ -53,21 +53,19 @@ public class CoincidenceMatrixPrinter
     public void print(final PrintStream out, final ICodingAnnotationStudy study,
             final ICodingAnnotationItem item)
     {
-        Map<Object, Map<Object, Double>> coincidence = CodingAnnotationStudy
-                .countCategoryCoincidence(item);
-        doPrint(out, study, coincidence);
+        CodingStudyStatistics statistics = study.getStatistics();
+        doPrint(out, statistics, statistics.countCoincidence(item));
     }
 
     /** Print the coincidence matrix for the given coding study. */
     public void print(final PrintStream out, final ICodingAnnotationStudy study)
     {
-        Map<Object, Map<Object, Double>> coincidence = CodingAnnotationStudy
-                .countCategoryCoincidence(study);
-        doPrint(out, study, coincidence);
+        CodingStudyStatistics statistics = study.getStatistics();
+        doPrint(out, statistics, statistics.getCoincidenceTable());
     }
 
-    protected void doPrint(final PrintStream out, final ICodingAnnotationStudy study,
-            final Map<Object, Map<Object, Double>> coincidence)
+    protected void doPrint(final PrintStream out, final CodingStudyStatistics statistics,
+            final CategoryPairTable coincidence)
     {
         // TODO: measure length of cats. maybe cut them.
         final String DIVIDER = "\t";
@@ -76,28 +74,19 @@ public class CoincidenceMatrixPrinter
         final String STRING_FORMAT = "%" + LENGTH + "s";
 
         out.printf(STRING_FORMAT, "");
-        for (Object category : study.getCategories()) {
-            out.printf(DIVIDER + STRING_FORMAT, category);
+        for (int code = 0; code < statistics.getCategoryCount(); code++) {
+            out.printf(DIVIDER + STRING_FORMAT, statistics.getCategory(code));
         }
         out.printf(DIVIDER + STRING_FORMAT, "Σ");
         out.println();
 
-        int idx = 0;
-        double[] sums = new double[study.getCategoryCount()];
-        for (Object category1 : study.getCategories()) {
-            Map<Object, Double> c1 = coincidence.get(category1);
-            out.printf(STRING_FORMAT, category1);
+        double[] sums = new double[statistics.getCategoryCount()];
+        for (int code1 = 0; code1 < statistics.getCategoryCount(); code1++) {
+            out.printf(STRING_FORMAT, statistics.getCategory(code1));
             double sum = 0;
-            for (Object category2 : study.getCategories()) {
-                Double value = 0.0;
-                if (c1 != null) {
-                    value = c1.get(category2);
-                }
-                if (value != null) {
-                    value *= 2.0;
-                }
-
-                if (value != null && value > 0) {
+            for (int code2 = 0; code2 < statistics.getCategoryCount(); code2++) {
+                double value = 2.0 * coincidence.get(code1, code2);
+                if (value > 0) {
                     out.printf(DIVIDER + DOUBLE_FORMAT, value);
                     sum += value;
                 }
@@ -106,8 +95,7 @@ public class CoincidenceMatrixPrinter
                 }
             }
             out.printf(DIVIDER + DOUBLE_FORMAT, sum);
-            sums[idx] = sum;
-            idx++;
+            sums[code1] = sum;
             out.println();
         }
 
@@ -0,0 +1,140 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.dkpro.statistics.agreement.coding.CodingAnnotationStudy;
+import org.dkpro.statistics.agreement.coding.CohenKappaAgreement;
+import org.dkpro.statistics.agreement.coding.ICodingAnnotationStudy;
+import org.dkpro.statistics.agreement.coding.KrippendorffAlphaAgreement;
+import org.dkpro.statistics.agreement.coding.PercentageAgreement;
+import org.dkpro.statistics.agreement.distance.NominalDistanceFunction;
+import org.junit.jupiter.api.Test;
+
+public class BatchAgreementEvaluatorTest
+{
+    private static final List<Function<ICodingAnnotationStudy, IAgreementMeasure>> MEASURES = List
+            .of(PercentageAgreement::new, CohenKappaAgreement::new,
+                    s -> new KrippendorffAlphaAgreement(s, new NominalDistanceFunction()));
+
+    @Test
+    public void allCellsAreCalculated() throws InterruptedException
+    {
+        List<ICodingAnnotationStudy> studies = createStudies(200);
+        BatchAgreementEvaluator<ICodingAnnotationStudy> evaluator = new BatchAgreementEvaluator<>(
+                MEASURES);
+        evaluator.setBatchSize(7);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            evaluator.setExecutor(executor);
+            BatchEvaluationResult result = evaluator.evaluate(studies);
+
+            assertThat(result.getStudyCount()).isEqualTo(200);
+            assertThat(result.getMeasureCount()).isEqualTo(3);
+            assertThat(result.getFailureCount()).isEqualTo(0);
+            for (int studyIdx = 0; studyIdx < studies.size(); studyIdx++) {
+                for (int measureIdx = 0; measureIdx < MEASURES.size(); measureIdx++) {
+                    assertThat(result.getValue(studyIdx, measureIdx)).isEqualTo(MEASURES
+                            .get(measureIdx).apply(studies.get(studyIdx)).calculateAgreement());
+                }
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void failuresAreReportedPerCell() throws InterruptedException
+    {
+        List<ICodingAnnotationStudy> studies = createStudies(3);
+        CodingAnnotationStudy singleCategory = new CodingAnnotationStudy(2);
+        singleCategory.addItem("A", "A");
+        studies.add(1, singleCategory);
+        CodingAnnotationStudy threeRaters = new CodingAnnotationStudy(3);
+        threeRaters.addItem("A", "B", "A");
+        threeRaters.addItem("B", "B", "B");
+        studies.add(threeRaters);
+
+        BatchEvaluationResult result = new BatchAgreementEvaluator<ICodingAnnotationStudy>(
+                MEASURES).evaluate(studies);
+
+        assertThat(result.getFailure(1, 0)).isInstanceOf(InsufficientDataException.class);
+        assertThat(result.getValue(1, 0)).isNaN();
+        // Cohen's kappa is limited to two raters.
+        assertThat(result.getFailure(4, 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(result.isFailed(4, 2)).isFalse();
+        assertThat(result.isFailed(2, 1)).isFalse();
+        assertThat(result.getFailureCount()).isEqualTo(4);
+    }
+
+    @Test
+    public void resultsAreStreamedToTheHandler() throws InterruptedException
+    {
+        AtomicInteger values = new AtomicInteger();
+        IBatchResultHandler handler = new IBatchResultHandler()
+        {
+            @Override
+            public void handleResult(int studyIdx, int measureIdx, double value)
+            {
+                values.incrementAndGet();
+            }
+
+            @Override
+            public void handleFailure(int studyIdx, int measureIdx,
+                    final RuntimeException failure)
+            {
+                throw new IllegalStateException("Unexpected failure", failure);
+            }
+        };
+        new BatchAgreementEvaluator<ICodingAnnotationStudy>(MEASURES).evaluate(createStudies(50),
+                handler);
+        assertThat(values.get()).isEqualTo(150);
+
+        // Exceptions of the handler abort the batch.
+        List<ICodingAnnotationStudy> studies = createStudies(5);
+        CodingAnnotationStudy singleCategory = new CodingAnnotationStudy(2);
+        singleCategory.addItem("A", "A");
+        studies.add(singleCategory);
+        assertThatExceptionOfType(IllegalStateException.class)
+                .isThrownBy(() -> new BatchAgreementEvaluator<ICodingAnnotationStudy>(MEASURES)
+                        .evaluate(studies, handler));
+    }
+
+    private static List<ICodingAnnotationStudy> createStudies(int count)
+    {
+        Random random = new Random(count);
+        List<ICodingAnnotationStudy> result = new ArrayList<ICodingAnnotationStudy>();
+        for (int i = 0; i < count; i++) {
+            CodingAnnotationStudy study = new CodingAnnotationStudy(2);
+            study.addItem("A", "B");
+            for (int itemIdx = 0; itemIdx < 20; itemIdx++) {
+                String category = random.nextBoolean() ? "A" : "B";
+                study.addItem(category, random.nextInt(4) == 0 ? "C" : category);
+            }
+            result.add(study);
+        }
+        return result;
+    }
+}
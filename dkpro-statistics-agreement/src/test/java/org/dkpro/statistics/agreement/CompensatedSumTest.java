@@ -0,0 +1,46 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link CompensatedSum}.
+ */
+public class CompensatedSumTest
+{
+    @Test
+    public void testCancellation()
+    {
+        // A naive summation yields 0.0, since 1.0 is lost when added to 1e100.
+        CompensatedSum sum = new CompensatedSum();
+        sum.add(1.0).add(1e100).add(1.0).add(-1e100);
+        assertThat(sum.getSum()).isEqualTo(2.0);
+    }
+
+    @Test
+    public void testManySummands()
+    {
+        CompensatedSum sum = new CompensatedSum();
+        double naive = 0.0;
+        for (int i = 0; i < 10_000_000; i++) {
+            sum.add(0.1);
+            naive += 0.1;
+        }
+        assertThat(sum.getSum()).isEqualTo(1_000_000.0);
+        assertThat(naive).isNotEqualTo(1_000_000.0);
+    }
+}
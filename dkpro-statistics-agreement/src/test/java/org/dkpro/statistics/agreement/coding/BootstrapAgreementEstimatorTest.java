@@ -0,0 +1,153 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.coding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.offset;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import org.dkpro.statistics.agreement.ConfidenceInterval;
+import org.dkpro.statistics.agreement.distance.NominalDistanceFunction;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link BootstrapAgreementEstimator}.
+ */
+public class BootstrapAgreementEstimatorTest
+{
+    @Test
+    public void testIntervals()
+    {
+        ICodingAnnotationStudy study = Krippendorff2004Test.createExample2();
+        BootstrapAgreementEstimator estimator = new BootstrapAgreementEstimator(study,
+                s -> new KrippendorffAlphaAgreement(s, new NominalDistanceFunction()));
+        estimator.setSeed(42);
+        estimator.setReplicateCount(500);
+        BootstrapResult result = estimator.estimate();
+
+        double alpha = new KrippendorffAlphaAgreement(study, new NominalDistanceFunction())
+                .calculateAgreement();
+        assertThat(result.getEstimate()).isEqualTo(alpha);
+        assertThat(result.getReplicateCount()).isGreaterThan(400);
+        assertThat(result.getStandardError()).isGreaterThan(0.0);
+
+        ConfidenceInterval percentile = result.getPercentileInterval(0.95);
+        assertThat(percentile.getLowerBound()).isLessThan(alpha);
+        assertThat(percentile.getUpperBound()).isGreaterThan(alpha);
+        assertThat(percentile.getConfidenceLevel()).isEqualTo(0.95);
+        assertThat(result.getPercentileInterval(0.5).getWidth())
+                .isLessThan(percentile.getWidth());
+
+        ConfidenceInterval bca = result.getBcaInterval(0.95);
+        assertThat(bca.getLowerBound()).isLessThan(alpha);
+        assertThat(bca.getUpperBound()).isGreaterThanOrEqualTo(alpha);
+    }
+
+    @Test
+    public void testReproducibility()
+    {
+        ICodingAnnotationStudy study = MultiRaterAgreementTest.createExample();
+        BootstrapAgreementEstimator estimator = new BootstrapAgreementEstimator(study,
+                FleissKappaAgreement::new);
+        estimator.setSeed(7);
+        estimator.setReplicateCount(100);
+        BootstrapResult result1 = estimator.estimate();
+
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            estimator.setPool(pool);
+            BootstrapResult result2 = estimator.estimate();
+            assertThat(result2.getReplicates()).isEqualTo(result1.getReplicates());
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testWeightedReplicate()
+    {
+        // Doubling all items must not change the agreement.
+        ICodingAnnotationStudy study = Krippendorff1980Test.createExample1();
+        CodingStudyStatistics statistics = study.getStatistics();
+        CodingStudyStatistics doubled = statistics.createEmpty();
+        for (int[] codes : statistics.encodeItems(study)) {
+            doubled.addItem(codes, 2.0);
+        }
+        assertThat(doubled.getItemCount()).isEqualTo(2.0 * study.getItemCount());
+        assertThat(new PercentageAgreement(new StatisticsCodingAnnotationStudy(doubled))
+                .calculateAgreement()).isCloseTo(
+                        new PercentageAgreement(study).calculateAgreement(), offset(1e-12));
+    }
+
+    @Test
+    public void testWeightedStudy()
+    {
+        CodingAnnotationStudy expanded = new CodingAnnotationStudy(2);
+        WeightedCodingAnnotationStudy weighted = new WeightedCodingAnnotationStudy(2);
+        Object[][] patterns = { { "A", "A" }, { "A", "B" }, { "B", "B" }, { "B", "A" } };
+        int[] counts = { 50, 3, 40, 7 };
+        for (int i = 0; i < patterns.length; i++) {
+            expanded.addMultipleItems(counts[i], patterns[i]);
+            weighted.addMultipleItems(counts[i], patterns[i]);
+        }
+
+        BootstrapAgreementEstimator expandedEstimator = new BootstrapAgreementEstimator(expanded,
+                CohenKappaAgreement::new);
+        expandedEstimator.setSeed(3);
+        expandedEstimator.setReplicateCount(2000);
+        BootstrapResult expandedResult = expandedEstimator.estimate();
+        BootstrapAgreementEstimator estimator = new BootstrapAgreementEstimator(weighted,
+                CohenKappaAgreement::new);
+        estimator.setSeed(3);
+        estimator.setReplicateCount(2000);
+        BootstrapResult result = estimator.estimate();
+
+        // The replicates are centered on the estimate and spread like those of the expanded study.
+        assertThat(result.getEstimate()).isCloseTo(expandedResult.getEstimate(), offset(1e-12));
+        double mean = Arrays.stream(result.getReplicates()).average().getAsDouble();
+        assertThat(mean).isCloseTo(result.getEstimate(), offset(0.01));
+        assertThat(result.getStandardError())
+                .isCloseTo(expandedResult.getStandardError(), offset(0.01));
+
+        // Given the same replicates, the weighted jackknife yields the same BCa interval.
+        double[] replicates = expandedResult.getReplicates();
+        JackknifeAgreementAnalysis jackknife = new JackknifeAgreementAnalysis(weighted,
+                CohenKappaAgreement::new);
+        ConfidenceInterval interval = new BootstrapResult(result.getEstimate(), replicates,
+                jackknife.calculateJackknifeValues(), jackknife.getItemWeights())
+                        .getBcaInterval(0.95);
+        ConfidenceInterval expandedInterval = expandedResult.getBcaInterval(0.95);
+        assertThat(interval.getLowerBound())
+                .isCloseTo(expandedInterval.getLowerBound(), offset(1e-12));
+        assertThat(interval.getUpperBound())
+                .isCloseTo(expandedInterval.getUpperBound(), offset(1e-12));
+    }
+
+    @Test
+    public void testItemBasedMeasure()
+    {
+        ICodingAnnotationStudy study = JackknifeAgreementAnalysisTest.createSetExample();
+        assertThat(new MaxPercentageAgreement(study).calculateAgreement()).isGreaterThan(0.0);
+
+        BootstrapAgreementEstimator estimator = new BootstrapAgreementEstimator(study,
+                MaxPercentageAgreement::new);
+        estimator.setPool(new ForkJoinPool(2));
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(estimator::estimate);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.coding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+import org.dkpro.statistics.agreement.distance.IDistanceFunction;
+import org.dkpro.statistics.agreement.distance.IntervalDistanceFunction;
+import org.dkpro.statistics.agreement.distance.OrdinalDistanceFunction;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link CategoryDistanceMatrix}.
+ */
+public class CategoryDistanceMatrixTest
+{
+    @Test
+    public void testCompile()
+    {
+        CodingAnnotationStudy study = Krippendorff2004Test.createExample3();
+        CodingStudyStatistics statistics = study.getStatistics();
+        IDistanceFunction distanceFunction = new IntervalDistanceFunction();
+        CategoryDistanceMatrix matrix = new CategoryDistanceMatrix(distanceFunction, study);
+
+        assertThat(matrix.getCategoryCount()).isEqualTo(study.getCategoryCount());
+        double maximum = Double.NEGATIVE_INFINITY;
+        for (Object category1 : study.getCategories()) {
+            for (Object category2 : study.getCategories()) {
+                double distance = distanceFunction.measureDistance(study, category1, category2);
+                assertThat(matrix.getDistance(statistics.getCategoryCode(category1),
+                        statistics.getCategoryCode(category2))).isEqualTo(distance);
+                maximum = Math.max(maximum, distance);
+            }
+        }
+        assertThat(matrix.getMaximumDistance()).isEqualTo(maximum);
+    }
+
+    @Test
+    public void testRecompileAfterUpdate()
+    {
+        IncrementalCodingAnnotationStudy study = new IncrementalCodingAnnotationStudy(
+                Krippendorff1980Test.createExample1());
+        KrippendorffAlphaAgreement alpha = new KrippendorffAlphaAgreement(study,
+                new OrdinalDistanceFunction());
+        alpha.calculateAgreement();
+
+        // The ordinal distance depends on the category frequencies.
+        study.setAnnotation(0, 1, 3);
+        study.addItem(1, 3);
+        CodingAnnotationStudy expected = new CodingAnnotationStudy(study.getRaterCount());
+        for (Object category : study.getCategories()) {
+            expected.addCategory(category);
+        }
+        Object[] annotations = new Object[study.getRaterCount()];
+        for (ICodingAnnotationItem item : study.getItems()) {
+            for (int raterIdx = 0; raterIdx < annotations.length; raterIdx++) {
+                annotations[raterIdx] = item.getUnit(raterIdx).getCategory();
+            }
+            expected.addItemAsArray(annotations);
+        }
+        assertThat(alpha.calculateAgreement()).isCloseTo(
+                new KrippendorffAlphaAgreement(expected, new OrdinalDistanceFunction())
+                        .calculateAgreement(),
+                offset(1e-12));
+    }
+}
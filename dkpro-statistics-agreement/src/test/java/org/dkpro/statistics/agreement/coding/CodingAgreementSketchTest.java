@@ -0,0 +1,197 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.coding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.offset;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Random;
+
+import org.dkpro.statistics.agreement.distance.IntervalDistanceFunction;
+import org.dkpro.statistics.agreement.distance.NominalDistanceFunction;
+import org.junit.jupiter.api.Test;
+
+public class CodingAgreementSketchTest
+{
+    @Test
+    public void mergedShardsYieldAgreementOfFullStudy()
+        throws Exception
+    {
+        Object[][] items = createItems(3, 600, 7);
+        CodingAnnotationStudy study = new CodingAnnotationStudy(3);
+        CodingAnnotationStudy[] shardStudies = new CodingAnnotationStudy[3];
+        for (int shard = 0; shard < 3; shard++) {
+            shardStudies[shard] = new CodingAnnotationStudy(3);
+        }
+        CodingAgreementSketch itemSketch = new CodingAgreementSketch(3);
+        for (int itemIdx = 0; itemIdx < items.length; itemIdx++) {
+            study.addItemAsArray(items[itemIdx]);
+            shardStudies[itemIdx % 3].addItemAsArray(items[itemIdx]);
+            if (itemIdx % 3 == 2) {
+                itemSketch.addItem(items[itemIdx]);
+            }
+        }
+
+        // Shards are sketched, serialized, and merged in different groupings.
+        CodingAgreementSketch[] sketches = new CodingAgreementSketch[3];
+        for (int shard = 0; shard < 2; shard++) {
+            sketches[shard] = serializeAndDeserialize(
+                    new CodingAgreementSketch(shardStudies[shard]));
+        }
+        sketches[2] = serializeAndDeserialize(itemSketch);
+        CodingAgreementSketch left = new CodingAgreementSketch(3).merge(sketches[0])
+                .merge(sketches[1]).merge(sketches[2]);
+        CodingAgreementSketch right = new CodingAgreementSketch(3)
+                .merge(new CodingAgreementSketch(3).merge(sketches[2]).merge(sketches[1]))
+                .merge(sketches[0]);
+
+        for (CodingAgreementSketch sketch : new CodingAgreementSketch[] { left, right }) {
+            assertThat(sketch.getItemCount()).isEqualTo(600.0);
+            assertThat(sketch.getCategoryCount()).isEqualTo(study.getCategoryCount());
+            assertThat(sketch.calculateAgreement(PercentageAgreement::new)).isCloseTo(
+                    new PercentageAgreement(study).calculateAgreement(), offset(1e-12));
+            assertThat(sketch.calculateAgreement(FleissKappaAgreement::new)).isCloseTo(
+                    new FleissKappaAgreement(study).calculateAgreement(), offset(1e-12));
+            assertThat(sketch.calculateAgreement(
+                    s -> new KrippendorffAlphaAgreement(s, new NominalDistanceFunction())))
+                            .isCloseTo(new KrippendorffAlphaAgreement(study,
+                                    new NominalDistanceFunction()).calculateAgreement(),
+                                    offset(1e-12));
+            assertThat(sketch.calculateAgreement(
+                    s -> new KrippendorffAlphaAgreement(s, new IntervalDistanceFunction())))
+                            .isCloseTo(new KrippendorffAlphaAgreement(study,
+                                    new IntervalDistanceFunction()).calculateAgreement(),
+                                    offset(1e-12));
+        }
+
+        // The sketches are independent of the merged sketches.
+        assertThat(sketches[0].getItemCount()).isEqualTo(200.0);
+    }
+
+    @Test
+    public void serializedFormOnlyContainsUsedCategoryPairs()
+        throws Exception
+    {
+        // 200 categories with 200 coincidences, stored in a dense table with 256 * 256 slots.
+        CodingAgreementSketch sketch = new CodingAgreementSketch(2);
+        for (int category = 0; category < 200; category++) {
+            sketch.addItem(category, category);
+        }
+        assertThat(serialize(sketch).length).isLessThan(50000);
+
+        CodingAgreementSketch result = serializeAndDeserialize(sketch);
+        assertThat(result.getCategoryCount()).isEqualTo(200);
+        assertThat(result.getStatistics().getCoincidence(
+                result.getStatistics().getCategoryCode(123),
+                result.getStatistics().getCategoryCode(123))).isEqualTo(2.0);
+        result.addItem(123, 7);
+        assertThat(result.getItemCount()).isEqualTo(201.0);
+        assertThat(result.calculateAgreement(PercentageAgreement::new))
+                .isCloseTo(200.0 / 201.0, offset(1e-12));
+    }
+
+    @Test
+    public void declaredCategoriesDefineTheScale()
+    {
+        CodingAnnotationStudy study = new CodingAnnotationStudy(2);
+        study.addCategory("C");
+        study.addMultipleItems(10, "A", "A");
+        study.addMultipleItems(3, "A", "B");
+        study.addMultipleItems(7, "B", "B");
+
+        // Each shard declares the complete scale, including the unused category C.
+        CodingAgreementSketch first = new CodingAgreementSketch(2);
+        CodingAgreementSketch second = new CodingAgreementSketch(2);
+        for (CodingAgreementSketch sketch : new CodingAgreementSketch[] { first, second }) {
+            for (Object category : study.getCategories()) {
+                sketch.addCategory(category);
+            }
+        }
+        for (int i = 0; i < 10; i++) {
+            first.addItem("A", "A");
+        }
+        for (int i = 0; i < 3; i++) {
+            second.addItem("A", "B");
+        }
+        for (int i = 0; i < 7; i++) {
+            second.addItem("B", "B");
+        }
+        first.merge(second);
+
+        assertThat(first.getCategoryCount()).isEqualTo(3);
+        assertThat(first.getItemCount()).isEqualTo(20.0);
+        assertThat(first.calculateAgreement(GwetAC1Agreement::new)).isCloseTo(
+                new GwetAC1Agreement(study).calculateAgreement(), offset(1e-12));
+        assertThat(first.calculateAgreement(BennettSAgreement::new)).isCloseTo(
+                new BennettSAgreement(study).calculateAgreement(), offset(1e-12));
+        assertThat(first.calculateAgreement(RandolphKappaAgreement::new)).isCloseTo(
+                new RandolphKappaAgreement(study).calculateAgreement(), offset(1e-12));
+        assertThat(new CodingAgreementSketch(study).getCategoryCount()).isEqualTo(3);
+        assertThatExceptionOfType(NullPointerException.class)
+                .isThrownBy(() -> first.addCategory(null));
+    }
+
+    @Test
+    public void raterCountMustMatch()
+    {
+        CodingAgreementSketch sketch = new CodingAgreementSketch(2);
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> sketch.merge(new CodingAgreementSketch(3)));
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> sketch.addItem("A", "B", "C"));
+    }
+
+    private static byte[] serialize(final CodingAgreementSketch sketch)
+        throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(sketch);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static CodingAgreementSketch serializeAndDeserialize(
+            final CodingAgreementSketch sketch)
+        throws IOException, ClassNotFoundException
+    {
+        try (ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(serialize(sketch)))) {
+            return (CodingAgreementSketch) in.readObject();
+        }
+    }
+
+    private static Object[][] createItems(int raterCount, int itemCount, long seed)
+    {
+        Random random = new Random(seed);
+        Object[][] result = new Object[itemCount][raterCount];
+        for (int itemIdx = 0; itemIdx < itemCount; itemIdx++) {
+            int category = 1 + random.nextInt(5);
+            for (int raterIdx = 0; raterIdx < raterCount; raterIdx++) {
+                if (random.nextInt(8) == 0) {
+                    continue;
+                }
+                result[itemIdx][raterIdx] = (random.nextInt(4) == 0
+                        ? 1 + random.nextInt(5) : category);
+            }
+        }
+        return result;
+    }
+}
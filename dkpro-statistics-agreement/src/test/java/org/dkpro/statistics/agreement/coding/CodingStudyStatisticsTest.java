@@ -0,0 +1,210 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.coding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+import java.util.Map;
+
+import org.dkpro.statistics.agreement.distance.NominalDistanceFunction;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link CodingStudyStatistics}.
+ */
+public class CodingStudyStatisticsTest
+{
+    @Test
+    public void testCounts()
+    {
+        CodingAnnotationStudy study = new CodingAnnotationStudy(3);
+        study.addItem("A", "A", "B");
+        study.addItem("B", null, "B");
+        study.addItem(null, "A", null);
+        study.addCategory("C");
+
+        CodingStudyStatistics statistics = study.getStatistics();
+        int a = statistics.getCategoryCode("A");
+        int b = statistics.getCategoryCode("B");
+        int c = statistics.getCategoryCode("C");
+        assertThat(statistics.getCategoryCount()).isEqualTo(3);
+        assertThat(statistics.getCategory(b)).isEqualTo("B");
+        assertThat(statistics.getCategoryCode(null))
+                .isEqualTo(IEncodedCodingAnnotationStudy.MISSING);
+
+        assertThat(statistics.getItemCount()).isEqualTo(3.0);
+        assertThat(statistics.getUnitCount()).isEqualTo(6.0);
+        assertThat(statistics.getPairableUnitCount()).isEqualTo(5.0);
+
+        assertThat(statistics.getAnnotationCount(a)).isEqualTo(3.0);
+        assertThat(statistics.getAnnotationCount(a, 0)).isEqualTo(1.0);
+        assertThat(statistics.getAnnotationCount(a, 1)).isEqualTo(2.0);
+        assertThat(statistics.getAnnotationCount(c)).isEqualTo(0.0);
+        assertThat(statistics.getPairableAnnotationCount(a)).isEqualTo(2.0);
+        assertThat(statistics.getAnnotationCountByItemRaterCount(a, 1)).isEqualTo(1.0);
+        assertThat(statistics.getAnnotationCountByItemRaterCount(b, 2)).isEqualTo(2.0);
+        assertThat(statistics.getScaledAnnotationCount(a)).isEqualTo(1.0);
+        assertThat(statistics.getScaledAnnotationCount(b)).isEqualTo(2.5);
+
+        assertThat(statistics.getCooccurrence(a, a)).isEqualTo(5.0);
+        assertThat(statistics.getCooccurrence(a, b)).isEqualTo(2.0);
+        assertThat(statistics.getCoincidence(a, a)).isEqualTo(1.0);
+        assertThat(statistics.getCoincidence(a, b)).isEqualTo(1.0);
+        assertThat(statistics.getCoincidence(b, b)).isEqualTo(2.0);
+        assertThat(statistics.getCoincidence(a, c)).isEqualTo(0.0);
+    }
+
+    @Test
+    public void testCaching()
+    {
+        CodingAnnotationStudy study = new CodingAnnotationStudy(2);
+        study.addItem("A", "A");
+        study.addItem("A", "B");
+
+        CodingStudyStatistics statistics = study.getStatistics();
+        assertThat(study.getStatistics()).isSameAs(statistics);
+
+        study.addItem("B", "B");
+        CodingStudyStatistics newStatistics = study.getStatistics();
+        assertThat(newStatistics).isNotSameAs(statistics);
+        assertThat(newStatistics.getItemCount()).isEqualTo(3.0);
+        assertThat(statistics.getItemCount()).isEqualTo(2.0);
+
+        ColumnarCodingAnnotationStudy columnar = new ColumnarCodingAnnotationStudy(study);
+        statistics = columnar.getStatistics();
+        assertThat(columnar.getStatistics()).isSameAs(statistics);
+        columnar.addItem("B", "A");
+        assertThat(columnar.getStatistics().getItemCount()).isEqualTo(4.0);
+    }
+
+    @Test
+    public void testManyCategories()
+    {
+        // More categories than CategoryPairTable stores densely.
+        int categoryCount = 1000;
+        CodingAnnotationStudy study = new CodingAnnotationStudy(3);
+        for (int i = 0; i < categoryCount; i++) {
+            study.addItem(i, i, (i * 7) % categoryCount);
+        }
+
+        CodingStudyStatistics statistics = study.getStatistics();
+        int code1 = statistics.getCategoryCode(10);
+        int code2 = statistics.getCategoryCode(70);
+        assertThat(statistics.getCoincidence(code1, code1)).isEqualTo(1.0);
+        assertThat(statistics.getCoincidence(code1, code2)).isEqualTo(1.0);
+        assertThat(statistics.getCoincidence(code2, code1)).isEqualTo(1.0);
+        assertThat(statistics.getCoincidence(code2, code2)).isEqualTo(1.0);
+        assertThat(CodingAnnotationStudy.countCategoryCoincidence(study).get(10))
+                .containsEntry(10, 1.0).containsEntry(70, 1.0).containsEntry(430, 1.0)
+                .hasSize(3);
+
+        ColumnarCodingAnnotationStudy columnar = new ColumnarCodingAnnotationStudy(study);
+        assertThat(new KrippendorffAlphaAgreement(columnar, new NominalDistanceFunction())
+                .calculateAgreement()).isCloseTo(
+                        new KrippendorffAlphaAgreement(study, new NominalDistanceFunction())
+                                .calculateAgreement(),
+                        offset(1e-12));
+    }
+
+    @Test
+    public void testCoincidenceTables()
+    {
+        for (int categoryCount : new int[] { 5, 500 }) {
+            CodingAnnotationStudy study = new CodingAnnotationStudy(4);
+            for (int i = 0; i < categoryCount; i++) {
+                study.addItem(i, i, (i + 1) % categoryCount, null);
+                study.addItem(i, (i * 3) % categoryCount, i, i);
+            }
+
+            CodingStudyStatistics statistics = study.getStatistics();
+            CategoryPairTable coincidence = statistics.getCoincidenceTable();
+            assertThat(coincidence.isDense()).isEqualTo(categoryCount <= 256);
+            assertThat(coincidence.getCategoryCount()).isEqualTo(categoryCount);
+            Map<Object, Map<Object, Double>> expected = CodingAnnotationStudy
+                    .countCategoryCoincidence(study);
+            assertSameCoincidence(statistics, coincidence, expected);
+
+            KrippendorffAlphaAgreement alpha = new KrippendorffAlphaAgreement(study,
+                    new NominalDistanceFunction());
+            double D_E = alpha.calculateExpectedDisagreement();
+            for (ICodingAnnotationItem item : study.getItems()) {
+                Map<Object, Map<Object, Double>> itemCoincidence = CodingAnnotationStudy
+                        .countCategoryCoincidence(item);
+                assertSameCoincidence(statistics, statistics.countCoincidence(item),
+                        itemCoincidence);
+
+                double n = 0.0;
+                double D_O = 0.0;
+                for (Map.Entry<Object, Map<Object, Double>> row : itemCoincidence.entrySet()) {
+                    for (Map.Entry<Object, Double> cell : row.getValue().entrySet()) {
+                        n += cell.getValue();
+                        D_O += (row.getKey().equals(cell.getKey()) ? 0.0 : cell.getValue());
+                    }
+                }
+                assertThat(alpha.calculateItemAgreement(item))
+                        .isCloseTo(1.0 - D_O / n / D_E, offset(1e-12));
+            }
+        }
+    }
+
+    private static void assertSameCoincidence(final CodingStudyStatistics statistics,
+            final CategoryPairTable actual, final Map<Object, Map<Object, Double>> expected)
+    {
+        int entries = 0;
+        for (int slot = 0; slot < actual.getSlotCount(); slot++) {
+            if (actual.isUsed(slot)) {
+                Object category1 = statistics.getCategory(actual.getCode1(slot));
+                Object category2 = statistics.getCategory(actual.getCode2(slot));
+                assertThat(actual.getValue(slot))
+                        .isCloseTo(expected.get(category1).get(category2), offset(1e-12));
+                assertThat(actual.get(actual.getCode1(slot), actual.getCode2(slot)))
+                        .isEqualTo(actual.getValue(slot));
+                entries++;
+            }
+        }
+        assertThat(entries).isEqualTo(expected.values().stream().mapToInt(Map::size).sum());
+    }
+
+    @Test
+    public void testRedefinedItemAgreement()
+    {
+        CodingAnnotationStudy study = new CodingAnnotationStudy(2);
+        study.addItem("A", "A");
+        study.addItem("A", "B");
+        study.addItem("B", "C");
+        study.addItem("C", "C");
+
+        // A subclass that redefines the item agreement (here: full agreement for all items) uses
+        // the item-wise observed agreement by default.
+        CodingAgreementMeasure lenient = new CodingAgreementMeasure(study)
+        {
+            @Override
+            protected double doCalculateItemAgreement(final ICodingAnnotationItem item)
+            {
+                return item.getRaterCount();
+            }
+        };
+        assertThat(lenient.calculateObservedAgreement()).isEqualTo(1.0);
+
+        CodingAgreementMeasure strict = new CodingAgreementMeasure(study)
+        {
+        };
+        assertThat(strict.calculateObservedAgreement()).isCloseTo(0.5, offset(1e-12));
+        assertThat(strict.calculateCoincidenceObservedAgreement()).isCloseTo(0.5,
+                offset(1e-12));
+        assertThat(new PercentageAgreement(study).calculateObservedAgreement())
+                .isCloseTo(strict.calculateObservedAgreement(), offset(1e-12));
+    }
+}
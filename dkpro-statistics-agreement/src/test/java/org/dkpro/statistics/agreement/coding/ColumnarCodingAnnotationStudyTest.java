@@ -0,0 +1,222 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.coding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.offset;
+
+import java.util.Map;
+
+import org.dkpro.statistics.agreement.distance.IntervalDistanceFunction;
+import org.dkpro.statistics.agreement.distance.NominalDistanceFunction;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link ColumnarCodingAnnotationStudy} and the shortcuts of the coding measures for
+ * {@link IEncodedCodingAnnotationStudy}s.
+ */
+public class ColumnarCodingAnnotationStudyTest
+{
+    @Test
+    public void testDataModel()
+    {
+        ColumnarCodingAnnotationStudy study = new ColumnarCodingAnnotationStudy(3);
+        study.addItem("A", "B", null);
+        study.addItem("B", "B", "B");
+        study.addCategory("C");
+
+        assertThat(study.getRaterCount()).isEqualTo(3);
+        assertThat(study.getItemCount()).isEqualTo(2);
+        assertThat(study.getUnitCount()).isEqualTo(5);
+        assertThat(study.getCategoryCount()).isEqualTo(3);
+        assertThat(study.hasMissingValues()).isTrue();
+
+        assertThat(study.getCategoryCode("A")).isEqualTo(0);
+        assertThat(study.getCategoryCode("B")).isEqualTo(1);
+        assertThat(study.getCategoryCode("C")).isEqualTo(2);
+        assertThat(study.getCategoryCode("D")).isEqualTo(IEncodedCodingAnnotationStudy.MISSING);
+        assertThat(study.getCategory(2)).isEqualTo("C");
+        assertThat(study.getCode(0, 2)).isEqualTo(IEncodedCodingAnnotationStudy.MISSING);
+
+        ICodingAnnotationItem item = study.getItem(0);
+        assertThat(item.getRaterCount()).isEqualTo(2);
+        assertThat(item.getUnit(1).getCategory()).isEqualTo("B");
+        assertThat(item.getUnit(2).getCategory()).isNull();
+    }
+
+    @Test
+    public void testAddItemAsCodes()
+    {
+        ColumnarCodingAnnotationStudy study = new ColumnarCodingAnnotationStudy(2);
+        int low = study.encodeCategory("low");
+        int high = study.encodeCategory("high");
+        assertThat(study.addItemAsCodes(low, high)).isEqualTo(0);
+        int missing = IEncodedCodingAnnotationStudy.MISSING;
+        assertThat(study.addItemAsCodes(high, missing)).isEqualTo(1);
+
+        assertThat(study.getItem(0).getUnit(1).getCategory()).isEqualTo("high");
+        assertThat(study.getItem(1).getRaterCount()).isEqualTo(1);
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> study.addItemAsCodes(low, 2));
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> study.addItemAsCodes(low));
+    }
+
+    @Test
+    public void testAddRaterAfterItems()
+    {
+        ColumnarCodingAnnotationStudy study = new ColumnarCodingAnnotationStudy(2);
+        study.addItem("A", "A");
+        assertThat(study.hasMissingValues()).isFalse();
+
+        study.addRater("late");
+        study.addItem("A", "B", "B");
+        assertThat(study.hasMissingValues()).isTrue();
+        assertThat(study.getItem(0).getRaterCount()).isEqualTo(2);
+        assertThat(study.getCode(0, 2)).isEqualTo(IEncodedCodingAnnotationStudy.MISSING);
+    }
+
+    @Test
+    public void testWideningOfColumns()
+    {
+        int categoryCount = Short.MAX_VALUE + 10;
+        ColumnarCodingAnnotationStudy study = new ColumnarCodingAnnotationStudy(2);
+        for (int i = 0; i < categoryCount; i++) {
+            study.addItem(i, i);
+        }
+        study.trimToSize();
+
+        assertThat(study.getCategoryCount()).isEqualTo(categoryCount);
+        assertThat(study.getCode(categoryCount - 1, 0)).isEqualTo(categoryCount - 1);
+        assertThat(study.getItem(100).getUnit(1).getCategory()).isEqualTo(100);
+        assertThat(new PercentageAgreement(study).calculateAgreement()).isEqualTo(1.0);
+    }
+
+    @Test
+    public void testCopiedStudyYieldsSameAgreement()
+    {
+        assertSameAgreement(Krippendorff1980Test.createExample1());
+        assertSameAgreement(Krippendorff1980Test.createExample2());
+        assertSameAgreement(Krippendorff2004Test.createExample2());
+        assertSameAgreement(MultiRaterAgreementTest.createExample());
+        assertSameAgreement(NumericalStabilityTest.createExample3(10));
+    }
+
+    @Test
+    public void testCopiedStudyWithMissingValues()
+    {
+        CodingAnnotationStudy study = Krippendorff2004Test.createExample3();
+        ColumnarCodingAnnotationStudy columnar = new ColumnarCodingAnnotationStudy(study);
+        assertThat(columnar.hasMissingValues()).isTrue();
+        assertThat(columnar.getUnitCount()).isEqualTo(study.getUnitCount());
+
+        KrippendorffAlphaAgreement expected = new KrippendorffAlphaAgreement(study,
+                new NominalDistanceFunction());
+        KrippendorffAlphaAgreement actual = new KrippendorffAlphaAgreement(columnar,
+                new NominalDistanceFunction());
+        assertThat(actual.calculateObservedDisagreement())
+                .isCloseTo(expected.calculateObservedDisagreement(), offset(1e-12));
+        assertThat(actual.calculateExpectedDisagreement())
+                .isCloseTo(expected.calculateExpectedDisagreement(), offset(1e-12));
+
+        assertThat(new PercentageAgreement(columnar).calculateAgreement())
+                .isCloseTo(new PercentageAgreement(study).calculateAgreement(), offset(1e-12));
+    }
+
+    private static void assertSameAgreement(final ICodingAnnotationStudy study)
+    {
+        ColumnarCodingAnnotationStudy columnar = new ColumnarCodingAnnotationStudy(study);
+        assertThat(columnar.getItemCount()).isEqualTo(study.getItemCount());
+        assertThat(columnar.getCategoryCount()).isEqualTo(study.getCategoryCount());
+
+        assertThat(new PercentageAgreement(columnar).calculateAgreement())
+                .isCloseTo(new PercentageAgreement(study).calculateAgreement(), offset(1e-12));
+        assertThat(new FleissKappaAgreement(columnar).calculateAgreement())
+                .isCloseTo(new FleissKappaAgreement(study).calculateAgreement(), offset(1e-12));
+        assertThat(new HubertKappaAgreement(columnar).calculateAgreement())
+                .isCloseTo(new HubertKappaAgreement(study).calculateAgreement(), offset(1e-12));
+        assertThat(new RandolphKappaAgreement(columnar).calculateAgreement())
+                .isCloseTo(new RandolphKappaAgreement(study).calculateAgreement(), offset(1e-12));
+        assertThat(new KrippendorffAlphaAgreement(columnar, new NominalDistanceFunction())
+                .calculateAgreement()).isCloseTo(
+                        new KrippendorffAlphaAgreement(study, new NominalDistanceFunction())
+                                .calculateAgreement(),
+                        offset(1e-12));
+        assertThat(new WeightedKappaAgreement(columnar, new NominalDistanceFunction())
+                .calculateAgreement()).isCloseTo(
+                        new WeightedKappaAgreement(study, new NominalDistanceFunction())
+                                .calculateAgreement(),
+                        offset(1e-12));
+        assertThat(new GwetAC2Agreement(columnar, new NominalDistanceFunction())
+                .calculateAgreement()).isCloseTo(
+                        new GwetAC2Agreement(study, new NominalDistanceFunction())
+                                .calculateAgreement(),
+                        offset(1e-12));
+
+        Map<Object, Double> fleiss = new FleissKappaAgreement(columnar)
+                .calculateCategoryAgreements();
+        Map<Object, Double> percentage = new PercentageAgreement(columnar)
+                .calculateCategoryAgreements();
+        Map<Object, Double> alpha = new KrippendorffAlphaAgreement(columnar,
+                new NominalDistanceFunction()).calculateCategoryAgreements();
+        assertThat(fleiss).hasSize(study.getCategoryCount());
+        for (Object category : study.getCategories()) {
+            assertThat(fleiss.get(category)).isCloseTo(
+                    new FleissKappaAgreement(study).calculateCategoryAgreement(category),
+                    offset(1e-12));
+            assertThat(percentage.get(category)).isCloseTo(
+                    new PercentageAgreement(study).calculateCategoryAgreement(category),
+                    offset(1e-12));
+            assertThat(alpha.get(category)).isCloseTo(
+                    new KrippendorffAlphaAgreement(study, new NominalDistanceFunction())
+                            .calculateCategoryAgreement(category),
+                    offset(1e-12));
+            assertThat(new FleissKappaAgreement(columnar).calculateCategoryAgreement(category))
+                    .isCloseTo(new FleissKappaAgreement(study).calculateCategoryAgreement(category),
+                            offset(1e-12));
+            assertThat(new PercentageAgreement(columnar).calculateCategoryAgreement(category))
+                    .isCloseTo(new PercentageAgreement(study).calculateCategoryAgreement(category),
+                            offset(1e-12));
+            assertThat(new KrippendorffAlphaAgreement(columnar, new NominalDistanceFunction())
+                    .calculateCategoryAgreement(category)).isCloseTo(
+                            new KrippendorffAlphaAgreement(study, new NominalDistanceFunction())
+                                    .calculateCategoryAgreement(category),
+                            offset(1e-12));
+        }
+
+        if (study.getRaterCount() == 2) {
+            assertThat(new CohenKappaAgreement(columnar).calculateAgreement())
+                    .isCloseTo(new CohenKappaAgreement(study).calculateAgreement(), offset(1e-12));
+            assertThat(new ScottPiAgreement(columnar).calculateAgreement())
+                    .isCloseTo(new ScottPiAgreement(study).calculateAgreement(), offset(1e-12));
+            Map<Object, Double> kappa = new CohenKappaAgreement(columnar)
+                    .calculateCategoryAgreements();
+            for (Object category : study.getCategories()) {
+                assertThat(kappa.get(category)).isCloseTo(
+                        new CohenKappaAgreement(study).calculateCategoryAgreement(category),
+                        offset(1e-12));
+            }
+        }
+
+        Object first = study.getCategories().iterator().next();
+        if (first instanceof Integer) {
+            assertThat(new KrippendorffAlphaAgreement(columnar, new IntervalDistanceFunction())
+                    .calculateAgreement()).isCloseTo(
+                            new KrippendorffAlphaAgreement(study, new IntervalDistanceFunction())
+                                    .calculateAgreement(),
+                            offset(1e-12));
+        }
+    }
+}
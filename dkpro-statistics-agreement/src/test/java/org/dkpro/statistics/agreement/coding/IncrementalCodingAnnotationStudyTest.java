@@ -0,0 +1,134 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.coding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+import org.dkpro.statistics.agreement.distance.IntervalDistanceFunction;
+import org.dkpro.statistics.agreement.distance.NominalDistanceFunction;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link IncrementalCodingAnnotationStudy}.
+ */
+public class IncrementalCodingAnnotationStudyTest
+{
+    @Test
+    public void testAddItems()
+    {
+        CodingAnnotationStudy expected = Krippendorff2004Test.createExample3();
+        IncrementalCodingAnnotationStudy study = new IncrementalCodingAnnotationStudy(
+                expected.getRaterCount());
+        Object[] annotations = new Object[expected.getRaterCount()];
+        for (ICodingAnnotationItem item : expected.getItems()) {
+            for (int raterIdx = 0; raterIdx < annotations.length; raterIdx++) {
+                annotations[raterIdx] = item.getUnit(raterIdx).getCategory();
+            }
+            study.addItemAsArray(annotations);
+        }
+
+        assertSameAgreement(expected, study);
+        assertThat(study.getStatistics()).isSameAs(study.getStatistics());
+    }
+
+    @Test
+    public void testSetAnnotation()
+    {
+        IncrementalCodingAnnotationStudy study = new IncrementalCodingAnnotationStudy(
+                Krippendorff1980Test.createExample1());
+        study.setAnnotation(0, 1, 3);
+        study.setAnnotation(2, 0, null);
+        study.setAnnotation(3, 1, 7);
+
+        CodingAnnotationStudy expected = copy(study);
+        assertThat(study.getCategoryCount()).isEqualTo(expected.getCategoryCount());
+        assertThat(study.getCode(2, 0)).isEqualTo(IEncodedCodingAnnotationStudy.MISSING);
+        assertSameAgreement(expected, study);
+    }
+
+    @Test
+    public void testRemoveItem()
+    {
+        IncrementalCodingAnnotationStudy study = new IncrementalCodingAnnotationStudy(
+                Krippendorff2004Test.createExample3());
+        int itemCount = study.getItemCount();
+        Object last = study.getItem(itemCount - 1).getUnit(0).getCategory();
+        study.removeItem(1);
+        study.removeItem(0);
+        study.removeItem(study.getItemCount() - 1);
+
+        assertThat(study.getItemCount()).isEqualTo(itemCount - 3);
+        assertThat(study.getItem(1).getUnit(0).getCategory()).isEqualTo(last);
+        assertSameAgreement(copy(study), study);
+    }
+
+    @Test
+    public void testAddRater()
+    {
+        IncrementalCodingAnnotationStudy study = new IncrementalCodingAnnotationStudy(2);
+        study.addItem("A", "A");
+        study.addItem("A", "B");
+        study.addRater("late");
+        study.addItem("B", "B", "B");
+        study.setAnnotation(0, 2, "C");
+
+        assertThat(study.getStatistics().getAnnotationCount(study.getCategoryCode("C"), 2))
+                .isEqualTo(1.0);
+        assertSameAgreement(copy(study), study);
+    }
+
+    private static CodingAnnotationStudy copy(final ICodingAnnotationStudy study)
+    {
+        CodingAnnotationStudy result = new CodingAnnotationStudy(study.getRaterCount());
+        for (Object category : study.getCategories()) {
+            result.addCategory(category);
+        }
+        Object[] annotations = new Object[study.getRaterCount()];
+        for (ICodingAnnotationItem item : study.getItems()) {
+            for (int raterIdx = 0; raterIdx < annotations.length; raterIdx++) {
+                annotations[raterIdx] = item.getUnit(raterIdx).getCategory();
+            }
+            result.addItemAsArray(annotations);
+        }
+        return result;
+    }
+
+    private static void assertSameAgreement(final ICodingAnnotationStudy expected,
+            final IncrementalCodingAnnotationStudy actual)
+    {
+        assertThat(actual.getItemCount()).isEqualTo(expected.getItemCount());
+        assertThat(actual.getUnitCount()).isEqualTo(expected.getUnitCount());
+        assertThat(actual.getStatistics().getPairableUnitCount())
+                .isEqualTo(expected.getStatistics().getPairableUnitCount());
+
+        assertThat(new PercentageAgreement(actual).calculateAgreement())
+                .isCloseTo(new PercentageAgreement(expected).calculateAgreement(), offset(1e-12));
+        assertThat(new FleissKappaAgreement(actual).calculateAgreement())
+                .isCloseTo(new FleissKappaAgreement(expected).calculateAgreement(), offset(1e-12));
+        assertThat(new KrippendorffAlphaAgreement(actual, new NominalDistanceFunction())
+                .calculateAgreement()).isCloseTo(
+                        new KrippendorffAlphaAgreement(expected, new NominalDistanceFunction())
+                                .calculateAgreement(),
+                        offset(1e-12));
+        Object first = expected.getCategories().iterator().next();
+        if (first instanceof Integer) {
+            assertThat(new KrippendorffAlphaAgreement(actual, new IntervalDistanceFunction())
+                    .calculateAgreement()).isCloseTo(
+                            new KrippendorffAlphaAgreement(expected,
+                                    new IntervalDistanceFunction()).calculateAgreement(),
+                            offset(1e-12));
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.coding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.offset;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.dkpro.statistics.agreement.IAnnotationUnit;
+import org.dkpro.statistics.agreement.distance.NominalDistanceFunction;
+import org.dkpro.statistics.agreement.distance.SetAnnotation;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link JackknifeAgreementAnalysis}.
+ */
+public class JackknifeAgreementAnalysisTest
+{
+    @Test
+    public void testKrippendorffAlpha()
+    {
+        CodingAnnotationStudy study = Krippendorff2004Test.createExample3();
+        JackknifeAgreementAnalysis analysis = new JackknifeAgreementAnalysis(study,
+                s -> new KrippendorffAlphaAgreement(s, new NominalDistanceFunction()));
+        double[] values = analysis.calculateJackknifeValues();
+        assertThat(values).hasSize(study.getItemCount());
+
+        for (int itemIdx = 0; itemIdx < study.getItemCount(); itemIdx++) {
+            CodingAnnotationStudy reduced = withoutItem(study, itemIdx);
+            assertThat(values[itemIdx]).isCloseTo(
+                    new KrippendorffAlphaAgreement(reduced, new NominalDistanceFunction())
+                            .calculateAgreement(),
+                    offset(1e-12));
+        }
+
+        double alpha = new KrippendorffAlphaAgreement(study, new NominalDistanceFunction())
+                .calculateAgreement();
+        double[] influence = analysis.calculateInfluence();
+        assertThat(influence[0]).isCloseTo(alpha - values[0], offset(1e-12));
+        assertThat(analysis.calculateJackknifeVariance()).isGreaterThan(0.0);
+    }
+
+    @Test
+    public void testMostInfluentialItems()
+    {
+        CodingAnnotationStudy study = new CodingAnnotationStudy(2);
+        study.addMultipleItems(10, "A", "A");
+        study.addMultipleItems(10, "B", "B");
+        study.addItem("A", "B");
+        study.addMultipleItems(5, "C", "C");
+
+        JackknifeAgreementAnalysis analysis = new JackknifeAgreementAnalysis(study,
+                CohenKappaAgreement::new);
+        int[] top = analysis.findMostInfluentialItems(1);
+        assertThat(top).containsExactly(20);
+        assertThat(analysis.calculateInfluence()[20]).isLessThan(0.0);
+        assertThat(analysis.findMostInfluentialItems(100)).hasSize(study.getItemCount());
+
+        double[] values = analysis.calculateJackknifeValues();
+        assertThat(values[21]).isCloseTo(new CohenKappaAgreement(withoutItem(study, 21))
+                .calculateAgreement(), offset(1e-12));
+    }
+
+    @Test
+    public void testWeightedStudy()
+    {
+        CodingAnnotationStudy expanded = new CodingAnnotationStudy(3);
+        WeightedCodingAnnotationStudy weighted = new WeightedCodingAnnotationStudy(3);
+        Object[][] patterns = { { 1, 1, null }, { 1, 2, 2 }, { null, 3, 3 }, { 2, 3, 2 },
+                { 3, 3, 3 } };
+        int[] counts = { 4, 3, 7, 2, 1 };
+        for (int i = 0; i < patterns.length; i++) {
+            expanded.addMultipleItems(counts[i], patterns[i]);
+            weighted.addMultipleItems(counts[i], patterns[i]);
+        }
+
+        JackknifeAgreementAnalysis expandedAnalysis = new JackknifeAgreementAnalysis(expanded,
+                FleissKappaAgreement::new);
+        JackknifeAgreementAnalysis analysis = new JackknifeAgreementAnalysis(weighted,
+                FleissKappaAgreement::new);
+        double[] expandedValues = expandedAnalysis.calculateJackknifeValues();
+        double[] values = analysis.calculateJackknifeValues();
+        assertThat(values).hasSize(patterns.length);
+        int offset = 0;
+        for (int i = 0; i < patterns.length; i++) {
+            assertThat(values[i]).isCloseTo(expandedValues[offset], offset(1e-12));
+            offset += counts[i];
+        }
+        assertThat(analysis.getItemWeights()).containsExactly(4.0, 3.0, 7.0, 2.0, 1.0);
+        assertThat(analysis.calculateJackknifeVariance()).isCloseTo(
+                expandedAnalysis.calculateJackknifeVariance(), offset(1e-12));
+    }
+
+    @Test
+    public void testUnusedCategories()
+    {
+        // C is only used by the last item, D is declared but never used.
+        CodingAnnotationStudy study = new CodingAnnotationStudy(2);
+        study.addCategory("D");
+        study.addMultipleItems(6, "A", "A");
+        study.addMultipleItems(2, "A", "B");
+        study.addMultipleItems(5, "B", "B");
+        study.addItem("B", "C");
+
+        JackknifeAgreementAnalysis bennett = new JackknifeAgreementAnalysis(study,
+                BennettSAgreement::new);
+        JackknifeAgreementAnalysis randolph = new JackknifeAgreementAnalysis(study,
+                RandolphKappaAgreement::new);
+        double[] bennettValues = bennett.calculateJackknifeValues();
+        double[] randolphValues = randolph.calculateJackknifeValues();
+        for (int itemIdx = 0; itemIdx < study.getItemCount(); itemIdx++) {
+            CodingAnnotationStudy reduced = withoutItem(study, itemIdx);
+            assertThat(bennettValues[itemIdx]).isCloseTo(
+                    new BennettSAgreement(reduced).calculateAgreement(), offset(1e-12));
+            assertThat(randolphValues[itemIdx]).isCloseTo(
+                    new RandolphKappaAgreement(reduced).calculateAgreement(), offset(1e-12));
+        }
+        assertThat(withoutItem(study, 13).getCategoryCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void testItemBasedMeasure()
+    {
+        JackknifeAgreementAnalysis analysis = new JackknifeAgreementAnalysis(
+                createSetExample(), MaxPercentageAgreement::new);
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(analysis::calculateJackknifeValues);
+    }
+
+    static ICodingAnnotationStudy createSetExample()
+    {
+        CodingAnnotationStudy study = new CodingAnnotationStudy(2);
+        study.addItem(new SetAnnotation("A"), new SetAnnotation("A", "B"));
+        study.addItem(new SetAnnotation("B"), new SetAnnotation("B"));
+        study.addItem(new SetAnnotation("A", "C"), new SetAnnotation("C"));
+        study.addItem(new SetAnnotation("C"), new SetAnnotation("A"));
+        return study;
+    }
+
+    private static CodingAnnotationStudy withoutItem(final CodingAnnotationStudy study,
+            int itemIdx)
+    {
+        // Only the categories that are declared without being used remain categories.
+        Set<Object> usedCategories = new HashSet<Object>();
+        for (ICodingAnnotationItem item : study.getItems()) {
+            for (IAnnotationUnit unit : item.getUnits()) {
+                usedCategories.add(unit.getCategory());
+            }
+        }
+        CodingAnnotationStudy result = new CodingAnnotationStudy(study.getRaterCount());
+        for (Object category : study.getCategories()) {
+            if (!usedCategories.contains(category)) {
+                result.addCategory(category);
+            }
+        }
+        Object[] annotations = new Object[study.getRaterCount()];
+        for (int i = 0; i < study.getItemCount(); i++) {
+            if (i != itemIdx) {
+                for (int raterIdx = 0; raterIdx < annotations.length; raterIdx++) {
+                    annotations[raterIdx] = study.getItem(i).getUnit(raterIdx).getCategory();
+                }
+                result.addItemAsArray(annotations);
+            }
+        }
+        return result;
+    }
+}
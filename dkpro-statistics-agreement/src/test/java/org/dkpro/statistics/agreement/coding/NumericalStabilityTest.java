@@ -20,6 +20,8 @@ package org.dkpro.statistics.agreement.coding;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.offset;
 
+import org.dkpro.statistics.agreement.NumericMode;
+import org.dkpro.statistics.agreement.distance.IntervalDistanceFunction;
 import org.junit.jupiter.api.Test;
 
 /**
@@ -129,6 +131,38 @@ public class NumericalStabilityTest
         assertThat(agreement).isCloseTo(0.430, offset(0.001));
     }
 
+    @Test
+    public void testNumericModes()
+    {
+        ICodingAnnotationStudy study = createExample3(2000);
+        assertSameAgreement(new FleissKappaAgreement(study),
+                new FleissKappaAgreement(study));
+        assertSameAgreement(new HubertKappaAgreement(study),
+                new HubertKappaAgreement(study));
+
+        study = createExample2();
+        assertSameAgreement(new CohenKappaAgreement(study),
+                new CohenKappaAgreement(study));
+
+        WeightedKappaAgreement compensated = new WeightedKappaAgreement(study,
+                new IntervalDistanceFunction());
+        WeightedKappaAgreement exact = new WeightedKappaAgreement(study,
+                new IntervalDistanceFunction());
+        exact.setNumericMode(NumericMode.EXACT);
+        assertThat(compensated.getNumericMode()).isEqualTo(NumericMode.COMPENSATED);
+        assertThat(compensated.calculateExpectedDisagreement())
+                .isCloseTo(exact.calculateExpectedDisagreement(), offset(1e-12));
+    }
+
+    private static void assertSameAgreement(final CodingAgreementMeasure compensated,
+            final CodingAgreementMeasure exact)
+    {
+        exact.setNumericMode(NumericMode.EXACT);
+        assertThat(compensated.getNumericMode()).isEqualTo(NumericMode.COMPENSATED);
+        assertThat(compensated.calculateAgreement())
+                .isCloseTo(exact.calculateAgreement(), offset(1e-12));
+    }
+
     /**
      * Creates an example annotation study with many items. Such a study can easily yield problems
      * related to numerical stability.
@@ -0,0 +1,160 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.coding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+import java.util.Random;
+
+import org.dkpro.statistics.agreement.distance.IntervalDistanceFunction;
+import org.dkpro.statistics.agreement.distance.NominalDistanceFunction;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link PairwiseAgreementMatrix}.
+ */
+public class PairwiseAgreementMatrixTest
+{
+    @Test
+    public void testMatchesExtractedRaters()
+    {
+        CodingAnnotationStudy study = (CodingAnnotationStudy) MultiRaterAgreementTest
+                .createExample();
+        PairwiseAgreementMatrix matrix = new PairwiseAgreementMatrix(study,
+                new NominalDistanceFunction());
+        double[][] percentage = matrix.calculatePercentageAgreement();
+        double[][] kappa = matrix.calculateCohenKappa();
+        double[][] pi = matrix.calculateScottPi();
+        double[][] weightedKappa = matrix.calculateWeightedKappa();
+
+        for (int m = 0; m < study.getRaterCount(); m++) {
+            assertThat(kappa[m][m]).isEqualTo(1.0);
+            for (int n = m + 1; n < study.getRaterCount(); n++) {
+                CodingAnnotationStudy pair = study.extractRaters(m, n);
+                assertThat(matrix.getItemCount(n, m)).isEqualTo(study.getItemCount());
+                assertThat(percentage[m][n]).isCloseTo(
+                        new PercentageAgreement(pair).calculateAgreement(), offset(1e-12));
+                assertThat(kappa[m][n]).isCloseTo(
+                        new CohenKappaAgreement(pair).calculateAgreement(), offset(1e-12));
+                assertThat(kappa[n][m]).isEqualTo(kappa[m][n]);
+                assertThat(pi[m][n]).isCloseTo(
+                        new ScottPiAgreement(pair).calculateAgreement(), offset(1e-12));
+                assertThat(weightedKappa[m][n]).isCloseTo(
+                        new WeightedKappaAgreement(pair, new NominalDistanceFunction())
+                                .calculateAgreement(),
+                        offset(1e-12));
+            }
+        }
+    }
+
+    @Test
+    public void testIntervalWeightedKappaMatchesExtractedRaters()
+    {
+        Random random = new Random(17);
+        CodingAnnotationStudy study = new CodingAnnotationStudy(4);
+        for (int itemIdx = 0; itemIdx < 40; itemIdx++) {
+            int category = 1 + random.nextInt(3);
+            Object[] annotations = new Object[4];
+            for (int raterIdx = 0; raterIdx < 4; raterIdx++) {
+                // Rater 3 uses the extreme category 9, which the other raters never use.
+                annotations[raterIdx] = (raterIdx == 3 && random.nextInt(4) == 0 ? 9
+                        : category + random.nextInt(raterIdx + 1));
+            }
+            study.addItemAsArray(annotations);
+        }
+
+        PairwiseAgreementMatrix matrix = new PairwiseAgreementMatrix(study,
+                new IntervalDistanceFunction());
+        double[][] weightedKappa = matrix.calculateWeightedKappa();
+        for (int m = 0; m < study.getRaterCount(); m++) {
+            for (int n = m + 1; n < study.getRaterCount(); n++) {
+                assertThat(weightedKappa[m][n]).isCloseTo(
+                        new WeightedKappaAgreement(study.extractRaters(m, n),
+                                new IntervalDistanceFunction()).calculateAgreement(),
+                        offset(1e-12));
+            }
+        }
+    }
+
+    @Test
+    public void testMissingValues()
+    {
+        ColumnarCodingAnnotationStudy study = new ColumnarCodingAnnotationStudy(3);
+        study.addItem("A", "A", null);
+        study.addItem("B", "B", "A");
+        study.addItem("A", "B", "A");
+        study.addItem(null, "A", "A");
+
+        PairwiseAgreementMatrix matrix = new PairwiseAgreementMatrix(study);
+        assertThat(matrix.getItemCount(0, 1)).isEqualTo(3);
+        assertThat(matrix.getItemCount(0, 2)).isEqualTo(2);
+        assertThat(matrix.getItemCount(1, 2)).isEqualTo(3);
+
+        double[][] percentage = matrix.calculatePercentageAgreement();
+        assertThat(percentage[0][1]).isCloseTo(2.0 / 3.0, offset(1e-12));
+        assertThat(percentage[0][2]).isCloseTo(0.5, offset(1e-12));
+        assertThat(percentage[2][1]).isCloseTo(1.0 / 3.0, offset(1e-12));
+
+        CodingAnnotationStudy complete = new CodingAnnotationStudy(2);
+        complete.addItem("A", "A");
+        complete.addItem("B", "B");
+        complete.addItem("A", "B");
+        assertThat(matrix.calculateCohenKappa()[0][1]).isCloseTo(
+                new CohenKappaAgreement(complete).calculateAgreement(), offset(1e-12));
+    }
+
+    @Test
+    public void testSparseStudy()
+    {
+        Random random = new Random(5);
+        ColumnarCodingAnnotationStudy study = new ColumnarCodingAnnotationStudy(5);
+        for (int itemIdx = 0; itemIdx < 60; itemIdx++) {
+            Object[] annotations = new Object[5];
+            for (int raterIdx = 0; raterIdx < 5; raterIdx++) {
+                if (random.nextInt(3) > 0) {
+                    annotations[raterIdx] = 1 + random.nextInt(3);
+                }
+            }
+            study.addItemAsArray(annotations);
+        }
+
+        PairwiseAgreementMatrix expected = new PairwiseAgreementMatrix(study,
+                new IntervalDistanceFunction());
+        PairwiseAgreementMatrix matrix = new PairwiseAgreementMatrix(
+                new SparseCodingAnnotationStudy(study), new IntervalDistanceFunction());
+        assertThat(matrix.getItemCount(1, 3)).isEqualTo(expected.getItemCount(1, 3));
+        assertThat(matrix.calculatePercentageAgreement())
+                .isEqualTo(expected.calculatePercentageAgreement());
+        assertThat(matrix.calculateCohenKappa()).isEqualTo(expected.calculateCohenKappa());
+        assertThat(matrix.calculateWeightedKappa())
+                .isEqualTo(expected.calculateWeightedKappa());
+    }
+
+    @Test
+    public void testSingleCategoryPair()
+    {
+        CodingAnnotationStudy study = new CodingAnnotationStudy(3);
+        study.addItem("A", "A", "A");
+        study.addItem("A", "A", "B");
+        study.addItem("A", "A", "A");
+
+        PairwiseAgreementMatrix matrix = new PairwiseAgreementMatrix(study);
+        double[][] percentage = matrix.calculatePercentageAgreement();
+        assertThat(percentage[0][1]).isNaN();
+        assertThat(percentage[0][2]).isCloseTo(2.0 / 3.0, offset(1e-12));
+        assertThat(matrix.calculateCohenKappa()[0][1]).isNaN();
+        assertThat(matrix.calculateScottPi()[0][1]).isNaN();
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.coding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.offset;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.dkpro.statistics.agreement.distance.IntervalDistanceFunction;
+import org.dkpro.statistics.agreement.distance.NominalDistanceFunction;
+import org.junit.jupiter.api.Test;
+
+public class RaterSpecificAgreementTest
+{
+    @Test
+    public void alphaMatchesRecalculationWithoutRater()
+    {
+        for (int raterCount = 3; raterCount <= 5; raterCount++) {
+            CodingAnnotationStudy study = createStudy(raterCount, 0.25, raterCount);
+            for (boolean interval : new boolean[] { false, true }) {
+                KrippendorffAlphaAgreement alpha = new KrippendorffAlphaAgreement(study,
+                        interval ? new IntervalDistanceFunction() : new NominalDistanceFunction());
+                double[] values = alpha.calculateRaterAgreements();
+                for (int raterIdx = 0; raterIdx < raterCount; raterIdx++) {
+                    double expected = new KrippendorffAlphaAgreement(
+                            study.extractRaters(otherRaters(raterCount, raterIdx)),
+                            alpha.getDistanceFunction()).calculateAgreement();
+                    assertThat(values[raterIdx]).isCloseTo(expected, offset(1e-12));
+                    assertThat(alpha.calculateRaterAgreement(raterIdx))
+                            .isEqualTo(values[raterIdx]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void percentageMatchesRecalculationWithoutRater()
+    {
+        for (int raterCount = 3; raterCount <= 5; raterCount++) {
+            CodingAnnotationStudy study = createStudy(raterCount, 0.25, 10 + raterCount);
+            double[] values = new PercentageAgreement(study).calculateRaterAgreements();
+            for (int raterIdx = 0; raterIdx < raterCount; raterIdx++) {
+                double expected = new PercentageAgreement(
+                        study.extractRaters(otherRaters(raterCount, raterIdx)))
+                                .calculateAgreement();
+                assertThat(values[raterIdx]).isCloseTo(expected, offset(1e-12));
+            }
+        }
+    }
+
+    @Test
+    public void fleissKappaMatchesRecalculationWithoutRater()
+    {
+        for (int raterCount = 3; raterCount <= 5; raterCount++) {
+            CodingAnnotationStudy study = createStudy(raterCount, 0.0, 20 + raterCount);
+            double[] values = new FleissKappaAgreement(study).calculateRaterAgreements();
+            for (int raterIdx = 0; raterIdx < raterCount; raterIdx++) {
+                double expected = new FleissKappaAgreement(
+                        study.extractRaters(otherRaters(raterCount, raterIdx)))
+                                .calculateAgreement();
+                assertThat(values[raterIdx]).isCloseTo(expected, offset(1e-12));
+            }
+        }
+    }
+
+    @Test
+    public void sparseStudyYieldsSameValues()
+    {
+        CodingAnnotationStudy study = createStudy(4, 0.3, 42);
+        SparseCodingAnnotationStudy sparseStudy = new SparseCodingAnnotationStudy(4);
+        for (ICodingAnnotationItem item : study.getItems()) {
+            Object[] annotations = new Object[4];
+            for (int raterIdx = 0; raterIdx < 4; raterIdx++) {
+                annotations[raterIdx] = item.getUnit(raterIdx).getCategory();
+            }
+            sparseStudy.addItemAsArray(annotations);
+        }
+
+        double[] expected = new KrippendorffAlphaAgreement(study, new IntervalDistanceFunction())
+                .calculateRaterAgreements();
+        double[] actual = new KrippendorffAlphaAgreement(sparseStudy,
+                new IntervalDistanceFunction()).calculateRaterAgreements();
+        for (int raterIdx = 0; raterIdx < 4; raterIdx++) {
+            assertThat(actual[raterIdx]).isCloseTo(expected[raterIdx], offset(1e-12));
+        }
+    }
+
+    @Test
+    public void valuesAreUpdatedAndRaterIndexIsChecked()
+    {
+        CodingAnnotationStudy study = new CodingAnnotationStudy(3);
+        study.addItem(1, 1, 2);
+        study.addItem(2, 2, 1);
+        PercentageAgreement agreement = new PercentageAgreement(study);
+        assertThat(agreement.calculateRaterAgreement(2)).isEqualTo(1.0);
+        assertThat(agreement.calculateRaterAgreement(0)).isEqualTo(0.0);
+
+        // Rater 2 is the only one who coded the new item.
+        study.addItem(null, null, 1);
+        assertThat(agreement.calculateRaterAgreement(0)).isEqualTo(0.0);
+        study.addItem(1, 2, 1);
+        assertThat(agreement.calculateRaterAgreement(1)).isCloseTo(1.0 / 3.0, offset(1e-12));
+
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> agreement.calculateRaterAgreement(3));
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> agreement.calculateRaterAgreement(-1));
+    }
+
+    private static int[] otherRaters(int raterCount, int raterIdx)
+    {
+        return IntStream.range(0, raterCount).filter(r -> r != raterIdx).toArray();
+    }
+
+    private static CodingAnnotationStudy createStudy(int raterCount, double missingRate,
+            long seed)
+    {
+        Random random = new Random(seed);
+        CodingAnnotationStudy study = new CodingAnnotationStudy(raterCount);
+        // Each category is used by all raters, such that the studies without a rater have the
+        // same categories.
+        for (int category = 1; category <= 4; category++) {
+            Object[] annotations = new Object[raterCount];
+            for (int raterIdx = 0; raterIdx < raterCount; raterIdx++) {
+                annotations[raterIdx] = category;
+            }
+            study.addItemAsArray(annotations);
+        }
+        for (int itemIdx = 0; itemIdx < 60; itemIdx++) {
+            int category = 1 + random.nextInt(4);
+            Object[] annotations = new Object[raterCount];
+            for (int raterIdx = 0; raterIdx < raterCount; raterIdx++) {
+                if (random.nextDouble() < missingRate) {
+                    continue;
+                }
+                // Raters with a higher index deviate more often.
+                annotations[raterIdx] = (random.nextInt(raterCount + 1) < raterIdx
+                        ? 1 + random.nextInt(4) : category);
+            }
+            study.addItemAsArray(annotations);
+        }
+        return study;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.coding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.offset;
+
+import java.util.Random;
+
+import org.dkpro.statistics.agreement.ConfidenceInterval;
+import org.dkpro.statistics.agreement.InsufficientDataException;
+import org.dkpro.statistics.agreement.distance.NominalDistanceFunction;
+import org.junit.jupiter.api.Test;
+
+public class SampledAgreementEstimatorTest
+{
+    @Test
+    public void sampleGrowsUntilToleranceIsReached()
+    {
+        CodingAnnotationStudy study = createStudy(50000);
+        double alpha = new KrippendorffAlphaAgreement(study, new NominalDistanceFunction())
+                .calculateAgreement();
+
+        SampledAgreementEstimator estimator = new SampledAgreementEstimator(study,
+                s -> new KrippendorffAlphaAgreement(s, new NominalDistanceFunction()), 0.05);
+        estimator.setSeed(3);
+        estimator.setInitialSampleSize(250);
+        SampledAgreementResult result = estimator.estimate();
+
+        assertThat(result.isConverged()).isTrue();
+        assertThat(result.isExact()).isFalse();
+        assertThat(result.getItemCount()).isEqualTo(50000);
+        assertThat(result.getSampleSize()).isBetween(500, 8000);
+        ConfidenceInterval interval = result.getConfidenceInterval();
+        assertThat(interval.getWidth()).isLessThanOrEqualTo(0.05);
+        assertThat(interval.getConfidenceLevel()).isEqualTo(0.95);
+        assertThat(interval.getLowerBound()).isLessThan(alpha);
+        assertThat(interval.getUpperBound()).isGreaterThan(alpha);
+        assertThat(result.getEstimate()).isCloseTo(alpha, offset(0.05));
+
+        // The same seed yields the same sample.
+        SampledAgreementResult result2 = estimator.estimate();
+        assertThat(result2.getEstimate()).isEqualTo(result.getEstimate());
+        assertThat(result2.getSampleSize()).isEqualTo(result.getSampleSize());
+    }
+
+    @Test
+    public void completeSampleIsExact()
+    {
+        CodingAnnotationStudy study = createStudy(3000);
+        SampledAgreementEstimator estimator = new SampledAgreementEstimator(study,
+                FleissKappaAgreement::new, 1e-6);
+        estimator.setSeed(5);
+        estimator.setInitialSampleSize(100);
+        estimator.setReplicateCount(50);
+        SampledAgreementResult result = estimator.estimate();
+
+        assertThat(result.isExact()).isTrue();
+        assertThat(result.isConverged()).isTrue();
+        assertThat(result.getSampleSize()).isEqualTo(3000);
+        assertThat(result.getEstimate()).isCloseTo(
+                new FleissKappaAgreement(study).calculateAgreement(), offset(1e-12));
+        assertThat(result.getConfidenceInterval().getWidth()).isEqualTo(0.0);
+    }
+
+    @Test
+    public void samplesUseAllCategoriesOfTheStudy()
+    {
+        CodingAnnotationStudy study = createStudy(2000);
+        study.addCategory("D");
+        SampledAgreementEstimator estimator = new SampledAgreementEstimator(study,
+                RandolphKappaAgreement::new, 1e-6);
+        estimator.setSeed(7);
+        estimator.setInitialSampleSize(20);
+        estimator.setReplicateCount(50);
+        SampledAgreementResult result = estimator.estimate();
+
+        assertThat(result.isExact()).isTrue();
+        assertThat(result.getEstimate()).isCloseTo(
+                new RandolphKappaAgreement(study).calculateAgreement(), offset(1e-12));
+
+        // A sample of two items does not use all categories, but is still based on K = 4.
+        CodingAnnotationStudy small = new CodingAnnotationStudy(2);
+        small.addCategory("C");
+        small.addCategory("D");
+        small.addMultipleItems(100, "A", "A");
+        small.addMultipleItems(100, "B", "B");
+        estimator = new SampledAgreementEstimator(small, BennettSAgreement::new, 0.5);
+        estimator.setSeed(1);
+        estimator.setInitialSampleSize(2);
+        assertThat(estimator.estimate().getEstimate()).isCloseTo(1.0, offset(1e-12));
+    }
+
+    @Test
+    public void strataAreSampledProportionally()
+    {
+        CodingAnnotationStudy study = createStudy(10000);
+        int[] strata = new int[10000];
+        for (int itemIdx = 0; itemIdx < strata.length; itemIdx++) {
+            strata[itemIdx] = (itemIdx < 2000 ? 0 : 1);
+        }
+
+        SampledAgreementEstimator estimator = new SampledAgreementEstimator(study,
+                PercentageAgreement::new, 1e-6);
+        estimator.setSeed(11);
+        estimator.setStrata(strata);
+        estimator.setInitialSampleSize(100);
+        estimator.setMaximumSampleSize(500);
+        SampledAgreementResult result = estimator.estimate();
+
+        // The tolerance cannot be reached with 500 items.
+        assertThat(result.isConverged()).isFalse();
+        assertThat(result.getSampleSize()).isEqualTo(500);
+        assertThat(result.getConfidenceInterval().getWidth()).isGreaterThan(0.0);
+
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> estimator.setStrata(new int[3]));
+        assertThatExceptionOfType(InsufficientDataException.class)
+                .isThrownBy(() -> new SampledAgreementEstimator(new CodingAnnotationStudy(2),
+                        PercentageAgreement::new, 0.1).estimate());
+    }
+
+    private static CodingAnnotationStudy createStudy(int itemCount)
+    {
+        Random random = new Random(itemCount);
+        CodingAnnotationStudy study = new CodingAnnotationStudy(3);
+        for (int itemIdx = 0; itemIdx < itemCount; itemIdx++) {
+            String category = (random.nextInt(3) == 0 ? "A" : "B");
+            Object[] annotations = new Object[3];
+            for (int raterIdx = 0; raterIdx < 3; raterIdx++) {
+                if (random.nextInt(10) == 0) {
+                    continue;
+                }
+                annotations[raterIdx] = (random.nextInt(5) == 0
+                        ? (random.nextBoolean() ? "A" : "C") : category);
+            }
+            study.addItemAsArray(annotations);
+        }
+        return study;
+    }
+}
@@ -16,6 +16,7 @@ package org.dkpro.statistics.agreement.coding;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.offset;
 
+import org.dkpro.statistics.agreement.distance.BitSetAnnotation;
 import org.dkpro.statistics.agreement.distance.MASISetAnnotationDistanceFunction;
 import org.dkpro.statistics.agreement.distance.SetAnnotation;
 import org.dkpro.statistics.agreement.distance.SetAnnotationDistanceFunction;
@@ -107,6 +108,32 @@ public class SetAnnotationsTest
         assertThat(DiceAgreement.calculateAgreement()).isCloseTo(0.5, offset(0.001));
     }
 
+    @Test
+    public void testBitSetAnnotations()
+    {
+        ICodingAnnotationStudy study = createExample();
+        CodingAnnotationStudy bitSetStudy = new CodingAnnotationStudy(study.getRaterCount());
+        for (ICodingAnnotationItem item : study.getItems()) {
+            bitSetStudy.addItem(
+                    new BitSetAnnotation((SetAnnotation) item.getUnit(0).getCategory()),
+                    new BitSetAnnotation((SetAnnotation) item.getUnit(1).getCategory()));
+        }
+
+        assertThat(bitSetStudy.getCategoryCount()).isEqualTo(study.getCategoryCount());
+        assertThat(new DiceAgreement(bitSetStudy).calculateAgreement())
+                .isCloseTo(new DiceAgreement(study).calculateAgreement(), offset(1e-12));
+        assertThat(new KrippendorffAlphaAgreement(bitSetStudy,
+                new SetAnnotationDistanceFunction()).calculateAgreement()).isCloseTo(
+                        new KrippendorffAlphaAgreement(study, new SetAnnotationDistanceFunction())
+                                .calculateAgreement(),
+                        offset(1e-12));
+        assertThat(new KrippendorffAlphaAgreement(bitSetStudy,
+                new MASISetAnnotationDistanceFunction()).calculateAgreement()).isCloseTo(
+                        new KrippendorffAlphaAgreement(study,
+                                new MASISetAnnotationDistanceFunction()).calculateAgreement(),
+                        offset(1e-12));
+    }
+
     /** Creates an example annotation study. */
     public ICodingAnnotationStudy createExample()
     {
@@ -0,0 +1,156 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.coding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.offset;
+
+import java.util.Random;
+
+import org.dkpro.statistics.agreement.IAnnotationUnit;
+import org.dkpro.statistics.agreement.distance.IntervalDistanceFunction;
+import org.dkpro.statistics.agreement.distance.NominalDistanceFunction;
+import org.junit.jupiter.api.Test;
+
+public class SparseCodingAnnotationStudyTest
+{
+    @Test
+    public void onlyExistingRatingsAreStored()
+    {
+        SparseCodingAnnotationStudy study = new SparseCodingAnnotationStudy(1000);
+        int a = study.encodeCategory("A");
+        int b = study.encodeCategory("B");
+        assertThat(study.addSparseItemAsCodes(new int[] { 700, 3, 42 }, new int[] { a, b, a }))
+                .isEqualTo(0);
+        assertThat(study.addSparseItem(new int[] { 999 }, new Object[] { "C" })).isEqualTo(1);
+
+        assertThat(study.getRaterCount()).isEqualTo(1000);
+        assertThat(study.getItemCount()).isEqualTo(2);
+        assertThat(study.getUnitCount()).isEqualTo(4);
+        assertThat(study.getCategoryCount()).isEqualTo(3);
+        assertThat(study.hasMissingValues()).isTrue();
+
+        // Ratings are sorted by rater index.
+        assertThat(study.getRatingCount(0)).isEqualTo(3);
+        assertThat(study.getRatingRater(0, 0)).isEqualTo(3);
+        assertThat(study.getRatingCode(0, 0)).isEqualTo(b);
+        assertThat(study.getRatingRater(0, 2)).isEqualTo(700);
+        assertThat(study.getCode(0, 42)).isEqualTo(a);
+        assertThat(study.getCode(0, 43)).isEqualTo(IEncodedCodingAnnotationStudy.MISSING);
+
+        ICodingAnnotationItem item = study.getItem(0);
+        assertThat(item.getRaterCount()).isEqualTo(3);
+        assertThat(item.getUnit(700).getCategory()).isEqualTo("A");
+        assertThat(item.getUnit(701).getCategory()).isNull();
+        int count = 0;
+        for (IAnnotationUnit unit : item.getUnits()) {
+            assertThat(unit.getCategory()).isNotNull();
+            count++;
+        }
+        assertThat(count).isEqualTo(3);
+    }
+
+    @Test
+    public void invalidItemsAreRejected()
+    {
+        SparseCodingAnnotationStudy study = new SparseCodingAnnotationStudy(3);
+        int a = study.encodeCategory("A");
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> study.addSparseItemAsCodes(new int[] { 1, 1 },
+                        new int[] { a, a }));
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> study.addSparseItemAsCodes(new int[] { 3 }, new int[] { a }));
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> study.addSparseItemAsCodes(new int[] { 0 }, new int[] { 1 }));
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> study.addSparseItem(new int[] { 0 }, new Object[] { null }));
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> study.addItem("A", "A"));
+        assertThat(study.getItemCount()).isEqualTo(0);
+        assertThat(study.getUnitCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void agreementEqualsDenseStudy()
+    {
+        CodingAnnotationStudy dense = Krippendorff2004Test.createExample3();
+        SparseCodingAnnotationStudy sparse = new SparseCodingAnnotationStudy(dense);
+
+        assertThat(sparse.getUnitCount()).isEqualTo(dense.getUnitCount());
+        assertThat(sparse.hasMissingValues()).isEqualTo(dense.hasMissingValues());
+        assertThat(new KrippendorffAlphaAgreement(sparse, new IntervalDistanceFunction())
+                .calculateAgreement()).isCloseTo(
+                        new KrippendorffAlphaAgreement(dense, new IntervalDistanceFunction())
+                                .calculateAgreement(),
+                        offset(1e-12));
+        assertThat(new PercentageAgreement(sparse).calculateAgreement())
+                .isCloseTo(new PercentageAgreement(dense).calculateAgreement(), offset(1e-12));
+    }
+
+    @Test
+    public void crowdsourcingDesignEqualsDenseStudy()
+    {
+        // 500 raters, each item being coded by three to five of them.
+        Random random = new Random(42);
+        int raterCount = 500;
+        SparseCodingAnnotationStudy sparse = new SparseCodingAnnotationStudy(raterCount);
+        CodingAnnotationStudy dense = new CodingAnnotationStudy(raterCount);
+        for (int itemIdx = 0; itemIdx < 200; itemIdx++) {
+            Object[] annotations = new Object[raterCount];
+            int truth = random.nextInt(4);
+            for (int i = 3 + random.nextInt(3); i > 0;) {
+                int raterIdx = random.nextInt(raterCount);
+                if (annotations[raterIdx] == null) {
+                    annotations[raterIdx] = random.nextDouble() < 0.7 ? truth
+                            : random.nextInt(4);
+                    i--;
+                }
+            }
+            sparse.addItem(annotations);
+            dense.addItemAsArray(annotations);
+        }
+
+        assertThat(sparse.getUnitCount()).isEqualTo(dense.getUnitCount());
+        assertThat(sparse.getStatistics().getPairableUnitCount())
+                .isEqualTo(dense.getStatistics().getPairableUnitCount());
+        assertThat(new KrippendorffAlphaAgreement(sparse, new NominalDistanceFunction())
+                .calculateAgreement()).isCloseTo(
+                        new KrippendorffAlphaAgreement(dense, new NominalDistanceFunction())
+                                .calculateAgreement(),
+                        offset(1e-12));
+        assertThat(new PercentageAgreement(sparse).calculateAgreement())
+                .isCloseTo(new PercentageAgreement(dense).calculateAgreement(), offset(1e-12));
+
+        ICodingAnnotationItem sparseItem = sparse.getItem(7);
+        ICodingAnnotationItem denseItem = dense.getItem(7);
+        assertThat(CodingAnnotationStudy.countCategoryCoincidence(sparseItem))
+                .isEqualTo(CodingAnnotationStudy.countCategoryCoincidence(denseItem));
+        assertThat(CodingAnnotationStudy.countTotalAnnotationsPerCategory(sparseItem))
+                .isEqualTo(CodingAnnotationStudy.countTotalAnnotationsPerCategory(denseItem));
+    }
+
+    @Test
+    public void statisticsAreCachedUntilItemsAreAdded()
+    {
+        SparseCodingAnnotationStudy study = new SparseCodingAnnotationStudy(4);
+        study.addItem(1, 1, null, null);
+        CodingStudyStatistics statistics = study.getStatistics();
+        assertThat(study.getStatistics()).isSameAs(statistics);
+
+        study.addItem(null, 2, 2, 3);
+        assertThat(study.getStatistics()).isNotSameAs(statistics);
+        assertThat(study.getStatistics().getUnitCount()).isEqualTo(5.0);
+    }
+}
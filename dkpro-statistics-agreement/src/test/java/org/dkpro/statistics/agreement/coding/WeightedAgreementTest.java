@@ -21,8 +21,10 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.offset;
 
 import java.util.Hashtable;
+import java.util.Random;
 
 import org.dkpro.statistics.agreement.IAnnotationStudy;
+import org.dkpro.statistics.agreement.NumericMode;
 import org.dkpro.statistics.agreement.distance.IDistanceFunction;
 import org.dkpro.statistics.agreement.distance.IntervalDistanceFunction;
 import org.dkpro.statistics.agreement.distance.NominalDistanceFunction;
@@ -152,6 +154,119 @@ public class WeightedAgreementTest
         assertThat(kappaW.calculateAgreement()).isCloseTo(0.000, offset(0.001));
     }
 
+    @Test
+    public void testClosedFormAlpha()
+    {
+        // Continuous ratings with many distinct values, missing values, and an outlier offset.
+        Random random = new Random(1);
+        CodingAnnotationStudy doubleStudy = new CodingAnnotationStudy(4);
+        CodingAnnotationStudy integerStudy = new CodingAnnotationStudy(4);
+        for (int itemIdx = 0; itemIdx < 300; itemIdx++) {
+            double score = 1000.0 + random.nextGaussian();
+            Object[] doubles = new Object[4];
+            Object[] integers = new Object[4];
+            for (int raterIdx = 0; raterIdx < 4; raterIdx++) {
+                if (random.nextInt(5) > 0) {
+                    doubles[raterIdx] = score + 0.5 * random.nextGaussian();
+                    integers[raterIdx] = (int) Math.round(10.0 * (Double) doubles[raterIdx]);
+                }
+            }
+            doubleStudy.addItemAsArray(doubles);
+            integerStudy.addItemAsArray(integers);
+        }
+        CodingAnnotationStudy mixedStudy = new CodingAnnotationStudy(2);
+        mixedStudy.addItem(1, 1.0);
+        mixedStudy.addItem(2, 2);
+        mixedStudy.addItem(2.0, 1.0);
+        mixedStudy.addItem(1, 2);
+
+        for (ICodingAnnotationStudy study : new ICodingAnnotationStudy[] { doubleStudy,
+                integerStudy, mixedStudy }) {
+            for (IDistanceFunction distanceFunction : new IDistanceFunction[] {
+                    new NominalDistanceFunction(), new IntervalDistanceFunction() }) {
+                // Wrapping the distance function disables the closed form.
+                IDistanceFunction wrapper = (s, category1, category2) -> distanceFunction
+                        .measureDistance(s, category1, category2);
+                KrippendorffAlphaAgreement alpha = new KrippendorffAlphaAgreement(study,
+                        distanceFunction);
+                KrippendorffAlphaAgreement expected = new KrippendorffAlphaAgreement(study,
+                        wrapper);
+                assertThat(alpha.calculateObservedDisagreement()).isCloseTo(
+                        expected.calculateObservedDisagreement(),
+                        offset(1e-9 * expected.calculateObservedDisagreement()));
+                assertThat(alpha.calculateExpectedDisagreement()).isCloseTo(
+                        expected.calculateExpectedDisagreement(),
+                        offset(1e-9 * expected.calculateExpectedDisagreement()));
+                assertThat(alpha.calculateAgreement()).isCloseTo(expected.calculateAgreement(),
+                        offset(1e-9));
+            }
+        }
+    }
+
+    @Test
+    public void testPairwiseMarginals()
+    {
+        Random random = new Random(2);
+        int raterCount = 12;
+        CodingAnnotationStudy study = new CodingAnnotationStudy(raterCount);
+        for (int itemIdx = 0; itemIdx < 200; itemIdx++) {
+            Object[] annotations = new Object[raterCount];
+            for (int raterIdx = 0; raterIdx < raterCount; raterIdx++) {
+                if (random.nextInt(4) > 0) {
+                    annotations[raterIdx] = random.nextInt(3 + raterIdx);
+                }
+            }
+            study.addItemAsArray(annotations);
+        }
+        CodingStudyStatistics statistics = study.getStatistics();
+        double N = statistics.getItemCount();
+
+        // Sum the products of the marginals of all pairs of raters explicitly.
+        IDistanceFunction asymmetric = (s, category1, category2) -> Math
+                .max(0, (Integer) category1 - (Integer) category2);
+        for (IDistanceFunction distanceFunction : new IDistanceFunction[] {
+                new IntervalDistanceFunction(), asymmetric }) {
+            CategoryDistanceMatrix distances = new CategoryDistanceMatrix(distanceFunction, study);
+            assertThat(distances.isSymmetric()).isEqualTo(distanceFunction != asymmetric);
+            double sum = 0.0;
+            for (int code1 = 0; code1 < statistics.getCategoryCount(); code1++) {
+                for (int code2 = 0; code2 < statistics.getCategoryCount(); code2++) {
+                    for (int m = 0; m < raterCount; m++) {
+                        for (int n = m + 1; n < raterCount; n++) {
+                            sum += statistics.getAnnotationCount(code1, m)
+                                    * statistics.getAnnotationCount(code2, n)
+                                    * distances.getDistance(code1, code2);
+                        }
+                    }
+                }
+            }
+            double expected = sum / (N * N * Math.max(1.0, distances.getMaximumDistance()));
+            for (NumericMode numericMode : NumericMode.values()) {
+                WeightedKappaAgreement kappaW = new WeightedKappaAgreement(study,
+                        distanceFunction);
+                kappaW.setNumericMode(numericMode);
+                assertThat(kappaW.calculateExpectedDisagreement()).isCloseTo(expected,
+                        offset(1e-12));
+            }
+        }
+
+        double sum = 0.0;
+        for (int code = 0; code < statistics.getCategoryCount(); code++) {
+            for (int m = 0; m < raterCount; m++) {
+                for (int n = m + 1; n < raterCount; n++) {
+                    sum += statistics.getAnnotationCount(code, m)
+                            * statistics.getAnnotationCount(code, n);
+                }
+            }
+        }
+        double expected = 2.0 * sum / (raterCount * (raterCount - 1.0) * N * N);
+        for (NumericMode numericMode : NumericMode.values()) {
+            HubertKappaAgreement kappa = new HubertKappaAgreement(study);
+            kappa.setNumericMode(numericMode);
+            assertThat(kappa.calculateExpectedAgreement()).isCloseTo(expected, offset(1e-12));
+        }
+    }
+
     /** Creates an example annotation study. */
     public ICodingAnnotationStudy createExample()
     {
@@ -0,0 +1,188 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.coding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.offset;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.dkpro.statistics.agreement.IAgreementMeasure;
+import org.dkpro.statistics.agreement.distance.IntervalDistanceFunction;
+import org.dkpro.statistics.agreement.distance.NominalDistanceFunction;
+import org.dkpro.statistics.agreement.distance.SetAnnotation;
+import org.junit.jupiter.api.Test;
+
+public class WeightedCodingAnnotationStudyTest
+{
+    @Test
+    public void identicalItemsAreMerged()
+    {
+        WeightedCodingAnnotationStudy study = new WeightedCodingAnnotationStudy(3);
+        ICodingAnnotationItem item = study.addItem("A", "B", null);
+        assertThat(study.addItem("A", "B", null)).isSameAs(item);
+        study.addMultipleItems(1000000, "A", "A", "A");
+        study.addWeightedItem(0.5, "A", "B", null);
+
+        assertThat(study.getItemCount()).isEqualTo(2);
+        assertThat(study.getUnitCount()).isEqualTo(5);
+        assertThat(study.getTotalWeight()).isEqualTo(1000002.5);
+        assertThat(study.hasMissingValues()).isTrue();
+        assertThat(item.getWeight()).isEqualTo(2.5);
+        assertThat(item.getRaterCount()).isEqualTo(2);
+        assertThat(study.getItem(1).getWeight()).isEqualTo(1000000.0);
+        assertThat(study.getStatistics().getItemCount()).isEqualTo(1000002.5);
+        assertThat(study.getStatistics().getUnitCount()).isEqualTo(3000005.0);
+
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> study.addWeightedItem(0.0, "A", "B", "C"));
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> study.addItem("A", "B"));
+    }
+
+    @Test
+    public void measuresEqualThoseOfTheExpandedStudy()
+    {
+        ICodingAnnotationStudy expanded = Agresti1992Test.createExample();
+        WeightedCodingAnnotationStudy weighted = new WeightedCodingAnnotationStudy(expanded);
+        assertThat(weighted.getItemCount()).isEqualTo(11);
+        assertThat(weighted.getTotalWeight()).isEqualTo(expanded.getItemCount());
+
+        List<Function<ICodingAnnotationStudy, IAgreementMeasure>> measures = List.of(
+                PercentageAgreement::new, CohenKappaAgreement::new, ScottPiAgreement::new,
+                FleissKappaAgreement::new, HubertKappaAgreement::new,
+                RandolphKappaAgreement::new, BennettSAgreement::new, GwetAC1Agreement::new,
+                s -> new KrippendorffAlphaAgreement(s, new NominalDistanceFunction()),
+                s -> new KrippendorffAlphaAgreement(s, new IntervalDistanceFunction()),
+                s -> new WeightedKappaAgreement(s, new IntervalDistanceFunction()));
+        for (Function<ICodingAnnotationStudy, IAgreementMeasure> measure : measures) {
+            assertThat(measure.apply(weighted).calculateAgreement())
+                    .isCloseTo(measure.apply(expanded).calculateAgreement(), offset(1e-12));
+        }
+
+        KrippendorffAlphaAgreement alpha = new KrippendorffAlphaAgreement(weighted,
+                new NominalDistanceFunction());
+        KrippendorffAlphaAgreement expandedAlpha = new KrippendorffAlphaAgreement(expanded,
+                new NominalDistanceFunction());
+        Map<Object, Double> categoryAgreements = alpha.calculateCategoryAgreements();
+        expandedAlpha.calculateCategoryAgreements().forEach((category, value) -> assertThat(
+                categoryAgreements.get(category)).isCloseTo(value, offset(1e-12)));
+    }
+
+    @Test
+    public void itemwiseAgreementIsWeighted()
+    {
+        CodingAnnotationStudy expanded = new CodingAnnotationStudy(2);
+        WeightedCodingAnnotationStudy weighted = new WeightedCodingAnnotationStudy(2);
+        SetAnnotation ab = new SetAnnotation("A", "B");
+        SetAnnotation a = new SetAnnotation("A");
+        SetAnnotation c = new SetAnnotation("C");
+        expanded.addMultipleItems(5, ab, a);
+        weighted.addMultipleItems(5, ab, a);
+        expanded.addMultipleItems(2, a, c);
+        weighted.addMultipleItems(2, a, c);
+
+        assertThat(new DiceAgreement(weighted).calculateObservedAgreement())
+                .isCloseTo(new DiceAgreement(expanded).calculateObservedAgreement(),
+                        offset(1e-12));
+        assertThat(new MaxPercentageAgreement(weighted).calculateObservedAgreement())
+                .isCloseTo(new MaxPercentageAgreement(expanded).calculateObservedAgreement(),
+                        offset(1e-12));
+    }
+
+    @Test
+    public void missingValuesAreWeighted()
+    {
+        CodingAnnotationStudy expanded = new CodingAnnotationStudy(3);
+        WeightedCodingAnnotationStudy weighted = new WeightedCodingAnnotationStudy(3);
+        Object[][] patterns = { { 1, 1, null }, { 1, 2, 2 }, { null, 3, 3 }, { 2, 2, 2 } };
+        int[] counts = { 4, 3, 7, 2 };
+        for (int i = 0; i < patterns.length; i++) {
+            expanded.addMultipleItems(counts[i], patterns[i]);
+            weighted.addMultipleItems(counts[i], patterns[i]);
+        }
+
+        assertThat(new KrippendorffAlphaAgreement(weighted, new IntervalDistanceFunction())
+                .calculateAgreement()).isCloseTo(
+                        new KrippendorffAlphaAgreement(expanded, new IntervalDistanceFunction())
+                                .calculateAgreement(),
+                        offset(1e-12));
+        assertThat(new PercentageAgreement(weighted).calculateAgreement())
+                .isCloseTo(new PercentageAgreement(expanded).calculateAgreement(), offset(1e-12));
+
+        ICodingAnnotationItem item = weighted.getItem(1);
+        Map<Object, Map<Object, Double>> coincidence = CodingAnnotationStudy
+                .countCategoryCoincidence(item, item.getWeight());
+        assertThat(coincidence.get(2).get(2)).isEqualTo(3.0);
+        assertThat(coincidence.get(1).get(2)).isEqualTo(3.0);
+        assertThat(CodingAnnotationStudy.countCategoryCoincidence(item).get(1).get(2))
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    public void columnarCopyExpandsWeights()
+    {
+        WeightedCodingAnnotationStudy weighted = new WeightedCodingAnnotationStudy(2);
+        weighted.addMultipleItems(50, "A", "A");
+        weighted.addMultipleItems(3, "A", "B");
+        weighted.addMultipleItems(40, "B", "B");
+        ColumnarCodingAnnotationStudy copy = new ColumnarCodingAnnotationStudy(weighted);
+
+        assertThat(copy.getItemCount()).isEqualTo(93);
+        assertThat(new KrippendorffAlphaAgreement(copy, new NominalDistanceFunction())
+                .calculateAgreement()).isCloseTo(
+                        new KrippendorffAlphaAgreement(weighted, new NominalDistanceFunction())
+                                .calculateAgreement(),
+                        offset(1e-12));
+
+        weighted.addWeightedItem(0.5, "A", "B");
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> new ColumnarCodingAnnotationStudy(weighted));
+    }
+
+    @Test
+    public void pairwiseAgreementIsWeighted()
+    {
+        CodingAnnotationStudy expanded = new CodingAnnotationStudy(3);
+        WeightedCodingAnnotationStudy weighted = new WeightedCodingAnnotationStudy(3);
+        Object[][] patterns = { { 1, 1, null }, { 1, 2, 2 }, { null, 3, 3 }, { 2, 3, 2 } };
+        int[] counts = { 4, 3, 7, 2 };
+        for (int i = 0; i < patterns.length; i++) {
+            expanded.addMultipleItems(counts[i], patterns[i]);
+            weighted.addMultipleItems(counts[i], patterns[i]);
+        }
+
+        PairwiseAgreementMatrix expectedMatrix = new PairwiseAgreementMatrix(expanded,
+                new IntervalDistanceFunction());
+        PairwiseAgreementMatrix matrix = new PairwiseAgreementMatrix(weighted,
+                new IntervalDistanceFunction());
+        double[][][] expected = { expectedMatrix.calculatePercentageAgreement(),
+                expectedMatrix.calculateCohenKappa(), expectedMatrix.calculateScottPi(),
+                expectedMatrix.calculateWeightedKappa() };
+        double[][][] actual = { matrix.calculatePercentageAgreement(),
+                matrix.calculateCohenKappa(), matrix.calculateScottPi(),
+                matrix.calculateWeightedKappa() };
+        for (int i = 0; i < expected.length; i++) {
+            for (int m = 0; m < 3; m++) {
+                for (int n = 0; n < 3; n++) {
+                    assertThat(actual[i][m][n]).isCloseTo(expected[i][m][n], offset(1e-12));
+                }
+            }
+        }
+        assertThat(matrix.getItemCount(1, 2)).isEqualTo(12.0);
+    }
+}
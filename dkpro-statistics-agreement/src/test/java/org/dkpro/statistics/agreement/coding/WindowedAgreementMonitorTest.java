@@ -0,0 +1,85 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.coding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+import org.dkpro.statistics.agreement.distance.IntervalDistanceFunction;
+import org.dkpro.statistics.agreement.distance.NominalDistanceFunction;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link WindowedAgreementMonitor}.
+ */
+public class WindowedAgreementMonitorTest
+{
+    @Test
+    public void testItemWindow()
+    {
+        Object[][] items = new Object[50][];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = new Object[] { i % 5, (i * 3) % 7 < 4 ? i % 5 : (i + 1) % 5,
+                    i % 11 == 0 ? null : (i / 2) % 5 };
+        }
+
+        // Window of the last 4 buckets of 5 items.
+        WindowedAgreementMonitor monitor = new WindowedAgreementMonitor(3, 4, 5);
+        for (Object[] item : items) {
+            monitor.addItem(item);
+        }
+        assertThat(monitor.getWindowItemCount()).isEqualTo(20);
+
+        CodingAnnotationStudy expected = new CodingAnnotationStudy(3);
+        for (int i = items.length - 20; i < items.length; i++) {
+            expected.addItemAsArray(items[i]);
+        }
+        assertThat(monitor.calculatePercentageAgreement()).isCloseTo(
+                new PercentageAgreement(expected).calculateAgreement(), offset(1e-12));
+        assertThat(monitor.calculateFleissKappa()).isCloseTo(
+                new FleissKappaAgreement(expected).calculateAgreement(), offset(1e-12));
+        assertThat(monitor.calculateKrippendorffAlpha(new NominalDistanceFunction())).isCloseTo(
+                new KrippendorffAlphaAgreement(expected, new NominalDistanceFunction())
+                        .calculateAgreement(),
+                offset(1e-12));
+        assertThat(monitor.calculateKrippendorffAlpha(new IntervalDistanceFunction())).isCloseTo(
+                new KrippendorffAlphaAgreement(expected, new IntervalDistanceFunction())
+                        .calculateAgreement(),
+                offset(1e-12));
+    }
+
+    @Test
+    public void testTimeWindow()
+    {
+        // Window of 3 buckets of 1000 ms.
+        WindowedAgreementMonitor monitor = new WindowedAgreementMonitor(2, 3, 1000);
+        assertThat(monitor.addItemAt(500, "A", "B")).isTrue();
+        assertThat(monitor.addItemAt(1500, "A", "A")).isTrue();
+        assertThat(monitor.addItemAt(2500, "B", "B")).isTrue();
+        assertThat(monitor.getWindowItemCount()).isEqualTo(3);
+
+        assertThat(monitor.addItemAt(3100, "A", "A")).isTrue();
+        assertThat(monitor.getWindowItemCount()).isEqualTo(3);
+        assertThat(monitor.calculatePercentageAgreement()).isEqualTo(1.0);
+        assertThat(monitor.addItemAt(200, "A", "B")).isFalse();
+
+        monitor.advanceTo(5000);
+        assertThat(monitor.getWindowItemCount()).isEqualTo(1);
+        assertThat(monitor.getWindowStatistics().getAnnotationCount(
+                monitor.getWindowStatistics().getCategoryCode("A"))).isEqualTo(2.0);
+
+        monitor.advanceTo(10000);
+        assertThat(monitor.getWindowItemCount()).isEqualTo(0);
+    }
+}
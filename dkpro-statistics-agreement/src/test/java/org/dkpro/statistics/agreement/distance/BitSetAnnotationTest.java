@@ -0,0 +1,132 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.distance;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Iterator;
+
+import org.junit.jupiter.api.Test;
+
+public class BitSetAnnotationTest
+{
+    @Test
+    public void equalsPlainSetAnnotationsWithTheSameElements()
+    {
+        BitSetAnnotation bitSet = new BitSetAnnotation("A", "B", null);
+        SetAnnotation plain = new SetAnnotation("B", null, "A");
+
+        assertThat((Object) bitSet).isEqualTo(plain);
+        assertThat((Object) plain).isEqualTo(bitSet);
+        assertThat(bitSet.hashCode()).isEqualTo(plain.hashCode());
+        assertThat(bitSet.compareTo(plain)).isZero();
+        assertThat((Object) bitSet).isEqualTo(new BitSetAnnotation("B", "A", null));
+        assertThat((Object) bitSet).isNotEqualTo(new BitSetAnnotation("A", "B"));
+    }
+
+    @Test
+    public void elementsCanBeAddedAndRemoved()
+    {
+        LabelDictionary dictionary = new LabelDictionary();
+        BitSetAnnotation sut = new BitSetAnnotation(dictionary);
+        for (int i = 0; i < 200; i++) {
+            assertThat(sut.add(i)).isTrue();
+        }
+        assertThat(sut.add(5)).isFalse();
+        assertThat(sut.size()).isEqualTo(200);
+        assertThat(sut.getWordCount()).isGreaterThanOrEqualTo(4);
+
+        assertThat(sut.remove(5)).isTrue();
+        assertThat(sut.remove(5)).isFalse();
+        assertThat(sut.remove("unknown")).isFalse();
+        assertThat(sut.contains(5)).isFalse();
+        assertThat(sut.contains(199)).isTrue();
+
+        Iterator<Object> iterator = sut.iterator();
+        while (iterator.hasNext()) {
+            if ((Integer) iterator.next() % 2 == 0) {
+                iterator.remove();
+            }
+        }
+        assertThat(sut.size()).isEqualTo(99);
+        assertThat(sut.toArray()).hasSize(99);
+        assertThat(sut.contains(7)).isTrue();
+        assertThat(sut.contains(8)).isFalse();
+    }
+
+    @Test
+    public void commonElementsAreCountedForAllRepresentations()
+    {
+        BitSetAnnotation bitSet = new BitSetAnnotation("A", "B", "C");
+
+        assertThat(bitSet.countCommonElements(new BitSetAnnotation("B", "C", "D"))).isEqualTo(2);
+        assertThat(bitSet.countCommonElements(new SetAnnotation("B", "C", "D"))).isEqualTo(2);
+        assertThat(new SetAnnotation("C", "D").countCommonElements(bitSet)).isEqualTo(1);
+        assertThat(bitSet.countCommonElements(
+                new BitSetAnnotation(new LabelDictionary(), new SetAnnotation("A", "E"))))
+                        .isEqualTo(1);
+    }
+
+    @Test
+    public void distancesMatchPlainSetAnnotations()
+    {
+        SetAnnotation[] sets = { new SetAnnotation(), new SetAnnotation("A"),
+                new SetAnnotation("A", "B"), new SetAnnotation("B", "C"),
+                new SetAnnotation("A", "B", "C"), new SetAnnotation("D") };
+        IDistanceFunction[] distanceFunctions = { new SetAnnotationDistanceFunction(),
+                new MASISetAnnotationDistanceFunction() };
+        for (IDistanceFunction distanceFunction : distanceFunctions) {
+            for (SetAnnotation set1 : sets) {
+                for (SetAnnotation set2 : sets) {
+                    assertThat(distanceFunction.measureDistance(null, new BitSetAnnotation(set1),
+                            new BitSetAnnotation(set2)))
+                                    .isEqualTo(distanceFunction.measureDistance(null, set1, set2));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void serializationPreservesTheElements() throws Exception
+    {
+        BitSetAnnotation sut = new BitSetAnnotation("A", 1, null);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(sut);
+        }
+        Object result;
+        try (ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray()))) {
+            result = in.readObject();
+        }
+
+        assertThat(result).isInstanceOf(BitSetAnnotation.class);
+        assertThat(result).isEqualTo(sut);
+    }
+
+    @Test
+    public void defaultDictionaryIsSharedWhileReferenced()
+    {
+        BitSetAnnotation first = new BitSetAnnotation("A", "B");
+        BitSetAnnotation second = new BitSetAnnotation("B", "C");
+
+        assertThat(first.getDictionary()).isSameAs(LabelDictionary.getDefault());
+        assertThat(second.getDictionary()).isSameAs(first.getDictionary());
+        assertThat(first.countCommonElements(second)).isEqualTo(1);
+    }
+}
@@ -82,4 +82,120 @@ public class CachedDistanceFunctionTest
         // (null, null) served once from cache; (null, "A") and ("A", null) are distinct keys.
         assertThat(wrappee.invocations).isEqualTo(3);
     }
+
+    @Test
+    public void hitsAndMissesAreCounted()
+    {
+        CachedDistanceFunction sut = new CachedDistanceFunction(new NominalDistanceFunction());
+
+        sut.measureDistance(null, "A", "B");
+        sut.measureDistance(null, "A", "B");
+        sut.measureDistance(null, "B", "A");
+
+        assertThat(sut.getMissCount()).isEqualTo(2);
+        assertThat(sut.getHitCount()).isEqualTo(1);
+
+        sut.clear();
+        assertThat(sut.getMissCount()).isEqualTo(0);
+        sut.measureDistance(null, "A", "B");
+        assertThat(sut.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void capacityBoundsTheNumberOfCachedDistances()
+    {
+        CountingDistanceFunction wrappee = new CountingDistanceFunction();
+        CachedDistanceFunction sut = new CachedDistanceFunction(wrappee, 8);
+        assertThat(sut.getCapacity()).isEqualTo(8);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(sut.measureDistance(null, i, i)).isEqualTo(0.0);
+            assertThat(sut.measureDistance(null, i, i + 1)).isEqualTo(1.0);
+        }
+        int invocations = wrappee.invocations;
+        for (int i = 0; i < 100; i++) {
+            sut.measureDistance(null, i, i);
+        }
+
+        // At most 8 of the 100 pairs can be served from the cache.
+        assertThat(wrappee.invocations - invocations).isGreaterThanOrEqualTo(92);
+    }
+
+    @Test
+    public void categoriesAreOnlyRetainedByCachedDistances()
+    {
+        CachedDistanceFunction sut = new CachedDistanceFunction(new NominalDistanceFunction(), 8);
+        for (int i = 0; i < 10000; i++) {
+            sut.measureDistance(null, "A" + i, "B" + i);
+        }
+        assertThat(countRetainedCategories(sut)).isBetween(1, 8);
+
+        sut.clear();
+        assertThat(countRetainedCategories(sut)).isZero();
+        assertThat(sut.measureDistance(null, "A1", "A1")).isEqualTo(0.0);
+        assertThat(sut.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void unboundedModeUsesTheHashtable()
+    {
+        CountingDistanceFunction wrappee = new CountingDistanceFunction();
+        CachedDistanceFunction sut = new CachedDistanceFunction(wrappee,
+                CachedDistanceFunction.UNBOUNDED);
+
+        for (int i = 0; i < 1000; i++) {
+            sut.measureDistance(null, i, i + 1);
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertThat(sut.measureDistance(null, i, i + 1)).isEqualTo(1.0);
+        }
+
+        assertThat(wrappee.invocations).isEqualTo(1000);
+        assertThat(sut.getHitCount()).isEqualTo(1000);
+        assertThat(sut.cache).hasSize(1000);
+    }
+
+    @Test
+    public void concurrentLookupsAgreeWithTheWrappedFunction() throws InterruptedException
+    {
+        IDistanceFunction wrappee = new IntervalDistanceFunction();
+        CachedDistanceFunction sut = new CachedDistanceFunction(wrappee, 64);
+        Thread[] threads = new Thread[4];
+        boolean[] failed = new boolean[threads.length];
+        for (int t = 0; t < threads.length; t++) {
+            int threadIdx = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 20000; i++) {
+                    int category1 = (i * 7 + threadIdx) % 50;
+                    int category2 = (i * 13) % 50;
+                    if (sut.measureDistance(null, category1, category2) != wrappee
+                            .measureDistance(null, category1, category2)) {
+                        failed[threadIdx] = true;
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        for (boolean threadFailed : failed) {
+            assertThat(threadFailed).isFalse();
+        }
+        assertThat(sut.getHitCount() + sut.getMissCount()).isEqualTo(80000);
+    }
+
+    private static int countRetainedCategories(final CachedDistanceFunction sut)
+    {
+        int result = 0;
+        for (CachedDistanceFunction.Segment segment : sut.segments) {
+            for (int slot = 0; slot < segment.keys1.length; slot++) {
+                if (segment.keys1[slot] != null) {
+                    result++;
+                }
+            }
+        }
+        return result;
+    }
 }
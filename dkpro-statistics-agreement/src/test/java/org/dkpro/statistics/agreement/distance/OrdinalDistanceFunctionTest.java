@@ -49,6 +49,30 @@ public class OrdinalDistanceFunctionTest
         assertThat(sut.measureDistance(study(), 1, 3)).isCloseTo(16.0, offset(0.0001));
     }
 
+    @Test
+    public void categoriesOutsideTheStudyContributeNoMass()
+    {
+        // (nk[1]/2 + nk[2] + nk[3])^2 = (1 + 2 + 2)^2 = 25
+        assertThat(sut.measureDistance(study(), 1, 5)).isCloseTo(25.0, offset(0.0001));
+        assertThat(sut.measureDistance(study(), 5, 1)).isCloseTo(25.0, offset(0.0001));
+        // (nk[1] + nk[2] + nk[3])^2 = 36
+        assertThat(sut.measureDistance(study(), 0, 4)).isCloseTo(36.0, offset(0.0001));
+        assertThat(sut.measureDistance(study(), 4, 5)).isEqualTo(0.0);
+    }
+
+    @Test
+    public void distancesFollowChangesOfTheStudy()
+    {
+        CodingAnnotationStudy study = new CodingAnnotationStudy(2);
+        study.addItem(1, 1);
+        study.addItem(3, 3);
+        assertThat(sut.measureDistance(study, 1, 3)).isCloseTo(4.0, offset(0.0001));
+
+        // (nk[1]/2 + nk[3]/2 + nk[2])^2 = (1 + 1 + 2)^2 = 16
+        study.addItem(2, 2);
+        assertThat(sut.measureDistance(study, 1, 3)).isCloseTo(16.0, offset(0.0001));
+    }
+
     @Test
     public void nonIntegerCategoriesFallBackToNominal()
     {
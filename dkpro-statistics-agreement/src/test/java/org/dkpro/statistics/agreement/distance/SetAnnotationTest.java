@@ -15,6 +15,8 @@ package org.dkpro.statistics.agreement.distance;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.Iterator;
+
 import org.junit.jupiter.api.Test;
 
 public class SetAnnotationTest
@@ -87,4 +89,33 @@ public class SetAnnotationTest
         assertThat(Integer.signum(numeric.compareTo(textual)))
                 .isEqualTo(-Integer.signum(textual.compareTo(numeric)));
     }
+
+    @Test
+    public void cachedKeyIsDiscardedWhenTheSetIsModified()
+    {
+        SetAnnotation a = new SetAnnotation("A");
+        SetAnnotation b = new SetAnnotation("A", "B");
+        assertThat(a.compareTo(b)).isNegative();
+        assertThat((Object) a).isNotEqualTo(b);
+
+        a.add("B");
+        assertThat(a.compareTo(b)).isZero();
+        assertThat((Object) a).isEqualTo(b);
+        assertThat(a.hashCode()).isEqualTo(b.hashCode());
+
+        Iterator<Object> iterator = a.iterator();
+        while (iterator.hasNext()) {
+            if ("A".equals(iterator.next())) {
+                iterator.remove();
+            }
+        }
+        assertThat((Object) a).isEqualTo(new SetAnnotation("B"));
+        assertThat(a.hashCode()).isEqualTo(new SetAnnotation("B").hashCode());
+        assertThat(a.compareTo(new SetAnnotation("B"))).isZero();
+
+        a.retainAll(new SetAnnotation("C"));
+        assertThat(a.hashCode()).isEqualTo(new SetAnnotation().hashCode());
+        b.clear();
+        assertThat(b.compareTo(new SetAnnotation())).isZero();
+    }
 }
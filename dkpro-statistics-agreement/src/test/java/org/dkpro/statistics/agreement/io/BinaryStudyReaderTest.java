@@ -0,0 +1,277 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.io;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.offset;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.dkpro.statistics.agreement.aligning.AlignableAnnotationUnit;
+import org.dkpro.statistics.agreement.aligning.data.AlignableAnnotationTextUnit;
+import org.dkpro.statistics.agreement.aligning.data.AnnotationSet;
+import org.dkpro.statistics.agreement.aligning.data.Rater;
+import org.dkpro.statistics.agreement.coding.CodingAnnotationStudy;
+import org.dkpro.statistics.agreement.coding.ColumnarCodingAnnotationStudy;
+import org.dkpro.statistics.agreement.coding.ICodingAnnotationStudy;
+import org.dkpro.statistics.agreement.coding.Krippendorff2004Test;
+import org.dkpro.statistics.agreement.coding.KrippendorffAlphaAgreement;
+import org.dkpro.statistics.agreement.coding.PercentageAgreement;
+import org.dkpro.statistics.agreement.coding.WeightedCodingAnnotationStudy;
+import org.dkpro.statistics.agreement.distance.IntervalDistanceFunction;
+import org.dkpro.statistics.agreement.distance.NominalDistanceFunction;
+import org.dkpro.statistics.agreement.distance.SetAnnotation;
+import org.dkpro.statistics.agreement.unitizing.IUnitizingAnnotationUnit;
+import org.dkpro.statistics.agreement.unitizing.KrippendorffAlphaUnitizingAgreement;
+import org.dkpro.statistics.agreement.unitizing.UnitizingAgreementTest;
+import org.dkpro.statistics.agreement.unitizing.UnitizingAnnotationStudy;
+import org.junit.jupiter.api.Test;
+
+public class BinaryStudyReaderTest
+{
+    @Test
+    public void codingStudiesAreMappedWithTheirCodes() throws IOException
+    {
+        CodingAnnotationStudy study = Krippendorff2004Test.createExample3();
+        Path file = Files.createTempFile("coding", ".bin");
+        try {
+            BinaryStudyWriter.writeCodingStudy(study, file);
+            MappedCodingAnnotationStudy mapped = BinaryStudyReader.openCodingStudy(file);
+
+            assertThat(mapped.getRaterCount()).isEqualTo(study.getRaterCount());
+            assertThat(mapped.getItemCount()).isEqualTo(study.getItemCount());
+            assertThat(mapped.getUnitCount()).isEqualTo(study.getUnitCount());
+            assertThat(mapped.hasMissingValues()).isEqualTo(study.hasMissingValues());
+            assertThat(mapped.getCategoryCount()).isEqualTo(study.getCategoryCount());
+            for (int itemIdx = 0; itemIdx < study.getItemCount(); itemIdx++) {
+                for (int raterIdx = 0; raterIdx < study.getRaterCount(); raterIdx++) {
+                    assertThat(mapped.getItem(itemIdx).getUnit(raterIdx).getCategory())
+                            .isEqualTo(study.getItem(itemIdx).getUnit(raterIdx).getCategory());
+                }
+            }
+
+            assertThat(new PercentageAgreement(mapped).calculateAgreement())
+                    .isEqualTo(new PercentageAgreement(study).calculateAgreement());
+            assertThat(new KrippendorffAlphaAgreement(mapped, new IntervalDistanceFunction())
+                    .calculateAgreement()).isEqualTo(
+                            new KrippendorffAlphaAgreement(study, new IntervalDistanceFunction())
+                                    .calculateAgreement());
+        }
+        finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void weightedStudiesAreWrittenAsExpandedItems() throws IOException
+    {
+        WeightedCodingAnnotationStudy study = new WeightedCodingAnnotationStudy(2);
+        study.addMultipleItems(50, "A", "A");
+        study.addMultipleItems(3, "A", "B");
+        study.addMultipleItems(40, "B", "B");
+        Path file = Files.createTempFile("coding", ".bin");
+        try {
+            BinaryStudyWriter.writeCodingStudy(study, file);
+            MappedCodingAnnotationStudy mapped = BinaryStudyReader.openCodingStudy(file);
+
+            assertThat(mapped.getItemCount()).isEqualTo(93);
+            assertThat(new KrippendorffAlphaAgreement(mapped, new NominalDistanceFunction())
+                    .calculateAgreement()).isCloseTo(
+                            new KrippendorffAlphaAgreement(study, new NominalDistanceFunction())
+                                    .calculateAgreement(),
+                            offset(1e-12));
+
+            study.addWeightedItem(0.5, "A", "B");
+            assertThatExceptionOfType(IllegalArgumentException.class)
+                    .isThrownBy(() -> BinaryStudyWriter.writeCodingStudy(study, file));
+        }
+        finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void categoriesOfAllKindsAreStored() throws Exception
+    {
+        ColumnarCodingAnnotationStudy study = new ColumnarCodingAnnotationStudy(2);
+        study.addItem("A", 1);
+        study.addItem(2L, 1.5);
+        study.addItem(true, null);
+        study.addItem(new SetAnnotation("X", "Y"), new SetAnnotation());
+        study.addItem("B", LocalDate.of(2020, 1, 1));
+        for (int i = 0; i < 300; i++) {
+            // Requires codes wider than a single byte.
+            study.addItem("C" + i, "C" + (i + 1));
+        }
+        Path file = Files.createTempFile("coding", ".bin");
+        try {
+            BinaryStudyWriter.writeCodingStudy(study, file);
+            MappedCodingAnnotationStudy mapped = BinaryStudyReader.openCodingStudy(file);
+
+            assertThat(mapped.getCategoryCount()).isEqualTo(study.getCategoryCount());
+            for (int itemIdx = 0; itemIdx < study.getItemCount(); itemIdx++) {
+                for (int raterIdx = 0; raterIdx < 2; raterIdx++) {
+                    assertThat(mapped.getCode(itemIdx, raterIdx))
+                            .isEqualTo(study.getCode(itemIdx, raterIdx));
+                    assertThat(mapped.getItem(itemIdx).getUnit(raterIdx).getCategory())
+                            .isEqualTo(study.getItem(itemIdx).getUnit(raterIdx).getCategory());
+                }
+            }
+
+            // Serializing a mapped study yields an in-memory copy.
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(mapped);
+            }
+            Object copy;
+            try (ObjectInputStream in = new ObjectInputStream(
+                    new ByteArrayInputStream(bytes.toByteArray()))) {
+                copy = in.readObject();
+            }
+            assertThat(copy).isInstanceOf(ColumnarCodingAnnotationStudy.class);
+            assertThat(((ICodingAnnotationStudy) copy).getUnitCount())
+                    .isEqualTo(study.getUnitCount());
+        }
+        finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void unitizingStudiesAreMappedInTheirOriginalOrder() throws IOException
+    {
+        UnitizingAnnotationStudy study = UnitizingAgreementTest.createExample();
+        Path file = Files.createTempFile("unitizing", ".bin");
+        try {
+            BinaryStudyWriter.writeUnitizingStudy(study, file);
+            MappedUnitizingAnnotationStudy mapped = BinaryStudyReader.openUnitizingStudy(file);
+
+            assertThat(mapped.getContinuumBegin()).isEqualTo(study.getContinuumBegin());
+            assertThat(mapped.getContinuumLength()).isEqualTo(study.getContinuumLength());
+            assertThat(mapped.getUnitCount()).isEqualTo(study.getUnitCount());
+            assertThat(mapped.getUnitCount(1)).isEqualTo(study.getUnitCount(1));
+            Iterator<IUnitizingAnnotationUnit> expected = study.getUnits().iterator();
+            for (IUnitizingAnnotationUnit unit : mapped.getUnits()) {
+                IUnitizingAnnotationUnit expectedUnit = expected.next();
+                assertThat(unit.getBegin()).isEqualTo(expectedUnit.getBegin());
+                assertThat(unit.getLength()).isEqualTo(expectedUnit.getLength());
+                assertThat(unit.getRaterIdx()).isEqualTo(expectedUnit.getRaterIdx());
+                assertThat(unit.getCategory()).isEqualTo(expectedUnit.getCategory());
+            }
+            assertThat(expected.hasNext()).isFalse();
+
+            assertThat(new KrippendorffAlphaUnitizingAgreement(mapped).calculateAgreement())
+                    .isEqualTo(new KrippendorffAlphaUnitizingAgreement(study)
+                            .calculateAgreement());
+        }
+        finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void annotationSetsAreReadWithAllUnits() throws IOException
+    {
+        Rater rater1 = new Rater("alice", 0);
+        Rater rater2 = new Rater("bob", 1);
+        List<AlignableAnnotationUnit> units = new ArrayList<AlignableAnnotationUnit>();
+        units.add(new AlignableAnnotationUnit(rater1, "entity", 0, 5, Map.of("label", "PER")));
+        units.add(new AlignableAnnotationUnit(rater2, "entity", 1, 5, Map.of("label", "ORG")));
+        units.add(AlignableAnnotationTextUnit.textUnit(rater2, 6, 10, "text"));
+        AnnotationSet annotationSet = new AnnotationSet(units);
+        Path file = Files.createTempFile("annotations", ".bin");
+        try {
+            BinaryStudyWriter.writeAnnotationSet(annotationSet, file);
+            AnnotationSet result = BinaryStudyReader.readAnnotationSet(file);
+
+            assertThat(result.getRaterCount()).isEqualTo(2);
+            assertThat(result.getUnitCount()).isEqualTo(3);
+            assertThat(result).isEqualTo(annotationSet);
+            assertThat(result.getUnitsWithRater(rater1).get(0).getRaterIdx()).isEqualTo(0);
+            assertThat(result.getUnitsWithType(AlignableAnnotationTextUnit.TYPE).get(0))
+                    .isInstanceOf(AlignableAnnotationTextUnit.class);
+        }
+        finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void filesOfOtherKindsAreRejected() throws IOException
+    {
+        Path file = Files.createTempFile("coding", ".bin");
+        try {
+            BinaryStudyWriter.writeCodingStudy(Krippendorff2004Test.createExample3(), file);
+            assertThatExceptionOfType(IOException.class)
+                    .isThrownBy(() -> BinaryStudyReader.openUnitizingStudy(file));
+
+            Files.write(file, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+            assertThatExceptionOfType(IOException.class)
+                    .isThrownBy(() -> BinaryStudyReader.openCodingStudy(file));
+        }
+        finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void unsupportedVersionsAreRejected() throws IOException
+    {
+        Path file = Files.createTempFile("coding", ".bin");
+        try {
+            BinaryStudyWriter.writeCodingStudy(Krippendorff2004Test.createExample3(), file);
+            byte[] bytes = Files.readAllBytes(file);
+            for (short version : new short[] { -1, 0, BinaryStudyFormat.VERSION + 1 }) {
+                bytes[4] = (byte) (version >> 8);
+                bytes[5] = (byte) version;
+                Files.write(file, bytes);
+                assertThatExceptionOfType(IOException.class)
+                        .isThrownBy(() -> BinaryStudyReader.openCodingStudy(file))
+                        .withMessageContaining("version");
+            }
+        }
+        finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void categoriesOfOtherClassesAreNotDeserialized() throws IOException
+    {
+        CodingAnnotationStudy study = new CodingAnnotationStudy(2);
+        study.addItem(URI.create("http://example.org"), "A");
+        Path file = Files.createTempFile("coding", ".bin");
+        try {
+            BinaryStudyWriter.writeCodingStudy(study, file);
+            assertThatExceptionOfType(IOException.class)
+                    .isThrownBy(() -> BinaryStudyReader.openCodingStudy(file));
+        }
+        finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
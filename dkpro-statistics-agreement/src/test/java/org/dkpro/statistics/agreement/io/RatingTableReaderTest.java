@@ -0,0 +1,168 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.statistics.agreement.io;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.dkpro.statistics.agreement.coding.CodingAnnotationStudy;
+import org.dkpro.statistics.agreement.coding.ColumnarCodingAnnotationStudy;
+import org.dkpro.statistics.agreement.coding.ICodingAnnotationStudy;
+import org.dkpro.statistics.agreement.coding.Krippendorff2004Test;
+import org.dkpro.statistics.agreement.coding.KrippendorffAlphaAgreement;
+import org.dkpro.statistics.agreement.distance.NominalDistanceFunction;
+import org.junit.jupiter.api.Test;
+
+public class RatingTableReaderTest
+{
+    @Test
+    public void wideFilesAreReadWithMissingRatings() throws IOException
+    {
+        CodingAnnotationStudy expected = Krippendorff2004Test.createExample3();
+        StringBuilder text = new StringBuilder("item\tA\tB\tC\tD\n");
+        int itemIdx = 0;
+        for (var item : expected.getItems()) {
+            text.append("i").append(itemIdx++);
+            for (int raterIdx = 0; raterIdx < expected.getRaterCount(); raterIdx++) {
+                Object category = item.getUnit(raterIdx).getCategory();
+                text.append('\t').append(category == null ? "NA" : category);
+            }
+            text.append('\n');
+        }
+
+        RatingTableReader reader = new RatingTableReader(RatingTableReader.Layout.WIDE);
+        reader.setMissingValue("NA");
+        // A tiny buffer splits fields across reads.
+        reader.setBufferSize(5);
+        ColumnarCodingAnnotationStudy study = reader.read(channel(text.toString()));
+
+        assertThat(study.getRaterCount()).isEqualTo(4);
+        assertThat(study.findRater("C")).isEqualTo(2);
+        assertSameRatings(study, expected);
+        assertThat(new KrippendorffAlphaAgreement(study, new NominalDistanceFunction())
+                .calculateAgreement()).isEqualTo(
+                        new KrippendorffAlphaAgreement(expected, new NominalDistanceFunction())
+                                .calculateAgreement());
+    }
+
+    @Test
+    public void csvFieldsMayBeQuoted() throws IOException
+    {
+        String text = "\uFEFFr1,r2\r\n" //
+                + "\"a,b\",\"say \"\"hi\"\"\"\r\n" //
+                + "\r\n" //
+                + ",\"multi\nline\"";
+
+        RatingTableReader reader = new RatingTableReader(RatingTableReader.Layout.WIDE);
+        reader.setDelimiter(',');
+        reader.setItemColumn(false);
+        ColumnarCodingAnnotationStudy study = reader.read(channel(text));
+
+        assertThat(study.findRater("r1")).isEqualTo(0);
+        assertThat(study.getItemCount()).isEqualTo(2);
+        assertThat(study.getItem(0).getUnit(0).getCategory()).isEqualTo("a,b");
+        assertThat(study.getItem(0).getUnit(1).getCategory()).isEqualTo("say \"hi\"");
+        assertThat(study.getItem(1).getUnit(0).getCategory()).isNull();
+        assertThat(study.getItem(1).getUnit(1).getCategory()).isEqualTo("multi\nline");
+    }
+
+    @Test
+    public void longFilesAreReadInArbitraryOrder() throws IOException
+    {
+        String text = "item\trater\tlabel\n" //
+                + "x\tanna\t1\n" //
+                + "y\tanna\t2\n" //
+                + "x\tbert\t1\n" //
+                + "z\tbert\t3\n" //
+                + "y\tcarl\t2\n" //
+                + "z\tanna\t\n";
+
+        RatingTableReader reader = new RatingTableReader(RatingTableReader.Layout.LONG);
+        reader.setLabelConverter(Integer::valueOf);
+        ColumnarCodingAnnotationStudy study = reader.read(channel(text));
+
+        CodingAnnotationStudy expected = new CodingAnnotationStudy(3);
+        expected.addItem(1, 1, null);
+        expected.addItem(2, null, 2);
+        expected.addItem(null, 3, null);
+        assertThat(study.getRaterCount()).isEqualTo(3);
+        assertThat(study.findRater("carl")).isEqualTo(2);
+        assertThat(study.getUnitCount()).isEqualTo(5);
+        assertThat(study.hasMissingValues()).isTrue();
+        assertSameRatings(study, expected);
+    }
+
+    @Test
+    public void malformedFilesAreRejected() throws IOException
+    {
+        RatingTableReader wide = new RatingTableReader(RatingTableReader.Layout.WIDE);
+        assertThatExceptionOfType(IOException.class)
+                .isThrownBy(() -> wide.read(channel("item\tA\tB\ni1\tx\n")))
+                .withMessageContaining("line 2");
+        assertThatExceptionOfType(IOException.class)
+                .isThrownBy(() -> wide.read(channel("item\tA\ni1\t\"x\n")));
+
+        RatingTableReader reader = new RatingTableReader(RatingTableReader.Layout.LONG);
+        reader.setHeader(false);
+        assertThatExceptionOfType(IOException.class)
+                .isThrownBy(() -> reader.read(channel("x\tanna\ta\nx\tanna\tb\n")))
+                .withMessageContaining("Duplicate");
+    }
+
+    @Test
+    public void filesAreReadFromDisk() throws IOException
+    {
+        Path file = Files.createTempFile("ratings", ".tsv");
+        try {
+            Files.writeString(file, "1\t2\n3\t\n");
+            RatingTableReader reader = new RatingTableReader(RatingTableReader.Layout.WIDE);
+            reader.setHeader(false);
+            reader.setItemColumn(false);
+            ColumnarCodingAnnotationStudy study = reader.read(file);
+
+            assertThat(study.getRaterCount()).isEqualTo(2);
+            assertThat(study.getItemCount()).isEqualTo(2);
+            assertThat(study.getUnitCount()).isEqualTo(3);
+        }
+        finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static ReadableByteChannel channel(final String text)
+    {
+        return Channels.newChannel(
+                new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static void assertSameRatings(final ICodingAnnotationStudy actual,
+            final ICodingAnnotationStudy expected)
+    {
+        assertThat(actual.getItemCount()).isEqualTo(expected.getItemCount());
+        for (int itemIdx = 0; itemIdx < expected.getItemCount(); itemIdx++) {
+            for (int raterIdx = 0; raterIdx < expected.getRaterCount(); raterIdx++) {
+                assertThat(actual.getItem(itemIdx).getUnit(raterIdx).getCategory())
+                        .isEqualTo(expected.getItem(itemIdx).getUnit(raterIdx).getCategory());
+            }
+        }
+    }
+}